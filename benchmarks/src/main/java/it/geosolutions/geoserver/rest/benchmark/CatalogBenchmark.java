@@ -0,0 +1,121 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.benchmark;
+
+import it.geosolutions.geoserver.rest.GeoServerRESTManager;
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerList;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.standin.StandInGeoServer;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reader and publisher throughput against the embedded {@link StandInGeoServer},
+ * for a catalog of <TT>workspaces * 10 * 10</TT> layers answering with the given
+ * latency.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    @Param({ "1", "10" })
+    public int workspaces;
+
+    /** Server side latency, in milliseconds. */
+    @Param({ "0", "5" })
+    public long latency;
+
+    private StandInGeoServer server;
+
+    private GeoServerRESTReader reader;
+
+    private GeoServerRESTPublisher publisher;
+
+    private final AtomicInteger published = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StandInGeoServer();
+        server.populate(workspaces, 10, 10);
+        server.setLatency(latency, 0);
+        server.start();
+        GeoServerRESTManager manager = new GeoServerRESTManager(server.getURL(), "admin", "geoserver");
+        reader = manager.getReader();
+        publisher = manager.getPublisher();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public RESTLayerList getLayers() {
+        return reader.getLayers();
+    }
+
+    @Benchmark
+    public RESTLayer getLayer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return reader.getLayer("ws" + random.nextInt(workspaces),
+                "layer" + random.nextInt(10) + "_" + random.nextInt(10));
+    }
+
+    @Benchmark
+    public boolean publishAndRemove() {
+        String name = "bench" + published.incrementAndGet();
+        GSFeatureTypeEncoder featureType = new GSFeatureTypeEncoder();
+        featureType.setName(name);
+        featureType.setSRS("EPSG:4326");
+        boolean done = publisher.publishDBLayer("ws0", "store0", featureType, new GSLayerEncoder());
+        return publisher.unpublishFeatureType("ws0", "store0", name) && done;
+    }
+}
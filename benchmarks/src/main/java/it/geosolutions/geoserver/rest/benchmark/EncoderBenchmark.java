@@ -0,0 +1,124 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.benchmark;
+
+import it.geosolutions.geoserver.rest.encoder.GSLayerGroupEncoder23;
+import it.geosolutions.geoserver.rest.encoder.coverage.GSImageMosaicEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building and serializing encoders.
+ * <P>
+ * The <TT>build*</TT> benchmarks measure the {@link it.geosolutions.geoserver.rest.encoder.utils.PropertyXMLEncoder}
+ * key handling, the <TT>*ToString</TT> and <TT>*WriteTo</TT> ones compare the
+ * String and the streaming serializations of the same, prebuilt, encoder.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncoderBenchmark {
+
+    /** Number of attributes, dimensions or layers. */
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private GSFeatureTypeEncoder featureType;
+
+    private GSImageMosaicEncoder imageMosaic;
+
+    private GSLayerGroupEncoder23 layerGroup;
+
+    @Setup
+    public void setUp() {
+        featureType = Payloads.featureType(size);
+        imageMosaic = Payloads.imageMosaic(size);
+        layerGroup = Payloads.layerGroup(size);
+    }
+
+    @Benchmark
+    public GSFeatureTypeEncoder buildFeatureType() {
+        return Payloads.featureType(size);
+    }
+
+    @Benchmark
+    public GSImageMosaicEncoder buildImageMosaic() {
+        return Payloads.imageMosaic(size);
+    }
+
+    @Benchmark
+    public GSLayerGroupEncoder23 buildLayerGroup() {
+        return Payloads.layerGroup(size);
+    }
+
+    @Benchmark
+    public String featureTypeToString() {
+        return featureType.toString();
+    }
+
+    @Benchmark
+    public void featureTypeWriteTo() throws XMLStreamException {
+        featureType.writeTo(NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public String imageMosaicToString() {
+        return imageMosaic.toString();
+    }
+
+    @Benchmark
+    public void imageMosaicWriteTo() throws XMLStreamException {
+        imageMosaic.writeTo(NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public String layerGroupToString() {
+        return layerGroup.toString();
+    }
+
+    @Benchmark
+    public void layerGroupWriteTo() throws XMLStreamException {
+        layerGroup.writeTo(NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+}
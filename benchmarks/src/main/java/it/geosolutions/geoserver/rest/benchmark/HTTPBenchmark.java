@@ -0,0 +1,158 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.benchmark;
+
+import it.geosolutions.geoserver.rest.HTTPUtils;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerList;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.http.JDKAsyncHTTPTransport;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.http.XmlElementEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Round trips against an embedded stub of the GeoServer REST API, through
+ * {@link HTTPUtils}, the pooled and the JDK transports.
+ * <P>
+ * Both throughput and latency percentiles are reported; run with
+ * <TT>-prof gc</TT> for the allocation rate.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class HTTPBenchmark {
+
+    /** Number of layers returned by the stub. */
+    @Param({ "10", "1000" })
+    public int layers;
+
+    private HttpServer server;
+
+    private String layersUrl;
+
+    private String featureTypeUrl;
+
+    private PooledHTTPTransport pooled;
+
+    private JDKAsyncHTTPTransport jdk;
+
+    private GSFeatureTypeEncoder featureType;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final byte[] layerList = Payloads.layerList(layers).getBytes("UTF-8");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+        server.createContext("/geoserver/rest/", (HttpExchange exchange) -> {
+            InputStream in = exchange.getRequestBody();
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // drain the request body
+            }
+            if (exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(200, layerList.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(layerList);
+                os.close();
+            } else {
+                exchange.sendResponseHeaders(201, -1);
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+
+        String base = "http://localhost:" + server.getAddress().getPort() + "/geoserver/rest";
+        layersUrl = base + "/layers.xml";
+        featureTypeUrl = base + "/workspaces/topp/datastores/roads/featuretypes";
+        pooled = new PooledHTTPTransport();
+        jdk = new JDKAsyncHTTPTransport();
+        featureType = Payloads.featureType(layers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pooled.shutdown();
+        jdk.shutdown();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public RESTLayerList httpUtilsGetLayers() {
+        return RESTLayerList.build(HTTPUtils.get(layersUrl, "admin", "geoserver"));
+    }
+
+    @Benchmark
+    public String pooledGet() {
+        return pooled.get(layersUrl, "admin", "geoserver");
+    }
+
+    @Benchmark
+    public String jdkGet() {
+        return jdk.get(layersUrl, "admin", "geoserver");
+    }
+
+    @Benchmark
+    public String pooledPostString() {
+        return pooled.postXml(featureTypeUrl, featureType.toString(), "admin", "geoserver");
+    }
+
+    @Benchmark
+    public String pooledPostStreamed() {
+        return pooled.post(featureTypeUrl, new XmlElementEntity(featureType), "admin", "geoserver");
+    }
+
+    @Benchmark
+    public String jdkPostStreamed() {
+        return jdk.post(featureTypeUrl, new XmlElementEntity(featureType), "admin", "geoserver");
+    }
+}
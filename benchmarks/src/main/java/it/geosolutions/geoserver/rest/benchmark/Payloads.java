@@ -0,0 +1,146 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.benchmark;
+
+import it.geosolutions.geoserver.rest.encoder.GSLayerGroupEncoder23;
+import it.geosolutions.geoserver.rest.encoder.GSResourceEncoder.ProjectionPolicy;
+import it.geosolutions.geoserver.rest.encoder.coverage.GSImageMosaicEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.FeatureTypeAttribute;
+import it.geosolutions.geoserver.rest.encoder.feature.GSAttributeEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.encoder.metadata.GSDimensionInfoEncoder;
+import it.geosolutions.geoserver.rest.encoder.metadata.GSDimensionInfoEncoder.Presentation;
+
+/**
+ * Representative encoders and canned GeoServer responses, sized by the
+ * benchmark parameters.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    static GSFeatureTypeEncoder featureType(int attributes) {
+        GSFeatureTypeEncoder fte = new GSFeatureTypeEncoder();
+        fte.setName("roads");
+        fte.setTitle("Roads");
+        fte.setAbstract("Road network");
+        fte.setSRS("EPSG:4326");
+        fte.setProjectionPolicy(ProjectionPolicy.FORCE_DECLARED);
+        fte.setLatLonBoundingBox(-180, -90, 180, 90, "EPSG:4326");
+        fte.setNativeBoundingBox(-180, -90, 180, 90, "EPSG:4326");
+        for (int i = 0; i < attributes; i++) {
+            GSAttributeEncoder attribute = new GSAttributeEncoder();
+            attribute.setAttribute(FeatureTypeAttribute.name, "attribute_" + i);
+            attribute.setAttribute(FeatureTypeAttribute.binding, "java.lang.String");
+            attribute.setAttribute(FeatureTypeAttribute.nillable, "true");
+            fte.setAttribute(attribute);
+            fte.addKeyword("keyword_" + i);
+            fte.setMetadataString("key_" + i, "value_" + i);
+        }
+        return fte;
+    }
+
+    static GSImageMosaicEncoder imageMosaic(int dimensions) {
+        GSImageMosaicEncoder encoder = new GSImageMosaicEncoder();
+        encoder.setName("mosaic");
+        encoder.setTitle("Mosaic");
+        encoder.setSRS("EPSG:4326");
+        encoder.setAllowMultithreading(true);
+        encoder.setMaxAllowedTiles(Integer.MAX_VALUE);
+        encoder.setBackgroundValues("-9999");
+        encoder.setSUGGESTED_TILE_SIZE("512,512");
+        encoder.setUSE_JAI_IMAGEREAD(false);
+        encoder.setSORTING("time D");
+        encoder.setMergeBehavior("STACK");
+        for (int i = 0; i < dimensions; i++) {
+            GSDimensionInfoEncoder dimension = new GSDimensionInfoEncoder(true);
+            dimension.setPresentation(Presentation.LIST);
+            dimension.setUnit("unit_" + i);
+            encoder.setMetadataDimension("custom_dimension_" + i, dimension, true);
+        }
+        return encoder;
+    }
+
+    static GSLayerGroupEncoder23 layerGroup(int layers) {
+        GSLayerGroupEncoder23 group = new GSLayerGroupEncoder23();
+        group.setName("group");
+        group.setWorkspace("topp");
+        group.setMode(GSLayerGroupEncoder23.MODE_NAMED);
+        group.setTitle("Group");
+        group.setBounds("EPSG:4326", -180, 180, -90, 90);
+        for (int i = 0; i < layers; i++) {
+            group.addLayer("topp:layer_" + i, "style_" + i);
+        }
+        return group;
+    }
+
+    static String layerList(int layers) {
+        StringBuilder xml = new StringBuilder("<layers>");
+        for (int i = 0; i < layers; i++) {
+            xml.append("<layer><name>layer_").append(i).append("</name>")
+                    .append("<atom:link xmlns:atom=\"http://www.w3.org/2005/Atom\" rel=\"alternate\"")
+                    .append(" href=\"http://localhost:8080/geoserver/rest/layers/layer_").append(i)
+                    .append(".xml\" type=\"application/xml\"/></layer>");
+        }
+        return xml.append("</layers>").toString();
+    }
+
+    static String featureTypeResponse(int attributes) {
+        StringBuilder xml = new StringBuilder("<featureType><name>roads</name>"
+                + "<nativeName>roads</nativeName>"
+                + "<namespace><name>topp</name></namespace>"
+                + "<title>Roads</title><srs>EPSG:4326</srs>"
+                + "<nativeBoundingBox><minx>-180</minx><maxx>180</maxx><miny>-90</miny><maxy>90</maxy>"
+                + "<crs>EPSG:4326</crs></nativeBoundingBox>"
+                + "<store class=\"dataStore\"><name>roads</name></store>"
+                + "<attributes>");
+        for (int i = 0; i < attributes; i++) {
+            xml.append("<attribute><name>attribute_").append(i).append("</name>")
+                    .append("<minOccurs>0</minOccurs><maxOccurs>1</maxOccurs>")
+                    .append("<nillable>true</nillable><binding>java.lang.String</binding>")
+                    .append("</attribute>");
+        }
+        return xml.append("</attributes></featureType>").toString();
+    }
+
+    static String granules(int granules) {
+        StringBuilder xml = new StringBuilder("<wfs:FeatureCollection"
+                + " xmlns:gf=\"http://www.geoserver.org/rest/granules\""
+                + " xmlns:wfs=\"http://www.opengis.net/wfs\""
+                + " xmlns:gml=\"http://www.opengis.net/gml\">"
+                + "<gml:boundedBy><gml:null>unknown</gml:null></gml:boundedBy>");
+        for (int i = 0; i < granules; i++) {
+            xml.append("<gml:featureMember><gf:mosaic fid=\"mosaic.").append(i).append("\">")
+                    .append("<gf:the_geom><gml:Polygon><gml:outerBoundaryIs><gml:LinearRing>")
+                    .append("<gml:coordinates>0,0 0,1 1,1 1,0 0,0</gml:coordinates>")
+                    .append("</gml:LinearRing></gml:outerBoundaryIs></gml:Polygon></gf:the_geom>")
+                    .append("<gf:location>granule_").append(i).append(".tif</gf:location>")
+                    .append("<gf:time>2016-01-01T00:00:00Z</gf:time>")
+                    .append("</gf:mosaic></gml:featureMember>");
+        }
+        return xml.append("</wfs:FeatureCollection>").toString();
+    }
+}
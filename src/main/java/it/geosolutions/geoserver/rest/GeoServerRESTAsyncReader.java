@@ -0,0 +1,653 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest;
+
+import it.geosolutions.geoserver.rest.decoder.RESTCoverage;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageList;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageStore;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTDataStore;
+import it.geosolutions.geoserver.rest.decoder.RESTDataStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureType;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureTypeList;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer21;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerGroup;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerGroupList;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerList;
+import it.geosolutions.geoserver.rest.decoder.RESTNamespace;
+import it.geosolutions.geoserver.rest.decoder.RESTNamespaceList;
+import it.geosolutions.geoserver.rest.decoder.RESTResource;
+import it.geosolutions.geoserver.rest.decoder.RESTStyle;
+import it.geosolutions.geoserver.rest.decoder.RESTStyleList;
+import it.geosolutions.geoserver.rest.decoder.RESTWmsStore;
+import it.geosolutions.geoserver.rest.decoder.RESTWmsStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTWorkspaceList;
+import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder;
+import it.geosolutions.geoserver.rest.http.AsyncHTTPTransport;
+import it.geosolutions.geoserver.rest.http.ExistenceProbe;
+
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking counterpart of {@link GeoServerRESTReader}.
+ * <BR>
+ * Each getter returns immediately a {@link CompletableFuture}, which completes
+ * with the same value the corresponding {@link GeoServerRESTReader} method
+ * would return.
+ * <P>
+ * The number of requests in flight at the same time is bounded: requests
+ * exceeding that bound are queued, and dispatched as soon as a running one
+ * completes. When the queue is full too, the calling thread is blocked until
+ * some room is available, so that a producer issuing thousands of lookups is
+ * slowed down to the pace of the server.
+ * <BR>
+ * Calls issued from a completion stage of a previous call are never blocked,
+ * since that would block the thread which has to complete the running ones:
+ * when the queue is full, they fail at once with a
+ * {@link RejectedExecutionException}. Use the <TT>*Async</TT> composition
+ * methods of {@link CompletableFuture} with a separate executor to chain
+ * lookups which should wait for room instead.
+ *
+ * @see GeoServerRESTReader
+ */
+public class GeoServerRESTAsyncReader {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(GeoServerRESTAsyncReader.class);
+
+    /** Default max number of requests in flight. */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 32;
+
+    /** Default max number of requests waiting to be dispatched. */
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS = 10000;
+
+    private final String baseurl;
+    private final String username;
+    private final String password;
+
+    private final AsyncHTTPTransport transport;
+
+    private final int maxConcurrentRequests;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Runnable> pending;
+
+    private final GeoServerRESTCapabilities capabilities;
+
+    /** Set while the current thread runs the completion of a request. */
+    private final ThreadLocal<Boolean> completing = new ThreadLocal<Boolean>();
+
+    /** Set while the current thread dispatches the queued requests. */
+    private final ThreadLocal<Boolean> dispatching = new ThreadLocal<Boolean>();
+
+    /**
+     * Creates a <TT>GeoServerRESTAsyncReader</TT> with the default concurrency settings.
+     *
+     * @param gsUrl the base GeoServer URL (e.g.: <TT>http://localhost:8080/geoserver</TT>)
+     * @param username username auth credential
+     * @param password password auth credential
+     * @param transport the non-blocking HTTP transport
+     */
+    public GeoServerRESTAsyncReader(URL gsUrl, String username, String password,
+            AsyncHTTPTransport transport) {
+        this(gsUrl, username, password, transport, DEFAULT_MAX_CONCURRENT_REQUESTS,
+                DEFAULT_MAX_QUEUED_REQUESTS);
+    }
+
+    /**
+     * Creates a <TT>GeoServerRESTAsyncReader</TT>.
+     *
+     * @param gsUrl the base GeoServer URL (e.g.: <TT>http://localhost:8080/geoserver</TT>)
+     * @param username username auth credential
+     * @param password password auth credential
+     * @param transport the non-blocking HTTP transport
+     * @param maxConcurrentRequests max number of requests in flight
+     * @param maxQueuedRequests max number of requests waiting to be dispatched
+     * @throws IllegalArgumentException on null transport or non positive limits
+     */
+    public GeoServerRESTAsyncReader(URL gsUrl, String username, String password,
+            AsyncHTTPTransport transport, int maxConcurrentRequests, int maxQueuedRequests)
+            throws IllegalArgumentException {
+        this(gsUrl, username, password, transport, null, maxConcurrentRequests, maxQueuedRequests);
+    }
+
+    /**
+     * Creates a <TT>GeoServerRESTAsyncReader</TT> sharing the capabilities of
+     * another client, e.g. those of a {@link GeoServerRESTReader} to the same
+     * GeoServer, so that the version is probed once for both.
+     *
+     * @param gsUrl the base GeoServer URL (e.g.: <TT>http://localhost:8080/geoserver</TT>)
+     * @param username username auth credential
+     * @param password password auth credential
+     * @param transport the non-blocking HTTP transport
+     * @param capabilities the capabilities of the target GeoServer, or null to
+     *        probe them through the given transport
+     * @param maxConcurrentRequests max number of requests in flight
+     * @param maxQueuedRequests max number of requests waiting to be dispatched
+     * @throws IllegalArgumentException on null transport or non positive limits
+     */
+    public GeoServerRESTAsyncReader(URL gsUrl, String username, String password,
+            AsyncHTTPTransport transport, GeoServerRESTCapabilities capabilities,
+            int maxConcurrentRequests, int maxQueuedRequests) throws IllegalArgumentException {
+        if (transport == null) {
+            throw new IllegalArgumentException("The transport may not be null");
+        }
+        if (maxConcurrentRequests <= 0 || maxQueuedRequests <= 0) {
+            throw new IllegalArgumentException("Concurrency limits must be positive");
+        }
+        String restUrl = gsUrl.toExternalForm();
+        this.baseurl = restUrl.endsWith("/") ? restUrl.substring(0, restUrl.length() - 1) : restUrl;
+        this.username = username;
+        this.password = password;
+        this.transport = transport;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.inFlight = new Semaphore(maxConcurrentRequests);
+        this.pending = new ArrayBlockingQueue<Runnable>(maxQueuedRequests);
+        this.capabilities = capabilities != null ? capabilities
+                : new GeoServerRESTCapabilities(baseurl, username, password, transport);
+    }
+
+    /**
+     * @return the number of requests currently in flight.
+     */
+    public int getInFlightRequests() {
+        return maxConcurrentRequests - inFlight.availablePermits();
+    }
+
+    /**
+     * @return the number of requests waiting to be dispatched.
+     */
+    public int getQueuedRequests() {
+        return pending.size();
+    }
+
+    // ==========================================================================
+    // === DISPATCHING
+    // ==========================================================================
+
+    private CompletableFuture<String> load(String url) {
+        return loadFullURL(baseurl + url);
+    }
+
+    private CompletableFuture<String> loadFullURL(final String url) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Loading from REST path " + url);
+        }
+        return submit(() -> transport.getAsync(url, username, password));
+    }
+
+    private <T> CompletableFuture<T> load(String url, Function<String, T> decoder) {
+        return load(url).thenApply(decoder);
+    }
+
+    private <T> CompletableFuture<T> loadFullURL(String url, Function<String, T> decoder) {
+        return loadFullURL(url).thenApply(decoder);
+    }
+
+    /**
+     * The existence probe depends on the GeoServer version, see
+     * {@link GeoServerRESTReader}: the version is probed again after an
+     * unexpected status.
+     */
+    private CompletableFuture<Boolean> exists(final String url) {
+        // the version lookup is part of the dispatched task, as in getLayer
+        final CompletableFuture<ExistenceProbe> probe = capabilities.getExistenceProbeAsync();
+        return submit(() -> probe.thenCompose(p -> transport.existsAsync(url, username, password, p)))
+                .whenComplete((exists, error) -> {
+                    if (error != null) {
+                        capabilities.invalidate();
+                    }
+                });
+    }
+
+    /**
+     * Runs the call as soon as the number of requests in flight allows it.
+     */
+    private <T> CompletableFuture<T> submit(final Supplier<CompletableFuture<T>> call) {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        Runnable task = () -> {
+            CompletableFuture<T> response;
+            try {
+                response = call.get();
+            } catch (RuntimeException e) {
+                response = new CompletableFuture<T>();
+                response.completeExceptionally(e);
+            }
+            response.whenComplete((value, error) -> {
+                inFlight.release();
+                Boolean outer = completing.get();
+                completing.set(Boolean.TRUE);
+                try {
+                    dispatch();
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                } finally {
+                    if (outer == null) {
+                        completing.remove();
+                    }
+                }
+            });
+        };
+
+        if (inFlight.tryAcquire()) {
+            task.run();
+        } else {
+            if (!pending.offer(task)) {
+                if (completing.get() != null) {
+                    result.completeExceptionally(new RejectedExecutionException(
+                            "Too many queued requests to wait from a completion stage"));
+                    return result;
+                }
+                try {
+                    pending.put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(e);
+                    return result;
+                }
+            }
+            dispatch();
+        }
+        return result;
+    }
+
+    /**
+     * Runs the queued calls while the requests in flight allow it.
+     * <BR>
+     * Calls may complete synchronously, e.g. on invalid URLs, and dispatch
+     * again from their completion: such nested dispatches return at once, and
+     * the outer loop runs the calls instead, so that the stack does not grow
+     * with the queue length.
+     */
+    private void dispatch() {
+        if (dispatching.get() != null) {
+            return;
+        }
+        dispatching.set(Boolean.TRUE);
+        try {
+            while (!pending.isEmpty() && inFlight.tryAcquire()) {
+                Runnable task = pending.poll();
+                if (task == null) {
+                    inFlight.release();
+                    return;
+                }
+                task.run();
+            }
+        } finally {
+            dispatching.remove();
+        }
+    }
+
+    // ==========================================================================
+    // === ABOUT
+    // ==========================================================================
+
+    /**
+     * Return the version of the target GeoServer.
+     * <BR>
+     * The version is fetched once and then reused, see {@link #getCapabilities()};
+     * this single request is not accounted in the concurrency limits, so that
+     * it may be issued while dispatching other requests.
+     *
+     * @see GeoServerRESTReader#getGeoserverVersion()
+     */
+    public CompletableFuture<GSVersionDecoder> getGeoserverVersion() {
+        return capabilities.getGeoserverVersionAsync();
+    }
+
+    /**
+     * @return the version and REST features of the target GeoServer.
+     */
+    public GeoServerRESTCapabilities getCapabilities() {
+        return capabilities;
+    }
+
+    // ==========================================================================
+    // === STYLES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getStyles()
+     */
+    public CompletableFuture<RESTStyleList> getStyles() {
+        return load("/rest/styles.xml", RESTStyleList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getStyles(String)
+     */
+    public CompletableFuture<RESTStyleList> getStyles(String workspace) {
+        return load("/rest/workspaces/" + workspace + "/styles.xml", RESTStyleList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getStyle(String)
+     */
+    public CompletableFuture<RESTStyle> getStyle(String name) {
+        return getStyle(null, name);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getStyle(String, String)
+     */
+    public CompletableFuture<RESTStyle> getStyle(String workspace, String name) {
+        return load(styleUrl(workspace, name), RESTStyle::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#existsStyle(String, String)
+     */
+    public CompletableFuture<Boolean> existsStyle(String workspace, String name) {
+        return exists(baseurl + styleUrl(workspace, name));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String styleUrl(String workspace, String name) {
+        StringBuilder sUrl = new StringBuilder("/rest");
+        if (workspace != null)
+            sUrl.append("/workspaces/").append(workspace);
+        return sUrl.append("/styles/").append(URLEncoder.encode(name)).append(".xml").toString();
+    }
+
+    // ==========================================================================
+    // === DATASTORES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getDatastores(String)
+     */
+    public CompletableFuture<RESTDataStoreList> getDatastores(String workspace) {
+        return load("/rest/workspaces/" + workspace + "/datastores.xml", RESTDataStoreList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getDatastore(String, String)
+     */
+    public CompletableFuture<RESTDataStore> getDatastore(String workspace, String dsName) {
+        return load("/rest/workspaces/" + workspace + "/datastores/" + dsName + ".xml",
+                RESTDataStore::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getDatastore(RESTFeatureType)
+     */
+    public CompletableFuture<RESTDataStore> getDatastore(RESTFeatureType featureType) {
+        return loadFullURL(featureType.getStoreUrl(), RESTDataStore::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#existsDatastore(String, String)
+     */
+    public CompletableFuture<Boolean> existsDatastore(String workspace, String dsName) {
+        return exists(baseurl + "/rest/workspaces/" + workspace + "/datastores/" + dsName + ".xml");
+    }
+
+    // ==========================================================================
+    // === FEATURETYPES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getFeatureTypes(String)
+     */
+    public CompletableFuture<RESTFeatureTypeList> getFeatureTypes(String workspace) {
+        return load("/rest/workspaces/" + workspace + "/featuretypes.xml", RESTFeatureTypeList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getFeatureType(RESTLayer)
+     */
+    public CompletableFuture<RESTFeatureType> getFeatureType(RESTLayer layer) {
+        if (layer.getType() != RESTLayer.Type.VECTOR)
+            throw new RuntimeException("Bad layer type for layer " + layer.getName());
+        return loadFullURL(layer.getResourceUrl(), RESTFeatureType::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#existsFeatureType(String, String, String)
+     */
+    public CompletableFuture<Boolean> existsFeatureType(String workspace, String dsName, String ftName) {
+        return exists(baseurl + "/rest/workspaces/" + workspace + "/datastores/" + dsName
+                + "/featuretypes/" + ftName + ".xml");
+    }
+
+    // ==========================================================================
+    // === COVERAGESTORES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getCoverageStores(String)
+     */
+    public CompletableFuture<RESTCoverageStoreList> getCoverageStores(String workspace) {
+        return load("/rest/workspaces/" + workspace + "/coveragestores.xml", RESTCoverageStoreList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getCoverageStore(String, String)
+     */
+    public CompletableFuture<RESTCoverageStore> getCoverageStore(String workspace, String csName) {
+        return load("/rest/workspaces/" + workspace + "/coveragestores/" + csName + ".xml",
+                RESTCoverageStore::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getCoverageStore(RESTCoverage)
+     */
+    public CompletableFuture<RESTCoverageStore> getCoverageStore(RESTCoverage coverage) {
+        return loadFullURL(coverage.getStoreUrl(), RESTCoverageStore::build);
+    }
+
+    // ==========================================================================
+    // === COVERAGES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getCoverages(String, String)
+     */
+    public CompletableFuture<RESTCoverageList> getCoverages(String workspace, String csName) {
+        return load("/rest/workspaces/" + workspace + "/coveragestores/" + csName + "/coverages.xml",
+                RESTCoverageList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getCoverage(String, String, String)
+     */
+    public CompletableFuture<RESTCoverage> getCoverage(String workspace, String store, String name) {
+        return load("/rest/workspaces/" + workspace + "/coveragestores/" + store + "/coverages/"
+                + name + ".xml", RESTCoverage::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getCoverage(RESTLayer)
+     */
+    public CompletableFuture<RESTCoverage> getCoverage(RESTLayer layer) {
+        if (layer.getType() != RESTLayer.Type.RASTER)
+            throw new RuntimeException("Bad layer type for layer " + layer.getName());
+        return loadFullURL(layer.getResourceUrl(), RESTCoverage::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#existsCoverage(String, String, String)
+     */
+    public CompletableFuture<Boolean> existsCoverage(String workspace, String store, String name) {
+        return exists(baseurl + "/rest/workspaces/" + workspace + "/coveragestores/" + store
+                + "/coverages/" + name + ".xml");
+    }
+
+    // ==========================================================================
+    // === WMSSTORES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getWmsStores(String)
+     */
+    public CompletableFuture<RESTWmsStoreList> getWmsStores(String workspace) {
+        return load("/rest/workspaces/" + workspace + "/wmsstores.xml", RESTWmsStoreList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getWmsStore(String, String)
+     */
+    public CompletableFuture<RESTWmsStore> getWmsStore(String workspace, String wsName) {
+        return load("/rest/workspaces/" + workspace + "/wmsstores/" + wsName + ".xml",
+                RESTWmsStore::build);
+    }
+
+    // ==========================================================================
+    // === RESOURCES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getResource(RESTLayer)
+     */
+    public CompletableFuture<RESTResource> getResource(RESTLayer layer) {
+        return loadFullURL(layer.getResourceUrl(), RESTResource::build);
+    }
+
+    // ==========================================================================
+    // === LAYERGROUPS
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getLayerGroups(String)
+     */
+    public CompletableFuture<RESTLayerGroupList> getLayerGroups(String workspace) {
+        String url = workspace == null ? "/rest/layergroups.xml"
+                : "/rest/workspaces/" + workspace + "/layergroups.xml";
+        return load(url, RESTLayerGroupList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getLayerGroups()
+     */
+    public CompletableFuture<RESTLayerGroupList> getLayerGroups() {
+        return getLayerGroups(null);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getLayerGroup(String, String)
+     */
+    public CompletableFuture<RESTLayerGroup> getLayerGroup(String workspace, String name) {
+        String url = workspace == null ? "/rest/layergroups/" + name + ".xml"
+                : "/rest/workspaces/" + workspace + "/layergroups/" + name + ".xml";
+        return load(url, RESTLayerGroup::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getLayerGroup(String)
+     */
+    public CompletableFuture<RESTLayerGroup> getLayerGroup(String name) {
+        return getLayerGroup(null, name);
+    }
+
+    // ==========================================================================
+    // === LAYERS
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getLayers()
+     */
+    public CompletableFuture<RESTLayerList> getLayers() {
+        return load("/rest/layers.xml", RESTLayerList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getLayer(String, String)
+     */
+    public CompletableFuture<RESTLayer> getLayer(String workspace, String name) {
+        if (workspace == null || workspace.isEmpty())
+            throw new IllegalArgumentException("Workspace may not be null");
+        if (name == null || name.isEmpty())
+            throw new IllegalArgumentException("Layername may not be null");
+        final String url = HTTPUtils.append("/rest/layers/", workspace, ":", name, ".xml").toString();
+
+        // the version lookup is part of the same dispatched task, so that the
+        // continuation never has to wait for room in the queue
+        final CompletableFuture<GSVersionDecoder> v = getGeoserverVersion();
+        return submit(() -> v.thenCompose(ignored -> transport.getAsync(baseurl + url, username, password)))
+                .thenApply(xml -> {
+                    // decoded with the version just probed: the capabilities
+                    // may be invalidated meanwhile, and would then block to probe again
+                    RESTLayer layer = v.join().getVersion() == GSVersionDecoder.VERSION.UNRECOGNIZED
+                            ? RESTLayer21.build(xml) : RESTLayer.build(xml);
+                    if (layer == null && xml != null) {
+                        // the decoder depends on the version, which may have changed
+                        LOGGER.warn("Could not decode layer " + workspace + ":" + name
+                                + ", the GeoServer version will be probed again");
+                        capabilities.invalidate();
+                    }
+                    return layer;
+                });
+    }
+
+    /**
+     * @see GeoServerRESTReader#existsLayer(String, String, boolean)
+     */
+    public CompletableFuture<Boolean> existsLayer(String workspace, String name) {
+        String url = workspace == null ? baseurl + "/rest/layers/" + name + ".xml"
+                : baseurl + "/rest/layers/" + workspace + ":" + name + ".xml";
+        return exists(url);
+    }
+
+    // ==========================================================================
+    // === NAMESPACES & WORKSPACES
+    // ==========================================================================
+
+    /**
+     * @see GeoServerRESTReader#getNamespace(String)
+     */
+    public CompletableFuture<RESTNamespace> getNamespace(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("Namespace prefix cannot be null or empty");
+        }
+        return load("/rest/namespaces/" + prefix + ".xml", RESTNamespace::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getNamespaces()
+     */
+    public CompletableFuture<RESTNamespaceList> getNamespaces() {
+        return load("/rest/namespaces.xml", RESTNamespaceList::build);
+    }
+
+    /**
+     * @see GeoServerRESTReader#getWorkspaces()
+     */
+    public CompletableFuture<RESTWorkspaceList> getWorkspaces() {
+        return load("/rest/workspaces.xml", RESTWorkspaceList::build);
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest;
+
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer21;
+import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder;
+import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder.VERSION;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder21;
+import it.geosolutions.geoserver.rest.http.AsyncHTTPTransport;
+import it.geosolutions.geoserver.rest.http.ExistenceProbe;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Version and REST features of a GeoServer instance.
+ * <P>
+ * The server is probed once, on first use, through <TT>/rest/about/version.xml</TT>;
+ * the result is then kept for the life of the client.
+ * <BR>
+ * Call {@link #refresh()} to probe again, e.g. after the server has been upgraded,
+ * or {@link #invalidate()} to have the next lookup probe again. The readers
+ * invalidate the version by themselves when a version dependent response
+ * cannot be decoded, or an existence probe gets an unexpected status.
+ * <BR>
+ * An instance may be shared by a {@link GeoServerRESTReader} and a
+ * {@link GeoServerRESTAsyncReader}, which then see the same version.
+ * <P>
+ * A missing or unreadable version is reported as {@link VERSION#UNRECOGNIZED}, which
+ * this library assumes to be a GeoServer 2.1 instance. It is kept as any other
+ * result, since GeoServer 2.1 has no version resource at all: if the probe may
+ * have failed because the server was restarting, call {@link #refresh()}.
+ *
+ * @see GeoServerRESTReader#getCapabilities()
+ */
+public class GeoServerRESTCapabilities {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(GeoServerRESTCapabilities.class);
+
+    /**
+     * REST features whose availability depends on the GeoServer version.
+     */
+    public enum Feature {
+        /** Layers are represented as in GeoServer 2.1, see {@link RESTLayer21} and {@link GSLayerEncoder21}. */
+        LAYER_21,
+        /** Styles may be defined inside a workspace (GeoServer 2.2). */
+        WORKSPACE_STYLES,
+        /** Coverage dimensions can be configured (GeoServer 2.4). */
+        COVERAGE_DIMENSIONS,
+        /** Granules of structured coverages can be listed and removed (GeoServer 2.4). */
+        STRUCTURED_COVERAGES,
+        /** REST resources answer <TT>HEAD</TT> requests (GeoServer 2.9 and above). */
+        HEAD_REQUESTS;
+    }
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private final HTTPTransport transport;
+
+    private final AsyncHTTPTransport asyncTransport;
+
+    /** The known version, or the pending probe; null until probed. */
+    private volatile CompletableFuture<GSVersionDecoder> version;
+
+    /**
+     * @param restUrl the base GeoServer URL (e.g.: <TT>http://localhost:8080/geoserver</TT>)
+     * @param username username auth credential
+     * @param password password auth credential
+     * @param transport the HTTP transport used to probe the server
+     */
+    public GeoServerRESTCapabilities(String restUrl, String username, String password,
+            HTTPTransport transport) {
+        this(restUrl, username, password, transport, null);
+    }
+
+    /**
+     * Creates capabilities probing the server without blocking.
+     *
+     * @param restUrl the base GeoServer URL (e.g.: <TT>http://localhost:8080/geoserver</TT>)
+     * @param username username auth credential
+     * @param password password auth credential
+     * @param transport the non-blocking HTTP transport used to probe the server
+     */
+    public GeoServerRESTCapabilities(String restUrl, String username, String password,
+            AsyncHTTPTransport transport) {
+        this(restUrl, username, password, null, transport);
+    }
+
+    private GeoServerRESTCapabilities(String restUrl, String username, String password,
+            HTTPTransport transport, AsyncHTTPTransport asyncTransport) {
+        if (transport == null && asyncTransport == null) {
+            throw new IllegalArgumentException("The transport may not be null");
+        }
+        String cleanUrl = restUrl.endsWith("/") ? restUrl.substring(0, restUrl.length() - 1) : restUrl;
+        this.url = cleanUrl + "/rest/about/version.xml";
+        this.username = username;
+        this.password = password;
+        this.transport = transport;
+        this.asyncTransport = asyncTransport;
+    }
+
+    /**
+     * @return the version of the target GeoServer, probing it only on the first call.
+     */
+    public GSVersionDecoder getGeoserverVersion() {
+        try {
+            return getGeoserverVersionAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The returned future does not block when the capabilities were created
+     * with an {@link AsyncHTTPTransport}; otherwise the probe, if any, is run
+     * by the calling thread.
+     * <BR>
+     * A probe failing with an exception is not kept, so that the next lookup
+     * probes again.
+     *
+     * @return the version of the target GeoServer, probing it only on the first call.
+     */
+    public CompletableFuture<GSVersionDecoder> getGeoserverVersionAsync() {
+        CompletableFuture<GSVersionDecoder> v = version;
+        if (v == null) {
+            synchronized (this) {
+                v = version;
+                if (v == null) {
+                    v = probe().thenApply(GeoServerRESTCapabilities::decode);
+                    version = v;
+                    final CompletableFuture<GSVersionDecoder> probed = v;
+                    v.whenComplete((decoded, error) -> {
+                        if (error != null) {
+                            LOGGER.warn("Could not probe the GeoServer version at " + url, error);
+                            discard(probed);
+                        }
+                    });
+                }
+            }
+        }
+        return v;
+    }
+
+    private static GSVersionDecoder decode(String xml) {
+        if (xml != null) {
+            return GSVersionDecoder.build(xml);
+        }
+        GSVersionDecoder unknown = new GSVersionDecoder();
+        unknown.getGeoServer().setVersion(VERSION.UNRECOGNIZED.toString());
+        return unknown;
+    }
+
+    private synchronized void discard(CompletableFuture<GSVersionDecoder> probed) {
+        if (version == probed) {
+            version = null;
+        }
+    }
+
+    /**
+     * @return the version of the target GeoServer.
+     */
+    public VERSION getVersion() {
+        return getGeoserverVersion().getVersion();
+    }
+
+    /**
+     * Probes the server again, discarding the known version.
+     *
+     * @return the refreshed version
+     */
+    public synchronized GSVersionDecoder refresh() {
+        version = null;
+        return getGeoserverVersion();
+    }
+
+    /**
+     * Discards the known version, so that the next lookup probes the server again.
+     */
+    public void invalidate() {
+        version = null;
+    }
+
+    private CompletableFuture<String> probe() {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Probing GeoServer version at " + url);
+        }
+        if (asyncTransport != null) {
+            return asyncTransport.getAsync(url, username, password);
+        }
+        CompletableFuture<String> xml = new CompletableFuture<String>();
+        try {
+            xml.complete(transport.get(url, username, password));
+        } catch (RuntimeException e) {
+            xml.completeExceptionally(e);
+        }
+        return xml;
+    }
+
+    /**
+     * @param feature the feature to check for
+     * @return <TT>true</TT> if the target GeoServer supports the given feature.
+     */
+    public boolean supports(Feature feature) {
+        return supports(getVersion(), feature);
+    }
+
+    private static boolean supports(VERSION v, Feature feature) {
+        switch (feature) {
+        case LAYER_21:
+            return v == VERSION.UNRECOGNIZED;
+        case WORKSPACE_STYLES:
+            return v != VERSION.UNRECOGNIZED;
+        case COVERAGE_DIMENSIONS:
+        case STRUCTURED_COVERAGES:
+            return v != VERSION.UNRECOGNIZED && v.compareTo(VERSION.v24) >= 0;
+        case HEAD_REQUESTS:
+            return v == VERSION.ABOVE;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @return the cheapest way to check whether a resource exists on the
+     *         target GeoServer: {@link ExistenceProbe#HEAD} where supported,
+     *         {@link ExistenceProbe#PARTIAL_GET} otherwise.
+     */
+    public ExistenceProbe getExistenceProbe() {
+        return existenceProbe(getVersion());
+    }
+
+    /**
+     * Non-blocking version of {@link #getExistenceProbe()}.
+     *
+     * @return the existence probe, once the version is known.
+     */
+    public CompletableFuture<ExistenceProbe> getExistenceProbeAsync() {
+        return getGeoserverVersionAsync().thenApply(decoded -> existenceProbe(decoded.getVersion()));
+    }
+
+    private static ExistenceProbe existenceProbe(VERSION v) {
+        return supports(v, Feature.HEAD_REQUESTS) ? ExistenceProbe.HEAD : ExistenceProbe.PARTIAL_GET;
+    }
+
+    /**
+     * Decodes a layer with the decoder fitting the target GeoServer.
+     *
+     * @param response the XML layer representation
+     * @return the decoded layer, or null
+     */
+    public RESTLayer buildLayer(String response) {
+        if (supports(Feature.LAYER_21)) {
+            return RESTLayer21.build(response);
+        } else {
+            return RESTLayer.build(response);
+        }
+    }
+
+    /**
+     * @return a new layer encoder fitting the target GeoServer.
+     */
+    public GSLayerEncoder createLayerEncoder() {
+        if (supports(Feature.LAYER_21)) {
+            return new GSLayerEncoder21();
+        } else {
+            return new GSLayerEncoder();
+        }
+    }
+}
@@ -39,10 +39,15 @@ import it.geosolutions.geoserver.rest.encoder.GSResourceEncoder.ProjectionPolicy
 import it.geosolutions.geoserver.rest.encoder.GSWorkspaceEncoder;
 import it.geosolutions.geoserver.rest.encoder.coverage.GSCoverageEncoder;
 import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.http.XmlElementEntity;
+import it.geosolutions.geoserver.rest.http.ZipStreamEntity;
 import it.geosolutions.geoserver.rest.manager.GeoServerRESTStructuredGridCoverageReaderManager;
 import it.geosolutions.geoserver.rest.manager.GeoServerRESTStructuredGridCoverageReaderManager.ConfigureCoveragesOption;
 import it.geosolutions.geoserver.rest.manager.GeoServerRESTStyleManager;
 import it.geosolutions.geoserver.rest.manager.GeoServerRESTImporterManager;
+import it.geosolutions.geoserver.rest.manager.GeoServerRESTUploadManager;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -92,11 +97,19 @@ public class GeoServerRESTPublisher {
      */
     private final String gspass;
 
+    /**
+     * HTTP transport, possibly shared with other readers, publishers and managers
+     */
+    private final HTTPTransport transport;
 
     private final GeoServerRESTStyleManager styleManager;
 
     private final GeoServerRESTImporterManager importerManager;
 
+    private final GeoServerRESTUploadManager uploadManager;
+
+    private volatile int zipParallelism = 1;
+
     /**
      * Creates a <TT>GeoServerRESTPublisher</TT> to connect against a GeoServer instance with the given URL and user credentials.
      * 
@@ -105,9 +118,27 @@ public class GeoServerRESTPublisher {
      * @param password auth credential
      */
     public GeoServerRESTPublisher(String restURL, String username, String password) {
+        this(restURL, username, password, PooledHTTPTransport.getDefault());
+    }
+
+    /**
+     * Creates a <TT>GeoServerRESTPublisher</TT> to connect against a GeoServer instance with the given URL and user credentials,
+     * using the given HTTP transport.
+     * 
+     * @param restURL the base GeoServer URL (e.g.: <TT>http://localhost:8080/geoserver</TT>)
+     * @param username auth credential
+     * @param password auth credential
+     * @param transport the HTTP transport used to talk to GeoServer
+     */
+    public GeoServerRESTPublisher(String restURL, String username, String password,
+            HTTPTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("The transport may not be null");
+        }
         this.restURL = HTTPUtils.decurtSlash(restURL);
         this.gsuser = username;
         this.gspass = password;
+        this.transport = transport;
 
         URL url = null;
         try {
@@ -115,8 +146,44 @@ public class GeoServerRESTPublisher {
         } catch (MalformedURLException ex) {
             LOGGER.error("Bad URL: Calls to GeoServer are going to fail" , ex);
         }
-        styleManager = new GeoServerRESTStyleManager(url, username, password);
-        importerManager = new GeoServerRESTImporterManager(url, username, password);
+        styleManager = new GeoServerRESTStyleManager(url, username, password, transport);
+        importerManager = new GeoServerRESTImporterManager(url, username, password, transport);
+        uploadManager = new GeoServerRESTUploadManager(url, username, password, transport);
+    }
+
+    /**
+     * Files larger than the given size are uploaded in chunks to the GeoServer
+     * data directory, and then published as external files. Zip archives are
+     * always sent in a single request, since external files are not unpacked.
+     * <P>
+     * This needs the GeoServer resumable upload REST endpoint; see
+     * {@link GeoServerRESTUploadManager} for chunk size and retry settings.
+     * 
+     * @param threshold size in bytes; a negative value (the default) disables chunked uploads
+     */
+    public void setChunkedUploadThreshold(long threshold) {
+        uploadManager.setThreshold(threshold);
+    }
+
+    /**
+     * @return the manager used for chunked uploads.
+     */
+    public GeoServerRESTUploadManager getUploadManager() {
+        return uploadManager;
+    }
+
+    /**
+     * Number of threads compressing the zip archives streamed by
+     * {@link #publishShpFiles(String, String, String, File[], String)}.
+     * 
+     * @param parallelism 1 (the default) to compress in the calling thread
+     * @see ZipStreamEntity
+     */
+    public void setZipParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.zipParallelism = parallelism;
     }
 
     // ==========================================================================
@@ -174,7 +241,7 @@ public class GeoServerRESTPublisher {
         bkpenc.setIncludeData(includedata);
         bkpenc.setIncludeGwc(includegwc);
         bkpenc.setIncludeLog(includelog);
-        final String result = HTTPUtils.post(bkpUrl.toString(), bkpenc.toString(), "text/xml",
+        final String result = transport.post(bkpUrl.toString(), bkpenc.toString(), "text/xml",
                 gsuser, gspass);
 
         return result;
@@ -204,7 +271,7 @@ public class GeoServerRESTPublisher {
 
         final GSBackupEncoder bkpenc = new GSBackupEncoder(backupDir);
 
-        final String result = HTTPUtils.post(bkpUrl.toString(), bkpenc.toString(), "text/xml",
+        final String result = transport.post(bkpUrl.toString(), bkpenc.toString(), "text/xml",
                 gsuser, gspass);
 
         return result;
@@ -234,7 +301,7 @@ public class GeoServerRESTPublisher {
         final String sUrl = restURL + "/rest/workspaces";
         final GSWorkspaceEncoder wsenc = new GSWorkspaceEncoder(workspace);
         final String wsxml = wsenc.toString();
-        final String result = HTTPUtils.postXml(sUrl, wsxml, gsuser, gspass);
+        final String result = transport.postXml(sUrl, wsxml, gsuser, gspass);
         return result != null;
     }
 
@@ -272,7 +339,7 @@ public class GeoServerRESTPublisher {
         final String sUrl = restURL + "/rest/namespaces";
         final GSNamespaceEncoder nsenc = new GSNamespaceEncoder(prefix, uri);
         final String nsxml = nsenc.toString();
-        final String result = HTTPUtils.postXml(sUrl, nsxml, gsuser, gspass);
+        final String result = transport.postXml(sUrl, nsxml, gsuser, gspass);
         return result != null;
     }
 
@@ -290,7 +357,7 @@ public class GeoServerRESTPublisher {
         final String sUrl = restURL + "/rest/namespaces/" + encode(prefix);
         final GSNamespaceEncoder nsenc = new GSNamespaceEncoder(prefix, uri);
         final String nsxml = nsenc.toString();
-        final String result = HTTPUtils.put(sUrl, nsxml, "application/xml", gsuser, gspass);
+        final String result = transport.put(sUrl, nsxml, "application/xml", gsuser, gspass);
         return result != null;
     }
 
@@ -857,12 +924,16 @@ public class GeoServerRESTPublisher {
             final File file = new File(uri);
             if (!file.exists())
                 throw new FileNotFoundException("unable to locate file: " + file);
-            sentResult = HTTPUtils.put(sbUrl.toString(), file, mimeType, gsuser, gspass);
+            if (uploadManager.isChunked(file)) {
+                return createStoreFromChunks(workspace, dsType, storeName, extension, mimeType,
+                        file, configure, params);
+            }
+            sentResult = transport.put(sbUrl.toString(), file, mimeType, gsuser, gspass);
         } else if (method.equals(UploadMethod.EXTERNAL)) {
-            sentResult = HTTPUtils.put(sbUrl.toString(), uri.toString(), mimeType, gsuser, gspass);
+            sentResult = transport.put(sbUrl.toString(), uri.toString(), mimeType, gsuser, gspass);
         } else if (method.equals(UploadMethod.URL)) {
             // TODO check
-            sentResult = HTTPUtils.put(sbUrl.toString(), uri.toString(), mimeType, gsuser, gspass);
+            sentResult = transport.put(sbUrl.toString(), uri.toString(), mimeType, gsuser, gspass);
         }
 
         if (sentResult != null) {
@@ -877,6 +948,22 @@ public class GeoServerRESTPublisher {
 
     }
 
+    /**
+     * Uploads the file in chunks to <TT>data/workspace/store/</TT> in the GeoServer
+     * data directory, then creates the store from there.
+     */
+    private boolean createStoreFromChunks(String workspace, StoreType dsType, String storeName,
+            Enum extension, String mimeType, File file, ParameterConfigure configure,
+            NameValuePair... params) throws FileNotFoundException {
+        final String path = "data/" + workspace + "/" + storeName + "/" + file.getName();
+        if (!uploadManager.upload(file, path, null)) {
+            LOGGER.error("Unable to upload " + file + " to " + path);
+            return false;
+        }
+        return createStore(workspace, dsType, storeName, UploadMethod.EXTERNAL, extension,
+                "text/plain", URI.create("file:" + path), configure, params);
+    }
+
     /**
      * Upload and publish vector data, and automatically create the associated DataStore if needed.
      * 
@@ -947,8 +1034,7 @@ public class GeoServerRESTPublisher {
     public boolean createPostGISDatastore(String workspace,
             GSPostGISDatastoreEncoder datastoreEncoder) {
         String sUrl = restURL + "/rest/workspaces/" + workspace + "/datastores/";
-        String xml = datastoreEncoder.toString();
-        String result = HTTPUtils.postXml(sUrl, xml, gsuser, gspass);
+        String result = transport.post(sUrl, new XmlElementEntity(datastoreEncoder), gsuser, gspass);
         return result != null;
     }
 
@@ -989,7 +1075,6 @@ public class GeoServerRESTPublisher {
          * 
          * and a PUT to <BR> restURL + "/rest/layers/" workspace + : + layerName
          */
-        String ftypeXml = fte.toString();
         StringBuilder postUrl = new StringBuilder(restURL).append("/rest/workspaces/")
                 .append(workspace).append("/datastores/").append(storename).append("/featuretypes");
 
@@ -1000,8 +1085,8 @@ public class GeoServerRESTPublisher {
             return false;
         }
 
-        String configuredResult = HTTPUtils.postXml(postUrl.toString(), ftypeXml, this.gsuser,
-                this.gspass);
+        String configuredResult = transport.post(postUrl.toString(), new XmlElementEntity(fte),
+                this.gsuser, this.gspass);
         boolean published = configuredResult != null;
         boolean configured = false;
 
@@ -1320,6 +1405,82 @@ public class GeoServerRESTPublisher {
                 zipFile.toURI(), srs, null);
     }
 
+    /**
+     * Publish a shapefile given as its sidecar files (<TT>.shp</TT>, <TT>.dbf</TT>,
+     * <TT>.shx</TT>, <TT>.prj</TT>, ...).
+     * <P>
+     * The files are zipped straight into the request body while they are read,
+     * without writing any temporary zip file.
+     * 
+     * @param workspace the name of the workspace to use
+     * @param storeName the name of the store to create
+     * @param layerName the name of the layer to configure
+     * @param files the shapefile components
+     * @param srs the shapefile srs. This must be an EPSG Code for this code to work!
+     * @return {@code true} if the operation completed successfully.
+     * @throws FileNotFoundException if any of the files is not found
+     * @throws IllegalArgumentException if any of the mandatory arguments are {@code null}.
+     * @see #setZipParallelism(int)
+     */
+    public boolean publishShpFiles(String workspace, String storeName, String layerName,
+            File[] files, String srs) throws FileNotFoundException, IllegalArgumentException {
+        if (workspace == null || storeName == null || layerName == null || files == null
+                || files.length == 0 || srs == null) {
+            throw new IllegalArgumentException("Unable to run: null parameter");
+        }
+        for (File file : files) {
+            if (!file.isFile()) {
+                throw new FileNotFoundException("unable to locate file: " + file);
+            }
+        }
+
+        final String url = restURL + "/rest/workspaces/" + workspace + "/"
+                + StoreType.DATASTORES + "/" + storeName + "/" + UploadMethod.FILE + "."
+                + DataStoreExtension.SHP + "?configure=" + ParameterConfigure.NONE;
+        if (transport.put(url, new ZipStreamEntity(files, zipParallelism), gsuser, gspass) == null) {
+            LOGGER.error("Unable to create data store for shapefile: " + layerName);
+            return false;
+        }
+
+        final GSFeatureTypeEncoder featureTypeEncoder = new GSFeatureTypeEncoder();
+        featureTypeEncoder.setName(layerName);
+        featureTypeEncoder.setTitle(layerName);
+        featureTypeEncoder.setSRS(srs);
+        featureTypeEncoder.setProjectionPolicy(ProjectionPolicy.FORCE_DECLARED);
+        if (!createResource(workspace, StoreType.DATASTORES, storeName, featureTypeEncoder)) {
+            LOGGER.error("Unable to create a feature type for shapefile: " + layerName);
+            return false;
+        }
+        return configureLayer(workspace, layerName, new GSLayerEncoder());
+    }
+
+    /**
+     * Publish the shapefile found in a local directory.
+     * <P>
+     * All the regular files in the directory are streamed as a zip archive;
+     * see {@link #publishShpFiles(String, String, String, File[], String)}.
+     * 
+     * @param workspace the name of the workspace to use
+     * @param storeName the name of the store to create
+     * @param layerName the name of the layer to configure
+     * @param directory a directory holding the shapefile components
+     * @param srs the shapefile srs. This must be an EPSG Code for this code to work!
+     * @return {@code true} if the operation completed successfully.
+     * @throws FileNotFoundException if the directory does not exist or is empty
+     * @throws IllegalArgumentException if any of the mandatory arguments are {@code null}.
+     */
+    public boolean publishShpDirectory(String workspace, String storeName, String layerName,
+            File directory, String srs) throws FileNotFoundException, IllegalArgumentException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Unable to run: null parameter");
+        }
+        final File[] files = directory.listFiles(File::isFile);
+        if (files == null || files.length == 0) {
+            throw new FileNotFoundException("no files in directory: " + directory);
+        }
+        return publishShpFiles(workspace, storeName, layerName, files, srs);
+    }
+
     /**
      * Publish a collection of shapefiles.
      * <P>
@@ -1716,7 +1877,7 @@ public class GeoServerRESTPublisher {
         if (configureLayer(workspace, coverageName, layerEncoder)) {
             GeoServerRESTReader reader;
             try {
-                reader = new GeoServerRESTReader(this.restURL, this.gsuser, this.gspass);
+                reader = new GeoServerRESTReader(new URL(this.restURL), this.gsuser, this.gspass, transport);
                 return reader.getCoverageStore(workspace, storeName);
             } catch (MalformedURLException e) {
                 LOGGER.error(e.getMessage(), e);
@@ -1925,7 +2086,7 @@ public class GeoServerRESTPublisher {
         if (configureLayer(workspace, coverageName, layerEncoder)) {
             GeoServerRESTReader reader;
             try {
-                reader = new GeoServerRESTReader(this.restURL, this.gsuser, this.gspass);
+                reader = new GeoServerRESTReader(new URL(this.restURL), this.gsuser, this.gspass, transport);
                 return reader.getCoverageStore(workspace, storeName);
             } catch (MalformedURLException e) {
                 LOGGER.error(e.getMessage(), e);
@@ -2041,7 +2202,7 @@ public class GeoServerRESTPublisher {
         String sUrl = restURL + "/rest/workspaces/" + workspace + "/coveragestores/" + storeName
                 + "/external.imagemosaic?configure=" + configure.toString() + "&update="
                 + update.toString();
-        String sendResult = HTTPUtils.put(sUrl, mosaicDir.toURI().toString(), "text/plain", gsuser,
+        String sendResult = transport.put(sUrl, mosaicDir.toURI().toString(), "text/plain", gsuser,
                 gspass);
         return RESTCoverageStore.build(sendResult);
     }
@@ -2169,8 +2330,8 @@ public class GeoServerRESTPublisher {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Going to delete " + "/rest/layers/" + fqLayerName);
             }
-            boolean layerDeleted = HTTPUtils
-                    .delete(deleteLayerUrl.toExternalForm(), gsuser, gspass);
+            boolean layerDeleted = transport.delete(deleteLayerUrl.toExternalForm(), gsuser,
+                    gspass);
             if (!layerDeleted) {
                 LOGGER.warn("Could not delete layer '" + fqLayerName + "'");
                 return false;
@@ -2182,7 +2343,7 @@ public class GeoServerRESTPublisher {
                 LOGGER.debug("Going to delete " + "/rest/workspaces/" + workspace
                         + "/coveragestores/" + storename + "/coverages/" + layerName);
             }
-            boolean covDeleted = HTTPUtils.delete(deleteCovUrl.toExternalForm(), gsuser, gspass);
+            boolean covDeleted = transport.delete(deleteCovUrl.toExternalForm(), gsuser, gspass);
             if (!covDeleted) {
                 LOGGER.warn("Could not delete coverage " + workspace + ":" + storename + "/"
                         + layerName + ", but layer was deleted.");
@@ -2228,8 +2389,8 @@ public class GeoServerRESTPublisher {
             }
             // delete related layer
             URL deleteLayerUrl = new URL(restURL + "/rest/layers/" + fqLayerName);
-            boolean layerDeleted = HTTPUtils
-                    .delete(deleteLayerUrl.toExternalForm(), gsuser, gspass);
+            boolean layerDeleted = transport.delete(deleteLayerUrl.toExternalForm(), gsuser,
+                    gspass);
             if (!layerDeleted) {
                 LOGGER.warn("Could not delete layer '" + fqLayerName + "'");
                 return false;
@@ -2237,7 +2398,7 @@ public class GeoServerRESTPublisher {
             // delete the coverage
             URL deleteFtUrl = new URL(restURL + "/rest/workspaces/" + workspace + "/datastores/"
                     + storename + "/featuretypes/" + layerName);
-            boolean ftDeleted = HTTPUtils.delete(deleteFtUrl.toExternalForm(), gsuser, gspass);
+            boolean ftDeleted = transport.delete(deleteFtUrl.toExternalForm(), gsuser, gspass);
             if (!ftDeleted) {
                 LOGGER.warn("Could not delete featuretype " + workspace + ":" + storename + "/"
                         + layerName + ", but layer was deleted.");
@@ -2366,7 +2527,7 @@ public class GeoServerRESTPublisher {
 
             final URL deleteStore = new URL(url.toString());
 
-            boolean deleted = HTTPUtils.delete(deleteStore.toExternalForm(), gsuser, gspass);
+            boolean deleted = transport.delete(deleteStore.toExternalForm(), gsuser, gspass);
             if (!deleted) {
                 LOGGER.warn("Could not delete store " + workspace + ":" + storename);
             } else {
@@ -2419,7 +2580,7 @@ public class GeoServerRESTPublisher {
             deleteStylesForWorkspace(workspace); // !!! workaround
 
             final URL deleteUrl = new URL(url.toString());
-            boolean deleted = HTTPUtils.delete(deleteUrl.toExternalForm(), gsuser, gspass);
+            boolean deleted = transport.delete(deleteUrl.toExternalForm(), gsuser, gspass);
             if (!deleted) {
                 LOGGER.warn("Could not delete Workspace " + workspace);
             } else {
@@ -2464,7 +2625,7 @@ public class GeoServerRESTPublisher {
 
         try {
             URL deleteUrl = new URL(url);
-            boolean deleted = HTTPUtils.delete(deleteUrl.toExternalForm(), gsuser, gspass);
+            boolean deleted = transport.delete(deleteUrl.toExternalForm(), gsuser, gspass);
             if (!deleted) {
                 if (LOGGER.isWarnEnabled())
                     LOGGER.warn("Could not delete layergroup " + name);
@@ -2524,7 +2685,7 @@ public class GeoServerRESTPublisher {
 
         final String url = restURL + "/rest/layers/" + fqLayerName;
 
-        boolean result = HTTPUtils.delete(url, gsuser, gspass);
+        boolean result = transport.delete(url, gsuser, gspass);
         if (result) {
             if (LOGGER.isInfoEnabled()) {
                 LOGGER.info("Layer successfully removed: " + fqLayerName);
@@ -2557,7 +2718,7 @@ public class GeoServerRESTPublisher {
             throws IllegalArgumentException, MalformedURLException {
         final String url = HTTPUtils.append(this.restURL, "/rest/workspaces/", workspace, "/",
                 storeType.toString(), "/", storeName, ".xml").toString();
-        final String store = HTTPUtils.get(url, this.gsuser, this.gspass);
+        final String store = transport.get(url, this.gsuser, this.gspass);
 
         if (store != null) {
             String storeTag = storeType.getTypeName();
@@ -2576,7 +2737,7 @@ public class GeoServerRESTPublisher {
             int start = store.indexOf(startTag);
             String endTag = "</" + storeTag + ">";
             int stop = store.indexOf(endTag) + endTag.length();
-            return HTTPUtils.putXml(url, store.subSequence(0, start) + store.substring(stop),
+            return transport.putXml(url, store.subSequence(0, start) + store.substring(stop),
                     this.gsuser, this.gspass) != null ? true : false;
         } else
             return false;
@@ -2591,7 +2752,7 @@ public class GeoServerRESTPublisher {
      */
     public boolean reload() {
         String sUrl = restURL + "/rest/reload";
-        String result = HTTPUtils.post(sUrl, "", "text/plain", gsuser, gspass);
+        String result = transport.post(sUrl, "", "text/plain", gsuser, gspass);
         return result != null;
     }
 
@@ -2604,7 +2765,7 @@ public class GeoServerRESTPublisher {
      */
     public boolean reset() {
         String sUrl = restURL + "/rest/reset";
-        String result = HTTPUtils.post(sUrl, "", "text/plain", gsuser, gspass);
+        String result = transport.post(sUrl, "", "text/plain", gsuser, gspass);
         return result != null;
     }
 
@@ -2638,8 +2799,7 @@ public class GeoServerRESTPublisher {
 
         final String url = restURL + "/rest/layers/" + fqLayerName;
 
-        String layerXml = layer.toString();
-        String sendResult = HTTPUtils.putXml(url, layerXml, gsuser, gspass);
+        String sendResult = transport.put(url, new XmlElementEntity(layer), gsuser, gspass);
         if (sendResult != null) {
             if (LOGGER.isInfoEnabled()) {
                 LOGGER.info("Layer successfully configured: " + fqLayerName);
@@ -2682,7 +2842,7 @@ public class GeoServerRESTPublisher {
 
         group.setName(name);
 
-        String sendResult = HTTPUtils.postXml(url, group.toString(), gsuser, gspass);
+        String sendResult = transport.post(url, new XmlElementEntity(group), gsuser, gspass);
         if (sendResult != null) {
             if (LOGGER.isInfoEnabled()) {
                 LOGGER.info("LayerGroup successfully configured: " + name);
@@ -2722,7 +2882,7 @@ public class GeoServerRESTPublisher {
             url += "/workspaces/" + workspace + "/layergroups/" + name;
         }
 
-        String sendResult = HTTPUtils.putXml(url, group.toString(), gsuser, gspass);
+        String sendResult = transport.put(url, new XmlElementEntity(group), gsuser, gspass);
         if (sendResult != null) {
             if (LOGGER.isInfoEnabled()) {
                 LOGGER.info("LayerGroup successfully configured: " + name);
@@ -2767,7 +2927,7 @@ public class GeoServerRESTPublisher {
         // retrieve coverage name
         GeoServerRESTReader reader;
         try {
-            reader = new GeoServerRESTReader(restURL, gsuser, gspass);
+            reader = new GeoServerRESTReader(new URL(restURL), gsuser, gspass, transport);
         } catch (MalformedURLException e) {
             if (LOGGER.isErrorEnabled())
                 LOGGER.error(e.getLocalizedMessage(), e);
@@ -2802,8 +2962,7 @@ public class GeoServerRESTPublisher {
         final String url = restURL + "/rest/workspaces/" + wsname + "/coveragestores/" + csname
                 + "/coverages/" + coverageName + ".xml";
 
-        final String xmlBody = ce.toString();
-        final String sendResult = HTTPUtils.putXml(url, xmlBody, gsuser, gspass);
+        final String sendResult = transport.put(url, new XmlElementEntity(ce), gsuser, gspass);
         if (sendResult != null) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Coverage successfully configured " + wsname + ":" + csname + ":"
@@ -2873,8 +3032,8 @@ public class GeoServerRESTPublisher {
                     "Unable to configure a coverage using unnamed coverage encoder");
         }
 
-        final String xmlBody = re.toString();
-        final String sendResult = HTTPUtils.postXml(sbUrl.toString(), xmlBody, gsuser, gspass);
+        final String sendResult = transport.post(sbUrl.toString(), new XmlElementEntity(re),
+                gsuser, gspass);
         if (sendResult != null) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug(dsType + " successfully created " + workspace + ":" + storeName + ":"
@@ -2979,7 +3138,7 @@ public class GeoServerRESTPublisher {
             String path) {
         try {
             GeoServerRESTStructuredGridCoverageReaderManager manager = new GeoServerRESTStructuredGridCoverageReaderManager(
-                    new URL(restURL), gsuser, gspass);
+                    new URL(restURL), gsuser, gspass, transport);
             return manager.harvestExternal(workspace, coverageStore, format, path);
         } catch (IllegalArgumentException e) {
             if (LOGGER.isInfoEnabled()) {
@@ -3067,7 +3226,7 @@ public class GeoServerRESTPublisher {
         String sUrl = ss.toString();
 
         // POST request
-        String result = HTTPUtils.put(sUrl, zipFile, "application/zip", gsuser, gspass);
+        String result = transport.put(sUrl, zipFile, "application/zip", gsuser, gspass);
         return result != null;
     }
 
@@ -3088,7 +3247,7 @@ public class GeoServerRESTPublisher {
             String granuleId) {
         try {
             GeoServerRESTStructuredGridCoverageReaderManager manager = new GeoServerRESTStructuredGridCoverageReaderManager(
-                    new URL(restURL), gsuser, gspass);
+                    new URL(restURL), gsuser, gspass, transport);
             return manager.removeGranuleById(workspace, coverageStore, coverage, granuleId);
         } catch (IllegalArgumentException e) {
             if (LOGGER.isInfoEnabled()) {
@@ -3119,7 +3278,7 @@ public class GeoServerRESTPublisher {
             String coverage, String filter) throws UnsupportedEncodingException {
         try {
             GeoServerRESTStructuredGridCoverageReaderManager manager = new GeoServerRESTStructuredGridCoverageReaderManager(
-                    new URL(restURL), gsuser, gspass);
+                    new URL(restURL), gsuser, gspass, transport);
             return manager.removeGranulesByCQL(workspace, coverageStore, coverage, filter);
         } catch (IllegalArgumentException e) {
             if (LOGGER.isInfoEnabled()) {
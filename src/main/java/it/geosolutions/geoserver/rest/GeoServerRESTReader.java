@@ -25,6 +25,11 @@
 
 package it.geosolutions.geoserver.rest;
 
+import it.geosolutions.geoserver.rest.decoder.RESTAbstractList;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactCoverage;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactLayerGroup;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactResource;
 import it.geosolutions.geoserver.rest.decoder.RESTCoverage;
 import it.geosolutions.geoserver.rest.decoder.RESTCoverageList;
 import it.geosolutions.geoserver.rest.decoder.RESTCoverageStore;
@@ -34,7 +39,6 @@ import it.geosolutions.geoserver.rest.decoder.RESTDataStoreList;
 import it.geosolutions.geoserver.rest.decoder.RESTFeatureType;
 import it.geosolutions.geoserver.rest.decoder.RESTFeatureTypeList;
 import it.geosolutions.geoserver.rest.decoder.RESTLayer;
-import it.geosolutions.geoserver.rest.decoder.RESTLayer21;
 import it.geosolutions.geoserver.rest.decoder.RESTLayerGroup;
 import it.geosolutions.geoserver.rest.decoder.RESTLayerGroupList;
 import it.geosolutions.geoserver.rest.decoder.RESTLayerList;
@@ -51,6 +55,9 @@ import it.geosolutions.geoserver.rest.decoder.RESTWmsStore;
 import it.geosolutions.geoserver.rest.decoder.RESTWmsStoreList;
 import it.geosolutions.geoserver.rest.decoder.RESTWorkspaceList;
 import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.http.ResponseDecoder;
 import it.geosolutions.geoserver.rest.manager.GeoServerRESTStructuredGridCoverageReaderManager;
 import it.geosolutions.geoserver.rest.manager.GeoServerRESTStyleManager;
 
@@ -58,8 +65,17 @@ import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,9 +97,12 @@ public class GeoServerRESTReader {
     private final String baseurl;
     private String username;
     private String password;
+    private HTTPTransport transport;
 
     private GeoServerRESTStyleManager styleManager;
 
+    private GeoServerRESTCapabilities capabilities;
+
     /**
      * Creates a <TT>GeoServerRESTReader</TT> for a given GeoServer instance and
      * no auth credentials.
@@ -132,35 +151,81 @@ public class GeoServerRESTReader {
         baseurl = init(gsUrl, username, password);
     }
 
+    /**
+     * Creates a <TT>GeoServerRESTReader</TT> for a given GeoServer instance
+     * with the given auth credentials, using the given HTTP transport.
+     *
+     * @param gsUrl the base GeoServer URL (e.g.: <TT>http://localhost:8080/geoserver</TT>)
+     * @param username username auth credential
+     * @param password password auth credential
+     * @param transport the HTTP transport, possibly shared with publishers and managers
+     */
+    public GeoServerRESTReader(URL gsUrl, String username, String password, HTTPTransport transport) {
+        baseurl = init(gsUrl, username, password, transport);
+    }
+
     private String init(String gsUrl, String username, String password) throws MalformedURLException {
         return init(new URL(gsUrl), username, password);
     }
 
     private String init(URL gsUrl, String username, String password) {
+        return init(gsUrl, username, password, PooledHTTPTransport.getDefault());
+    }
+
+    private String init(URL gsUrl, String username, String password, HTTPTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("The transport may not be null");
+        }
         String restUrl = gsUrl.toExternalForm();
         String cleanUrl = restUrl.endsWith("/") ?
                             restUrl.substring(0, restUrl.length()-1) :
                             restUrl;
         this.username = username;
         this.password = password;
+        this.transport = transport;
 
-        styleManager = new GeoServerRESTStyleManager(gsUrl, username, password);
+        capabilities = new GeoServerRESTCapabilities(cleanUrl, username, password, transport);
+        styleManager = new GeoServerRESTStyleManager(gsUrl, username, password, transport, capabilities);
 
         return cleanUrl;
     }
 
+    /**
+     * The existence probe depends on the GeoServer version: an unexpected
+     * status may tell that the server has been upgraded, so the version is
+     * probed again on next use.
+     */
+    private boolean exists(String url) {
+        try {
+            return transport.exists(url, username, password, capabilities.getExistenceProbe());
+        } catch (RuntimeException e) {
+            capabilities.invalidate();
+            throw e;
+        }
+    }
+
     private String load(String url) {
         LOGGER.info("Loading from REST path " + url);
-        String response = HTTPUtils.get(baseurl + url, username, password);
+        String response = transport.get(baseurl + url, username, password);
         return response;
     }
 
+    private <T> T load(String url, ResponseDecoder<T> decoder) {
+        LOGGER.info("Loading from REST path " + url);
+        return transport.get(baseurl + url, username, password, decoder);
+    }
+
     private String loadFullURL(String url) {
         LOGGER.info("Loading from REST path " + url);
-        String response = HTTPUtils.get(url, username, password);
+        String response = transport.get(url, username, password);
         return response;
     }
 
+    private <T> T loadFullURL(String url, ResponseDecoder<T> decoder) {
+        LOGGER.info("Loading from REST path " + url);
+        return transport.get(url, username, password, decoder);
+    }
+
     /**
      * Check if a GeoServer instance is running at the given URL.
      * <BR>
@@ -174,22 +239,23 @@ public class GeoServerRESTReader {
      * @return true if a GeoServer instance was found at the configured URL.
      */
     public boolean existGeoserver() {
-        return HTTPUtils.httpPing(baseurl + "/rest/", username, password);
+        return transport.httpPing(baseurl + "/rest/", username, password);
     }
     
     /**
-     * Return the version of the target GeoServer
+     * Return the version of the target GeoServer.
+     * <BR>
+     * The version is fetched once and then reused, see {@link #getCapabilities()}.
      */
     public GSVersionDecoder getGeoserverVersion() {
-        final String url = "/rest/about/version.xml";
-        String xml = load(url);
-        if (xml == null) {
-            GSVersionDecoder v = new GSVersionDecoder();
-            v.getGeoServer().setVersion(GSVersionDecoder.VERSION.UNRECOGNIZED.toString());
-            return v;
-        } else {
-            return GSVersionDecoder.build(load(url));
-        }
+        return capabilities.getGeoserverVersion();
+    }
+
+    /**
+     * @return the version and REST features of the target GeoServer.
+     */
+    public GeoServerRESTCapabilities getCapabilities() {
+        return capabilities;
     }
 
     //==========================================================================
@@ -289,7 +355,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving DS list from " + url);
         }
-        return RESTDataStoreList.build(load(url));
+        return load(url, RESTDataStoreList::build);
     }
 
     /**
@@ -347,7 +413,7 @@ public class GeoServerRESTReader {
     public boolean existsDatastore(String workspace, String dsName, boolean quietOnNotFound){
         String url = baseurl + "/rest/workspaces/" + workspace + "/datastores/" + dsName + ".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     //==========================================================================
@@ -369,6 +435,38 @@ public class GeoServerRESTReader {
         return RESTFeatureType.build(response);
     }
 
+    /**
+     * Get summary info about the FeatureTypes configured in a DataStore,
+     * whether they are published or not.
+     *
+     * @param workspace The name of the workspace
+     * @param dsName The name of the DataStore
+     * @return FeatureTypes list as a {@link RESTFeatureTypeList}
+     */
+    public RESTFeatureTypeList getFeatureTypes(String workspace, String dsName) {
+        String url = "/rest/workspaces/" + workspace + "/datastores/" + dsName + "/featuretypes.xml";
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("### Retrieving featuretypes from " + url);
+        }
+        return load(url, RESTFeatureTypeList::build);
+    }
+
+    /**
+     * Get detailed info about a given FeatureType.
+     *
+     * @param workspace The name of the workspace
+     * @param dsName The name of the DataStore
+     * @param name The name of the FeatureType
+     * @return FeatureType details as a {@link RESTFeatureType}
+     */
+    public RESTFeatureType getFeatureType(String workspace, String dsName, String name) {
+        String url = "/rest/workspaces/" + workspace + "/datastores/" + dsName + "/featuretypes/" + name + ".xml";
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("### Retrieving featuretype from " + url);
+        }
+        return RESTFeatureType.build(load(url));
+    }
+
     /**
      * Checks if the selected FeatureType is present.
      * 
@@ -393,7 +491,7 @@ public class GeoServerRESTReader {
     public boolean existsFeatureType(String workspace, String dsName, String ftName, boolean quietOnNotFound){
         String url = baseurl + "/rest/workspaces/" + workspace + "/datastores/" + dsName + "/featuretypes/" + ftName +".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     //==========================================================================
@@ -412,7 +510,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving CS list from " + url);
         }
-        return RESTCoverageStoreList.build(load(url));
+        return load(url, RESTCoverageStoreList::build);
     }
 
     /**
@@ -457,7 +555,7 @@ public class GeoServerRESTReader {
     public boolean existsCoveragestore(String workspace, String csName, boolean quietOnNotFound){
         String url = baseurl + "/rest/workspaces/" + workspace + "/coveragestores/" + csName + ".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -488,7 +586,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving Covs from " + url);
         }
-        return RESTCoverageList.build(load(url));
+        return load(url, RESTCoverageList::build);
     }
     
     /**
@@ -506,6 +604,23 @@ public class GeoServerRESTReader {
         }
         return RESTCoverage.build(load(url));
     }
+
+    /**
+     * Get a compact summary of a Coverage; unlike {@link #getCoverage(String, String, String)}
+     * the XML tree is not retained.
+     *
+     * @param workspace The name of the workspace
+     * @param store The name of the CoverageStore
+     * @param name The name of the Coverage
+     * @return Coverage summary as a {@link RESTCompactCoverage}, or null
+     */
+    public RESTCompactCoverage getCompactCoverage(String workspace, String store, String name) {
+        String url = "/rest/workspaces/" + workspace + "/coveragestores/" + store + "/coverages/"+name+".xml";
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("### Retrieving Coverage from " + url);
+        }
+        return load(url, RESTCompactCoverage::build);
+    }
     
     /**
      * Checks if the selected Coverage is present. Parameter quietOnNotFound can be used for controlling the logging when 404 is returned.
@@ -519,7 +634,7 @@ public class GeoServerRESTReader {
     public boolean existsCoverage(String workspace, String store, String name, boolean quietOnNotFound){
         String url = baseurl + "/rest/workspaces/" + workspace + "/coveragestores/" + store + "/coverages/"+name+".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -564,7 +679,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving CS list from " + url);
         }
-        return RESTWmsStoreList.build(load(url));
+        return load(url, RESTWmsStoreList::build);
     }
     
     /**
@@ -608,7 +723,7 @@ public class GeoServerRESTReader {
     public boolean existsWmsstore(String workspace, String wsName, boolean quietOnNotFound){
         String url = baseurl + "/rest/workspaces/" + workspace + "/wmsstores/" + wsName + ".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -638,7 +753,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving Wmss from " + url);
         }
-        return RESTWmsList.build(load(url));
+        return load(url, RESTWmsList::build);
     }
     
     /**
@@ -669,7 +784,7 @@ public class GeoServerRESTReader {
     public boolean existsWms(String workspace, String store, String name, boolean quietOnNotFound){
         String url = baseurl + "/rest/workspaces/" + workspace + "/wmsstores/" + store + "/wmslayers/"+name+".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
     
     /**
@@ -709,6 +824,19 @@ public class GeoServerRESTReader {
         return RESTResource.build(response);
     }
 
+    /**
+     * Get a compact summary of the Resource published by the given Layer; the
+     * XML tree is not retained.
+     *
+     * @return Resource summary as a {@link RESTCompactResource}, which is a
+     *         {@link RESTCompactCoverage} for coverages, or null
+     */
+    public RESTCompactResource getCompactResource(RESTCompactLayer layer) {
+        if (layer.getResourceUrl() == null)
+            return null;
+        return loadFullURL(layer.getResourceUrl(), RESTCompactResource::build);
+    }
+
     //==========================================================================
     //=== LAYERGROUPS
     //==========================================================================
@@ -730,7 +858,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving layergroups from " + url);
         }
-        return RESTLayerGroupList.build(load(url));
+        return load(url, RESTLayerGroupList::build);
     }
 
     /**
@@ -753,6 +881,26 @@ public class GeoServerRESTReader {
         }
         return RESTLayerGroup.build(load(url));
     }
+
+    /**
+     * Get a compact summary of a given LayerGroup; the XML tree is not retained.
+     *
+     * @param workspace name of the workspace, or null for a global group
+     * @param name the name of the LayerGroup
+     * @return LayerGroup summary as a {@link RESTCompactLayerGroup}, or null
+     */
+    public RESTCompactLayerGroup getCompactLayerGroup(String workspace, String name) {
+        String url;
+        if (workspace == null) {
+            url = "/rest/layergroups/" + name + ".xml";
+        } else {
+            url = "/rest/workspaces/" + workspace + "/layergroups/" + name + ".xml";
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("### Retrieving layergroup from " + url);
+        }
+        return load(url, RESTCompactLayerGroup::build);
+    }
     
     /**
      * Get summary info about all LayerGroups.
@@ -789,7 +937,7 @@ public class GeoServerRESTReader {
             url = baseurl + "/rest/workspaces/" + workspace + "/layergroups/" + name + ".xml";
         }  
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -817,7 +965,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving layers from " + url);
         }
-        return RESTLayerList.build(load(url));
+        return load(url, RESTLayerList::build);
     }
 	
 	/**
@@ -830,7 +978,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving featuretypes from " + url);
         }
-        return RESTFeatureTypeList.build(load(url));
+        return load(url, RESTFeatureTypeList::build);
     }
 
     /**
@@ -866,14 +1014,27 @@ public class GeoServerRESTReader {
             LOGGER.debug("### Retrieving layer from " + url);
         }
         
-		RESTLayer layer = null;
-		if (this.getGeoserverVersion().getVersion()
-				.equals(GSVersionDecoder.VERSION.UNRECOGNIZED)) {
-			layer = RESTLayer21.build(load(url));
-		} else {
-			layer = RESTLayer.build(load(url));
-		}
-		return layer;
+        String response = load(url);
+        RESTLayer layer = capabilities.buildLayer(response);
+        if (layer == null && response != null) {
+            // the decoder depends on the version, which may have changed
+            LOGGER.warn("Could not decode layer " + workspace + ":" + name
+                    + ", the GeoServer version will be probed again");
+            capabilities.invalidate();
+        }
+        return layer;
+    }
+
+    /**
+     * Get a compact summary of a given Layer; the XML tree is released as soon
+     * as the summary is decoded.
+     *
+     * @param workspace the workspace name
+     * @param name the layer name
+     * @return a RESTCompactLayer with layer information or null
+     */
+    public RESTCompactLayer getCompactLayer(String workspace, String name) {
+        return RESTCompactLayer.of(getLayer(workspace, name));
     }
     
     /**
@@ -892,7 +1053,7 @@ public class GeoServerRESTReader {
             url = baseurl + "/rest/layers/" + workspace + ":" + name + ".xml";
         }  
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -939,7 +1100,7 @@ public class GeoServerRESTReader {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving namespaces from " + url);
         }
-        return RESTNamespaceList.build(load(url));
+        return load(url, RESTNamespaceList::build);
     }
 
     /**
@@ -970,7 +1131,7 @@ public class GeoServerRESTReader {
         }
         String url = baseurl + "/rest/namespaces/" + prefix + ".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -998,7 +1159,7 @@ public class GeoServerRESTReader {
             LOGGER.debug("### Retrieving workspaces from " + url);
         }
         
-        return RESTWorkspaceList.build(load(url));
+        return load(url, RESTWorkspaceList::build);
     }
 
     /**
@@ -1032,7 +1193,7 @@ public class GeoServerRESTReader {
         }
         String url = baseurl + "/rest/workspaces/" + prefix + ".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -1045,6 +1206,200 @@ public class GeoServerRESTReader {
         return existsWorkspace(prefix, Util.DEFAULT_QUIET_ON_NOT_FOUND);
     }
 
+    //==========================================================================
+    //=== BULK EXISTENCE CHECKS
+    //==========================================================================
+
+    /**
+     * Checks which of the given datastores are present, listing each
+     * workspace once instead of probing each datastore.
+     *
+     * @param names qualified datastore names, as <TT>workspace:datastore</TT>
+     * @return the names, in the given order, mapped to their existence.
+     * @throws IllegalArgumentException if a name is not qualified
+     * @see #existsDatastore(String, String)
+     */
+    public Map<String, Boolean> existsDatastores(Collection<String> names)
+            throws IllegalArgumentException {
+        return existsAll(names, 2, 2,
+                (String[] c) -> names(RESTDataStoreList.build(load("/rest/workspaces/" + c[0] + "/datastores.xml"))),
+                (String[] c) -> existsWorkspace(c[0], true),
+                (String[] n) -> existsDatastore(n[0], n[1], true));
+    }
+
+    /**
+     * Checks which of the given featuretypes are present, listing the
+     * configured featuretypes of each datastore once.
+     *
+     * @param names qualified featuretype names, as <TT>workspace:datastore:featuretype</TT>
+     * @return the names, in the given order, mapped to their existence.
+     * @throws IllegalArgumentException if a name is not qualified
+     * @see #existsFeatureType(String, String, String)
+     */
+    public Map<String, Boolean> existsFeatureTypes(Collection<String> names)
+            throws IllegalArgumentException {
+        return existsAll(names, 3, 3,
+                (String[] c) -> names(RESTFeatureTypeList.build(load("/rest/workspaces/" + c[0]
+                        + "/datastores/" + c[1] + "/featuretypes.xml"))),
+                (String[] c) -> existsDatastore(c[0], c[1], true),
+                (String[] n) -> existsFeatureType(n[0], n[1], n[2], true));
+    }
+
+    /**
+     * Checks which of the given coverages are present, listing the
+     * configured coverages of each coveragestore once.
+     *
+     * @param names qualified coverage names, as <TT>workspace:coveragestore:coverage</TT>
+     * @return the names, in the given order, mapped to their existence.
+     * @throws IllegalArgumentException if a name is not qualified
+     * @see #existsCoverage(String, String, String)
+     */
+    public Map<String, Boolean> existsCoverages(Collection<String> names)
+            throws IllegalArgumentException {
+        return existsAll(names, 3, 3,
+                (String[] c) -> names(RESTCoverageList.build(load("/rest/workspaces/" + c[0]
+                        + "/coveragestores/" + c[1] + "/coverages.xml"))),
+                (String[] c) -> existsCoveragestore(c[0], c[1], true),
+                (String[] n) -> existsCoverage(n[0], n[1], n[2], true));
+    }
+
+    /**
+     * Checks which of the given styles are present, listing the global styles
+     * and the styles of each workspace once.
+     *
+     * @param names style names, as <TT>workspace:style</TT>, or just
+     *        <TT>style</TT> for global styles
+     * @return the names, in the given order, mapped to their existence.
+     * @see #existsStyle(String, String)
+     */
+    public Map<String, Boolean> existsStyles(Collection<String> names) {
+        return existsAll(names, 1, 2,
+                (String[] c) -> names(RESTStyleList.build(load(c.length == 0 ? "/rest/styles.xml"
+                        : "/rest/workspaces/" + c[0] + "/styles.xml"))),
+                (String[] c) -> c.length == 0 || existsWorkspace(c[0], true),
+                (String[] n) -> n.length == 1 ? styleManager.existsStyle(n[0], true)
+                        : styleManager.existsStyle(n[0], n[1], true));
+    }
+
+    /**
+     * Checks which of the given layers are present, from a single listing of
+     * all the layers.
+     * <P>
+     * Listed names are qualified after the workspace in their link; the layers
+     * whose workspace can not be told are probed one by one.
+     *
+     * @param names qualified layer names, as <TT>workspace:layer</TT>
+     * @return the names, in the given order, mapped to their existence.
+     * @throws IllegalArgumentException if a name is not qualified
+     * @see #existsLayer(String, String)
+     */
+    public Map<String, Boolean> existsLayers(Collection<String> names)
+            throws IllegalArgumentException {
+        if (names == null) {
+            throw new IllegalArgumentException("Null names");
+        }
+        final RESTLayerList list = getLayers();
+        final Map<String, Set<String>> listed = new HashMap<String, Set<String>>();
+        if (list != null) {
+            Set<String> unqualified = new HashSet<String>();
+            for (String name : list.getQualifiedNames()) {
+                int sep = name.indexOf(':');
+                if (sep > 0) {
+                    members(listed, name.substring(0, sep)).add(name.substring(sep + 1));
+                } else {
+                    unqualified.add(name);
+                }
+            }
+            for (String name : names) {
+                String[] parts = name == null ? null : name.split(":", -1);
+                if (parts != null && parts.length == 2 && unqualified.contains(parts[1])
+                        && existsLayer(parts[0], parts[1], true)) {
+                    members(listed, parts[0]).add(parts[1]);
+                }
+            }
+        }
+        return existsAll(names, 2, 2,
+                (String[] c) -> list == null ? null : members(listed, c[0]),
+                (String[] c) -> true,
+                (String[] n) -> existsLayer(n[0], n[1], true));
+    }
+
+    private static Set<String> members(Map<String, Set<String>> listed, String workspace) {
+        Set<String> members = listed.get(workspace);
+        if (members == null) {
+            members = new HashSet<String>();
+            listed.put(workspace, members);
+        }
+        return members;
+    }
+
+    /**
+     * Answers the existence of many names, grouped by container (the name
+     * prefix before the last colon): each container is listed once. When a
+     * listing is not available, the container is probed, and its elements
+     * are probed one by one only if it exists.
+     *
+     * @param names the names to check
+     * @param minParts the minimum number of colon separated parts of a name
+     * @param maxParts the maximum number of colon separated parts of a name
+     * @param lister lists the element names in a container, null if not available
+     * @param containerProbe checks whether a container exists
+     * @param probe checks whether a single element exists
+     */
+    private Map<String, Boolean> existsAll(Collection<String> names, int minParts, int maxParts,
+            Function<String[], Collection<String>> lister, Predicate<String[]> containerProbe,
+            Predicate<String[]> probe) throws IllegalArgumentException {
+        if (names == null) {
+            throw new IllegalArgumentException("Null names");
+        }
+        Map<String, List<String[]>> containers = new LinkedHashMap<String, List<String[]>>();
+        for (String name : names) {
+            String[] parts = name == null ? null : name.split(":", -1);
+            if (parts == null || parts.length < minParts || parts.length > maxParts) {
+                throw new IllegalArgumentException("Bad qualified name: " + name);
+            }
+            String container = name.substring(0, Math.max(name.lastIndexOf(':'), 0));
+            List<String[]> elements = containers.get(container);
+            if (elements == null) {
+                elements = new ArrayList<String[]>();
+                containers.put(container, elements);
+            }
+            elements.add(parts);
+        }
+
+        Map<String, Boolean> exists = new HashMap<String, Boolean>();
+        for (Map.Entry<String, List<String[]>> entry : containers.entrySet()) {
+            List<String[]> elements = entry.getValue();
+            String[] container = Arrays.copyOf(elements.get(0), elements.get(0).length - 1);
+            Collection<String> listed = lister.apply(container);
+            Set<String> members = listed == null ? null : listed instanceof Set ? (Set<String>) listed
+                    : new HashSet<String>(listed);
+            boolean present = members != null || containerProbe.test(container);
+            if (members == null && present && LOGGER.isInfoEnabled()) {
+                LOGGER.info("Listing of '" + entry.getKey() + "' not available, probing "
+                        + elements.size() + " elements");
+            }
+            for (String[] element : elements) {
+                String name = String.join(":", element);
+                if (members != null) {
+                    exists.put(name, members.contains(element[element.length - 1]));
+                } else {
+                    exists.put(name, present && probe.test(element));
+                }
+            }
+        }
+
+        Map<String, Boolean> ordered = new LinkedHashMap<String, Boolean>();
+        for (String name : names) {
+            ordered.put(name, exists.get(name));
+        }
+        return ordered;
+    }
+
+    private static List<String> names(RESTAbstractList<?> list) {
+        return list == null ? null : list.getNames();
+    }
+
     //==========================================================================
     //=== Structured Coverages
     //==========================================================================    
@@ -1068,7 +1423,7 @@ public class GeoServerRESTReader {
             UnsupportedEncodingException {
         try {
             GeoServerRESTStructuredGridCoverageReaderManager manager = 
-                new GeoServerRESTStructuredGridCoverageReaderManager(new URL(baseurl), username, password);
+                new GeoServerRESTStructuredGridCoverageReaderManager(new URL(baseurl), username, password, transport);
             return manager.getGranuleById(workspace, coverageStore, coverage, id);
         } catch (IllegalArgumentException e) {
             if(LOGGER.isInfoEnabled()){
@@ -1097,7 +1452,7 @@ public class GeoServerRESTReader {
         String url = baseurl + "/rest/workspaces/" + workspace + "/coveragestores/" + coverageStore
                 + "/coverages/" + coverage + "/index/granules/" + id + ".xml";
         String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-        return HTTPUtils.exists(composed, username, password);
+        return exists(composed);
     }
 
     /**
@@ -1129,7 +1484,7 @@ public class GeoServerRESTReader {
      public RESTStructuredCoverageIndexSchema getGranuleIndexSchema(final String workspace, String coverageStore, String coverage) throws MalformedURLException {
          try {
              GeoServerRESTStructuredGridCoverageReaderManager manager = 
-                 new GeoServerRESTStructuredGridCoverageReaderManager(new URL(baseurl), username, password);
+                 new GeoServerRESTStructuredGridCoverageReaderManager(new URL(baseurl), username, password, transport);
              return manager.getGranuleIndexSchema(workspace, coverageStore, coverage);
          } catch (IllegalArgumentException e) {
              if(LOGGER.isInfoEnabled()){
@@ -1162,7 +1517,7 @@ public class GeoServerRESTReader {
              throws MalformedURLException, UnsupportedEncodingException {
          try {
              GeoServerRESTStructuredGridCoverageReaderManager manager = 
-                 new GeoServerRESTStructuredGridCoverageReaderManager(new URL(baseurl), username, password);
+                 new GeoServerRESTStructuredGridCoverageReaderManager(new URL(baseurl), username, password, transport);
              return manager.getGranules(workspace, coverageStore, coverage, filter, offset, limit);
          } catch (IllegalArgumentException e) {
              if(LOGGER.isInfoEnabled()){
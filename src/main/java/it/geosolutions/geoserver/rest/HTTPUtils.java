@@ -25,47 +25,27 @@
 
 package it.geosolutions.geoserver.rest;
 
-import java.io.ByteArrayOutputStream;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.http.ProgressListener;
+import it.geosolutions.geoserver.rest.http.ResponseDecoder;
+
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.ConnectException;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
 
 import net.sf.json.JSON;
 import net.sf.json.JSONSerializer;
 
-import org.apache.commons.httpclient.Credentials;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpConnectionManager;
-import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.UsernamePasswordCredentials;
-import org.apache.commons.httpclient.auth.AuthScope;
-import org.apache.commons.httpclient.methods.DeleteMethod;
-import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
-import org.apache.commons.httpclient.methods.FileRequestEntity;
-import org.apache.commons.httpclient.methods.GetMethod;
-import org.apache.commons.httpclient.methods.PostMethod;
-import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
-import org.apache.commons.httpclient.methods.StringRequestEntity;
-import org.apache.commons.httpclient.methods.multipart.FilePart;
-import org.apache.commons.httpclient.methods.multipart.MultipartRequestEntity;
-import org.apache.commons.httpclient.methods.multipart.Part;
-import org.apache.commons.io.IOUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Low level HTTP utilities.
+ * <P>
+ * All the calls are performed through the shared
+ * {@link PooledHTTPTransport#getDefault() default transport}, so that
+ * connections are pooled and kept alive across calls.
  */
 public class HTTPUtils {
-    private static final Logger LOGGER = LoggerFactory.getLogger(HTTPUtils.class);
 
     /**
      * Performs an HTTP GET on the given URL.
@@ -91,39 +71,23 @@ public class HTTPUtils {
      * @throws MalformedURLException
      */
     public static String get(String url, String username, String pw) {
+        return PooledHTTPTransport.getDefault().get(url, username, pw);
+    }
 
-        GetMethod httpMethod = null;
-        HttpClient client = new HttpClient();
-        HttpConnectionManager connectionManager = client.getHttpConnectionManager();
-        try {
-            setAuth(client, url, username, pw);
-            httpMethod = new GetMethod(url);
-            connectionManager.getParams().setConnectionTimeout(5000);
-            int status = client.executeMethod(httpMethod);
-            if (status == HttpStatus.SC_OK) {
-                InputStream is = httpMethod.getResponseBodyAsStream();
-                String response = IOUtils.toString(is);
-                IOUtils.closeQuietly(is);
-                if (response.trim().length() == 0) { // sometime gs rest fails
-                    LOGGER.warn("ResponseBody is empty");
-                    return null;
-                } else {
-                    return response;
-                }
-            } else {
-                LOGGER.info("(" + status + ") " + HttpStatus.getStatusText(status) + " -- " + url);
-            }
-        } catch (ConnectException e) {
-            LOGGER.info("Couldn't connect to [" + url + "]");
-        } catch (IOException e) {
-            LOGGER.info("Error talking to [" + url + "]", e);
-        } finally {
-            if (httpMethod != null)
-                httpMethod.releaseConnection();
-            connectionManager.closeIdleConnections(0);
-        }
-
-        return null;
+    /**
+     * Performs an HTTP GET on the given URL, decoding the response while it is
+     * read from the connection, with no intermediate String copy. <BR>
+     * Basic auth is used if both username and pw are not null.
+     * 
+     * @param url The URL where to connect to.
+     * @param username Basic auth credential. No basic auth if null.
+     * @param pw Basic auth credential. No basic auth if null.
+     * @param decoder The decoder for the response body.
+     * @return The decoded response if the HTTP response code was 200 (OK), or
+     *         <TT>null</TT>.
+     */
+    public static <T> T get(String url, String username, String pw, ResponseDecoder<T> decoder) {
+        return PooledHTTPTransport.getDefault().get(url, username, pw, decoder);
     }
 
     /**
@@ -134,8 +98,7 @@ public class HTTPUtils {
      * @return The result parsed as json.
      */
     public static JSON getAsJSON(String url, String username, String pw) throws Exception {
-        String response = get(url, username, pw);
-        return json(response);
+        return PooledHTTPTransport.getDefault().getAsJSON(url, username, pw);
     }
     
     public static JSON json(String content) {
@@ -157,7 +120,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String put(String url, File file, String contentType, String username, String pw) {
-        return put(url, new FileRequestEntity(file, contentType), username, pw);
+        return PooledHTTPTransport.getDefault().put(url, file, contentType, username, pw);
     }
 
     /**
@@ -175,12 +138,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String put(String url, String content, String contentType, String username, String pw) {
-        try {
-            return put(url, new StringRequestEntity(content, contentType, null), username, pw);
-        } catch (UnsupportedEncodingException ex) {
-            LOGGER.error("Cannot PUT " + url, ex);
-            return null;
-        }
+        return PooledHTTPTransport.getDefault().put(url, content, contentType, username, pw);
     }
 
     /**
@@ -197,7 +155,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String putXml(String url, String content, String username, String pw) {
-        return put(url, content, "text/xml", username, pw);
+        return PooledHTTPTransport.getDefault().putXml(url, content, username, pw);
     }
 
     /**
@@ -214,7 +172,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String putJson(String url, String content, String username, String pw) {
-        return put(url, content, "application/json", username, pw);
+        return PooledHTTPTransport.getDefault().putJson(url, content, username, pw);
     }
     
     /**
@@ -231,7 +189,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String put(String url, RequestEntity requestEntity, String username, String pw) {
-        return send(new PutMethod(url), url, requestEntity, username, pw);
+        return PooledHTTPTransport.getDefault().put(url, requestEntity, username, pw);
     }
 
     /**
@@ -249,7 +207,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String post(String url, File file, String contentType, String username, String pw) {
-        return post(url, new FileRequestEntity(file, contentType), username, pw);
+        return PooledHTTPTransport.getDefault().post(url, file, contentType, username, pw);
     }
 
     /**
@@ -267,12 +225,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String post(String url, String content, String contentType, String username, String pw) {
-        try {
-            return post(url, new StringRequestEntity(content, contentType, null), username, pw);
-        } catch (UnsupportedEncodingException ex) {
-            LOGGER.error("Cannot POST " + url, ex);
-            return null;
-        }
+        return PooledHTTPTransport.getDefault().post(url, content, contentType, username, pw);
     }
 
     /**
@@ -289,22 +242,24 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String postMultipartForm(String url, File dir, String username, String pw) {
-        try {
-            List<Part> parts = new ArrayList<Part>();
-            for (File f : dir.listFiles()) {
-                parts.add(new FilePart(f.getName(), f));
-            }
-            MultipartRequestEntity multipart = new MultipartRequestEntity(
-                    parts.toArray(new Part[parts.size()]), new PostMethod().getParams());
+        return PooledHTTPTransport.getDefault().postMultipartForm(url, dir, username, pw);
+    }
 
-            ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            multipart.writeRequest(bout);
-            
-            return post(url, multipart, username, pw);
-        } catch (Exception ex) {
-            LOGGER.error("Cannot POST " + url, ex);
-            return null;
-        }
+    /**
+     * POSTs a list of files as attachments to the given URL, streaming them
+     * from disk. <BR>
+     * Basic auth is used if both username and pw are not null.
+     *
+     * @param url The URL where to connect to.
+     * @param dir The folder containing the attachments.
+     * @param username Basic auth credential. No basic auth if null.
+     * @param pw Basic auth credential. No basic auth if null.
+     * @param listener notified while the files are sent; may be null.
+     * @return the HTTP response or <TT>null</TT> on errors.
+     */
+    public static String postMultipartForm(String url, File dir, String username, String pw,
+            ProgressListener listener) {
+        return PooledHTTPTransport.getDefault().postMultipartForm(url, dir, username, pw, listener);
     }
     
     /**
@@ -321,7 +276,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String postXml(String url, String content, String username, String pw) {
-        return post(url, content, "text/xml", username, pw);
+        return PooledHTTPTransport.getDefault().postXml(url, content, username, pw);
     }
 
     /**
@@ -338,7 +293,7 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String postJson(String url, String content, String username, String pw) {
-        return post(url, content, "application/json", username, pw);
+        return PooledHTTPTransport.getDefault().postJson(url, content, username, pw);
     }
     
     /**
@@ -355,103 +310,11 @@ public class HTTPUtils {
      * @return the HTTP response or <TT>null</TT> on errors.
      */
     public static String post(String url, RequestEntity requestEntity, String username, String pw) {
-        return send(new PostMethod(url), url, requestEntity, username, pw);
-    }
-
-    /**
-     * Send an HTTP request (PUT or POST) to a server. <BR>
-     * Basic auth is used if both username and pw are not null.
-     * <P>
-     * Only
-     * <UL>
-     * <LI>200: OK</LI>
-     * <LI>201: ACCEPTED</LI>
-     * <LI>202: CREATED</LI>
-     * </UL>
-     * are accepted as successful codes; in these cases the response string will
-     * be returned.
-     * 
-     * @return the HTTP response or <TT>null</TT> on errors.
-     */
-    private static String send(final EntityEnclosingMethod httpMethod, String url,
-                               RequestEntity requestEntity, String username, String pw) {
-        HttpClient client = new HttpClient();
-        HttpConnectionManager connectionManager = client.getHttpConnectionManager();
-        try {
-            setAuth(client, url, username, pw);
-            connectionManager.getParams().setConnectionTimeout(5000);
-            if (requestEntity != null)
-                httpMethod.setRequestEntity(requestEntity);
-            int status = client.executeMethod(httpMethod);
-
-            InputStream responseBody;
-            switch (status) {
-            case HttpURLConnection.HTTP_OK:
-            case HttpURLConnection.HTTP_CREATED:
-            case HttpURLConnection.HTTP_ACCEPTED:
-                String response = IOUtils.toString(httpMethod.getResponseBodyAsStream());
-                // LOGGER.info("================= POST " + url);
-                if (LOGGER.isInfoEnabled())
-                    LOGGER.info("HTTP " + httpMethod.getStatusText() + ": " + response);
-                return response;
-            default:
-                responseBody = httpMethod.getResponseBodyAsStream();
-                LOGGER.warn("Bad response: code[" + status + "]" + " msg[" + httpMethod.getStatusText() + "]"
-                            + " url[" + url + "]" + " method[" + httpMethod.getClass().getSimpleName()
-                            + "]: " + (responseBody != null ? IOUtils.toString(responseBody) : ""));
-                return null;
-            }
-        } catch (ConnectException e) {
-            LOGGER.info("Couldn't connect to [" + url + "]");
-            return null;
-        } catch (IOException e) {
-            LOGGER.error("Error talking to " + url + " : " + e.getLocalizedMessage());
-            return null;
-        } finally {
-            if (httpMethod != null)
-                httpMethod.releaseConnection();
-            connectionManager.closeIdleConnections(0);
-        }
+        return PooledHTTPTransport.getDefault().post(url, requestEntity, username, pw);
     }
 
     public static boolean delete(String url, final String user, final String pw) {
-
-        DeleteMethod httpMethod = null;
-        HttpClient client = new HttpClient();
-        HttpConnectionManager connectionManager = client.getHttpConnectionManager();
-        try {
-            setAuth(client, url, user, pw);
-            httpMethod = new DeleteMethod(url);
-            connectionManager.getParams().setConnectionTimeout(5000);
-            int status = client.executeMethod(httpMethod);
-            String response = "";
-            if (status == HttpStatus.SC_OK) {
-                InputStream is = httpMethod.getResponseBodyAsStream();
-                response = IOUtils.toString(is);
-                IOUtils.closeQuietly(is);
-                if (response.trim().equals("")) { 
-                    if (LOGGER.isTraceEnabled())
-                        LOGGER.trace("ResponseBody is empty (this may be not an error since we just performed a DELETE call)");
-                    return true;
-                }
-                if (LOGGER.isDebugEnabled())
-                    LOGGER.debug("(" + status + ") " + httpMethod.getStatusText() + " -- " + url);
-                return true;
-            } else {
-                LOGGER.info("(" + status + ") " + httpMethod.getStatusText() + " -- " + url);
-                LOGGER.info("Response: '" + response + "'");
-            }
-        } catch (ConnectException e) {
-            LOGGER.info("Couldn't connect to [" + url + "]");
-        } catch (IOException e) {
-            LOGGER.info("Error talking to [" + url + "]", e);
-        } finally {
-            if (httpMethod != null)
-                httpMethod.releaseConnection();
-            connectionManager.closeIdleConnections(0);
-        }
-
-        return false;
+        return PooledHTTPTransport.getDefault().delete(url, user, pw);
     }
 
     /**
@@ -462,35 +325,16 @@ public class HTTPUtils {
     }
 
     public static boolean httpPing(String url, String username, String pw) {
-
-        GetMethod httpMethod = null;
-        HttpClient client = new HttpClient();
-        HttpConnectionManager connectionManager = client.getHttpConnectionManager();
-        try {
-            setAuth(client, url, username, pw);
-            httpMethod = new GetMethod(url);
-            connectionManager.getParams().setConnectionTimeout(2000);
-            int status = client.executeMethod(httpMethod);
-            if (status != HttpStatus.SC_OK) {
-                LOGGER.warn("PING failed at '" + url + "': (" + status + ") " + httpMethod.getStatusText());
-                return false;
-            } else {
-                return true;
-            }
-        } catch (ConnectException e) {
-            return false;
-        } catch (IOException e) {
-            LOGGER.error(e.getLocalizedMessage(),e);
-            return false;
-        } finally {
-            if (httpMethod != null)
-                httpMethod.releaseConnection();
-            connectionManager.closeIdleConnections(0);
-        }
+        return PooledHTTPTransport.getDefault().httpPing(url, username, pw);
     }
 
     /**
      * Used to query for REST resources.
+     * <P>
+     * The resource is probed as set by
+     * {@link PooledHTTPTransport#setExistenceProbe(it.geosolutions.geoserver.rest.http.ExistenceProbe)}
+     * on the default transport: with a <TT>HEAD</TT> request unless otherwise
+     * configured, so no body is downloaded.
      * 
      * @param url The URL of the REST resource to query about.
      * @param username
@@ -499,51 +343,7 @@ public class HTTPUtils {
      * @throws RuntimeException on unhandled status or exceptions.
      */
     public static boolean exists(String url, String username, String pw) {
-
-        GetMethod httpMethod = null;
-        HttpClient client = new HttpClient();
-        HttpConnectionManager connectionManager = client.getHttpConnectionManager();
-        try {
-            setAuth(client, url, username, pw);
-            httpMethod = new GetMethod(url);
-            connectionManager.getParams().setConnectionTimeout(2000);
-            int status = client.executeMethod(httpMethod);
-            switch (status) {
-            case HttpStatus.SC_OK:
-                return true;
-            case HttpStatus.SC_NOT_FOUND:
-                return false;
-            default:
-                throw new RuntimeException("Unhandled response status at '" + url + "': (" + status + ") "
-                                           + httpMethod.getStatusText());
-            }
-        } catch (ConnectException e) {
-            throw new RuntimeException(e);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            if (httpMethod != null)
-                httpMethod.releaseConnection();
-            connectionManager.closeIdleConnections(0);
-        }
-    }
-
-    private static void setAuth(HttpClient client, String url, String username, String pw)
-        throws MalformedURLException {
-        URL u = new URL(url);
-        if (username != null && pw != null) {
-            Credentials defaultcreds = new UsernamePasswordCredentials(username, pw);
-            client.getState().setCredentials(new AuthScope(u.getHost(), u.getPort()), defaultcreds);
-            client.getParams().setAuthenticationPreemptive(true); // GS2 by
-                                                                  // default
-                                                                  // always
-                                                                  // requires
-                                                                  // authentication
-        } else {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Not setting credentials to access to " + url);
-            }
-        }
+        return PooledHTTPTransport.getDefault().exists(url, username, pw);
     }
 
     /**
@@ -0,0 +1,433 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.catalog;
+
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverage;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageList;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageStore;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTDataStore;
+import it.geosolutions.geoserver.rest.decoder.RESTDataStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureType;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureTypeList;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerGroup;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerGroupList;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerList;
+import it.geosolutions.geoserver.rest.decoder.RESTNamespace;
+import it.geosolutions.geoserver.rest.decoder.RESTStyle;
+import it.geosolutions.geoserver.rest.decoder.RESTStyleList;
+import it.geosolutions.geoserver.rest.decoder.RESTWms;
+import it.geosolutions.geoserver.rest.decoder.RESTWmsList;
+import it.geosolutions.geoserver.rest.decoder.RESTWmsStore;
+import it.geosolutions.geoserver.rest.decoder.RESTWmsStoreList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Crawls a whole GeoServer catalog and builds a {@link CatalogSnapshot}.
+ * <P>
+ * The catalog tree is visited level by level: each level issues, with the
+ * configured parallelism, all the requests whose parameters are known from the
+ * previous levels.
+ * <BR>
+ * Progress can be polled from another thread while {@link #crawl()} is running
+ * (see {@link #getPhase()}, {@link #getSubmittedRequests()},
+ * {@link #getCompletedRequests()}).
+ * <P>
+ * Featuretypes, coverages and WMS layers are listed per store, so that the
+ * resources not published by any layer are collected too.
+ * <BR>
+ * Usage:<PRE>
+ * CatalogCrawler crawler = new CatalogCrawler(reader, 8);
+ * CatalogSnapshot snapshot = crawler.crawl();
+ * </PRE>
+ *
+ * @see CatalogSnapshot
+ */
+public class CatalogCrawler {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(CatalogCrawler.class);
+
+    /** Default number of concurrent requests. */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * Crawl progress.
+     */
+    public enum Phase {
+        /** Not started yet. */
+        IDLE,
+        /** Reading the top level lists (workspaces, namespaces, layers, global styles and layergroups). */
+        CATALOG,
+        /** Reading the workspace contents and the layers. */
+        WORKSPACES,
+        /** Reading the stores and their resource lists. */
+        STORES,
+        /** Reading the featuretypes, coverages and WMS layers. */
+        RESOURCES,
+        /** Crawl completed. */
+        DONE
+    }
+
+    private final GeoServerRESTReader reader;
+
+    private final int parallelism;
+
+    private volatile Phase phase = Phase.IDLE;
+
+    private volatile long startTime;
+
+    private volatile long endTime;
+
+    private final AtomicInteger submitted = new AtomicInteger();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final AtomicLong requestTime = new AtomicLong();
+
+    /**
+     * @param reader the reader used to query the catalog
+     */
+    public CatalogCrawler(GeoServerRESTReader reader) {
+        this(reader, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param reader the reader used to query the catalog
+     * @param parallelism max number of concurrent requests
+     * @throws IllegalArgumentException on null reader or non positive parallelism
+     */
+    public CatalogCrawler(GeoServerRESTReader reader, int parallelism)
+            throws IllegalArgumentException {
+        if (reader == null) {
+            throw new IllegalArgumentException("The reader may not be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.reader = reader;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the current crawl phase.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return the number of requests submitted so far.
+     */
+    public int getSubmittedRequests() {
+        return submitted.get();
+    }
+
+    /**
+     * @return the number of requests completed so far.
+     */
+    public int getCompletedRequests() {
+        return completed.get();
+    }
+
+    /**
+     * @return the number of completed requests which returned nothing or failed.
+     */
+    public int getFailedRequests() {
+        return failed.get();
+    }
+
+    /**
+     * @return the time elapsed since the crawl started, or the whole crawl time
+     *         once it is completed, in ms.
+     */
+    public long getElapsedTime() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    /**
+     * @return the mean duration of the completed requests, in ms.
+     */
+    public double getAverageRequestTime() {
+        int count = completed.get();
+        return count == 0 ? 0 : requestTime.get() / 1000000d / count;
+    }
+
+    /**
+     * Crawls the catalog.
+     * <BR>
+     * Progress counters are reset at each invocation.
+     *
+     * @return the snapshot of the catalog.
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public synchronized CatalogSnapshot crawl() throws InterruptedException {
+        submitted.set(0);
+        completed.set(0);
+        failed.set(0);
+        requestTime.set(0);
+        endTime = 0;
+        startTime = System.currentTimeMillis();
+
+        final List<String> workspaces = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> namespaceNames = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> layerNames = Collections.synchronizedList(new ArrayList<String>());
+        final Map<String, List<String>> styleNames = new ConcurrentHashMap<String, List<String>>();
+        final Map<String, List<String>> groupNames = new ConcurrentHashMap<String, List<String>>();
+        final Map<String, List<String>> dataStoreNames = new ConcurrentHashMap<String, List<String>>();
+        final Map<String, List<String>> coverageStoreNames = new ConcurrentHashMap<String, List<String>>();
+        final Map<String, List<String>> wmsStoreNames = new ConcurrentHashMap<String, List<String>>();
+        final Map<String, List<String>> featureTypeNames = new ConcurrentHashMap<String, List<String>>();
+        final Map<String, List<String>> coverageNames = new ConcurrentHashMap<String, List<String>>();
+        final Map<String, List<String>> wmsLayerNames = new ConcurrentHashMap<String, List<String>>();
+
+        final Map<String, RESTNamespace> namespaces = new ConcurrentHashMap<String, RESTNamespace>();
+        final Map<String, Map<String, RESTDataStore>> dataStores = index();
+        final Map<String, Map<String, RESTCoverageStore>> coverageStores = index();
+        final Map<String, Map<String, RESTWmsStore>> wmsStores = index();
+        final Map<String, Map<String, RESTFeatureType>> featureTypes = index();
+        final Map<String, Map<String, RESTCoverage>> coverages = index();
+        final Map<String, Map<String, RESTWms>> wmsLayers = index();
+        final Map<String, RESTLayer> layers = new ConcurrentHashMap<String, RESTLayer>();
+        final Map<String, Map<String, RESTLayerGroup>> layerGroups = index();
+        final Map<String, Map<String, RESTStyle>> styles = index();
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Callable<Void>> batch = new ArrayList<Callable<Void>>();
+
+            phase = Phase.CATALOG;
+            fetch(batch, () -> reader.getWorkspaceNames(), workspaces::addAll);
+            fetch(batch, () -> reader.getNamespaceNames(), namespaceNames::addAll);
+            fetch(batch, () -> reader.getLayers(), (RESTLayerList list) -> layerNames.addAll(list.getNames()));
+            fetch(batch, () -> reader.getStyles(),
+                    (RESTStyleList list) -> styleNames.put(CatalogSnapshot.GLOBAL, list.getNames()));
+            fetch(batch, () -> reader.getLayerGroups(),
+                    (RESTLayerGroupList list) -> groupNames.put(CatalogSnapshot.GLOBAL, list.getNames()));
+            run(executor, batch);
+
+            phase = Phase.WORKSPACES;
+            for (final String ws : workspaces) {
+                fetch(batch, () -> reader.getDatastores(ws),
+                        (RESTDataStoreList list) -> dataStoreNames.put(ws, list.getNames()));
+                fetch(batch, () -> reader.getCoverageStores(ws),
+                        (RESTCoverageStoreList list) -> coverageStoreNames.put(ws, list.getNames()));
+                fetch(batch, () -> reader.getWmsStores(ws),
+                        (RESTWmsStoreList list) -> wmsStoreNames.put(ws, list.getNames()));
+                fetch(batch, () -> reader.getStyles(ws),
+                        (RESTStyleList list) -> styleNames.put(ws, list.getNames()));
+                fetch(batch, () -> reader.getLayerGroups(ws),
+                        (RESTLayerGroupList list) -> groupNames.put(ws, list.getNames()));
+            }
+            for (final String prefix : namespaceNames) {
+                fetch(batch, () -> reader.getNamespace(prefix),
+                        (RESTNamespace ns) -> namespaces.put(prefix, ns));
+            }
+            for (final String name : layerNames) {
+                fetch(batch, () -> getLayer(name, workspaces), (RESTLayer layer) -> layers.put(name, layer));
+            }
+            run(executor, batch);
+
+            phase = Phase.STORES;
+            for (Map.Entry<String, List<String>> entry : dataStoreNames.entrySet()) {
+                final String ws = entry.getKey();
+                for (final String name : entry.getValue()) {
+                    fetch(batch, () -> reader.getDatastore(ws, name),
+                            (RESTDataStore store) -> scoped(dataStores, ws).put(name, store));
+                    fetch(batch, () -> reader.getFeatureTypes(ws, name),
+                            (RESTFeatureTypeList list) -> featureTypeNames.put(ws + ":" + name, list.getNames()));
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : coverageStoreNames.entrySet()) {
+                final String ws = entry.getKey();
+                for (final String name : entry.getValue()) {
+                    fetch(batch, () -> reader.getCoverageStore(ws, name),
+                            (RESTCoverageStore store) -> scoped(coverageStores, ws).put(name, store));
+                    fetch(batch, () -> reader.getCoverages(ws, name),
+                            (RESTCoverageList list) -> coverageNames.put(ws + ":" + name, list.getNames()));
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : wmsStoreNames.entrySet()) {
+                final String ws = entry.getKey();
+                for (final String name : entry.getValue()) {
+                    fetch(batch, () -> reader.getWmsStore(ws, name),
+                            (RESTWmsStore store) -> scoped(wmsStores, ws).put(name, store));
+                    fetch(batch, () -> reader.getWms(ws, name),
+                            (RESTWmsList list) -> wmsLayerNames.put(ws + ":" + name, list.getNames()));
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : styleNames.entrySet()) {
+                final String ws = entry.getKey();
+                for (final String name : entry.getValue()) {
+                    fetch(batch, () -> reader.getStyle(scope(ws), name),
+                            (RESTStyle style) -> scoped(styles, ws).put(name, style));
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : groupNames.entrySet()) {
+                final String ws = entry.getKey();
+                for (final String name : entry.getValue()) {
+                    fetch(batch, () -> reader.getLayerGroup(scope(ws), name),
+                            (RESTLayerGroup group) -> scoped(layerGroups, ws).put(name, group));
+                }
+            }
+            run(executor, batch);
+
+            phase = Phase.RESOURCES;
+            fetchResources(batch, featureTypeNames, reader::getFeatureType, featureTypes);
+            fetchResources(batch, coverageNames, reader::getCoverage, coverages);
+            fetchResources(batch, wmsLayerNames, reader::getWms, wmsLayers);
+            run(executor, batch);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        endTime = System.currentTimeMillis();
+        phase = Phase.DONE;
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Catalog crawled in " + getElapsedTime() + "ms: " + completed.get()
+                    + " requests, " + failed.get() + " failed");
+        }
+
+        return new CatalogSnapshot(startTime, getElapsedTime(), workspaces, namespaces, dataStores,
+                coverageStores, wmsStores, featureTypes, coverages, wmsLayers, layers, layerGroups, styles);
+    }
+
+    /**
+     * Loads a layer from its listed name. Names listed without the workspace
+     * prefix, by older GeoServer versions, are looked up in each workspace.
+     */
+    private RESTLayer getLayer(String name, List<String> workspaces) {
+        int sep = name.indexOf(':');
+        if (sep > 0) {
+            return reader.getLayer(name.substring(0, sep), name.substring(sep + 1));
+        }
+        for (String ws : workspaces) {
+            RESTLayer layer = reader.getLayer(ws, name);
+            if (layer != null) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    private static String scope(String ws) {
+        return CatalogSnapshot.GLOBAL.equals(ws) ? null : ws;
+    }
+
+    private static <T> Map<String, Map<String, T>> index() {
+        return new ConcurrentHashMap<String, Map<String, T>>();
+    }
+
+    private static <T> Map<String, T> scoped(Map<String, Map<String, T>> index, String ws) {
+        return index.computeIfAbsent(ws, k -> new ConcurrentHashMap<String, T>());
+    }
+
+    /**
+     * Queues a request; its result, when not null, is handed to the sink.
+     */
+    private <T> void fetch(List<Callable<Void>> batch, final Supplier<T> request, final Consumer<T> sink) {
+        submitted.incrementAndGet();
+        batch.add(() -> {
+            long start = System.nanoTime();
+            T result = null;
+            try {
+                result = request.get();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Catalog request failed: " + e.getMessage(), e);
+            } finally {
+                requestTime.addAndGet(System.nanoTime() - start);
+                completed.incrementAndGet();
+            }
+            if (result == null) {
+                failed.incrementAndGet();
+            } else {
+                sink.accept(result);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Loads a store resource.
+     */
+    private interface ResourceLoader<T> {
+        T load(String workspace, String store, String name);
+    }
+
+    /**
+     * Queues the requests for the resources listed by <TT>workspace:store</TT>.
+     */
+    private <T> void fetchResources(List<Callable<Void>> batch, Map<String, List<String>> names,
+            final ResourceLoader<T> loader, final Map<String, Map<String, T>> index) {
+        for (Map.Entry<String, List<String>> entry : names.entrySet()) {
+            String key = entry.getKey();
+            final String ws = key.substring(0, key.indexOf(':'));
+            final String store = key.substring(key.indexOf(':') + 1);
+            for (final String name : entry.getValue()) {
+                fetch(batch, () -> loader.load(ws, store, name),
+                        (T resource) -> scoped(index, ws).put(name, resource));
+            }
+        }
+    }
+
+    /**
+     * Runs the queued requests, waits for their completion and clears the batch.
+     */
+    private static void run(ExecutorService executor, List<Callable<Void>> batch)
+            throws InterruptedException {
+        List<Future<Void>> futures = executor.invokeAll(batch);
+        batch.clear();
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error while crawling the catalog", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.catalog;
+
+import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.encoder.GSAbstractStoreEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSLayerGroupEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSWorkspaceEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.encoder.utils.XmlElement;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jdom.Element;
+
+/**
+ * The desired state of (a part of) a GeoServer catalog, to be enforced by a
+ * {@link CatalogReconciler}.
+ * <P>
+ * The model is built from the usual encoders: each element is identified by
+ * its workspace and name, and described by the fields set on its encoder. Only
+ * the fields actually set are compared against the catalog, so that a model
+ * may leave unspecified whatever GeoServer is free to choose.
+ * <BR>
+ * Styles and layergroups added with a <TT>null</TT> workspace are global.
+ * <P>
+ * The encoders are compared to the catalog as they are when added, and should
+ * not be changed afterwards.
+ * <P>
+ * Elements not in the model are left alone, unless {@link #setPrune(boolean)
+ * pruning} is enabled: the stores, styles and layergroups found in the
+ * workspaces of the model, and the featuretypes found in its datastores, are
+ * then deleted when the model does not list them. Workspaces themselves, and
+ * global elements, are never deleted.
+ * <BR>
+ * Usage:<PRE>
+ * CatalogModel model = new CatalogModel();
+ * model.addWorkspace(new GSWorkspaceEncoder("topp"));
+ * model.addStore("topp", postgis);
+ * model.addStyle("topp", "roads", sld);
+ * model.addFeatureType("topp", "postgis", roads, roadsLayer);
+ * model.addLayerGroup("topp", "basemap", basemap);
+ * </PRE>
+ *
+ * @see CatalogReconciler
+ */
+public class CatalogModel {
+
+    /**
+     * A catalog element of the model, along with its serialized encoder.
+     */
+    static class Item {
+
+        final String workspace;
+
+        final String store;
+
+        final String name;
+
+        final XmlElement encoder;
+
+        final Element xml;
+
+        final String body;
+
+        Item(String workspace, String store, String name, XmlElement encoder, Element xml, String body) {
+            this.workspace = workspace;
+            this.store = store;
+            this.name = name;
+            this.encoder = encoder;
+            this.xml = xml;
+            this.body = body;
+        }
+    }
+
+    private final Map<String, Item> workspaces = new LinkedHashMap<String, Item>();
+
+    private final Map<String, Item> stores = new LinkedHashMap<String, Item>();
+
+    private final Map<String, Item> featureTypes = new LinkedHashMap<String, Item>();
+
+    private final Map<String, Item> layers = new LinkedHashMap<String, Item>();
+
+    private final Map<String, Item> styles = new LinkedHashMap<String, Item>();
+
+    private final Map<String, Item> layerGroups = new LinkedHashMap<String, Item>();
+
+    private boolean prune;
+
+    /**
+     * @param prune <TT>true</TT> to delete the elements, found in the
+     *        workspaces and datastores of the model, which the model does not
+     *        list.
+     */
+    public void setPrune(boolean prune) {
+        this.prune = prune;
+    }
+
+    /**
+     * @return <TT>true</TT> if the elements missing from the model are deleted.
+     */
+    public boolean isPrune() {
+        return prune;
+    }
+
+    /**
+     * Adds a workspace; the associated namespace is created along with it.
+     *
+     * @param workspace the workspace encoder
+     * @throws IllegalArgumentException if the workspace has no name, or is
+     *         already in the model
+     */
+    public void addWorkspace(GSWorkspaceEncoder workspace) throws IllegalArgumentException {
+        if (workspace == null) {
+            throw new IllegalArgumentException("Null workspace");
+        }
+        String name = checkName(workspace.getName());
+        put(workspaces, name, new Item(name, null, name, workspace, null, null));
+    }
+
+    /**
+     * Adds a datastore or coveragestore; its workspace is added to the model
+     * if missing.
+     *
+     * @param workspace the workspace of the store
+     * @param store the store encoder, including the connection parameters
+     * @throws IllegalArgumentException if an argument is null or has no name,
+     *         or the store is already in the model
+     */
+    public void addStore(String workspace, GSAbstractStoreEncoder store)
+            throws IllegalArgumentException {
+        if (store == null) {
+            throw new IllegalArgumentException("Null store");
+        }
+        String name = checkName(store.getName());
+        ensureWorkspace(workspace);
+        put(stores, key(workspace, name), new Item(workspace, null, name, store, xml(store), null));
+    }
+
+    /**
+     * Adds a featuretype and the layer publishing it; the workspace is added
+     * to the model if missing.
+     * <P>
+     * The datastore does not need to be in the model, in which case it is expected
+     * to exist already.
+     *
+     * @param workspace the workspace of the datastore
+     * @param store the datastore name
+     * @param featureType the featuretype encoder
+     * @param layer the layer encoder, or <TT>null</TT> to leave the layer as
+     *        GeoServer configures it
+     * @throws IllegalArgumentException if an argument is null or has no name,
+     *         or the featuretype is already in the model
+     */
+    public void addFeatureType(String workspace, String store, GSFeatureTypeEncoder featureType,
+            GSLayerEncoder layer) throws IllegalArgumentException {
+        if (featureType == null) {
+            throw new IllegalArgumentException("Null featuretype");
+        }
+        String name = checkName(featureType.getName());
+        checkName(store);
+        ensureWorkspace(workspace);
+        put(featureTypes, key(workspace, name),
+                new Item(workspace, store, name, featureType, xml(featureType), null));
+        if (layer != null) {
+            layers.put(key(workspace, name), new Item(workspace, store, name, layer, xml(layer), null));
+        }
+    }
+
+    /**
+     * Adds a style.
+     *
+     * @param workspace the workspace of the style, or <TT>null</TT> for a
+     *        global style
+     * @param name the style name
+     * @param sldBody the SLD document
+     * @throws IllegalArgumentException if the name or the SLD are null or
+     *         empty, or the style is already in the model
+     */
+    public void addStyle(String workspace, String name, String sldBody)
+            throws IllegalArgumentException {
+        checkName(name);
+        Element sld = sldBody == null ? null : JDOMBuilder.buildElement(sldBody);
+        if (sld == null) {
+            throw new IllegalArgumentException("Unable to parse the SLD of style " + name);
+        }
+        if (workspace != null) {
+            ensureWorkspace(workspace);
+        }
+        put(styles, key(workspace, name), new Item(workspace, null, name, null, sld, sldBody));
+    }
+
+    /**
+     * Adds a layergroup.
+     * <P>
+     * The name and workspace are set on the encoder.
+     *
+     * @param workspace the workspace of the layergroup, or <TT>null</TT> for a
+     *        global layergroup
+     * @param name the layergroup name
+     * @param group the layergroup encoder
+     * @throws IllegalArgumentException if an argument is null or empty, or the
+     *         layergroup is already in the model
+     */
+    public void addLayerGroup(String workspace, String name, GSLayerGroupEncoder group)
+            throws IllegalArgumentException {
+        checkName(name);
+        if (group == null) {
+            throw new IllegalArgumentException("Null layergroup");
+        }
+        if (workspace != null) {
+            ensureWorkspace(workspace);
+            group.setWorkspace(workspace);
+        }
+        group.setName(name);
+        String body = group.toString();
+        put(layerGroups, key(workspace, name),
+                new Item(workspace, null, name, group, JDOMBuilder.buildElement(body), body));
+    }
+
+    /**
+     * @return <TT>true</TT> if the model has no elements.
+     */
+    public boolean isEmpty() {
+        return workspaces.isEmpty() && styles.isEmpty() && layerGroups.isEmpty();
+    }
+
+    Collection<Item> getWorkspaces() {
+        return Collections.unmodifiableCollection(workspaces.values());
+    }
+
+    Collection<Item> getStores() {
+        return Collections.unmodifiableCollection(stores.values());
+    }
+
+    Collection<Item> getFeatureTypes() {
+        return Collections.unmodifiableCollection(featureTypes.values());
+    }
+
+    /**
+     * @return the layer of the given featuretype, or null if not configured.
+     */
+    Item getLayer(String workspace, String name) {
+        return layers.get(key(workspace, name));
+    }
+
+    Collection<Item> getStyles() {
+        return Collections.unmodifiableCollection(styles.values());
+    }
+
+    Collection<Item> getLayerGroups() {
+        return Collections.unmodifiableCollection(layerGroups.values());
+    }
+
+    /**
+     * @return <TT>true</TT> if the model has the given element; used to find
+     *         the elements to prune.
+     */
+    boolean hasStore(String workspace, String name) {
+        return stores.containsKey(key(workspace, name));
+    }
+
+    boolean hasFeatureType(String workspace, String name) {
+        return featureTypes.containsKey(key(workspace, name));
+    }
+
+    boolean hasStyle(String workspace, String name) {
+        return styles.containsKey(key(workspace, name));
+    }
+
+    boolean hasLayerGroup(String workspace, String name) {
+        return layerGroups.containsKey(key(workspace, name));
+    }
+
+    private void ensureWorkspace(String workspace) {
+        checkName(workspace);
+        if (!workspaces.containsKey(workspace)) {
+            workspaces.put(workspace, new Item(workspace, null, workspace,
+                    new GSWorkspaceEncoder(workspace), null, null));
+        }
+    }
+
+    private static String key(String workspace, String name) {
+        return workspace == null ? name : workspace + ":" + name;
+    }
+
+    private static String checkName(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Null or empty name");
+        }
+        return name;
+    }
+
+    private static void put(Map<String, Item> items, String key, Item item) {
+        if (items.containsKey(key)) {
+            throw new IllegalArgumentException("Duplicate element in the model: " + key);
+        }
+        items.put(key, item);
+    }
+
+    private static Element xml(XmlElement encoder) {
+        return JDOMBuilder.buildElement(encoder.toString());
+    }
+}
@@ -0,0 +1,821 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.catalog;
+
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher.StoreType;
+import it.geosolutions.geoserver.rest.catalog.CatalogModel.Item;
+import it.geosolutions.geoserver.rest.catalog.ReconcilePlan.Action;
+import it.geosolutions.geoserver.rest.catalog.ReconcilePlan.Kind;
+import it.geosolutions.geoserver.rest.catalog.ReconcilePlan.Operation;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTDataStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureTypeList;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerGroupList;
+import it.geosolutions.geoserver.rest.decoder.RESTStyleList;
+import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.encoder.GSAbstractStoreEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSLayerGroupEncoder;
+import it.geosolutions.geoserver.rest.http.CacheableResponse;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.http.XmlElementEntity;
+import it.geosolutions.geoserver.rest.manager.GeoServerRESTAbstractManager;
+import it.geosolutions.geoserver.rest.manager.GeoServerRESTStoreManager;
+import it.geosolutions.geoserver.rest.manager.GeoServerRESTStyleManager;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings a GeoServer catalog to the state described by a {@link CatalogModel},
+ * issuing only the requests needed to do so.
+ * <P>
+ * {@link #plan(CatalogModel)} fetches, with the configured parallelism, the
+ * current state of the elements listed in the model (and, when pruning, the
+ * listings of its workspaces and datastores), then compares it to the model:
+ * <UL>
+ * <LI>missing elements are created;</LI>
+ * <LI>existing elements are updated when a field set on their encoder differs
+ * from the one returned by GeoServer; fields not set on the encoder are not
+ * compared, and references by name match the qualified names GeoServer
+ * returns. Encrypted connection parameters (e.g. passwords) can not be
+ * compared, and are assumed to match;</LI>
+ * <LI>styles are updated when their SLD differs, whitespace aside. The name of
+ * the named layers is not compared, since GeoServer may rename it after the
+ * style;</LI>
+ * <LI>layergroups are also updated when their layers or styles differ, or are
+ * in a different order;</LI>
+ * <LI>with {@link CatalogModel#setPrune(boolean) pruning}, elements not in the
+ * model are deleted.</LI>
+ * </UL>
+ * Only a 404 means an element is missing: any other failure aborts the plan,
+ * rather than recreating elements which may well exist.
+ * <BR>
+ * {@link #apply(ReconcilePlan)} then runs the actions kind by kind, following
+ * the {@link Kind} order for creations and updates and the reverse one for
+ * deletions; the actions of the same kind run in parallel. The actions
+ * depending on a failed one (e.g. the featuretypes of a store which could not
+ * be created) are skipped.
+ * <P>
+ * The cost of a run with nothing to change is one request per element of the
+ * model, issued <TT>parallelism</TT> at a time, regardless of the size of the
+ * catalog.
+ * <BR>
+ * Usage:<PRE>
+ * CatalogReconciler reconciler = new CatalogReconciler(restURL, user, pw, transport, 8);
+ * ReconcilePlan plan = reconciler.plan(model);
+ * LOGGER.info(plan.toString());
+ * if (!reconciler.apply(plan)) {
+ *     LOGGER.error("Failed: " + plan.getFailedActions());
+ * }
+ * </PRE>
+ *
+ * @see CatalogModel
+ */
+public class CatalogReconciler extends GeoServerRESTAbstractManager {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(CatalogReconciler.class);
+
+    /** Default number of concurrent requests. */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private final GeoServerRESTPublisher publisher;
+
+    private final GeoServerRESTStoreManager storeManager;
+
+    private final GeoServerRESTStyleManager styleManager;
+
+    private final int parallelism;
+
+    /**
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     */
+    public CatalogReconciler(URL restURL, String username, String password)
+            throws IllegalArgumentException {
+        this(restURL, username, password, PooledHTTPTransport.getDefault(), DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     * @param transport the HTTP transport, possibly shared with other managers
+     * @param parallelism the maximum number of concurrent requests; it should
+     *        not exceed the connections per host allowed by the transport
+     * @throws IllegalArgumentException if an argument is null, or the
+     *         parallelism is not positive
+     */
+    public CatalogReconciler(URL restURL, String username, String password,
+            HTTPTransport transport, int parallelism) throws IllegalArgumentException {
+        super(restURL, username, password, transport);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.publisher = new GeoServerRESTPublisher(restURL.toString(), username, password,
+                transport);
+        this.storeManager = new GeoServerRESTStoreManager(restURL, username, password, transport);
+        this.styleManager = new GeoServerRESTStyleManager(restURL, username, password, transport);
+    }
+
+    /**
+     * Plans and applies the changes needed by the model.
+     *
+     * @param model the desired catalog state
+     * @return the applied plan; see {@link ReconcilePlan#getFailedActions()}.
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws RuntimeException if the current catalog state could not be read
+     */
+    public ReconcilePlan reconcile(CatalogModel model) throws InterruptedException {
+        ReconcilePlan plan = plan(model);
+        apply(plan);
+        return plan;
+    }
+
+    /**
+     * Fetches the current state of the elements in the model, and computes
+     * the changes needed to match it. The catalog is not modified.
+     *
+     * @param model the desired catalog state
+     * @return the plan; empty if the catalog already matches the model.
+     * @throws IllegalArgumentException if the model is null
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws RuntimeException if the state of an element could not be read
+     *         for any other reason than it being missing
+     */
+    public ReconcilePlan plan(final CatalogModel model) throws IllegalArgumentException,
+            InterruptedException {
+        if (model == null) {
+            throw new IllegalArgumentException("Null model");
+        }
+        long start = System.currentTimeMillis();
+        final AtomicInteger requests = new AtomicInteger();
+        final Queue<String> failures = new ConcurrentLinkedQueue<String>();
+
+        final Set<String> workspaces = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final Map<Item, Element> stores = new ConcurrentHashMap<Item, Element>();
+        final Map<Item, Element> featureTypes = new ConcurrentHashMap<Item, Element>();
+        final Map<Item, Element> layers = new ConcurrentHashMap<Item, Element>();
+        final Map<Item, Element> styles = new ConcurrentHashMap<Item, Element>();
+        final Map<Item, Element> layerGroups = new ConcurrentHashMap<Item, Element>();
+        final Map<String, List<String>> listings = new ConcurrentHashMap<String, List<String>>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Callable<Void>> batch = new ArrayList<Callable<Void>>();
+            for (final Item ws : model.getWorkspaces()) {
+                fetch(batch, requests, failures, "/rest/workspaces/" + ws.name + ".xml",
+                        (String xml) -> workspaces.add(ws.name));
+                if (model.isPrune()) {
+                    String base = "/rest/workspaces/" + ws.name + "/";
+                    fetch(batch, requests, failures, base + "datastores.xml", (String xml) -> listings.put(
+                            base + "datastores", RESTDataStoreList.build(xml).getNames()));
+                    fetch(batch, requests, failures, base + "coveragestores.xml", (String xml) -> listings.put(
+                            base + "coveragestores", RESTCoverageStoreList.build(xml).getNames()));
+                    fetch(batch, requests, failures, base + "styles.xml", (String xml) -> listings.put(
+                            base + "styles", RESTStyleList.build(xml).getNames()));
+                    fetch(batch, requests, failures, base + "layergroups.xml", (String xml) -> listings.put(
+                            base + "layergroups", RESTLayerGroupList.build(xml).getNames()));
+                }
+            }
+            for (final Item store : model.getStores()) {
+                final String path = storePath(store);
+                fetch(batch, requests, failures, path + ".xml", (String xml) -> put(stores, store, xml));
+                if (model.isPrune() && isDataStore(store)) {
+                    fetch(batch, requests, failures, path + "/featuretypes.xml", (String xml) -> listings.put(
+                            path + "/featuretypes", RESTFeatureTypeList.build(xml).getNames()));
+                }
+            }
+            for (final Item featureType : model.getFeatureTypes()) {
+                fetch(batch, requests, failures, featureTypePath(featureType) + ".xml",
+                        (String xml) -> put(featureTypes, featureType, xml));
+                final Item layer = model.getLayer(featureType.workspace, featureType.name);
+                if (layer != null) {
+                    fetch(batch, requests, failures, "/rest/layers/" + layer.workspace + ":" + layer.name + ".xml",
+                            (String xml) -> put(layers, layer, xml));
+                }
+            }
+            for (final Item style : model.getStyles()) {
+                fetch(batch, requests, failures, stylePath(style.workspace, style.name) + ".sld",
+                        (String sld) -> put(styles, style, sld));
+            }
+            for (final Item group : model.getLayerGroups()) {
+                fetch(batch, requests, failures, layerGroupPath(group.workspace, group.name) + ".xml",
+                        (String xml) -> put(layerGroups, group, xml));
+            }
+            run(executor, batch);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            // planning from a partial state would recreate existing elements
+            throw new RuntimeException("Unable to read the catalog state: " + failures);
+        }
+
+        List<Action> actions = new ArrayList<Action>();
+        for (Item ws : model.getWorkspaces()) {
+            if (!workspaces.contains(ws.name)) {
+                actions.add(create(Kind.WORKSPACE, ws));
+            }
+        }
+        for (Item style : model.getStyles()) {
+            Element actual = styles.get(style);
+            if (actual == null) {
+                actions.add(create(Kind.STYLE, style));
+            } else if (!sameSld(style.xml, actual)) {
+                actions.add(update(Kind.STYLE, style, "sld"));
+            }
+        }
+        for (Item store : model.getStores()) {
+            diff(actions, Kind.STORE, store, stores.get(store));
+        }
+        for (Item featureType : model.getFeatureTypes()) {
+            Element actual = featureTypes.get(featureType);
+            diff(actions, Kind.FEATURETYPE, featureType, actual);
+            Item layer = model.getLayer(featureType.workspace, featureType.name);
+            if (layer != null) {
+                // the layer of a new featuretype is created by GeoServer, then configured
+                Element actualLayer = actual == null ? null : layers.get(layer);
+                String reason = actualLayer == null ? null : diff(layer.xml, actualLayer);
+                if (actualLayer == null || reason != null) {
+                    actions.add(update(Kind.LAYER, layer, reason));
+                }
+            }
+        }
+        for (Item group : model.getLayerGroups()) {
+            Element actual = layerGroups.get(group);
+            if (actual == null) {
+                actions.add(create(Kind.LAYERGROUP, group));
+            } else {
+                String reason = diffLayerGroup(group.xml, actual);
+                if (reason != null) {
+                    actions.add(update(Kind.LAYERGROUP, group, reason));
+                }
+            }
+        }
+
+        if (model.isPrune()) {
+            for (Item ws : model.getWorkspaces()) {
+                String base = "/rest/workspaces/" + ws.name + "/";
+                for (String name : listed(listings, base + "layergroups")) {
+                    if (!model.hasLayerGroup(ws.name, name)) {
+                        actions.add(delete(Kind.LAYERGROUP, ws.name, null, name));
+                    }
+                }
+                for (String collection : new String[] { "datastores", "coveragestores" }) {
+                    for (String name : listed(listings, base + collection)) {
+                        if (!model.hasStore(ws.name, name)) {
+                            // deleted stores keep their collection in place of the parent store
+                            actions.add(delete(Kind.STORE, ws.name, collection, name));
+                        }
+                    }
+                }
+                for (String name : listed(listings, base + "styles")) {
+                    if (!model.hasStyle(ws.name, name)) {
+                        actions.add(delete(Kind.STYLE, ws.name, null, name));
+                    }
+                }
+            }
+            for (Item store : model.getStores()) {
+                for (String name : listed(listings, storePath(store) + "/featuretypes")) {
+                    if (!model.hasFeatureType(store.workspace, name)) {
+                        actions.add(delete(Kind.FEATURETYPE, store.workspace, store.name, name));
+                    }
+                }
+            }
+        }
+
+        ReconcilePlan plan = new ReconcilePlan(sort(actions), System.currentTimeMillis() - start,
+                requests.get());
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Catalog reconciliation planned in " + plan.getPlanTime() + "ms: "
+                    + plan.size() + " actions, " + plan.getRequests() + " requests");
+        }
+        return plan;
+    }
+
+    /**
+     * Applies the plan; the outcome of each action is recorded in the action itself.
+     *
+     * @param plan the plan to apply
+     * @return <TT>true</TT> if all the actions have been applied.
+     * @throws IllegalArgumentException if the plan is null
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean apply(ReconcilePlan plan) throws IllegalArgumentException, InterruptedException {
+        if (plan == null) {
+            throw new IllegalArgumentException("Null plan");
+        }
+        final Set<String> failed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Callable<Void>> batch = new ArrayList<Callable<Void>>();
+            Action previous = null;
+            for (final Action action : plan.getActions()) {
+                if (previous != null && !sameStage(previous, action)) {
+                    run(executor, batch);
+                }
+                batch.add(() -> {
+                    boolean applied = false;
+                    if (dependsOn(action, failed)) {
+                        LOGGER.warn("Skipping " + action + ": a required action failed");
+                    } else {
+                        try {
+                            applied = execute(action);
+                        } catch (RuntimeException e) {
+                            LOGGER.warn("Error applying " + action + ": " + e.getMessage(), e);
+                        }
+                        if (!applied) {
+                            LOGGER.warn("Failed to apply " + action);
+                        }
+                    }
+                    action.setApplied(applied);
+                    if (!applied) {
+                        failed.add(scope(action));
+                    }
+                    return null;
+                });
+                previous = action;
+            }
+            run(executor, batch);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Catalog reconciliation applied: " + plan.size() + " actions, "
+                    + plan.getFailedActions().size() + " failed");
+        }
+        return plan.getFailedActions().isEmpty();
+    }
+
+    private boolean execute(Action action) {
+        Item item = action.item;
+        String ws = action.getWorkspace();
+        String name = action.getName();
+        switch (action.getKind()) {
+        case WORKSPACE:
+            return publisher.createWorkspace(name);
+        case STYLE:
+            if (action.getOperation() == Operation.DELETE) {
+                return styleManager.removeStyleInWorkspace(ws, name, true);
+            }
+            if (action.getOperation() == Operation.CREATE) {
+                return ws == null ? styleManager.publishStyle(item.body, name)
+                        : styleManager.publishStyleInWorkspace(ws, item.body, name);
+            }
+            return ws == null ? styleManager.updateStyle(item.body, name)
+                    : styleManager.updateStyleInWorkspace(ws, item.body, name);
+        case STORE:
+            if (action.getOperation() == Operation.DELETE) {
+                return action.getStore().equals(StoreType.DATASTORES.toString())
+                        ? publisher.removeDatastore(ws, name, true)
+                        : publisher.removeCoverageStore(ws, name, true);
+            }
+            if (action.getOperation() == Operation.CREATE) {
+                return storeManager.create(ws, (GSAbstractStoreEncoder) item.encoder);
+            }
+            return storeManager.update(ws, (GSAbstractStoreEncoder) item.encoder);
+        case FEATURETYPE:
+            if (action.getOperation() == Operation.DELETE) {
+                return publisher.unpublishFeatureType(ws, action.getStore(), name);
+            }
+            String path = gsBaseUrl + "/rest/workspaces/" + ws + "/datastores/" + action.getStore()
+                    + "/featuretypes";
+            if (action.getOperation() == Operation.CREATE) {
+                return transport.post(path, new XmlElementEntity(item.encoder), gsuser, gspass) != null;
+            }
+            return transport.put(path + "/" + name + ".xml", new XmlElementEntity(item.encoder),
+                    gsuser, gspass) != null;
+        case LAYER:
+            return publisher.configureLayer(ws, name, (GSLayerEncoder) item.encoder);
+        case LAYERGROUP:
+            if (action.getOperation() == Operation.DELETE) {
+                return publisher.removeLayerGroup(ws, name);
+            }
+            if (action.getOperation() == Operation.CREATE) {
+                // the encoder already carries name and workspace: post it as serialized by the model
+                String url = ws == null ? gsBaseUrl + "/rest/layergroups"
+                        : gsBaseUrl + "/rest/workspaces/" + ws + "/layergroups";
+                return transport.postXml(url, item.body, gsuser, gspass) != null;
+            }
+            return publisher.configureLayerGroup(ws, name, (GSLayerGroupEncoder) item.encoder);
+        default:
+            throw new IllegalStateException("Unknown kind " + action.getKind());
+        }
+    }
+
+    //=========================================================================
+    // Planning
+    //=========================================================================
+
+    private static Action create(Kind kind, Item item) {
+        return new Action(Operation.CREATE, kind, item.workspace, item.store, item.name, null, item);
+    }
+
+    private static Action update(Kind kind, Item item, String reason) {
+        return new Action(Operation.UPDATE, kind, item.workspace, item.store, item.name, reason, item);
+    }
+
+    private static Action delete(Kind kind, String workspace, String store, String name) {
+        return new Action(Operation.DELETE, kind, workspace, store, name, null, null);
+    }
+
+    private static void diff(List<Action> actions, Kind kind, Item item, Element actual) {
+        if (actual == null) {
+            actions.add(create(kind, item));
+        } else {
+            String reason = diff(item.xml, actual);
+            if (reason != null) {
+                actions.add(update(kind, item, reason));
+            }
+        }
+    }
+
+    /**
+     * Creations and updates come first, in {@link Kind} order; then the
+     * deletions, in reverse order.
+     */
+    private static List<Action> sort(List<Action> actions) {
+        List<Action> sorted = new ArrayList<Action>(actions);
+        Collections.sort(sorted, (Action a, Action b) -> Integer.compare(stage(a), stage(b)));
+        return sorted;
+    }
+
+    private static int stage(Action action) {
+        int kind = action.getKind().ordinal();
+        return action.getOperation() == Operation.DELETE ? 2 * Kind.values().length - kind : kind;
+    }
+
+    private static boolean sameStage(Action a, Action b) {
+        return stage(a) == stage(b);
+    }
+
+    /**
+     * @return the key under which the failure of an action is recorded: the
+     *         workspace, store or featuretype it creates or updates.
+     */
+    private static String scope(Action action) {
+        switch (action.getKind()) {
+        case WORKSPACE:
+            return action.getName();
+        case STORE:
+            return action.getWorkspace() + "/" + action.getName();
+        case FEATURETYPE:
+            return action.getWorkspace() + ":" + action.getName();
+        default:
+            return action.getKind() + ":" + action.getWorkspace() + ":" + action.getName();
+        }
+    }
+
+    private static boolean dependsOn(Action action, Set<String> failed) {
+        if (failed.isEmpty() || action.getOperation() == Operation.DELETE) {
+            return false;
+        }
+        if (action.getWorkspace() != null && failed.contains(action.getWorkspace())) {
+            return true;
+        }
+        switch (action.getKind()) {
+        case FEATURETYPE:
+            return failed.contains(action.getWorkspace() + "/" + action.getStore());
+        case LAYER:
+            return failed.contains(action.getWorkspace() + "/" + action.getStore())
+                    || failed.contains(action.getWorkspace() + ":" + action.getName());
+        default:
+            return false;
+        }
+    }
+
+    private static List<String> listed(Map<String, List<String>> listings, String path) {
+        List<String> names = listings.get(path);
+        return names == null ? Collections.<String> emptyList() : names;
+    }
+
+    private static boolean isDataStore(Item store) {
+        return ((GSAbstractStoreEncoder) store.encoder).getStoreType() == StoreType.DATASTORES;
+    }
+
+    private static String storePath(Item store) {
+        return "/rest/workspaces/" + store.workspace + "/"
+                + ((GSAbstractStoreEncoder) store.encoder).getStoreType() + "/" + store.name;
+    }
+
+    private static String featureTypePath(Item featureType) {
+        return "/rest/workspaces/" + featureType.workspace + "/datastores/" + featureType.store
+                + "/featuretypes/" + featureType.name;
+    }
+
+    private static String stylePath(String workspace, String name) {
+        return workspace == null ? "/rest/styles/" + name
+                : "/rest/workspaces/" + workspace + "/styles/" + name;
+    }
+
+    private static String layerGroupPath(String workspace, String name) {
+        return workspace == null ? "/rest/layergroups/" + name
+                : "/rest/workspaces/" + workspace + "/layergroups/" + name;
+    }
+
+    //=========================================================================
+    // Comparison
+    //=========================================================================
+
+    /**
+     * Compares the fields set on an encoder to the ones of the actual element.
+     * <P>
+     * Repeated elements (e.g. styles, keywords, metadata entries) must match
+     * one to one, in any order; <TT>key</TT> attributes must match, other
+     * attributes are ignored. An empty desired field is not compared.
+     *
+     * @return the path of the first field found to differ, or null if the
+     *         actual element matches.
+     */
+    static String diff(Element desired, Element actual) {
+        return diff(desired, actual, desired.getName());
+    }
+
+    private static String diff(Element desired, Element actual, String path) {
+        if (!sameKey(desired, actual)) {
+            return path;
+        }
+        List<?> children = desired.getChildren();
+        if (children.isEmpty()) {
+            return matches(desired.getTextTrim(), actual) ? null : path;
+        }
+        Map<String, List<Element>> groups = new LinkedHashMap<String, List<Element>>();
+        for (Object child : children) {
+            Element field = (Element) child;
+            List<Element> group = groups.get(field.getName());
+            if (group == null) {
+                group = new ArrayList<Element>();
+                groups.put(field.getName(), group);
+            }
+            group.add(field);
+        }
+        for (Map.Entry<String, List<Element>> entry : groups.entrySet()) {
+            String fieldPath = path + "/" + entry.getKey();
+            List<Element> wanted = entry.getValue();
+            List<Element> found = new ArrayList<Element>();
+            for (Object child : actual.getChildren(entry.getKey())) {
+                found.add((Element) child);
+            }
+            if (wanted.size() == 1 && found.size() <= 1) {
+                Element field = wanted.get(0);
+                if (found.isEmpty()) {
+                    if (!isUnset(field)) {
+                        return fieldPath;
+                    }
+                    continue;
+                }
+                String reason = diff(field, found.get(0), fieldPath);
+                if (reason != null) {
+                    return reason;
+                }
+                continue;
+            }
+            if (wanted.size() != found.size()) {
+                return fieldPath;
+            }
+            for (Element field : wanted) {
+                Element match = null;
+                for (Element candidate : found) {
+                    if (diff(field, candidate, fieldPath) == null) {
+                        match = candidate;
+                        break;
+                    }
+                }
+                if (match == null) {
+                    return fieldPath;
+                }
+                found.remove(match);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUnset(Element field) {
+        return field.getChildren().isEmpty() && field.getTextTrim().isEmpty();
+    }
+
+    private static boolean sameKey(Element desired, Element actual) {
+        String key = desired.getAttributeValue("key");
+        return key == null || key.equals(actual.getAttributeValue("key"));
+    }
+
+    /**
+     * Matches a desired value to an actual field, which may be a reference
+     * wrapping the (possibly qualified) name into a <TT>name</TT> element.
+     */
+    private static boolean matches(String value, Element actual) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        if (!actual.getChildren().isEmpty()) {
+            Element name = actual.getChild("name");
+            return name != null && matches(value, name);
+        }
+        String text = actual.getTextTrim();
+        if (text.equals(value) || text.endsWith(":" + value)) {
+            return true;
+        }
+        if (text.startsWith("crypt1:") || text.startsWith("crypt2:")) {
+            return true;
+        }
+        try {
+            return Double.parseDouble(text) == Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Layergroups are compared field by field, except for their layers and
+     * styles, which must match in order. GeoServer returns the layers as
+     * <TT>publishables</TT>, whatever list was sent.
+     */
+    static String diffLayerGroup(Element desired, Element actual) {
+        Element fields = (Element) desired.clone();
+        fields.removeChildren("layers");
+        fields.removeChildren("publishables");
+        fields.removeChildren("styles");
+        String reason = diff(fields, actual);
+        if (reason != null) {
+            return reason;
+        }
+        Element layers = desired.getChild("publishables") != null ? desired.getChild("publishables")
+                : desired.getChild("layers");
+        Element actualLayers = actual.getChild("publishables") != null ? actual.getChild("publishables")
+                : actual.getChild("layers");
+        if (layers != null && !names(layers).equals(names(actualLayers))) {
+            return desired.getName() + "/" + layers.getName();
+        }
+        Element styles = desired.getChild("styles");
+        if (styles != null && !names(styles).equals(names(actual.getChild("styles")))) {
+            return desired.getName() + "/styles";
+        }
+        return null;
+    }
+
+    /**
+     * @return the unqualified names in a list of references; empty
+     *         references (e.g. default styles) are returned as empty strings.
+     */
+    private static List<String> names(Element list) {
+        List<String> names = new ArrayList<String>();
+        if (list != null) {
+            for (Object child : list.getChildren()) {
+                Element ref = (Element) child;
+                String name = ref.getChildren().isEmpty() ? ref.getTextTrim() : ref.getChildTextTrim("name");
+                name = name == null ? "" : name;
+                names.add(name.substring(name.indexOf(':') + 1));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return <TT>true</TT> if the two SLD trees are equal, whitespace and
+     *         named layer names aside.
+     */
+    static boolean sameSld(Element desired, Element actual) {
+        if (!desired.getName().equals(actual.getName())
+                || !desired.getNamespaceURI().equals(actual.getNamespaceURI())) {
+            return false;
+        }
+        List<?> attributes = desired.getAttributes();
+        if (attributes.size() != actual.getAttributes().size()) {
+            return false;
+        }
+        for (Object a : attributes) {
+            Attribute attribute = (Attribute) a;
+            if (!attribute.getValue().equals(
+                    actual.getAttributeValue(attribute.getName(), attribute.getNamespace()))) {
+                return false;
+            }
+        }
+        List<?> children = desired.getChildren();
+        List<?> actualChildren = actual.getChildren();
+        if (children.size() != actualChildren.size()) {
+            return false;
+        }
+        if (children.isEmpty()) {
+            return desired.getTextNormalize().equals(actual.getTextNormalize())
+                    || desired.getName().equals("Name") && desired.getParentElement() != null
+                    && desired.getParentElement().getName().equals("NamedLayer");
+        }
+        for (int i = 0; i < children.size(); i++) {
+            if (!sameSld((Element) children.get(i), (Element) actualChildren.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //=========================================================================
+    // Requests
+    //=========================================================================
+
+    /**
+     * @throws IllegalStateException if the response cannot be parsed: the
+     *         element exists, and must not be planned as missing
+     */
+    private static void put(Map<Item, Element> state, Item item, String xml) {
+        Element element = JDOMBuilder.buildElement(xml);
+        if (element == null) {
+            throw new IllegalStateException("Unparseable response");
+        }
+        state.put(item, element);
+    }
+
+    /**
+     * Queues a GET; the response is handed to the sink unless the resource is
+     * missing. Any status other than 200 and 404, a failed request, or a
+     * response the sink cannot read, is added to the failures.
+     */
+    private void fetch(List<Callable<Void>> batch, final AtomicInteger requests,
+            final Queue<String> failures, final String path, final Consumer<String> sink) {
+        requests.incrementAndGet();
+        batch.add(() -> {
+            CacheableResponse response = null;
+            try {
+                response = transport.getIfModified(gsBaseUrl + path, gsuser, gspass, null, null);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Catalog request failed: " + e.getMessage(), e);
+            }
+            if (response == null) {
+                failures.add(path);
+            } else if (response.getStatus() == HttpURLConnection.HTTP_OK) {
+                try {
+                    sink.accept(response.getBody());
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Unreadable catalog response at " + path + ": " + e.getMessage());
+                    failures.add(path + " (unreadable)");
+                }
+            } else if (response.getStatus() != HttpURLConnection.HTTP_NOT_FOUND) {
+                failures.add(path + " (" + response.getStatus() + ")");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs the queued tasks, waits for their completion and clears the batch.
+     */
+    private static void run(ExecutorService executor, List<Callable<Void>> batch)
+            throws InterruptedException {
+        List<Future<Void>> futures = executor.invokeAll(batch);
+        batch.clear();
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error while reconciling the catalog", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.catalog;
+
+import it.geosolutions.geoserver.rest.decoder.RESTCoverage;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageStore;
+import it.geosolutions.geoserver.rest.decoder.RESTDataStore;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureType;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerGroup;
+import it.geosolutions.geoserver.rest.decoder.RESTNamespace;
+import it.geosolutions.geoserver.rest.decoder.RESTStyle;
+import it.geosolutions.geoserver.rest.decoder.RESTWms;
+import it.geosolutions.geoserver.rest.decoder.RESTWmsStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable in-memory picture of a GeoServer catalog, as built by a {@link CatalogCrawler}.
+ * <P>
+ * Elements are indexed by workspace and name. Global elements (styles and
+ * layergroups not bound to any workspace) are looked up using a <TT>null</TT>
+ * workspace.
+ * <BR>
+ * Collections returned by the getters are never null, and iterate in name order.
+ *
+ * @see CatalogCrawler
+ */
+public class CatalogSnapshot {
+
+    /** Index key used for the elements not bound to a workspace. */
+    static final String GLOBAL = "";
+
+    private final long creationTime;
+
+    private final long crawlTime;
+
+    private final List<String> workspaces;
+
+    private final Map<String, RESTNamespace> namespaces;
+
+    private final Map<String, Map<String, RESTDataStore>> dataStores;
+
+    private final Map<String, Map<String, RESTCoverageStore>> coverageStores;
+
+    private final Map<String, Map<String, RESTWmsStore>> wmsStores;
+
+    private final Map<String, Map<String, RESTFeatureType>> featureTypes;
+
+    private final Map<String, Map<String, RESTCoverage>> coverages;
+
+    private final Map<String, Map<String, RESTWms>> wmsLayers;
+
+    private final Map<String, RESTLayer> layers;
+
+    private final Map<String, Map<String, RESTLayerGroup>> layerGroups;
+
+    private final Map<String, Map<String, RESTStyle>> styles;
+
+    CatalogSnapshot(long creationTime, long crawlTime, Collection<String> workspaces,
+            Map<String, RESTNamespace> namespaces,
+            Map<String, ? extends Map<String, RESTDataStore>> dataStores,
+            Map<String, ? extends Map<String, RESTCoverageStore>> coverageStores,
+            Map<String, ? extends Map<String, RESTWmsStore>> wmsStores,
+            Map<String, ? extends Map<String, RESTFeatureType>> featureTypes,
+            Map<String, ? extends Map<String, RESTCoverage>> coverages,
+            Map<String, ? extends Map<String, RESTWms>> wmsLayers,
+            Map<String, RESTLayer> layers,
+            Map<String, ? extends Map<String, RESTLayerGroup>> layerGroups,
+            Map<String, ? extends Map<String, RESTStyle>> styles) {
+        this.creationTime = creationTime;
+        this.crawlTime = crawlTime;
+        List<String> wsList = new ArrayList<String>(workspaces);
+        Collections.sort(wsList);
+        this.workspaces = Collections.unmodifiableList(wsList);
+        this.namespaces = Collections.unmodifiableMap(new TreeMap<String, RESTNamespace>(namespaces));
+        this.dataStores = freeze(dataStores);
+        this.coverageStores = freeze(coverageStores);
+        this.wmsStores = freeze(wmsStores);
+        this.featureTypes = freeze(featureTypes);
+        this.coverages = freeze(coverages);
+        this.wmsLayers = freeze(wmsLayers);
+        this.layers = Collections.unmodifiableMap(new TreeMap<String, RESTLayer>(layers));
+        this.layerGroups = freeze(layerGroups);
+        this.styles = freeze(styles);
+    }
+
+    private static <T> Map<String, Map<String, T>> freeze(Map<String, ? extends Map<String, T>> index) {
+        Map<String, Map<String, T>> frozen = new TreeMap<String, Map<String, T>>();
+        for (Map.Entry<String, ? extends Map<String, T>> entry : index.entrySet()) {
+            frozen.put(entry.getKey(),
+                    Collections.unmodifiableMap(new TreeMap<String, T>(entry.getValue())));
+        }
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    private static <T> Collection<T> values(Map<String, Map<String, T>> index, String workspace) {
+        Map<String, T> scoped = index.get(workspace == null ? GLOBAL : workspace);
+        if (scoped == null) {
+            return Collections.emptyList();
+        }
+        return scoped.values();
+    }
+
+    private static <T> T lookup(Map<String, Map<String, T>> index, String workspace, String name) {
+        Map<String, T> scoped = index.get(workspace == null ? GLOBAL : workspace);
+        if (scoped == null) {
+            return null;
+        }
+        return scoped.get(name);
+    }
+
+    /**
+     * @return the time the crawl that built this snapshot started, in ms since the epoch.
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * @return the time spent crawling the catalog, in ms.
+     */
+    public long getCrawlTime() {
+        return crawlTime;
+    }
+
+    /**
+     * @return the names of all the workspaces.
+     */
+    public List<String> getWorkspaceNames() {
+        return workspaces;
+    }
+
+    /**
+     * @return all the namespaces.
+     */
+    public Collection<RESTNamespace> getNamespaces() {
+        return namespaces.values();
+    }
+
+    /**
+     * @param prefix the namespace prefix
+     * @return the namespace, or null if not found.
+     */
+    public RESTNamespace getNamespace(String prefix) {
+        return namespaces.get(prefix);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @return the datastores in the workspace.
+     */
+    public Collection<RESTDataStore> getDataStores(String workspace) {
+        return values(dataStores, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @param name the datastore name
+     * @return the datastore, or null if not found.
+     */
+    public RESTDataStore getDataStore(String workspace, String name) {
+        return lookup(dataStores, workspace, name);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @return the coveragestores in the workspace.
+     */
+    public Collection<RESTCoverageStore> getCoverageStores(String workspace) {
+        return values(coverageStores, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @param name the coveragestore name
+     * @return the coveragestore, or null if not found.
+     */
+    public RESTCoverageStore getCoverageStore(String workspace, String name) {
+        return lookup(coverageStores, workspace, name);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @return the wmsstores in the workspace.
+     */
+    public Collection<RESTWmsStore> getWmsStores(String workspace) {
+        return values(wmsStores, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @param name the wmsstore name
+     * @return the wmsstore, or null if not found.
+     */
+    public RESTWmsStore getWmsStore(String workspace, String name) {
+        return lookup(wmsStores, workspace, name);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @return the featuretypes in the workspace.
+     */
+    public Collection<RESTFeatureType> getFeatureTypes(String workspace) {
+        return values(featureTypes, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @param name the featuretype name
+     * @return the featuretype, or null if not found.
+     */
+    public RESTFeatureType getFeatureType(String workspace, String name) {
+        return lookup(featureTypes, workspace, name);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @return the coverages in the workspace.
+     */
+    public Collection<RESTCoverage> getCoverages(String workspace) {
+        return values(coverages, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @param name the coverage name
+     * @return the coverage, or null if not found.
+     */
+    public RESTCoverage getCoverage(String workspace, String name) {
+        return lookup(coverages, workspace, name);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @return the WMS layers of the wmsstores in the workspace.
+     */
+    public Collection<RESTWms> getWmsLayers(String workspace) {
+        return values(wmsLayers, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name
+     * @param name the WMS layer name
+     * @return the WMS layer, or null if not found.
+     */
+    public RESTWms getWmsLayer(String workspace, String name) {
+        return lookup(wmsLayers, workspace, name);
+    }
+
+    /**
+     * @return all the layers.
+     */
+    public Collection<RESTLayer> getLayers() {
+        return layers.values();
+    }
+
+    /**
+     * @param workspace the workspace name, may be null
+     * @param name the layer name
+     * @return the layer, or null if not found.
+     */
+    public RESTLayer getLayer(String workspace, String name) {
+        if (workspace != null) {
+            RESTLayer layer = layers.get(workspace + ":" + name);
+            if (layer != null) {
+                return layer;
+            }
+        }
+        return layers.get(name);
+    }
+
+    /**
+     * @param workspace the workspace name, or null for the global layergroups
+     * @return the layergroups in the workspace.
+     */
+    public Collection<RESTLayerGroup> getLayerGroups(String workspace) {
+        return values(layerGroups, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name, or null for a global layergroup
+     * @param name the layergroup name
+     * @return the layergroup, or null if not found.
+     */
+    public RESTLayerGroup getLayerGroup(String workspace, String name) {
+        return lookup(layerGroups, workspace, name);
+    }
+
+    /**
+     * @param workspace the workspace name, or null for the global styles
+     * @return the styles in the workspace.
+     */
+    public Collection<RESTStyle> getStyles(String workspace) {
+        return values(styles, workspace);
+    }
+
+    /**
+     * @param workspace the workspace name, or null for a global style
+     * @param name the style name
+     * @return the style, or null if not found.
+     */
+    public RESTStyle getStyle(String workspace, String name) {
+        return lookup(styles, workspace, name);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.catalog;
+
+import it.geosolutions.geoserver.rest.catalog.CatalogModel.Item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes needed to bring a GeoServer catalog to the state described by a
+ * {@link CatalogModel}, as computed by {@link CatalogReconciler#plan(CatalogModel)}.
+ * <P>
+ * An empty plan means the catalog already matches the model.
+ * <BR>
+ * After {@link CatalogReconciler#apply(ReconcilePlan)}, each action reports
+ * whether it has been applied.
+ */
+public class ReconcilePlan {
+
+    /**
+     * What an action does to its element.
+     */
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+
+    /**
+     * The kinds of catalog elements, in the order they are created: each
+     * kind may only depend on the previous ones. Deletions go the other way.
+     */
+    public enum Kind {
+        WORKSPACE, STYLE, STORE, FEATURETYPE, LAYER, LAYERGROUP
+    }
+
+    /**
+     * A single change to a catalog element.
+     */
+    public static class Action {
+
+        private final Operation operation;
+
+        private final Kind kind;
+
+        private final String workspace;
+
+        private final String store;
+
+        private final String name;
+
+        private final String reason;
+
+        final Item item;
+
+        private volatile Boolean applied;
+
+        Action(Operation operation, Kind kind, String workspace, String store, String name,
+                String reason, Item item) {
+            this.operation = operation;
+            this.kind = kind;
+            this.workspace = workspace;
+            this.store = store;
+            this.name = name;
+            this.reason = reason;
+            this.item = item;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the workspace of the element, or null for global elements.
+         */
+        public String getWorkspace() {
+            return workspace;
+        }
+
+        /**
+         * @return the store of a featuretype or layer, null for other elements.
+         */
+        public String getStore() {
+            return store;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return for updates, the path of the first field found to differ
+         *         (e.g. <TT>featureType/title</TT>); null otherwise.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return <TT>true</TT> if the action has been successfully applied.
+         */
+        public boolean isApplied() {
+            return Boolean.TRUE.equals(applied);
+        }
+
+        /**
+         * @return <TT>true</TT> if the action failed, or was skipped because
+         *         an action it depends on failed.
+         */
+        public boolean isFailed() {
+            return Boolean.FALSE.equals(applied);
+        }
+
+        void setApplied(boolean applied) {
+            this.applied = applied;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder().append(operation).append(' ').append(kind)
+                    .append(' ');
+            if (workspace != null) {
+                sb.append(workspace).append(':');
+            }
+            if (store != null && kind != Kind.LAYER) {
+                sb.append(store).append('/');
+            }
+            sb.append(name);
+            if (reason != null) {
+                sb.append(" (").append(reason).append(')');
+            }
+            return sb.toString();
+        }
+    }
+
+    private final List<Action> actions;
+
+    private final long planTime;
+
+    private final int requests;
+
+    ReconcilePlan(List<Action> actions, long planTime, int requests) {
+        this.actions = Collections.unmodifiableList(new ArrayList<Action>(actions));
+        this.planTime = planTime;
+        this.requests = requests;
+    }
+
+    /**
+     * @return all the actions, in the order they are applied.
+     */
+    public List<Action> getActions() {
+        return actions;
+    }
+
+    /**
+     * @param operation the operation
+     * @return the actions performing the given operation.
+     */
+    public List<Action> getActions(Operation operation) {
+        List<Action> selected = new ArrayList<Action>();
+        for (Action action : actions) {
+            if (action.getOperation() == operation) {
+                selected.add(action);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return the actions which failed, or were skipped, while applying the plan.
+     */
+    public List<Action> getFailedActions() {
+        List<Action> failed = new ArrayList<Action>();
+        for (Action action : actions) {
+            if (action.isFailed()) {
+                failed.add(action);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return <TT>true</TT> if the catalog already matches the model.
+     */
+    public boolean isEmpty() {
+        return actions.isEmpty();
+    }
+
+    public int size() {
+        return actions.size();
+    }
+
+    /**
+     * @return the time spent fetching the catalog state and computing the
+     *         plan, in ms.
+     */
+    public long getPlanTime() {
+        return planTime;
+    }
+
+    /**
+     * @return the number of requests issued to fetch the catalog state.
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(actions.size()).append(" actions, planned in ").append(planTime).append("ms with ")
+                .append(requests).append(" requests");
+        for (Action action : actions) {
+            sb.append("\n  ").append(action);
+        }
+        return sb.toString();
+    }
+}
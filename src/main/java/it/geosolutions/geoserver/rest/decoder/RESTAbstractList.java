@@ -25,13 +25,16 @@
 
 package it.geosolutions.geoserver.rest.decoder;
 
-import it.geosolutions.geoserver.rest.decoder.utils.JDOMListIterator;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
+import it.geosolutions.geoserver.rest.decoder.utils.StAXBuilder;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import org.jdom.Element;
 
@@ -57,63 +60,208 @@ import org.jdom.Element;
  */
 public class RESTAbstractList<ELEM extends NameLinkElem> implements Iterable<ELEM> {
 
-    protected final List<Element> elementList;
+    /**
+     * The list items, as a live view of the children of the list element. The
+     * items already decoded are emptied, and the view is released once every
+     * item has been decoded.
+     *
+     * @deprecated the items are decoded on demand: use {@link #get(int)} or
+     *             {@link #iterator()} instead.
+     */
+    @Deprecated
+    protected List<Element> elementList;
 
+    /** The items decoded so far, in list order. */
+    private final List<ELEM> decoded = new ArrayList<ELEM>();
+
+    /** The content of the list element; null once every item has been decoded. */
+    private List<?> content;
+
+    /** The position in {@link #content} of the next item to decode. */
+    private int cursor;
+
+    /** The number of items, or -1 until it is needed. */
+    private int size = -1;
+
+    private String baseName;
+
+    /**
+     * The items are neither copied nor checked here: each one is checked and
+     * decoded when first reached, and then emptied.
+     */
     protected RESTAbstractList(Element list) {
-        List<Element> tempList = new ArrayList<Element>();
-        String baseName = null;
-
-        for (Element listItem : (List<Element>) list.getChildren()) {
-            if(baseName == null)
-                baseName = listItem.getName();
-            else
-                if(! baseName.equals(listItem.getName())) {
-                    throw new RuntimeException("List elements mismatching (" + baseName+","+listItem.getName()+")");
-                }
+        init(list);
+    }
+
+    /**
+     * Creates an empty list, to be filled through {@link #read(InputStream)}.
+     */
+    protected RESTAbstractList() {
+        elementList = Collections.emptyList();
+        size = 0;
+    }
 
-            tempList.add(listItem);
+    /**
+     * Fills the list with the items of the response, each parsed as a detached
+     * element, without building the whole document.
+     *
+     * @param response the XML list; it is not closed
+     * @return <TT>false</TT> if the response could not be parsed.
+     */
+    protected boolean read(InputStream response) {
+        final Element list = new Element("list");
+        boolean parsed = StAXBuilder.visitChildren(response, new Consumer<Element>() {
+            public void accept(Element listItem) {
+                list.addContent(listItem);
+            }
+        });
+        if (!parsed) {
+            return false;
         }
+        init(list);
+        return true;
+    }
 
-        elementList = Collections.unmodifiableList(tempList);
+    private synchronized void init(Element list) {
+        elementList = Collections.unmodifiableList((List<Element>) list.getChildren());
+        content = list.getContent();
+        decoded.clear();
+        cursor = 0;
+        size = -1;
+        baseName = null;
     }
 
-    public int size() {
-        return elementList.size();
+    public synchronized int size() {
+        if (size < 0) {
+            int count = decoded.size();
+            for (int i = cursor; content != null && i < content.size(); i++) {
+                if (content.get(i) instanceof Element) {
+                    count++;
+                }
+            }
+            size = count;
+        }
+        return size;
     }
 
     public boolean isEmpty() {
-        return elementList.isEmpty();
+        return !has(0);
     }
 
-    public ELEM get(int index) {
-        return createElement(elementList.get(index));
+    /**
+     * @throws RuntimeException if the list elements up to <TT>index</TT> have
+     *             mismatching names
+     */
+    public synchronized ELEM get(int index) {
+        if (index < 0 || !reach(index)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return decoded.get(index);
     }
 
+    /**
+     * Decodes the items one at a time, so that the iteration can be stopped
+     * early without decoding, nor checking, the remaining ones.
+     *
+     * @throws RuntimeException from {@link Iterator#hasNext()} if the next list
+     *             element has a mismatching name
+     */
     public Iterator<ELEM> iterator() {
-        return new RESTAbstractListIterator(elementList);
+        return new Iterator<ELEM>() {
+
+            private int next;
+
+            public boolean hasNext() {
+                return has(next);
+            }
+
+            public ELEM next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     public List<String> getNames() {
-        List<String> names = new ArrayList<String>(elementList.size());
+        List<String> names = new ArrayList<String>();
         for (ELEM elem: this) {
             names.add(elem.getName());
         }
         return names;
     }
 
+    /**
+     * @return true if the list has an item at <TT>index</TT>, decoding the
+     *         items before it
+     */
+    private synchronized boolean has(int index) {
+        return index < decoded.size() || reach(index - 1) && nextItem() != null;
+    }
 
-    private class RESTAbstractListIterator extends JDOMListIterator<ELEM> {
-
-        public RESTAbstractListIterator(List<Element> orig) {
-            super(orig);
+    /**
+     * Decodes the items up to <TT>index</TT>, emptying their elements.
+     *
+     * @return false if the list is shorter
+     */
+    private boolean reach(int index) {
+        while (decoded.size() <= index) {
+            Element item = nextItem();
+            if (item == null) {
+                return false;
+            }
+            decoded.add(createElement(item));
+            cursor++;
+            item.removeContent();
+            if (decoded.size() == size) {
+                release();
+            }
         }
+        return true;
+    }
 
-        @Override
-        public ELEM transform(Element listItem) {
-            return createElement(listItem);
+    /**
+     * Moves the cursor to the next item and checks its name.
+     *
+     * @return the next item, or null if every item has been decoded
+     */
+    private Element nextItem() {
+        while (content != null && cursor < content.size()) {
+            Object child = content.get(cursor);
+            if (child instanceof Element) {
+                Element listItem = (Element) child;
+                if(baseName == null)
+                    baseName = listItem.getName();
+                else
+                    if(! baseName.equals(listItem.getName())) {
+                        throw new RuntimeException("List elements mismatching (" + baseName+","+listItem.getName()+")");
+                    }
+                return listItem;
+            }
+            cursor++;
         }
+        release();
+        return null;
     }
-    
+
+    /**
+     * Drops the list element once every item has been decoded.
+     */
+    private void release() {
+        content = null;
+        elementList = Collections.emptyList();
+        size = decoded.size();
+    }
+
+    /**
+     * Decodes a list item; called when the item is first reached, and the
+     * element is then emptied, so the result must not refer to it.
+     */
     protected ELEM createElement(Element el) {
         return (ELEM)new NameLinkElem(el);
     }
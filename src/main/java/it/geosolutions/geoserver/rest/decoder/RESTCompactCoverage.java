@@ -0,0 +1,91 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package it.geosolutions.geoserver.rest.decoder;
+
+import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.decoder.utils.StAXBuilder;
+
+import java.io.InputStream;
+
+import org.jdom.Element;
+
+/**
+ * Immutable, eagerly decoded summary of a Coverage.
+ *
+ * @see RESTCompactResource
+ * @see RESTCoverage
+ */
+public class RESTCompactCoverage extends RESTCompactResource {
+
+    private final String nativeCoverageName;
+
+    private final String nativeFormat;
+
+    private final String srs;
+
+    RESTCompactCoverage(Element coverage) {
+        super(coverage);
+        nativeCoverageName = intern(coverage.getChildText("nativeCoverageName"));
+        nativeFormat = intern(coverage.getChildText("nativeFormat"));
+        srs = intern(coverage.getChildText("srs"));
+    }
+
+    /**
+     * @return the coverage, or null if the response could not be parsed.
+     */
+    public static RESTCompactCoverage build(String response) {
+        Element elem = JDOMBuilder.buildElement(response);
+        return elem == null ? null : new RESTCompactCoverage(elem);
+    }
+
+    /**
+     * Builds the coverage from the response stream, without copying it into a
+     * String; the whole document is still parsed into a tree.
+     */
+    public static RESTCompactCoverage build(InputStream response) {
+        Element elem = StAXBuilder.buildElement(response);
+        return elem == null ? null : new RESTCompactCoverage(elem);
+    }
+
+    /**
+     * @return the compact copy of the coverage, or null if coverage is null.
+     */
+    public static RESTCompactCoverage of(RESTCoverage coverage) {
+        return coverage == null ? null : new RESTCompactCoverage(coverage.rootElem);
+    }
+
+    public String getNativeCoverageName() {
+        return nativeCoverageName;
+    }
+
+    public String getNativeFormat() {
+        return nativeFormat;
+    }
+
+    public String getSRS() {
+        return srs;
+    }
+}
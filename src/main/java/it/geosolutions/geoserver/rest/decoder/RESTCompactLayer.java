@@ -0,0 +1,167 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package it.geosolutions.geoserver.rest.decoder;
+
+import static it.geosolutions.geoserver.rest.decoder.RESTCompactResource.childText;
+import static it.geosolutions.geoserver.rest.decoder.RESTCompactResource.intern;
+import static it.geosolutions.geoserver.rest.decoder.RESTCompactResource.names;
+
+import java.util.List;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+/**
+ * Immutable, eagerly decoded summary of a Layer.
+ * <P>
+ * The fields are decoded once from a {@link RESTLayer}, whose XML tree can then
+ * be released; style, namespace and type names are interned.
+ *
+ * @see RESTCompactResource
+ */
+public class RESTCompactLayer {
+
+    private final String name;
+
+    private final RESTLayer.Type type;
+
+    private final String defaultStyle;
+
+    private final String defaultStyleWorkspace;
+
+    private final List<String> styles;
+
+    private final String title;
+
+    private final String abstractText;
+
+    private final String nameSpace;
+
+    private final String resourceUrl;
+
+    private final boolean enabled;
+
+    private final boolean queryable;
+
+    private final boolean advertised;
+
+    private RESTCompactLayer(RESTLayer layer) {
+        Element elem = layer.layerElem;
+        name = intern(elem.getChildText("name"));
+        type = layer.getType();
+        defaultStyle = intern(childText(elem, "defaultStyle", "name"));
+        defaultStyleWorkspace = intern(childText(elem, "defaultStyle", "workspace"));
+        styles = names(layer.getStyles());
+        Element resource = elem.getChild("resource");
+        if (resource != null) {
+            title = resource.getChildText("title");
+            abstractText = resource.getChildText("abstract");
+            nameSpace = intern(childText(resource, "namespace", "name"));
+            Element atom = resource.getChild("link",
+                    Namespace.getNamespace("atom", "http://www.w3.org/2005/Atom"));
+            resourceUrl = atom == null ? null : atom.getAttributeValue("href");
+        } else {
+            title = abstractText = nameSpace = resourceUrl = null;
+        }
+        enabled = layer.getEnabled();
+        queryable = layer.getQueryable();
+        // versioned: RESTLayer21 reads it from the metadata
+        advertised = layer.getAdvertised();
+    }
+
+    /**
+     * @return the compact copy of the layer, or null if layer is null.
+     */
+    public static RESTCompactLayer of(RESTLayer layer) {
+        return layer == null ? null : new RESTCompactLayer(layer);
+    }
+
+    /**
+     * @return the layer, or null if the response could not be parsed.
+     */
+    public static RESTCompactLayer build(String response) {
+        return of(RESTLayer.build(response));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RESTLayer.Type getType() {
+        return type;
+    }
+
+    public String getDefaultStyle() {
+        return defaultStyle;
+    }
+
+    public String getDefaultStyleWorkspace() {
+        return defaultStyleWorkspace;
+    }
+
+    /**
+     * @return the names of the styles, as an unmodifiable list, or null if there are none.
+     */
+    public List<String> getStyles() {
+        return styles;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAbstract() {
+        return abstractText;
+    }
+
+    public String getNameSpace() {
+        return nameSpace;
+    }
+
+    /**
+     * @return the URL to retrieve the resource published by the layer.
+     */
+    public String getResourceUrl() {
+        return resourceUrl;
+    }
+
+    public boolean getEnabled() {
+        return enabled;
+    }
+
+    public boolean getQueryable() {
+        return queryable;
+    }
+
+    public boolean getAdvertised() {
+        return advertised;
+    }
+
+    @Override
+    public String toString() {
+        return "RESTCompactLayer[" + name + " type=" + type + " style=" + defaultStyle + "]";
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package it.geosolutions.geoserver.rest.decoder;
+
+import static it.geosolutions.geoserver.rest.decoder.RESTCompactResource.childText;
+import static it.geosolutions.geoserver.rest.decoder.RESTCompactResource.edge;
+import static it.geosolutions.geoserver.rest.decoder.RESTCompactResource.intern;
+import static it.geosolutions.geoserver.rest.decoder.RESTCompactResource.names;
+
+import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.decoder.utils.StAXBuilder;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.jdom.Element;
+
+/**
+ * Immutable, eagerly decoded summary of a LayerGroup.
+ * <P>
+ * The members are listed by name, from the <TT>publishables</TT> of GeoServer
+ * 2.3+ or the <TT>layers</TT> of older versions; bounds are kept as primitive
+ * doubles.
+ *
+ * @see RESTCompactResource
+ */
+public class RESTCompactLayerGroup {
+
+    private final String name;
+
+    private final String workspace;
+
+    private final String mode;
+
+    private final String title;
+
+    private final String abstractText;
+
+    private final String rootLayer;
+
+    private final List<String> publishables;
+
+    private final String crs;
+
+    private final double minX;
+
+    private final double maxX;
+
+    private final double minY;
+
+    private final double maxY;
+
+    private RESTCompactLayerGroup(RESTLayerGroup group) {
+        Element elem = group.rootElem;
+        name = intern(elem.getChildText("name"));
+        workspace = intern(childText(elem, "workspace", "name"));
+        mode = intern(elem.getChildText("mode"));
+        title = elem.getChildText("title");
+        abstractText = elem.getChildText("abstractTxt");
+        rootLayer = intern(childText(elem, "rootLayer", "name"));
+        RESTPublishedList published = group.getPublishedList();
+        publishables = published != null ? names(published) : names(group.getLayerList());
+        Element bounds = elem.getChild("bounds");
+        crs = bounds == null ? null : intern(bounds.getChildText("crs"));
+        minX = edge(bounds, "minx");
+        maxX = edge(bounds, "maxx");
+        minY = edge(bounds, "miny");
+        maxY = edge(bounds, "maxy");
+    }
+
+    /**
+     * @return the compact copy of the group, or null if group is null.
+     */
+    public static RESTCompactLayerGroup of(RESTLayerGroup group) {
+        return group == null ? null : new RESTCompactLayerGroup(group);
+    }
+
+    /**
+     * @return the group, or null if the response could not be parsed.
+     */
+    public static RESTCompactLayerGroup build(String response) {
+        Element elem = JDOMBuilder.buildElement(response);
+        return elem == null ? null : new RESTCompactLayerGroup(new RESTLayerGroup(elem));
+    }
+
+    /**
+     * Builds the group from the response stream, without copying it into a
+     * String; the whole document is still parsed into a tree.
+     */
+    public static RESTCompactLayerGroup build(InputStream response) {
+        Element elem = StAXBuilder.buildElement(response);
+        return elem == null ? null : new RESTCompactLayerGroup(new RESTLayerGroup(elem));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWorkspace() {
+        return workspace;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAbstract() {
+        return abstractText;
+    }
+
+    public String getRootLayer() {
+        return rootLayer;
+    }
+
+    /**
+     * @return the names of the members, as an unmodifiable list, or null if there are none.
+     */
+    public List<String> getPublishables() {
+        return publishables;
+    }
+
+    public String getCRS() {
+        return crs;
+    }
+
+    /**
+     * @return false if the group has no bounds; in this case the bounds are NaN.
+     */
+    public boolean hasBounds() {
+        return !Double.isNaN(minX);
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    @Override
+    public String toString() {
+        return "RESTCompactLayerGroup[" + (workspace == null ? "" : workspace + ":") + name
+                + " publishables=" + publishables + "]";
+    }
+}
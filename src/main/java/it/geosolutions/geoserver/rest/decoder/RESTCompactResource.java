@@ -0,0 +1,274 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package it.geosolutions.geoserver.rest.decoder;
+
+import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.decoder.utils.StAXBuilder;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+/**
+ * Immutable, eagerly decoded summary of a resource (FeatureType or Coverage).
+ * <P>
+ * Unlike {@link RESTResource}, which keeps the whole XML tree and walks it on
+ * each call, the fields are decoded once and the tree is released right after:
+ * bounds are kept as primitive doubles, and the names which repeat among
+ * resources (namespaces, stores, CRSs, keywords) are interned. Use it when
+ * many resources have to be held in memory at once.
+ *
+ * @see RESTCompactCoverage
+ */
+public class RESTCompactResource {
+
+    private static final Namespace ATOM = Namespace.getNamespace("atom", "http://www.w3.org/2005/Atom");
+
+    private final String name;
+
+    private final String nativeName;
+
+    private final String title;
+
+    private final String abstractText;
+
+    private final List<String> keywords;
+
+    private final String nameSpace;
+
+    private final String storeName;
+
+    private final String storeType;
+
+    private final String storeUrl;
+
+    private final String nativeCRS;
+
+    private final String crs;
+
+    private final double minX;
+
+    private final double maxX;
+
+    private final double minY;
+
+    private final double maxY;
+
+    protected RESTCompactResource(Element resource) {
+        name = intern(resource.getChildText("name"));
+        nativeName = intern(resource.getChildText("nativeName"));
+        title = resource.getChildText("title");
+        abstractText = resource.getChildText("abstract");
+        nameSpace = intern(childText(resource, "namespace", "name"));
+        Element store = resource.getChild("store");
+        if (store != null) {
+            storeName = intern(store.getChildText("name"));
+            storeType = intern(store.getAttributeValue("class"));
+            Element atom = store.getChild("link", ATOM);
+            storeUrl = atom == null ? null : atom.getAttributeValue("href");
+        } else {
+            storeName = storeType = storeUrl = null;
+        }
+        nativeCRS = intern(resource.getChildText("nativeCRS"));
+
+        Element keywordsRoot = resource.getChild("keywords");
+        if (keywordsRoot != null) {
+            @SuppressWarnings("unchecked")
+            List<Element> children = keywordsRoot.getChildren();
+            List<String> list = new ArrayList<String>(children.size());
+            for (Element keyword : children) {
+                list.add(intern(keyword.getValue()));
+            }
+            keywords = Collections.unmodifiableList(list);
+        } else {
+            keywords = null;
+        }
+
+        Element bbox = resource.getChild("latLonBoundingBox");
+        crs = bbox == null ? null : intern(bbox.getChildText("crs"));
+        minX = edge(bbox, "minx");
+        maxX = edge(bbox, "maxx");
+        minY = edge(bbox, "miny");
+        maxY = edge(bbox, "maxy");
+    }
+
+    /**
+     * @return the resource, or null if the response could not be parsed.
+     */
+    public static RESTCompactResource build(String response) {
+        return decode(JDOMBuilder.buildElement(response));
+    }
+
+    /**
+     * Builds the resource from the response stream, without copying it into a
+     * String; the whole document is still parsed into a tree.
+     */
+    public static RESTCompactResource build(InputStream response) {
+        return decode(StAXBuilder.buildElement(response));
+    }
+
+    /**
+     * @return the compact copy of the resource, or null if resource is null.
+     */
+    public static RESTCompactResource of(RESTResource resource) {
+        return resource == null ? null : decode(resource.rootElem);
+    }
+
+    private static RESTCompactResource decode(Element elem) {
+        if (elem == null) {
+            return null;
+        }
+        return "coverage".equals(elem.getName()) ? new RESTCompactCoverage(elem)
+                : new RESTCompactResource(elem);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNativeName() {
+        return nativeName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAbstract() {
+        return abstractText;
+    }
+
+    /**
+     * @return the keywords, as an unmodifiable list, or null if there are none.
+     */
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public String getNameSpace() {
+        return nameSpace;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getStoreType() {
+        return storeType;
+    }
+
+    public String getStoreUrl() {
+        return storeUrl;
+    }
+
+    public String getNativeCRS() {
+        return nativeCRS;
+    }
+
+    /**
+     * @return the CRS of the lat/lon bounding box.
+     */
+    public String getCRS() {
+        return crs;
+    }
+
+    /**
+     * @return false if the resource has no lat/lon bounding box; in this case
+     *         the bounds are NaN.
+     */
+    public boolean hasBounds() {
+        return !Double.isNaN(minX);
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + nameSpace + ":" + name + " store=" + storeName
+                + " bounds=" + minX + "," + minY + "," + maxX + "," + maxY + " " + crs + "]";
+    }
+
+    // ==========================================================================
+    // === DECODING HELPERS
+    // ==========================================================================
+
+    static String intern(String s) {
+        return s == null ? null : s.intern();
+    }
+
+    static String childText(Element elem, String child, String grandChild) {
+        Element c = elem.getChild(child);
+        return c == null ? null : c.getChildText(grandChild);
+    }
+
+    /**
+     * @return the value of an edge of a bounding box, or NaN if missing.
+     */
+    static double edge(Element bbox, String edge) {
+        String value = bbox == null ? null : bbox.getChildText(edge);
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @return the interned names of a list, as an unmodifiable list, or null if
+     *         the list is null.
+     */
+    static List<String> names(RESTAbstractList<?> list) {
+        if (list == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<String>(list.size());
+        for (String n : list.getNames()) {
+            names.add(intern(n));
+        }
+        return Collections.unmodifiableList(names);
+    }
+}
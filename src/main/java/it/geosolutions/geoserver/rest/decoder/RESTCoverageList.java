@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -56,6 +58,18 @@ public class RESTCoverageList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTCoverageList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTCoverageList build(InputStream response) {
+        RESTCoverageList list = new RESTCoverageList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTCoverageList() {
+    }
+
     protected RESTCoverageList(Element list) {
         super(list);
     }
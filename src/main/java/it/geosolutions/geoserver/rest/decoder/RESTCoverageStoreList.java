@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -55,6 +57,18 @@ public class RESTCoverageStoreList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTCoverageStoreList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTCoverageStoreList build(InputStream response) {
+        RESTCoverageStoreList list = new RESTCoverageStoreList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTCoverageStoreList() {
+    }
+
     protected RESTCoverageStoreList(Element list) {
         super(list);
     }
@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -42,6 +44,18 @@ public class RESTDataStoreList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTDataStoreList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTDataStoreList build(InputStream response) {
+        RESTDataStoreList list = new RESTDataStoreList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTDataStoreList() {
+    }
+
     protected RESTDataStoreList(Element list) {
         super(list);
     }
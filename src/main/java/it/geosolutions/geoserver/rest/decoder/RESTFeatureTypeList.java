@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -56,6 +58,18 @@ public class RESTFeatureTypeList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTFeatureTypeList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTFeatureTypeList build(InputStream response) {
+        RESTFeatureTypeList list = new RESTFeatureTypeList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTFeatureTypeList() {
+    }
+
     protected RESTFeatureTypeList(Element list) {
         super(list);
     }
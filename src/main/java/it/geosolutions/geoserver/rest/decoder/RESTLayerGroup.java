@@ -77,7 +77,7 @@ import org.jdom.Element;
  */
 
 public class RESTLayerGroup {
-	private final Element rootElem;
+	protected final Element rootElem;
 
     public static RESTLayerGroup build(String response) {
         Element elem = JDOMBuilder.buildElement(response);
@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -61,6 +63,18 @@ public class RESTLayerGroupList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTLayerGroupList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTLayerGroupList build(InputStream response) {
+        RESTLayerGroupList list = new RESTLayerGroupList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTLayerGroupList() {
+    }
+
     protected RESTLayerGroupList(Element list) {
         super(list);
     }
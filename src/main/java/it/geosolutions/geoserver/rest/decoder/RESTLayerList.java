@@ -28,7 +28,14 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.jdom.Element;
+import org.jdom.Namespace;
 
 /**
  * Parses list of summary data about Layers.
@@ -53,12 +60,78 @@ import org.jdom.Element;
  */
 public class RESTLayerList extends RESTAbstractList<NameLinkElem> {
 
+    private static final Namespace ATOM = Namespace.getNamespace("atom", "http://www.w3.org/2005/Atom");
+
     public static RESTLayerList build(String response) {
         Element elem = JDOMBuilder.buildElement(response);
         return elem == null? null : new RESTLayerList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTLayerList build(InputStream response) {
+        RESTLayerList list = new RESTLayerList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTLayerList() {
+    }
+
     protected RESTLayerList(Element list) {
         super(list);
     }
+
+    /**
+     * Some GeoServer versions list the layers by their bare names, which are
+     * ambiguous among workspaces: in that case the workspace is taken from the
+     * link to the layer.
+     *
+     * @return the names of the layers, prefixed with their workspace when known.
+     */
+    public List<String> getQualifiedNames() {
+        List<String> names = new ArrayList<String>(size());
+        for (NameLinkElem layer : this) {
+            names.add(((LayerElem) layer).qualifiedName);
+        }
+        return names;
+    }
+
+    @Override
+    protected NameLinkElem createElement(Element el) {
+        return new LayerElem(el);
+    }
+
+    /**
+     * A layer summary, also keeping the qualified name read from its link.
+     */
+    private static class LayerElem extends NameLinkElem {
+
+        private final String qualifiedName;
+
+        LayerElem(Element layer) {
+            super(layer);
+            String name = getName();
+            if (name != null && name.indexOf(':') < 0) {
+                Element atom = layer.getChild("link", ATOM);
+                String href = atom == null ? null : atom.getAttributeValue("href");
+                if (href != null) {
+                    String linked = href.substring(href.lastIndexOf('/') + 1);
+                    if (linked.lastIndexOf('.') > 0) {
+                        linked = linked.substring(0, linked.lastIndexOf('.'));
+                    }
+                    try {
+                        linked = URLDecoder.decode(linked, "UTF-8");
+                    } catch (UnsupportedEncodingException e) {
+                        // UTF-8 is always supported
+                    }
+                    if (linked.endsWith(":" + name)) {
+                        name = linked;
+                    }
+                }
+            }
+            this.qualifiedName = name;
+        }
+    }
 }
@@ -26,7 +26,9 @@
 package it.geosolutions.geoserver.rest.decoder;
 
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.decoder.utils.StAXBuilder;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -55,6 +57,15 @@ public class RESTNamespaceList implements Iterable<RESTNamespaceList.RESTShortNa
             return null;
 	}
 
+    /**
+     * Builds the list from the response stream, without copying it into a
+     * String; the whole document is still parsed into a tree.
+     */
+    public static RESTNamespaceList build(InputStream response) {
+        Element elem = StAXBuilder.buildElement(response);
+        return elem == null? null : new RESTNamespaceList(elem);
+    }
+
     protected RESTNamespaceList(Element wslistroot) {
         List<Element> tmpList = new ArrayList<Element>();
         for (Element wselem : (List<Element>) wslistroot.getChildren("namespace")) {
@@ -133,24 +133,36 @@ public class RESTResource {
 	}
 
     public String getCRS() {
-    	RESTBoundingBox bbox = this.getLatLonBoundingBox();
-    	return bbox.getCRS();
+    	return getLatLonBoundingBoxElement().getChildText("crs");
     }
 
     public double getMinX() {
-        return this.getLatLonBoundingBox().getMinX();
+        return getLatLonEdge("minx");
     }
 
     public double getMaxX() {
-    	return this.getLatLonBoundingBox().getMaxX();
+    	return getLatLonEdge("maxx");
     }
 
     public double getMinY() {
-    	return this.getLatLonBoundingBox().getMinY();
+    	return getLatLonEdge("miny");
     }
 
     public double getMaxY() {
-    	return this.getLatLonBoundingBox().getMaxY();
+    	return getLatLonEdge("maxy");
+    }
+
+    /**
+     * Reads an edge straight from the tree, with no {@link RESTBoundingBox} per call.
+     *
+     * @see RESTCompactResource for a decoded copy of the bounds
+     */
+    private double getLatLonEdge(String edge) {
+        return Double.parseDouble(getLatLonBoundingBoxElement().getChildText(edge));
+    }
+
+    private Element getLatLonBoundingBoxElement() {
+        return rootElem.getChild("latLonBoundingBox");
     }
 
     /**
@@ -25,7 +25,9 @@
 package it.geosolutions.geoserver.rest.decoder;
 
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.decoder.utils.StAXBuilder;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -104,9 +106,7 @@ public class RESTStructuredCoverageGranulesList implements Iterable<RESTStructur
     protected RESTStructuredCoverageGranulesList(Element featureCollection) {
         
        // check ordering of elements
-       if(!featureCollection.getName().equals("FeatureCollection")){
-           throw new IllegalStateException("Root element should be wfs:FeatureCollection");
-       }
+       checkRoot(featureCollection);
        Element boundedBy = featureCollection.getChild("boundedBy",GML_NAMESPACE);
        if(boundedBy==null){
            throw new IllegalStateException("Unable to find boundedBy element");
@@ -121,6 +121,17 @@ public class RESTStructuredCoverageGranulesList implements Iterable<RESTStructur
        }
        granulesList = Collections.unmodifiableList(tmpList);
     }
+
+    private RESTStructuredCoverageGranulesList(Element bbox, List<RESTStructuredCoverageGranule> granules) {
+        this.bbox = bbox;
+        this.granulesList = Collections.unmodifiableList(granules);
+    }
+
+    private static void checkRoot(Element featureCollection) {
+        if(!featureCollection.getName().equals("FeatureCollection")){
+            throw new IllegalStateException("Root element should be wfs:FeatureCollection");
+        }
+    }
     
     public static RESTStructuredCoverageGranulesList build(String response) {
         if(response == null)
@@ -133,6 +144,33 @@ public class RESTStructuredCoverageGranulesList implements Iterable<RESTStructur
             return null;
         }
     }
+
+    /**
+     * Builds the list from the response stream, decoding each feature member
+     * as soon as it is parsed, without building the whole document.
+     */
+    public static RESTStructuredCoverageGranulesList build(InputStream response) {
+        final ArrayList<RESTStructuredCoverageGranule> granules = new ArrayList<RESTStructuredCoverageGranule>();
+        final Element[] boundedBy = new Element[1];
+        Element featureCollection = StAXBuilder.visitRoot(response, (Element child) -> {
+            if (GML_NAMESPACE.getURI().equals(child.getNamespaceURI())) {
+                if (child.getName().equals("featureMember")) {
+                    granules.add(new RESTStructuredCoverageGranule(child));
+                } else if (child.getName().equals("boundedBy") && boundedBy[0] == null) {
+                    boundedBy[0] = child;
+                }
+            }
+        });
+        if (featureCollection == null) {
+            return null;
+        }
+        checkRoot(featureCollection);
+        if (boundedBy[0] == null) {
+            throw new IllegalStateException("Unable to find boundedBy element");
+        }
+        granules.trimToSize();
+        return new RESTStructuredCoverageGranulesList(boundedBy[0].getChild("Box", GML_NAMESPACE), granules);
+    }
     
     public int size() {
         return granulesList.size();
@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -59,6 +61,18 @@ public class RESTStyleList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTStyleList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTStyleList build(InputStream response) {
+        RESTStyleList list = new RESTStyleList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTStyleList() {
+    }
+
     protected RESTStyleList(Element list) {
         super(list);
     }
@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -52,6 +54,18 @@ public class RESTWmsList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTWmsList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTWmsList build(InputStream response) {
+        RESTWmsList list = new RESTWmsList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTWmsList() {
+    }
+
     protected RESTWmsList(Element list) {
         super(list);
     }
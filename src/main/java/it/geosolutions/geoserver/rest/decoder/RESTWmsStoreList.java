@@ -28,6 +28,8 @@ package it.geosolutions.geoserver.rest.decoder;
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
+
 import org.jdom.Element;
 
 /**
@@ -53,6 +55,18 @@ public class RESTWmsStoreList extends RESTAbstractList<NameLinkElem> {
         return elem == null? null : new RESTWmsStoreList(elem);
 	}
 
+    /**
+     * Builds the list decoding each item while the response is read, without
+     * building the whole document.
+     */
+    public static RESTWmsStoreList build(InputStream response) {
+        RESTWmsStoreList list = new RESTWmsStoreList();
+        return list.read(response) ? list : null;
+    }
+
+    protected RESTWmsStoreList() {
+    }
+
     protected RESTWmsStoreList(Element list) {
         super(list);
     }
@@ -26,8 +26,10 @@
 package it.geosolutions.geoserver.rest.decoder;
 
 import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.decoder.utils.StAXBuilder;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -56,6 +58,15 @@ public class RESTWorkspaceList implements Iterable<RESTWorkspaceList.RESTShortWo
             return null;
 	}
 
+    /**
+     * Builds the list from the response stream, without copying it into a
+     * String; the whole document is still parsed into a tree.
+     */
+    public static RESTWorkspaceList build(InputStream response) {
+        Element elem = StAXBuilder.buildElement(response);
+        return elem == null? null : new RESTWorkspaceList(elem);
+    }
+
     protected RESTWorkspaceList(Element wslistroot) {
         List<Element> tmpList = new ArrayList<Element>();
         for (Element wselem : (List<Element>) wslistroot.getChildren("workspace")) {
@@ -32,14 +32,15 @@ import org.jdom.Element;
  * @author ETj (etj at geo-solutions.it)
  */
 public class NameLinkElem {
-        private final Element elem;
+        /** Only the name is kept, so that the element does not retain the whole parsed document. */
+        private final String name;
 
         public NameLinkElem(Element elem) {
-            this.elem = elem;
+            this.name = elem.getChildText("name");
         }
 
         public String getName() {
-            return elem.getChildText("name");
+            return name;
         }
 
 }
@@ -0,0 +1,273 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.decoder.utils;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stream based counterpart of {@link JDOMBuilder}.
+ * <P>
+ * {@link #buildElement(InputStream)} builds the JDOM tree straight from the
+ * response stream using StAX, so that the response is never copied into a
+ * String, and no SAX parser is instantiated per call; the whole tree is still
+ * built.
+ * <BR>
+ * {@link #visitChildren(InputStream, Consumer)} does not build the tree: each
+ * child of the root element is handed over as soon as it is parsed, and then
+ * dropped, so that only one list item at a time is held in memory.
+ * <BR>
+ * Whitespace only text found between child elements (i.e. the indentation
+ * of the GeoServer responses) is dropped, to keep large lists small.
+ *
+ * @see JDOMBuilder
+ */
+public class StAXBuilder {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(StAXBuilder.class);
+
+    /** XMLInputFactory instances are thread safe once configured. */
+    private final static XMLInputFactory FACTORY;
+    static {
+        FACTORY = XMLInputFactory.newInstance();
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
+    /**
+     * @param in the XML stream; it is not closed
+     * @return the root element, or null if the stream could not be parsed.
+     */
+    public static Element buildElement(InputStream in) {
+        if (in == null)
+            return null;
+
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+            return build(reader, null);
+        } catch (XMLStreamException ex) {
+            LOGGER.warn("Ex parsing response", ex);
+        } catch (RuntimeException ex) {
+            // JDOM rejects some illegal names/contents
+            LOGGER.warn("Ex building response", ex);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    LOGGER.debug("Ex closing reader", e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the stream, handing each child of the root element to the visitor
+     * as a detached element, without building the whole tree.
+     *
+     * @param in the XML stream; it is not closed
+     * @param visitor receives the children of the root element, in order;
+     *        the exceptions it throws are propagated
+     * @return <TT>false</TT> if the stream could not be parsed.
+     */
+    public static boolean visitChildren(InputStream in, Consumer<Element> visitor) {
+        return visitRoot(in, visitor) != null;
+    }
+
+    /**
+     * Parses the stream as {@link #visitChildren(InputStream, Consumer)} does,
+     * also returning the root element, so that its name and attributes can be
+     * checked.
+     *
+     * @param in the XML stream; it is not closed
+     * @param visitor receives the children of the root element, in order;
+     *        the exceptions it throws are propagated
+     * @return the root element, with no children, or null if the stream could
+     *         not be parsed.
+     */
+    public static Element visitRoot(InputStream in, Consumer<Element> visitor) {
+        if (in == null)
+            return null;
+
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+            return build(reader, visitor);
+        } catch (VisitorException ex) {
+            throw (RuntimeException) ex.getCause();
+        } catch (XMLStreamException ex) {
+            LOGGER.warn("Ex parsing response", ex);
+        } catch (RuntimeException ex) {
+            // JDOM rejects some illegal names/contents
+            LOGGER.warn("Ex building response", ex);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    LOGGER.debug("Ex closing reader", e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wraps the exceptions thrown by a visitor, telling them from the parsing ones.
+     */
+    private static class VisitorException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        VisitorException(RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * @param visitor if not null, receives the children of the root element
+     *        instead of them being added to it
+     */
+    private static Element build(XMLStreamReader reader, Consumer<Element> visitor)
+            throws XMLStreamException {
+        Element root = null;
+        Deque<Element> stack = new ArrayDeque<Element>();
+        // text collected for the current element, and whether it has element children
+        StringBuilder text = new StringBuilder();
+        Deque<Boolean> hasChildren = new ArrayDeque<Boolean>();
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                Element elem = createElement(reader);
+                if (stack.isEmpty()) {
+                    root = elem;
+                } else {
+                    flushText(stack.peek(), text, true);
+                    if (visitor == null || stack.size() > 1) {
+                        stack.peek().addContent(elem);
+                    }
+                    hasChildren.pop();
+                    hasChildren.push(Boolean.TRUE);
+                }
+                stack.push(elem);
+                hasChildren.push(Boolean.FALSE);
+                break;
+
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (!stack.isEmpty()) {
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                break;
+
+            case XMLStreamConstants.END_ELEMENT:
+                Element ended = stack.pop();
+                flushText(ended, text, hasChildren.pop());
+                if (visitor != null && stack.size() == 1) {
+                    try {
+                        visitor.accept(ended);
+                    } catch (RuntimeException e) {
+                        throw new VisitorException(e);
+                    }
+                }
+                break;
+
+            default:
+                // comments, PIs and the like are not used by the decoders
+                break;
+            }
+        }
+        return root;
+    }
+
+    private static Element createElement(XMLStreamReader reader) {
+        Element elem = new Element(reader.getLocalName(),
+                namespace(reader.getPrefix(), reader.getNamespaceURI()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            if (prefix != null && prefix.length() > 0 && !prefix.equals(elem.getNamespacePrefix())) {
+                elem.addNamespaceDeclaration(Namespace.getNamespace(prefix, reader.getNamespaceURI(i)));
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+            if (prefix == null || prefix.length() == 0) {
+                elem.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            } else {
+                elem.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i),
+                        Namespace.getNamespace(prefix, reader.getAttributeNamespace(i)));
+            }
+        }
+        return elem;
+    }
+
+    private static Namespace namespace(String prefix, String uri) {
+        if (uri == null || uri.length() == 0) {
+            return Namespace.NO_NAMESPACE;
+        }
+        return Namespace.getNamespace(prefix == null ? "" : prefix, uri);
+    }
+
+    /**
+     * Adds the pending text to the element, unless it is only whitespace
+     * surrounding child elements.
+     */
+    private static void flushText(Element elem, StringBuilder text, boolean hasChildren) {
+        if (text.length() == 0) {
+            return;
+        }
+        if (!hasChildren || !isWhitespace(text)) {
+            elem.addContent(text.toString());
+        }
+        text.setLength(0);
+    }
+
+    private static boolean isWhitespace(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
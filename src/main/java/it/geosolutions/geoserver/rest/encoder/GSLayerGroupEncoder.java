@@ -27,6 +27,9 @@ package it.geosolutions.geoserver.rest.encoder;
 
 import it.geosolutions.geoserver.rest.encoder.utils.PropertyXMLEncoder;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.jdom.Element;
 
 /**
@@ -93,7 +96,7 @@ public class GSLayerGroupEncoder extends PropertyXMLEncoder {
     
     protected void addToRoot(Element ... elements) {
         for (Element e : elements) {
-            if (e != null) {
+            if (e != null && e.getParent() == null) {
                 getRoot().addContent(e);
             }
         }
@@ -120,4 +123,10 @@ public class GSLayerGroupEncoder extends PropertyXMLEncoder {
         addToRoot(nameElem, workspaceElem, boundsElem, publishablesElem, stylesElem);        
         return super.toString();
     }    
+
+    @Override
+    public void writeTo(XMLStreamWriter writer) throws XMLStreamException {
+        addToRoot(nameElem, workspaceElem, boundsElem, publishablesElem, stylesElem);
+        super.writeTo(writer);
+    }
 }
\ No newline at end of file
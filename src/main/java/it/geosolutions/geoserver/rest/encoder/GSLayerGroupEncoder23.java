@@ -28,6 +28,9 @@ package it.geosolutions.geoserver.rest.encoder;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.jdom.Element;
 
 /**
@@ -107,4 +110,10 @@ public class GSLayerGroupEncoder23 extends GSLayerGroupEncoder {
         addToRoot(titleElem, abstractElem, modeElem, rootLayerElem, rootLayerStyleElem);                
         return super.toString();
     } 
+
+    @Override
+    public void writeTo(XMLStreamWriter writer) throws XMLStreamException {
+        addToRoot(titleElem, abstractElem, modeElem, rootLayerElem, rootLayerStyleElem);
+        super.writeTo(writer);
+    }
 }
\ No newline at end of file
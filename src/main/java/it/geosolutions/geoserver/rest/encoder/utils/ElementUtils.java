@@ -71,10 +71,9 @@ public abstract class ElementUtils {
 			return true;
 		}
 
-		// search for the element to remove
-		final Element search = ElementUtils.contains(root, el);
-		if (search != null) {
-			return remove(search, el);
+		// el is a descendant of root: no need to search for it
+		if (root.isAncestor(el)) {
+			return remove(el, el);
 		}
 		return false;
 	}
@@ -98,6 +97,15 @@ public abstract class ElementUtils {
 					+ " filter=" + filter + " depth=" + depth);
 		}
 		final List<Element> ret = new ArrayList<Element>();
+		search(root, filter, depth, ret);
+		return ret;
+	}
+
+	/**
+	 * Pre-order visit collecting the matches in a single list.
+	 */
+	private static void search(final Element root, final Filter filter,
+			final int depth, final List<Element> ret) {
 		// if match add myself
 		if (filter.matches(root)) {
 			if (LOGGER.isTraceEnabled())
@@ -108,16 +116,38 @@ public abstract class ElementUtils {
 		// check my children
 		if (depth != 0) {
 			final List<?> childrenList = root.getContent();
-			final Iterator<?> it = childrenList.iterator();
-			while (it.hasNext()) {
-				final Object obj = it.next();
+			for (int i = 0, size = childrenList.size(); i < size; i++) {
+				final Object obj = childrenList.get(i);
 				if (obj instanceof Element) {
-					final Element childEl = (Element) obj;
-					ret.addAll(search(childEl, filter, depth - 1));
+					search((Element) obj, filter, depth - 1, ret);
 				}
 			}
 		}
-		return ret;
+	}
+
+	/**
+	 * Pre-order visit stopping at the first match: same result as the first
+	 * element of {@link #search(Element, Filter, int)}, without visiting the
+	 * whole tree.
+	 */
+	private static Element first(final Element root, final Filter filter,
+			final int depth) {
+		if (filter.matches(root)) {
+			return root;
+		}
+		if (depth != 0) {
+			final List<?> childrenList = root.getContent();
+			for (int i = 0, size = childrenList.size(); i < size; i++) {
+				final Object obj = childrenList.get(i);
+				if (obj instanceof Element) {
+					final Element found = first((Element) obj, filter, depth - 1);
+					if (found != null) {
+						return found;
+					}
+				}
+			}
+		}
+		return null;
 	}
 
 	public static List<Element> search(final Element root, final Filter filter) {
@@ -161,11 +191,7 @@ public abstract class ElementUtils {
 			throw new IllegalArgumentException("Bad arguments: root=" + root
 					+ " name=" + filter);
 		}
-		final Iterator<Element> it = search(root, filter).iterator();
-		if (it.hasNext())
-			return it.next();
-		else
-			return null;
+		return first(root, filter, -1);
 	}
 	
 	/**
@@ -194,11 +220,7 @@ public abstract class ElementUtils {
 				return false;
 			}
 		};
-		final Iterator<Element> it = search(root, filter).iterator();
-		if (it.hasNext())
-			return it.next();
-		else
-			return null;
+		return first(root, filter, -1);
 	}
 
 	
@@ -240,11 +262,7 @@ public abstract class ElementUtils {
 				return false;
 			}
 		};
-		final Iterator<Element> it = search(root, filter, deep).iterator();
-		if (it.hasNext())
-			return it.next();
-		else
-			return null;
+		return first(root, filter, deep);
 	}
 
 	/**
@@ -261,26 +279,10 @@ public abstract class ElementUtils {
 			throw new IllegalArgumentException("Bad arguments: root=" + root
 					+ " element=" + el);
 		}
-		final Filter filter = new Filter() {
-			/**
-			 * 
-			 */
-			private static final long serialVersionUID = 1L;
-
-			public boolean matches(Object obj) {
-				if (obj instanceof Element) {
-					final Element element = ((Element) obj);
-					if (element.equals(el)) {
-						return true;
-					}
-				}
-				return false;
-			}
-		};
-		final Iterator<Element> it = search(root, filter).iterator();
-		if (it.hasNext())
-			return it.next();
-		else
-			return null;
+		// Element equality is identity: walk up from el instead of searching
+		if (root.equals(el) || root.isAncestor(el)) {
+			return el;
+		}
+		return null;
 	}
 }
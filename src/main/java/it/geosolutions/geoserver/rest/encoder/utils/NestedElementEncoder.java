@@ -25,8 +25,10 @@
 
 package it.geosolutions.geoserver.rest.encoder.utils;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.jdom.Element;
 import org.jdom.filter.Filter;
@@ -147,17 +149,97 @@ public class NestedElementEncoder extends XmlElement {
 		}
 	};
 
+	/**
+	 * Key to the first entry with that key, among the children of the root.
+	 */
+	private final Map<String, Element> entries = new HashMap<String, Element>();
+
+	/**
+	 * Content size of the root when the index was last updated; a different
+	 * size means that the list was changed by other means.
+	 */
+	private int indexedSize = -1;
+
+	/**
+	 * Whether some key is used by more than one entry.
+	 */
+	private boolean duplicates;
+
 	public NestedElementEncoder(String listName) {
 		super(listName);
 	}
 
+	private void reindex() {
+		entries.clear();
+		duplicates = false;
+		final List<?> content = getRoot().getContent();
+		for (int i = 0, size = content.size(); i < size; i++) {
+			final Object obj = content.get(i);
+			if (obj instanceof Element && ((Element) obj).getName().equals(ENTRY)) {
+				final String key = ((Element) obj).getAttributeValue(KEY);
+				if (key != null) {
+					if (entries.containsKey(key)) {
+						duplicates = true;
+					} else {
+						entries.put(key, (Element) obj);
+					}
+				}
+			}
+		}
+		indexedSize = getRoot().getContentSize();
+	}
+
+	/**
+	 * @return the first entry with the given key, or null
+	 */
+	private Element entry(final String key) {
+		if (getRoot().getContentSize() != indexedSize) {
+			reindex();
+		}
+		Element entry = entries.get(key);
+		if (entry != null && (entry.getParentElement() != getRoot()
+				|| !key.equals(entry.getAttributeValue(KEY)))) {
+			reindex();
+			entry = entries.get(key);
+		}
+		return entry;
+	}
+
+	private void removeEntry(final String key, final Element entry) {
+		ElementUtils.remove(entry, entry);
+		entries.remove(key);
+		// another entry with the same key may now be the first one
+		indexedSize = duplicates ? -1 : getRoot().getContentSize();
+	}
+
+	private void addEntry(final String key, final Element entry) {
+		// keep the index in sync if it already was
+		final boolean synced = getRoot().getContentSize() == indexedSize;
+		this.addContent(entry);
+		if (synced) {
+			if (key != null && entries.containsKey(key)) {
+				duplicates = true;
+			} else if (key != null) {
+				entries.put(key, entry);
+			}
+			indexedSize = getRoot().getContentSize();
+		}
+	}
+
 	public void set(final String key, final String value) {
 		// if some previous similar object is found
-		final Element search;
-		if ((search = ElementUtils.contains(getRoot(), new NestedElementFilter(
-				getRoot(), key, null))) != null) {
-			// remove it
-			ElementUtils.remove(getRoot(), search);
+		if (key != null) {
+			final Element search = entry(key);
+			if (search != null) {
+				// remove it
+				removeEntry(key, search);
+			}
+		} else {
+			final Element search = ElementUtils.contains(getRoot(), new NestedElementFilter(
+					getRoot(), key, null));
+			if (search != null) {
+				ElementUtils.remove(getRoot(), search);
+			}
 		}
 		// add the new entry
 		add(key, value);
@@ -165,10 +247,12 @@ public class NestedElementEncoder extends XmlElement {
 
 	public void set(final String key, final Element value) {
 		// if some previous similar object is found
-		final Element search;
-		if ((search = ElementUtils.contains(getRoot(), new NestedElementFilter(
+		Element search = key != null ? entry(key) : null;
+		if (search != null && search.getChild(value.getName()) != null) {
+			removeEntry(key, search);
+		} else if ((search = ElementUtils.contains(getRoot(), new NestedElementFilter(
 				getRoot(), key, value.getName()))) != null) {
-			// remove it
+			// not the first entry with that key
 			ElementUtils.remove(getRoot(), search);
 		}
 		// add the new entry
@@ -182,7 +266,7 @@ public class NestedElementEncoder extends XmlElement {
 
 		entryElem.addContent(value);
 
-		this.addContent(entryElem);
+		addEntry(key, entryElem);
 	}
 
 	public void add(final String key, final String value) {
@@ -193,7 +277,7 @@ public class NestedElementEncoder extends XmlElement {
 
 		entryElem.setText(value);
 
-		this.addContent(entryElem);
+		addEntry(key, entryElem);
 	}
 
 	public void add(final String key, final List<Element> list) {
@@ -225,9 +309,9 @@ public class NestedElementEncoder extends XmlElement {
 	public boolean remove(final String key) {
 		// if some previous similar object is found
 		final Element search;
-		if ((search = ElementUtils.contains(getRoot(), new NestedElementFilter(
-				getRoot(), key, null))) != null) {
-			return ElementUtils.remove(search, search);
+		if (key != null && (search = entry(key)) != null) {
+			removeEntry(key, search);
+			return true;
 		} else
 			return false;
 	}
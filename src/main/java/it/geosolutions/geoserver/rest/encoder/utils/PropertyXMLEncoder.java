@@ -25,6 +25,9 @@
 
 package it.geosolutions.geoserver.rest.encoder.utils;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.jdom.Element;
 
 /**
@@ -53,85 +56,129 @@ import org.jdom.Element;
  */
 public class PropertyXMLEncoder extends XmlElement {
 
+	/**
+	 * Path ("k1/k2/k3") to the first element at that path. Entries are
+	 * checked before use, since the tree may be changed by subclasses.
+	 */
+	private final Map<String, Element> index = new HashMap<String, Element>();
+
 	public PropertyXMLEncoder(final String rootName) {
 		super(rootName);
 	}
 
 	protected Element get(final String key, int deep) {
-            return get(getRoot(), key);
+            return get(key);
         }
 	
+	/**
+	 * @param key a (possibly nested) key
+	 * @return the first element at that path from the root, or null
+	 */
 	protected Element get(final String key) {
-		return get(getRoot(), key);
+		return lookup(key);
 	}
-	
-	private Element get(final Element el, final String key) {
-		if (el==null)
-			return null;
-		if (key.contains("/")) {
-			final int i = key.indexOf("/");
-			final String parentName = key.substring(0, i);
-			final String newkey = key.substring(i + 1);
-			return get(ElementUtils.contains(el, parentName),newkey);
+
+	/**
+	 * Resolves a path, using the index when it is still valid, otherwise
+	 * walking the children of the parent path.
+	 */
+	private Element lookup(final String path) {
+		Element el = index.get(path);
+		if (el != null && isAt(el, path)) {
+			return el;
+		}
+		final int i = path.lastIndexOf('/');
+		final Element parent = i < 0 ? getRoot() : lookup(path.substring(0, i));
+		el = parent == null ? null : parent.getChild(path.substring(i + 1));
+		if (el != null) {
+			index.put(path, el);
 		} else {
-			return ElementUtils.contains(el, key);
+			index.remove(path);
 		}
+		return el;
 	}
 
-	protected void set(final String key, final String value) {
-		if (key != null && value != null) {
-			set(getRoot(), key, value);
+	/**
+	 * @return true if the element is (still) attached to the root at the given path
+	 */
+	private boolean isAt(Element el, final String path) {
+		int end = path.length();
+		while (true) {
+			final int start = path.lastIndexOf('/', end - 1) + 1;
+			final String name = el.getName();
+			if (name.length() != end - start || !path.regionMatches(start, name, 0, end - start)) {
+				return false;
+			}
+			final Element parent = el.getParentElement();
+			if (start == 0) {
+				return parent == getRoot();
+			}
+			if (parent == null) {
+				return false;
+			}
+			el = parent;
+			end = start - 1;
 		}
 	}
 
-	private void set(final Element e, final String key, final String value) {
-		if (key.contains("/")) {
-			final int i = key.indexOf("/");
-			final String childName = key.substring(0, i);
-			final String newkey = key.substring(i + 1);
+	/**
+	 * @return the element at the given path, creating the missing ones
+	 */
+	private Element getOrCreate(final String path) {
+		Element el = lookup(path);
+		if (el == null) {
+			final int i = path.lastIndexOf('/');
+			final Element parent = i < 0 ? getRoot() : getOrCreate(path.substring(0, i));
+			el = new Element(path.substring(i + 1));
+			parent.addContent(el);
+			index.put(path, el);
+		}
+		return el;
+	}
 
-			Element child = e.getChild(childName);
-			if (child == null) {
-				child = new Element(childName);
-				e.addContent(child);
-				add(child, newkey, value);
-			}
-			set(child, newkey, value);
-		} else {
-			Element pp = null;
-			if ((pp = ElementUtils.contains(e, key)) == null)
-				add(e, key, value);
-			else {
-				ElementUtils.remove(pp, pp);
-				add(e, key, value);
+	/**
+	 * Sets the value at the given path, replacing the existing element if any.
+	 */
+	protected void set(final String key, final String value) {
+		if (key != null && value != null) {
+			final Element old = lookup(key);
+			final Element parent;
+			if (old != null) {
+				parent = old.getParentElement();
+				ElementUtils.remove(old, old);
+			} else {
+				final int i = key.lastIndexOf('/');
+				parent = i < 0 ? getRoot() : getOrCreate(key.substring(0, i));
 			}
+			final Element el = new Element(old != null ? old.getName()
+					: key.substring(key.lastIndexOf('/') + 1)).setText(value);
+			parent.addContent(el);
+			index.put(key, el);
 		}
 	}
 
+	/**
+	 * Adds a value at the given path, even if other elements are already there.
+	 */
 	protected void add(final String key, final String value) {
 		if (key != null && value != null) {
-			add(this.getRoot(), key, value);
+			final int i = key.lastIndexOf('/');
+			final Element parent = i < 0 ? getRoot() : getOrCreate(key.substring(0, i));
+			parent.addContent(new Element(key.substring(i + 1)).setText(value));
 		}
 	}
 
-	private void add(Element e, String key, String value) {
-		if (key.contains("/")) {
-			final int i = key.indexOf("/");
-			final String childName = key.substring(0, i);
-			final String newkey = key.substring(i + 1);
-
-			Element child = e.getChild(childName);
-			if (child == null) {
-				child = new Element(childName);
-				e.addContent(child);
-			}
-
-			add(child, newkey, value);
-
-		} else {
-			e.addContent(new Element(key).setText(value));
+	/**
+	 * Removes the first element at the given path.
+	 */
+	@Override
+	public boolean remove(final String key) {
+		final Element el = lookup(key);
+		if (el == null) {
+			return false;
 		}
-
+		index.remove(key);
+		return ElementUtils.remove(el, el);
 	}
 
 	// public void set(final String key, final String value) {
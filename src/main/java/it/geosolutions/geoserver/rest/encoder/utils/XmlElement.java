@@ -26,6 +26,14 @@
 package it.geosolutions.geoserver.rest.encoder.utils;
 
 
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.jdom.Attribute;
 import org.jdom.Content;
 import org.jdom.Element;
 import org.jdom.Text;
@@ -45,6 +53,8 @@ public class XmlElement{
     private static final long serialVersionUID = 1L;
 	
 	private final static XMLOutputter OUTPUTTER = new XMLOutputter(Format.getCompactFormat());
+
+    private final static XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
 	
 	public XmlElement(final String name){
 		root=new Element(name);
@@ -129,4 +139,62 @@ public class XmlElement{
     public String toString() {
 		return OUTPUTTER.outputString(root);
     }
+
+    /**
+     * Writes this element as an UTF-8 XML document, without building an
+     * intermediate String.<br/>
+     * The text is normalized as in {@link #toString()}.
+     * 
+     * @param out the stream to write to; it is not closed
+     * @throws XMLStreamException if the document cannot be written
+     */
+    public void writeTo(final OutputStream out) throws XMLStreamException {
+        final XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writeTo(writer);
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+
+    /**
+     * Writes this element to the given writer.
+     * 
+     * @param writer the writer, which is neither flushed nor closed
+     * @throws XMLStreamException if the element cannot be written
+     */
+    public void writeTo(final XMLStreamWriter writer) throws XMLStreamException {
+        write(writer, root);
+    }
+
+    private static void write(final XMLStreamWriter writer, final Element element)
+            throws XMLStreamException {
+        final List<?> content = element.getContent();
+        if (content.isEmpty()) {
+            writer.writeEmptyElement(element.getName());
+            writeAttributes(writer, element);
+            return;
+        }
+        writer.writeStartElement(element.getName());
+        writeAttributes(writer, element);
+        for (Object child : content) {
+            if (child instanceof Element) {
+                write(writer, (Element) child);
+            } else if (child instanceof Text) {
+                final String text = Text.normalizeString(((Text) child).getText());
+                if (!text.isEmpty()) {
+                    writer.writeCharacters(text);
+                }
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    private static void writeAttributes(final XMLStreamWriter writer, final Element element)
+            throws XMLStreamException {
+        for (Object attribute : element.getAttributes()) {
+            writer.writeAttribute(((Attribute) attribute).getName(),
+                    ((Attribute) attribute).getValue());
+        }
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link HTTPTransport} which is also able to perform non-blocking calls.
+ * <P>
+ * Each asynchronous method returns immediately; the returned future completes
+ * with the same value the corresponding blocking method would return.
+ * No thread is held while a request is in flight, so a few threads may serve
+ * hundreds of concurrent requests.
+ */
+public interface AsyncHTTPTransport extends HTTPTransport {
+
+    /**
+     * @see HTTPTransport#get(String, String, String)
+     */
+    CompletableFuture<String> getAsync(String url, String username, String pw);
+
+    /**
+     * @see HTTPTransport#put(String, File, String, String, String)
+     */
+    CompletableFuture<String> putAsync(String url, File file, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPTransport#put(String, String, String, String, String)
+     */
+    CompletableFuture<String> putAsync(String url, String content, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPTransport#post(String, File, String, String, String)
+     */
+    CompletableFuture<String> postAsync(String url, File file, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPTransport#post(String, String, String, String, String)
+     */
+    CompletableFuture<String> postAsync(String url, String content, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPTransport#delete(String, String, String)
+     */
+    CompletableFuture<Boolean> deleteAsync(String url, String username, String pw);
+
+    /**
+     * The returned future completes exceptionally with a {@link RuntimeException}
+     * where {@link HTTPTransport#exists(String, String, String)} would throw it.
+     * 
+     * @see HTTPTransport#exists(String, String, String)
+     */
+    CompletableFuture<Boolean> existsAsync(String url, String username, String pw);
+
+    /**
+     * Checks whether a resource exists, using the given probe.
+     * <P>
+     * Transports not supporting probes fall back to
+     * {@link #existsAsync(String, String, String)}.
+     *
+     * @see HTTPTransport#exists(String, String, String, ExistenceProbe)
+     */
+    default CompletableFuture<Boolean> existsAsync(String url, String username, String pw,
+            ExistenceProbe probe) {
+        return existsAsync(url, username, pw);
+    }
+}
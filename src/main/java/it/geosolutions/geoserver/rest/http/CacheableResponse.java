@@ -0,0 +1,87 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+/**
+ * Response to a conditional GET, along with the validators to be used to
+ * revalidate it.
+ *
+ * @see HTTPTransport#getIfModified(String, String, String, String, String)
+ */
+public class CacheableResponse {
+
+    /** HTTP 304 status code. */
+    public static final int NOT_MODIFIED = 304;
+
+    private final int status;
+
+    private final String body;
+
+    private final String etag;
+
+    private final String lastModified;
+
+    public CacheableResponse(int status, String body, String etag, String lastModified) {
+        this.status = status;
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return the HTTP status code.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the response body; null unless the status is 200.
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return the <TT>ETag</TT> header, or null.
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * @return the <TT>Last-Modified</TT> header, or null.
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return true if the cached copy is still valid.
+     */
+    public boolean isNotModified() {
+        return status == NOT_MODIFIED;
+    }
+}
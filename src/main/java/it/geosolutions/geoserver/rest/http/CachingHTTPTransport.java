@@ -0,0 +1,543 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import it.geosolutions.geoserver.rest.HTTPUtils;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.json.JSON;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link HTTPTransport} caching the responses to GET requests.
+ * <P>
+ * Cached responses are kept in a bounded LRU map, and are considered fresh for
+ * a time to live which may be set for each REST resource type (the name of the
+ * REST collection, such as <TT>layers</TT>, <TT>styles</TT> or
+ * <TT>featuretypes</TT>). Once expired, an entry is revalidated with a
+ * conditional GET, using the <TT>ETag</TT> and <TT>Last-Modified</TT> headers
+ * returned by GeoServer, so that unchanged resources are not downloaded again.
+ * <BR>
+ * The results of {@link #exists(String, String, String)} are cached as well.
+ * Streamed responses ({@link #get(String, String, String, ResponseDecoder)}),
+ * used for large listings, are not cached.
+ * <P>
+ * Writes (PUT, POST, DELETE) performed through this transport invalidate the
+ * cached entries they may affect; since the readers and the publisher of a
+ * {@link it.geosolutions.geoserver.rest.GeoServerRESTManager} share the same
+ * transport, the changes made by the publisher are seen at once by the reader.
+ * Changes made by other clients are seen once the entries expire.
+ * <P>
+ * Usage:<PRE>
+ * CachingHTTPTransport cache = new CachingHTTPTransport(PooledHTTPTransport.getDefault(), 1000, 60000);
+ * cache.setTimeToLive("layers", 10000);
+ * GeoServerRESTManager manager = new GeoServerRESTManager(url, user, pw, cache);
+ * </PRE>
+ */
+public class CachingHTTPTransport implements HTTPTransport {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(CachingHTTPTransport.class);
+
+    /** Default max number of cached responses. */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /** Default time to live of the cached responses, in ms. */
+    public static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+    private final HTTPTransport delegate;
+
+    private final long defaultTimeToLive;
+
+    private final Map<String, Long> timeToLive = new ConcurrentHashMap<String, Long>();
+
+    private final Map<String, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong revalidations = new AtomicLong();
+
+    /**
+     * A cached response.
+     */
+    private static class Entry {
+        final String url;
+
+        final String body;
+
+        final boolean exists;
+
+        final String etag;
+
+        final String lastModified;
+
+        volatile long expires;
+
+        Entry(String url, String body, boolean exists, String etag, String lastModified, long expires) {
+            this.url = url;
+            this.body = body;
+            this.exists = exists;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+        }
+
+        boolean isFresh(long now) {
+            return now < expires;
+        }
+
+        boolean canRevalidate() {
+            return body != null && (etag != null || lastModified != null);
+        }
+    }
+
+    /**
+     * Creates a cache with the default settings.
+     *
+     * @param delegate the transport performing the actual requests
+     */
+    public CachingHTTPTransport(HTTPTransport delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param delegate the transport performing the actual requests
+     * @param maxEntries the max number of cached responses
+     * @param defaultTimeToLive the time, in ms, a response is considered fresh
+     *        when no time to live is set for its resource type
+     * @throws IllegalArgumentException on null delegate or non positive settings
+     */
+    public CachingHTTPTransport(HTTPTransport delegate, final int maxEntries, long defaultTimeToLive)
+            throws IllegalArgumentException {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The delegate transport may not be null");
+        }
+        if (maxEntries <= 0 || defaultTimeToLive <= 0) {
+            throw new IllegalArgumentException("Cache settings must be positive");
+        }
+        this.delegate = delegate;
+        this.defaultTimeToLive = defaultTimeToLive;
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Sets the time to live of a resource type.
+     *
+     * @param resourceType the REST collection name (e.g. <TT>layers</TT>, <TT>styles</TT>)
+     * @param ttl the time, in ms, a response is considered fresh
+     */
+    public void setTimeToLive(String resourceType, long ttl) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive: " + ttl);
+        }
+        timeToLive.put(resourceType, ttl);
+    }
+
+    /**
+     * @return the number of requests answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests sent to GeoServer.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of expired entries found unchanged on GeoServer.
+     */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    /**
+     * @return the number of cached responses.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Removes all the cached responses.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    // ==========================================================================
+    // === READS
+    // ==========================================================================
+
+    @Override
+    public String get(String url, String username, String pw) {
+        String key = key(url, username);
+        long now = System.currentTimeMillis();
+        Entry entry = lookup(key);
+        if (entry != null && entry.body != null && entry.isFresh(now)) {
+            hits.incrementAndGet();
+            return entry.body;
+        }
+
+        misses.incrementAndGet();
+        boolean revalidate = entry != null && entry.canRevalidate();
+        CacheableResponse response = delegate.getIfModified(url, username, pw,
+                revalidate ? entry.etag : null, revalidate ? entry.lastModified : null);
+        if (response == null) {
+            return null;
+        }
+        if (revalidate && response.isNotModified()) {
+            revalidations.incrementAndGet();
+            entry.expires = now + timeToLive(url);
+            return entry.body;
+        }
+        String body = response.getBody();
+        if (body == null || body.trim().length() == 0) {
+            remove(key);
+            return null;
+        }
+        store(key, new Entry(url, body, true, response.getETag(), response.getLastModified(),
+                now + timeToLive(url)));
+        return body;
+    }
+
+    /**
+     * Streamed responses are not cached.
+     */
+    @Override
+    public <T> T get(String url, String username, String pw, ResponseDecoder<T> decoder) {
+        return delegate.get(url, username, pw, decoder);
+    }
+
+    @Override
+    public CacheableResponse getIfModified(String url, String username, String pw, String etag,
+            String lastModified) {
+        return delegate.getIfModified(url, username, pw, etag, lastModified);
+    }
+
+    @Override
+    public long putChunk(String url, File file, long offset, long length, String username,
+            String pw) {
+        // uploads do not change the catalog until published
+        return delegate.putChunk(url, file, offset, length, username, pw);
+    }
+
+    @Override
+    public JSON getAsJSON(String url, String username, String pw) throws Exception {
+        return HTTPUtils.json(get(url, username, pw));
+    }
+
+    @Override
+    public boolean exists(String url, String username, String pw) {
+        return exists(url, username, pw, null);
+    }
+
+    @Override
+    public boolean exists(String url, String username, String pw, ExistenceProbe probe) {
+        String key = key(url, username);
+        long now = System.currentTimeMillis();
+        Entry entry = lookup(key);
+        if (entry != null && entry.isFresh(now)) {
+            hits.incrementAndGet();
+            return entry.exists;
+        }
+        misses.incrementAndGet();
+        boolean exists = probe != null ? delegate.exists(url, username, pw, probe)
+                : delegate.exists(url, username, pw);
+        // a stale body is kept when the resource is still there, to be revalidated by get()
+        if (entry == null || !exists) {
+            store(key, new Entry(url, null, exists, null, null, now + timeToLive(url)));
+        }
+        return exists;
+    }
+
+    @Override
+    public boolean httpPing(String url, String username, String pw) {
+        return delegate.httpPing(url, username, pw);
+    }
+
+    // ==========================================================================
+    // === WRITES
+    // ==========================================================================
+
+    @Override
+    public String put(String url, File file, String contentType, String username, String pw) {
+        try {
+            return delegate.put(url, file, contentType, username, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String put(String url, String content, String contentType, String username, String pw) {
+        try {
+            return delegate.put(url, content, contentType, username, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String put(String url, RequestEntity requestEntity, String username, String pw) {
+        try {
+            return delegate.put(url, requestEntity, username, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String putXml(String url, String content, String username, String pw) {
+        return put(url, content, "text/xml", username, pw);
+    }
+
+    @Override
+    public String putJson(String url, String content, String username, String pw) {
+        return put(url, content, "application/json", username, pw);
+    }
+
+    @Override
+    public String post(String url, File file, String contentType, String username, String pw) {
+        try {
+            return delegate.post(url, file, contentType, username, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String post(String url, String content, String contentType, String username, String pw) {
+        try {
+            return delegate.post(url, content, contentType, username, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String post(String url, RequestEntity requestEntity, String username, String pw) {
+        try {
+            return delegate.post(url, requestEntity, username, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String postMultipartForm(String url, File dir, String username, String pw) {
+        try {
+            return delegate.postMultipartForm(url, dir, username, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String postMultipartForm(String url, File dir, String username, String pw,
+            ProgressListener listener) {
+        try {
+            return delegate.postMultipartForm(url, dir, username, pw, listener);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    @Override
+    public String postXml(String url, String content, String username, String pw) {
+        return post(url, content, "text/xml", username, pw);
+    }
+
+    @Override
+    public String postJson(String url, String content, String username, String pw) {
+        return post(url, content, "application/json", username, pw);
+    }
+
+    @Override
+    public boolean delete(String url, String user, String pw) {
+        try {
+            return delegate.delete(url, user, pw);
+        } finally {
+            invalidate(url);
+        }
+    }
+
+    /**
+     * Clears the cache and shuts down the delegate transport.
+     */
+    @Override
+    public void shutdown() {
+        clear();
+        delegate.shutdown();
+    }
+
+    // ==========================================================================
+    // === INVALIDATION
+    // ==========================================================================
+
+    /**
+     * Removes the cached entries which may be affected by a write on the given URL.
+     * <UL>
+     * <LI>a write inside a workspace affects the workspace contents, and the
+     * layers and layergroups, which may refer to them;</LI>
+     * <LI>a write on the styles affects the styles and the layers using them;</LI>
+     * <LI>a write on the layers or layergroups affects the layers and layergroups;</LI>
+     * <LI>a write on a workspace or namespace affects all the workspaces and
+     * namespaces, and the layers and layergroups;</LI>
+     * <LI>any other write (e.g. a reload or an import) clears the whole cache.</LI>
+     * </UL>
+     *
+     * @param url the URL of a PUT, POST or DELETE request
+     */
+    public void invalidate(String url) {
+        String path = restPath(url);
+        if (path == null) {
+            clear();
+            return;
+        }
+        String[] segments = path.split("/");
+        String root = segments[0];
+        String[] affected;
+        if (root.equals("workspaces") && segments.length > 2) {
+            affected = new String[] { "workspaces/" + segments[1] + "/", "layers", "layergroups" };
+        } else if (root.equals("workspaces") || root.equals("namespaces")) {
+            affected = new String[] { "workspaces", "namespaces", "layers", "layergroups" };
+        } else if (root.equals("styles")) {
+            affected = new String[] { "styles", "layers", "layergroups" };
+        } else if (root.equals("layers") || root.equals("layergroups")) {
+            affected = new String[] { "layers", "layergroups" };
+        } else {
+            clear();
+            return;
+        }
+
+        int removed = 0;
+        synchronized (cache) {
+            for (Iterator<Entry> it = cache.values().iterator(); it.hasNext();) {
+                String cached = restPath(it.next().url);
+                if (cached == null || startsWithAny(cached, affected)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Write on " + url + " invalidated " + removed + " cached responses");
+        }
+    }
+
+    private static boolean startsWithAny(String path, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the path following <TT>/rest/</TT>, without the query string, or null.
+     */
+    private static String restPath(String url) {
+        int idx = url.indexOf("/rest/");
+        if (idx < 0) {
+            return null;
+        }
+        String path = url.substring(idx + "/rest/".length());
+        int query = path.indexOf('?');
+        return query < 0 ? path : path.substring(0, query);
+    }
+
+    /**
+     * The resource type is the REST collection the URL refers to: the last
+     * segment of a list URL, the one before the name for a resource URL.
+     */
+    static String resourceType(String url) {
+        String path = restPath(url);
+        if (path == null || path.length() == 0) {
+            return null;
+        }
+        int dot = path.lastIndexOf('.');
+        if (dot > path.lastIndexOf('/')) {
+            path = path.substring(0, dot);
+        }
+        String[] segments = path.split("/");
+        return segments.length % 2 == 1 ? segments[segments.length - 1]
+                : segments[segments.length - 2];
+    }
+
+    private long timeToLive(String url) {
+        String type = resourceType(url);
+        Long ttl = type == null ? null : timeToLive.get(type);
+        return ttl == null ? defaultTimeToLive : ttl;
+    }
+
+    private static String key(String url, String username) {
+        return username == null ? url : username + "@" + url;
+    }
+
+    private Entry lookup(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private void store(String key, Entry entry) {
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (cache) {
+            cache.remove(key);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+/**
+ * How a transport checks whether a REST resource exists, without caring for
+ * its representation.
+ * <P>
+ * Transports probing with {@link #HEAD} fall back to {@link #PARTIAL_GET}
+ * for the hosts answering HEAD requests with <TT>405</TT> or <TT>501</TT>,
+ * and keep doing so for the life of the transport.
+ *
+ * @see HTTPTransport#exists(String, String, String, ExistenceProbe)
+ * @see it.geosolutions.geoserver.rest.GeoServerRESTCapabilities#getExistenceProbe()
+ */
+public enum ExistenceProbe {
+
+    /** A <TT>HEAD</TT> request: no body is sent at all. */
+    HEAD,
+
+    /**
+     * A <TT>GET</TT> asking for the first byte only; servers ignoring the
+     * range have the connection closed as soon as the status is read, unless
+     * the body is small enough to be drained cheaper than reconnecting.
+     */
+    PARTIAL_GET,
+
+    /** A plain <TT>GET</TT>, whose body is read and discarded. */
+    GET;
+
+    /**
+     * Bodies up to this size (in bytes) are drained, keeping the connection
+     * alive, rather than aborted.
+     */
+    public static final int MAX_DRAINED_BODY = 8192;
+
+    /**
+     * @param status the status of a <TT>HEAD</TT> request
+     * @return <TT>true</TT> if the status means the server does not support
+     *         <TT>HEAD</TT> requests.
+     */
+    static boolean isHeadUnsupported(int status) {
+        return status == 405 || status == 501;
+    }
+}
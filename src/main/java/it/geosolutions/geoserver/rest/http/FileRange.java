@@ -0,0 +1,167 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * A chunk of a file sent to a resumable upload, along with the
+ * <TT>Content-Range</TT> and <TT>Content-MD5</TT> headers describing it.
+ * <P>
+ * An empty range is a status query (<TT>Content-Range: bytes *&#47;total</TT>).
+ *
+ * @see HTTPTransport#putChunk(String, File, long, long, String, String)
+ */
+class FileRange implements RequestEntity {
+
+    /** Status code used by resumable uploads for an incomplete upload. */
+    static final int RESUME_INCOMPLETE = 308;
+
+    private final File file;
+
+    private final long offset;
+
+    private final long length;
+
+    private final long total;
+
+    FileRange(File file, long offset, long length) {
+        this.file = file;
+        this.total = file.length();
+        if (offset < 0 || length < 0 || offset + length > total) {
+            throw new IllegalArgumentException("Invalid range " + offset + "+" + length + " for "
+                    + file + " (" + total + " bytes)");
+        }
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the <TT>Content-Range</TT> header value.
+     */
+    String getContentRange() {
+        if (length == 0) {
+            return "bytes */" + total;
+        }
+        return "bytes " + offset + "-" + (offset + length - 1) + "/" + total;
+    }
+
+    /**
+     * @return the base64 encoded MD5 of the range, for the <TT>Content-MD5</TT> header.
+     */
+    String getContentMD5() throws IOException {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            InputStream in = new DigestInputStream(openStream(), md5);
+            try {
+                IOUtils.copy(in, OutputStream.nullOutputStream());
+            } finally {
+                in.close();
+            }
+            return Base64.getEncoder().encodeToString(md5.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a stream over the range.
+     */
+    InputStream openStream() throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BoundedInputStream(in, length);
+    }
+
+    /**
+     * @param range the <TT>Range</TT> header of a {@link #RESUME_INCOMPLETE} response, e.g. <TT>0-1023</TT>
+     * @return the number of bytes held by the server.
+     */
+    static long nextOffset(String range) {
+        if (range == null) {
+            return 0;
+        }
+        String value = range.startsWith("bytes=") ? range.substring(6) : range;
+        int dash = value.indexOf('-');
+        try {
+            return Long.parseLong(value.substring(dash + 1).trim()) + 1;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/octet-stream";
+    }
+
+    @Override
+    public void writeRequest(OutputStream out) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, Channels.newChannel(out));
+            }
+        } finally {
+            channel.close();
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import it.geosolutions.geoserver.rest.HTTPUtils;
+
+import java.io.File;
+
+import net.sf.json.JSON;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+/**
+ * The HTTP layer used by the readers, publishers and managers to talk to GeoServer.
+ * <P>
+ * Implementations must be thread-safe, since a single instance is usually
+ * shared by all the components talking to the same GeoServer.
+ * Return values and error handling follow the ones of the {@link HTTPUtils}
+ * static methods:
+ * <UL>
+ * <LI>reads return <TT>null</TT> on any response code other than 200;</LI>
+ * <LI>PUTs and POSTs return <TT>null</TT> on any response code other than 200, 201 and 202;</LI>
+ * <LI>connection and I/O errors are logged, and reported as a <TT>null</TT> or <TT>false</TT> result,
+ * except for {@link #exists(String, String, String)}.</LI>
+ * </UL>
+ * Basic auth is used in each call if both username and pw are not null.
+ *
+ * @see PooledHTTPTransport
+ * @see JDKAsyncHTTPTransport
+ */
+public interface HTTPTransport {
+
+    /**
+     * @see HTTPUtils#get(String, String, String)
+     */
+    String get(String url, String username, String pw);
+
+    /**
+     * Performs an HTTP GET on the given URL, decoding the response body while
+     * it is read from the connection.
+     *
+     * @return the decoded response, or <TT>null</TT> on errors or if the decoder returned null.
+     * @see HTTPUtils#get(String, String, String, ResponseDecoder)
+     */
+    <T> T get(String url, String username, String pw, ResponseDecoder<T> decoder);
+
+    /**
+     * Performs a conditional HTTP GET on the given URL.
+     * <BR>
+     * The <TT>If-None-Match</TT> and <TT>If-Modified-Since</TT> headers are
+     * sent when the related validator is not null.
+     *
+     * @param etag the <TT>ETag</TT> of the cached copy, may be null
+     * @param lastModified the <TT>Last-Modified</TT> value of the cached copy, may be null
+     * @return the response, whatever its status, or <TT>null</TT> on connection errors.
+     */
+    CacheableResponse getIfModified(String url, String username, String pw, String etag,
+            String lastModified);
+
+    /**
+     * PUTs a range of a file to a resumable upload.
+     * <BR>
+     * The range is described by a <TT>Content-Range</TT> header, and checked by
+     * a <TT>Content-MD5</TT> one; an empty range only queries the upload status.
+     *
+     * @param offset the first byte to send
+     * @param length the number of bytes to send; 0 to query the upload status
+     * @return the number of bytes the server holds once the request completed
+     *         (the file length when the upload is complete), or -1 on errors.
+     * @see it.geosolutions.geoserver.rest.manager.GeoServerRESTUploadManager
+     */
+    long putChunk(String url, File file, long offset, long length, String username, String pw);
+
+    /**
+     * @see HTTPUtils#getAsJSON(String, String, String)
+     */
+    JSON getAsJSON(String url, String username, String pw) throws Exception;
+
+    /**
+     * @see HTTPUtils#put(String, File, String, String, String)
+     */
+    String put(String url, File file, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPUtils#put(String, String, String, String, String)
+     */
+    String put(String url, String content, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPUtils#putXml(String, String, String, String)
+     */
+    String putXml(String url, String content, String username, String pw);
+
+    /**
+     * @see HTTPUtils#putJson(String, String, String, String)
+     */
+    String putJson(String url, String content, String username, String pw);
+
+    /**
+     * @see HTTPUtils#put(String, RequestEntity, String, String)
+     */
+    String put(String url, RequestEntity requestEntity, String username, String pw);
+
+    /**
+     * @see HTTPUtils#post(String, File, String, String, String)
+     */
+    String post(String url, File file, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPUtils#post(String, String, String, String, String)
+     */
+    String post(String url, String content, String contentType, String username, String pw);
+
+    /**
+     * @see HTTPUtils#post(String, RequestEntity, String, String)
+     */
+    String post(String url, RequestEntity requestEntity, String username, String pw);
+
+    /**
+     * @see HTTPUtils#postMultipartForm(String, File, String, String)
+     */
+    String postMultipartForm(String url, File dir, String username, String pw);
+
+    /**
+     * @see HTTPUtils#postMultipartForm(String, File, String, String, ProgressListener)
+     */
+    String postMultipartForm(String url, File dir, String username, String pw,
+            ProgressListener listener);
+
+    /**
+     * @see HTTPUtils#postXml(String, String, String, String)
+     */
+    String postXml(String url, String content, String username, String pw);
+
+    /**
+     * @see HTTPUtils#postJson(String, String, String, String)
+     */
+    String postJson(String url, String content, String username, String pw);
+
+    /**
+     * @see HTTPUtils#delete(String, String, String)
+     */
+    boolean delete(String url, String user, String pw);
+
+    /**
+     * @see HTTPUtils#httpPing(String, String, String)
+     */
+    boolean httpPing(String url, String username, String pw);
+
+    /**
+     * @see HTTPUtils#exists(String, String, String)
+     */
+    boolean exists(String url, String username, String pw);
+
+    /**
+     * Checks whether a resource exists, using the given probe.
+     * <P>
+     * Transports not supporting probes fall back to
+     * {@link #exists(String, String, String)}.
+     *
+     * @return true on 200, false on 404.
+     * @throws RuntimeException on unhandled status or exceptions.
+     */
+    default boolean exists(String url, String username, String pw, ExistenceProbe probe) {
+        return exists(url, username, pw);
+    }
+
+    /**
+     * Releases all the resources (connections, threads) held by this transport.
+     * <BR>
+     * The transport must not be used after it has been shut down.
+     */
+    void shutdown();
+}
@@ -0,0 +1,996 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import it.geosolutions.geoserver.rest.HTTPUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.json.JSON;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking {@link HTTPTransport} built on the JDK {@link HttpClient}.
+ * <P>
+ * Requests are dispatched asynchronously and their responses are handled by a
+ * small, fixed pool of daemon threads, so that many requests may be in flight
+ * at the same time without holding a thread each. Connections are kept alive
+ * and reused by the underlying client.
+ * <P>
+ * The blocking methods simply wait for the completion of the asynchronous
+ * ones. The instance is thread-safe.
+ */
+public class JDKAsyncHTTPTransport implements AsyncHTTPTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JDKAsyncHTTPTransport.class);
+
+    /** Default number of threads handling the responses. */
+    public static final int DEFAULT_THREADS = 4;
+
+    /** Default connection timeout in milliseconds. */
+    public static final int DEFAULT_CONNECTION_TIMEOUT = 5000;
+
+    /** Default time in milliseconds to wait for a response. */
+    public static final int DEFAULT_REQUEST_TIMEOUT = 60000;
+
+    private final ExecutorService executor;
+
+    private final ExecutorService bodyWriters = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "geoserver-manager-body-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final HttpClient client;
+
+    private final Duration requestTimeout;
+
+    private volatile ResiliencePolicy resiliencePolicy = ResiliencePolicy.NONE;
+
+    private volatile RequestListener requestListener = RequestListener.NONE;
+
+    private volatile ExistenceProbe existenceProbe = ExistenceProbe.HEAD;
+
+    /** Authorities (host:port) of the servers not supporting HEAD requests. */
+    private final Set<String> headUnsupported = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Creates a transport using the default settings.
+     */
+    public JDKAsyncHTTPTransport() {
+        this(DEFAULT_THREADS, DEFAULT_CONNECTION_TIMEOUT);
+    }
+
+    /**
+     * Creates a transport with the given settings.
+     *
+     * @param threads number of threads handling the responses.
+     * @param connectionTimeout timeout in milliseconds used when opening a connection.
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public JDKAsyncHTTPTransport(int threads, int connectionTimeout) throws IllegalArgumentException {
+        this(threads, connectionTimeout, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Creates a transport with the given settings.
+     *
+     * @param threads number of threads handling the responses.
+     * @param connectionTimeout timeout in milliseconds used when opening a connection.
+     * @param requestTimeout timeout in milliseconds to receive the response
+     *        headers, including the time to send the request body; 0 waits
+     *        indefinitely.
+     * @throws IllegalArgumentException if threads or connectionTimeout are not
+     *         positive, or requestTimeout is negative
+     */
+    public JDKAsyncHTTPTransport(int threads, int connectionTimeout, int requestTimeout)
+            throws IllegalArgumentException {
+        if (threads <= 0 || connectionTimeout <= 0 || requestTimeout < 0) {
+            throw new IllegalArgumentException("Transport settings must be positive");
+        }
+        this.requestTimeout = requestTimeout > 0 ? Duration.ofMillis(requestTimeout) : null;
+        executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectionTimeout))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Sets the retry and circuit breaking rules applied to every request sent
+     * through this transport.
+     *
+     * @param resiliencePolicy the policy, or null for {@link ResiliencePolicy#NONE}.
+     */
+    public void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+        this.resiliencePolicy = resiliencePolicy != null ? resiliencePolicy : ResiliencePolicy.NONE;
+    }
+
+    /**
+     * @return the retry and circuit breaking rules of this transport.
+     */
+    public ResiliencePolicy getResiliencePolicy() {
+        return resiliencePolicy;
+    }
+
+    /**
+     * Sets the listener notified of every request sent through this transport.
+     *
+     * @param requestListener the listener, or null for {@link RequestListener#NONE}.
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener != null ? requestListener : RequestListener.NONE;
+    }
+
+    /**
+     * @return the listener notified of every request sent through this transport.
+     */
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Sets how {@link #exists(String, String, String)} probes resources.
+     *
+     * @param existenceProbe the probe, or null for {@link ExistenceProbe#HEAD}.
+     */
+    public void setExistenceProbe(ExistenceProbe existenceProbe) {
+        this.existenceProbe = existenceProbe != null ? existenceProbe : ExistenceProbe.HEAD;
+    }
+
+    /**
+     * @return how {@link #exists(String, String, String)} probes resources.
+     */
+    public ExistenceProbe getExistenceProbe() {
+        return existenceProbe;
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+        bodyWriters.shutdownNow();
+    }
+
+    // ==========================================================================
+    // === ASYNC
+    // ==========================================================================
+
+    @Override
+    public CompletableFuture<String> getAsync(final String url, String username, String pw) {
+        return send(request(url, username, pw).GET(), url).handle((response, error) -> {
+            if (error != null) {
+                logError(url, error);
+                return null;
+            }
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info("(" + response.statusCode() + ") -- " + url);
+                return null;
+            }
+            if (response.body().trim().length() == 0) { // sometime gs rest fails
+                LOGGER.warn("ResponseBody is empty");
+                return null;
+            }
+            return response.body();
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> putAsync(String url, File file, String contentType,
+            String username, String pw) {
+        return sendEntity("PUT", url, file, contentType, username, pw);
+    }
+
+    @Override
+    public CompletableFuture<String> putAsync(String url, String content, String contentType,
+            String username, String pw) {
+        return sendEntity("PUT", url, BodyPublishers.ofString(content), contentType, username, pw);
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(String url, File file, String contentType,
+            String username, String pw) {
+        return sendEntity("POST", url, file, contentType, username, pw);
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(String url, String content, String contentType,
+            String username, String pw) {
+        return sendEntity("POST", url, BodyPublishers.ofString(content), contentType, username, pw);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(final String url, String username, String pw) {
+        return send(request(url, username, pw).DELETE(), url).handle((response, error) -> {
+            if (error != null) {
+                logError(url, error);
+                return false;
+            }
+            if (response.statusCode() == HttpURLConnection.HTTP_OK) {
+                return true;
+            }
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("(" + response.statusCode() + ") -- " + url);
+                LOGGER.info("Response: '" + response.body() + "'");
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsAsync(final String url, String username, String pw) {
+        return existsAsync(url, username, pw, existenceProbe);
+    }
+
+    /**
+     * Checks whether a resource exists, using the given probe.
+     *
+     * @param probe the probe, or null for the one of this transport.
+     * @return a future completing with true on 200, false on 404, or
+     *         exceptionally on unhandled status or exceptions.
+     * @see HTTPTransport#exists(String, String, String, ExistenceProbe)
+     */
+    @Override
+    public CompletableFuture<Boolean> existsAsync(final String url, final String username, final String pw,
+            ExistenceProbe probe) {
+        if (probe == null) {
+            probe = existenceProbe;
+        }
+        if (probe == ExistenceProbe.HEAD && headUnsupported.contains(authority(url))) {
+            probe = ExistenceProbe.PARTIAL_GET;
+        }
+        final ExistenceProbe used = probe;
+        HttpRequest.Builder builder = request(url, username, pw);
+        if (used == ExistenceProbe.HEAD) {
+            builder.method("HEAD", BodyPublishers.noBody());
+        } else {
+            builder.GET();
+            if (used == ExistenceProbe.PARTIAL_GET) {
+                builder.header("Range", "bytes=0-0");
+            }
+        }
+        // only partial GETs may leave the body unread: the others are discarded as they come
+        final BodyHandler<?> handler = used == ExistenceProbe.PARTIAL_GET ? BodyHandlers.ofInputStream()
+                : BodyHandlers.discarding();
+        return send(builder, url, handler, true).thenCompose(response -> {
+            int status = response.statusCode();
+            if (used == ExistenceProbe.HEAD && ExistenceProbe.isHeadUnsupported(status)) {
+                if (headUnsupported.add(authority(url)) && LOGGER.isInfoEnabled()) {
+                    LOGGER.info("HEAD not supported at " + authority(url) + ", probing with partial GETs");
+                }
+                return existsAsync(url, username, pw, ExistenceProbe.PARTIAL_GET);
+            }
+            if (response.body() instanceof InputStream) {
+                long length = response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+                release((InputStream) response.body(), status == HttpURLConnection.HTTP_PARTIAL
+                        || length >= 0 && length <= ExistenceProbe.MAX_DRAINED_BODY);
+            }
+            switch (status) {
+            case HttpURLConnection.HTTP_OK:
+            case HttpURLConnection.HTTP_PARTIAL:
+                return CompletableFuture.completedFuture(true);
+            case HttpURLConnection.HTTP_NOT_FOUND:
+                return CompletableFuture.completedFuture(false);
+            default:
+                throw new RuntimeException("Unhandled response status at '" + url + "': (" + status + ")");
+            }
+        });
+    }
+
+    // ==========================================================================
+    // === BLOCKING
+    // ==========================================================================
+
+    @Override
+    public String get(String url, String username, String pw) {
+        return getAsync(url, username, pw).join();
+    }
+
+    @Override
+    public <T> T get(String url, String username, String pw, ResponseDecoder<T> decoder) {
+        HttpResponse<InputStream> response;
+        try {
+            response = send(request(url, username, pw).GET(), url, BodyHandlers.ofInputStream(),
+                    true).join();
+        } catch (RuntimeException e) {
+            logError(url, e);
+            return null;
+        }
+        InputStream is = response.body();
+        try {
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info("(" + response.statusCode() + ") -- " + url);
+                return null;
+            }
+            return decoder.decode(is);
+        } catch (IOException e) {
+            logError(url, e);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    @Override
+    public CacheableResponse getIfModified(String url, String username, String pw, String etag,
+            String lastModified) {
+        HttpRequest.Builder builder = request(url, username, pw).GET();
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+        HttpResponse<String> response;
+        try {
+            response = send(builder, url).join();
+        } catch (RuntimeException e) {
+            logError(url, e);
+            return null;
+        }
+        int status = response.statusCode();
+        if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            if (LOGGER.isInfoEnabled())
+                LOGGER.info("(" + status + ") -- " + url);
+        }
+        return new CacheableResponse(status, status == HttpURLConnection.HTTP_OK ? response.body() : null,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+    }
+
+    @Override
+    public long putChunk(String url, File file, long offset, long length, String username,
+            String pw) {
+        final FileRange range = new FileRange(file, offset, length);
+        HttpRequest.Builder builder = request(url, username, pw)
+                .header("Content-Range", range.getContentRange());
+        HttpResponse<String> response;
+        try {
+            if (length > 0) {
+                builder.header("Content-MD5", range.getContentMD5());
+                builder.PUT(BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(() -> {
+                    try {
+                        return range.openStream();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }), length));
+            } else {
+                // status query: fromPublisher() refuses empty bodies
+                builder.PUT(BodyPublishers.noBody());
+            }
+            response = send(builder, url).join();
+        } catch (IOException e) {
+            logError(url, e);
+            return -1;
+        } catch (RuntimeException e) {
+            logError(url, e);
+            return -1;
+        }
+        switch (response.statusCode()) {
+        case HttpURLConnection.HTTP_OK:
+        case HttpURLConnection.HTTP_CREATED:
+            return range.getTotal();
+        case FileRange.RESUME_INCOMPLETE:
+            return FileRange.nextOffset(response.headers().firstValue("Range").orElse(null));
+        default:
+            LOGGER.warn("Bad response: code[" + response.statusCode() + "] url[" + url + "] range["
+                    + range.getContentRange() + "]");
+            return -1;
+        }
+    }
+
+    @Override
+    public JSON getAsJSON(String url, String username, String pw) throws Exception {
+        return HTTPUtils.json(get(url, username, pw));
+    }
+
+    @Override
+    public String put(String url, File file, String contentType, String username, String pw) {
+        return putAsync(url, file, contentType, username, pw).join();
+    }
+
+    @Override
+    public String put(String url, String content, String contentType, String username, String pw) {
+        return putAsync(url, content, contentType, username, pw).join();
+    }
+
+    /**
+     * The entity is written by a background thread into a bounded pipe read by
+     * the HTTP client, so that it is never buffered as a whole.
+     */
+    @Override
+    public String put(String url, RequestEntity requestEntity, String username, String pw) {
+        return sendEntity("PUT", url, requestEntity, username, pw).join();
+    }
+
+    @Override
+    public String putXml(String url, String content, String username, String pw) {
+        return put(url, content, "text/xml", username, pw);
+    }
+
+    @Override
+    public String putJson(String url, String content, String username, String pw) {
+        return put(url, content, "application/json", username, pw);
+    }
+
+    @Override
+    public String post(String url, File file, String contentType, String username, String pw) {
+        return postAsync(url, file, contentType, username, pw).join();
+    }
+
+    @Override
+    public String post(String url, String content, String contentType, String username, String pw) {
+        return postAsync(url, content, contentType, username, pw).join();
+    }
+
+    @Override
+    public String postMultipartForm(String url, File dir, String username, String pw) {
+        return postMultipartForm(url, dir, username, pw, null);
+    }
+
+    @Override
+    public String postMultipartForm(String url, File dir, String username, String pw,
+            ProgressListener listener) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            LOGGER.error("Cannot POST " + url + ": " + dir + " is not a readable directory");
+            return null;
+        }
+        final MultipartFileEntity entity = new MultipartFileEntity(files, listener);
+        BodyPublisher body = BodyPublishers.fromPublisher(
+                BodyPublishers.ofInputStream(entity::openStream), entity.getContentLength());
+        return sendEntity("POST", url, body, entity.getContentType(), username, pw).join();
+    }
+
+    /**
+     * @see #put(String, RequestEntity, String, String)
+     */
+    @Override
+    public String post(String url, RequestEntity requestEntity, String username, String pw) {
+        return sendEntity("POST", url, requestEntity, username, pw).join();
+    }
+
+    @Override
+    public String postXml(String url, String content, String username, String pw) {
+        return post(url, content, "text/xml", username, pw);
+    }
+
+    @Override
+    public String postJson(String url, String content, String username, String pw) {
+        return post(url, content, "application/json", username, pw);
+    }
+
+    @Override
+    public boolean delete(String url, String user, String pw) {
+        return deleteAsync(url, user, pw).join();
+    }
+
+    @Override
+    public boolean httpPing(final String url, String username, String pw) {
+        return send(request(url, username, pw).GET(), url).handle((response, error) -> {
+            if (error != null) {
+                if (!(unwrap(error) instanceof ConnectException)) {
+                    LOGGER.error(unwrap(error).getLocalizedMessage(), unwrap(error));
+                }
+                return false;
+            }
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                LOGGER.warn("PING failed at '" + url + "': (" + response.statusCode() + ")");
+                return false;
+            }
+            return true;
+        }).join();
+    }
+
+    @Override
+    public boolean exists(String url, String username, String pw) {
+        return exists(url, username, pw, existenceProbe);
+    }
+
+    @Override
+    public boolean exists(String url, String username, String pw, ExistenceProbe probe) {
+        try {
+            return existsAsync(url, username, pw, probe).join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException(cause);
+        }
+    }
+
+    // ==========================================================================
+    // === INTERNALS
+    // ==========================================================================
+
+    private CompletableFuture<String> sendEntity(String method, String url, File file,
+            String contentType, String username, String pw) {
+        try {
+            return sendEntity(method, url, BodyPublishers.ofFile(file.toPath()), contentType,
+                    username, pw);
+        } catch (FileNotFoundException ex) {
+            LOGGER.error("Cannot " + method + " " + url, ex);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Send an HTTP request (PUT or POST) to a server.
+     * <P>
+     * Only 200 (OK), 201 (CREATED) and 202 (ACCEPTED) are accepted as successful
+     * codes; in these cases the future completes with the response string,
+     * otherwise with <TT>null</TT>.
+     */
+    private CompletableFuture<String> sendEntity(final String method, final String url,
+            BodyPublisher body, String contentType, String username, String pw) {
+        return sendEntity(method, url, body, true, contentType, username, pw);
+    }
+
+    private CompletableFuture<String> sendEntity(final String method, final String url,
+            BodyPublisher body, boolean repeatable, String contentType, String username, String pw) {
+        HttpRequest.Builder builder = request(url, username, pw).method(method, body);
+        if (contentType != null) {
+            builder.header("Content-Type", contentType);
+        }
+        return send(builder, url, BodyHandlers.ofString(), repeatable).handle((response, error) -> {
+            if (error != null) {
+                logError(url, error);
+                return null;
+            }
+            switch (response.statusCode()) {
+            case HttpURLConnection.HTTP_OK:
+            case HttpURLConnection.HTTP_CREATED:
+            case HttpURLConnection.HTTP_ACCEPTED:
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info("HTTP " + response.statusCode() + ": " + response.body());
+                return response.body();
+            default:
+                LOGGER.warn("Bad response: code[" + response.statusCode() + "]" + " url[" + url + "]"
+                        + " method[" + method + "]: " + response.body());
+                return null;
+            }
+        });
+    }
+
+    private CompletableFuture<String> sendEntity(String method, String url,
+            final RequestEntity entity, String username, String pw) {
+        final long length = entity.getContentLength();
+        BodyPublisher body;
+        if (length == 0) {
+            // fromPublisher() refuses empty bodies
+            body = BodyPublishers.noBody();
+        } else {
+            body = BodyPublishers.ofInputStream(() -> pipe(entity));
+            if (length > 0) {
+                body = BodyPublishers.fromPublisher(body, length);
+            }
+        }
+        return sendEntity(method, url, body, entity.isRepeatable(), entity.getContentType(),
+                username, pw);
+    }
+
+    private InputStream pipe(final RequestEntity entity) {
+        final EntityPipe pipe = new EntityPipe();
+        bodyWriters.execute(() -> {
+            try {
+                OutputStream out = new BufferedOutputStream(pipe.sink(), 64 * 1024);
+                entity.writeRequest(out);
+                out.flush();
+                pipe.finish(null);
+            } catch (IOException e) {
+                LOGGER.error("Unable to write the request body", e);
+                pipe.finish(e);
+            }
+        });
+        return pipe;
+    }
+
+    /**
+     * Hands the chunks written by a {@link RequestEntity} over to the HTTP client
+     * through a bounded queue.
+     * <P>
+     * A failure of the writer is rethrown to the reader, so that a truncated
+     * body is never sent as a complete one.
+     */
+    private static class EntityPipe extends InputStream {
+
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(16);
+
+        private volatile IOException failure;
+
+        private volatile boolean closed;
+
+        private byte[] current;
+
+        private int position;
+
+        OutputStream sink() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (len > 0) {
+                        offer(Arrays.copyOfRange(b, off, off + len));
+                    }
+                }
+            };
+        }
+
+        void finish(IOException error) {
+            failure = error;
+            try {
+                offer(END);
+            } catch (IOException e) {
+                // the reader is gone
+            }
+        }
+
+        private void offer(byte[] chunk) throws IOException {
+            try {
+                while (!chunks.offer(chunk, 1, TimeUnit.SECONDS)) {
+                    if (closed) {
+                        throw new IOException("Request body no longer read");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing the request body", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (current == END) {
+                return -1;
+            }
+            if (current == null || position == current.length) {
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading the request body", e);
+                }
+                position = 0;
+                if (current == END) {
+                    if (failure != null) {
+                        throw new IOException("Unable to write the request body", failure);
+                    }
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            chunks.clear();
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest.Builder builder, String url) {
+        return send(builder, url, BodyHandlers.ofString(), true);
+    }
+
+    /**
+     * Sends a request, retrying it according to the {@link ResiliencePolicy} of
+     * this transport, and notifying its {@link RequestListener} once the
+     * response body has been received; an <TT>InputStream</TT> body notifies
+     * it when closed.
+     *
+     * @param repeatable false if the request body cannot be sent twice
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest.Builder builder, final String url,
+            final BodyHandler<T> handler, boolean repeatable) {
+        final HttpRequest request;
+        try {
+            request = builder.uri(URI.create(url)).build();
+        } catch (RuntimeException e) {
+            // bad URLs or request setup
+            return failed(e);
+        }
+        final RequestListener listener = requestListener;
+        final long bytesSent = request.bodyPublisher().map(BodyPublisher::contentLength).orElse(-1L);
+        final long start = System.nanoTime();
+        // counts the body of the last attempt only
+        final AtomicLong bytesReceived = new AtomicLong();
+        final BodyHandler<T> metered = info -> {
+            bytesReceived.set(0);
+            return new MeteredSubscriber<T>(handler.apply(info), bytesReceived);
+        };
+        listener.requestStarted(request.method(), url);
+        CompletableFuture<HttpResponse<T>> response;
+        ResiliencePolicy policy = resiliencePolicy;
+        if (policy == ResiliencePolicy.NONE) {
+            response = sendOnce(request, metered);
+        } else {
+            response = policy.executeAsync(request.method(), url, repeatable,
+                    () -> sendOnce(request, metered),
+                    HttpResponse::statusCode,
+                    r -> r.headers().firstValue("Retry-After").orElse(null),
+                    r -> {
+                        if (r.body() instanceof InputStream) {
+                            IOUtils.closeQuietly((InputStream) r.body());
+                        }
+                    });
+        }
+        return response.whenComplete((r, error) -> {
+            Runnable completed = () -> listener.requestCompleted(request.method(), url,
+                    r == null ? -1 : r.statusCode(), bytesSent, r == null ? -1 : bytesReceived.get(),
+                    System.nanoTime() - start);
+            if (r != null && r.body() instanceof MeteredStream) {
+                ((MeteredStream) r.body()).onClose(completed);
+            } else {
+                completed.run();
+            }
+        });
+    }
+
+    /**
+     * Counts the bytes of a response body as they are received.
+     */
+    private static class MeteredSubscriber<T> implements BodySubscriber<T> {
+
+        private final BodySubscriber<T> delegate;
+
+        private final AtomicLong bytesReceived;
+
+        MeteredSubscriber(BodySubscriber<T> delegate, AtomicLong bytesReceived) {
+            this.delegate = delegate;
+            this.bytesReceived = bytesReceived;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                bytesReceived.addAndGet(item.remaining());
+            }
+            delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public CompletionStage<T> getBody() {
+            return delegate.getBody().thenApply(body -> body instanceof InputStream
+                    ? (T) new MeteredStream((InputStream) body) : body);
+        }
+    }
+
+    /**
+     * A response body read by the caller, which runs an action once closed.
+     */
+    private static class MeteredStream extends FilterInputStream {
+
+        private Runnable onClose;
+
+        private boolean closed;
+
+        MeteredStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Runs the action once the stream is closed, or now if it is already.
+         */
+        void onClose(Runnable action) {
+            synchronized (this) {
+                if (!closed) {
+                    onClose = action;
+                    return;
+                }
+            }
+            action.run();
+        }
+
+        @Override
+        public void close() throws IOException {
+            Runnable action;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                action = onClose;
+                onClose = null;
+            }
+            try {
+                super.close();
+            } finally {
+                if (action != null) {
+                    action.run();
+                }
+            }
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendOnce(HttpRequest request, BodyHandler<T> handler) {
+        try {
+            return client.sendAsync(request, handler);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> failed = new CompletableFuture<T>();
+        failed.completeExceptionally(e);
+        return failed;
+    }
+
+    /**
+     * @return the request builder; its URI is set when sending, so that bad
+     *         URLs fail the returned future rather than the caller
+     */
+    private HttpRequest.Builder request(String url, String username, String pw) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder();
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        if (username != null && pw != null) {
+            // GS2 by default always requires authentication: send it preemptively
+            String token = Base64.getEncoder().encodeToString(
+                    (username + ":" + pw).getBytes(StandardCharsets.UTF_8));
+            builder.header("Authorization", "Basic " + token);
+        } else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Not setting credentials to access to " + url);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Drains a small body, keeping the connection alive, or closes the stream,
+     * dropping the connection rather than reading a large body.
+     */
+    private static void release(InputStream body, boolean drain) {
+        try {
+            if (drain) {
+                byte[] buffer = new byte[1024];
+                while (body.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+        } catch (IOException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Could not drain the response body: " + e.getLocalizedMessage());
+            }
+        } finally {
+            IOUtils.closeQuietly(body);
+        }
+    }
+
+    private static String authority(String url) {
+        try {
+            String authority = URI.create(url).getAuthority();
+            return authority != null ? authority : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static void logError(String url, Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ConnectException) {
+            LOGGER.info("Couldn't connect to [" + url + "]");
+        } else {
+            LOGGER.error("Error talking to " + url + " : " + cause.getLocalizedMessage());
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "geoserver-manager-http-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
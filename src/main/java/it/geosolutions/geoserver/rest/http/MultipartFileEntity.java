@@ -0,0 +1,245 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+/**
+ * A <TT>multipart/form-data</TT> body holding one part for each file.
+ * <P>
+ * Files are read from disk only while the body is being sent, and copied
+ * through their {@link FileChannel} in fixed size chunks: the heap used does not
+ * depend on the size of the files. The content length is computed upfront, so
+ * the body is not sent chunked.
+ */
+public class MultipartFileEntity implements RequestEntity {
+
+    /** Bytes transferred between two progress notifications. */
+    static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final File[] files;
+
+    private final String boundary;
+
+    private final byte[][] headers;
+
+    private final byte[] separator = "\r\n".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] trailer;
+
+    private final long contentLength;
+
+    private final ProgressListener listener;
+
+    /**
+     * @param files the files to send
+     * @param listener notified while the body is sent; may be null
+     */
+    public MultipartFileEntity(File[] files, ProgressListener listener) {
+        this.files = files.clone();
+        this.listener = listener;
+        this.boundary = UUID.randomUUID().toString().replace("-", "");
+        this.headers = new byte[files.length][];
+        long length = 0;
+        for (int i = 0; i < files.length; i++) {
+            String name = files[i].getName();
+            headers[i] = ("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + name + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n"
+                    + "Content-Transfer-Encoding: binary\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+            length += headers[i].length + files[i].length() + separator.length;
+        }
+        this.trailer = ("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        this.contentLength = length + trailer.length;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    @Override
+    public void writeRequest(OutputStream out) throws IOException {
+        final WritableByteChannel target = Channels.newChannel(out);
+        long sent = 0;
+        for (int i = 0; i < files.length; i++) {
+            out.write(headers[i]);
+            sent += headers[i].length;
+            FileChannel channel = new FileInputStream(files[i]).getChannel();
+            try {
+                long size = channel.size();
+                long position = 0;
+                while (position < size) {
+                    long n = channel.transferTo(position, Math.min(CHUNK_SIZE, size - position), target);
+                    position += n;
+                    sent += n;
+                    fireProgress(sent);
+                }
+            } finally {
+                channel.close();
+            }
+            out.write(separator);
+            sent += separator.length;
+        }
+        out.write(trailer);
+        out.flush();
+        fireProgress(sent + trailer.length);
+    }
+
+    /**
+     * @return a stream over the whole body, opening each file only when it is
+     *         reached and closing it once it has been read.
+     */
+    public InputStream openStream() {
+        final Parts parts = new Parts();
+        final InputStream body = new SequenceInputStream(parts);
+        return new FilterInputStream(body) {
+            private long sent;
+
+            private long notified;
+
+            @Override
+            public int read() throws IOException {
+                int b;
+                try {
+                    b = super.read();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n;
+                try {
+                    n = super.read(b, off, len);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                if (n > 0) {
+                    count(n);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                // the remaining files are not opened just to be closed
+                parts.closed = true;
+                super.close();
+            }
+
+            private void count(int n) {
+                sent += n;
+                if (listener != null && (sent - notified >= CHUNK_SIZE || sent == contentLength)) {
+                    notified = sent;
+                    fireProgress(sent);
+                }
+            }
+        };
+    }
+
+    /**
+     * The parts of the body in order: header, file and separator for each file,
+     * then the trailer. A file is opened when its part is requested, that is
+     * when the previous part has been read.
+     */
+    private class Parts implements Enumeration<InputStream> {
+
+        private int next;
+
+        private boolean closed;
+
+        @Override
+        public boolean hasMoreElements() {
+            return next <= 3 * files.length;
+        }
+
+        @Override
+        public InputStream nextElement() {
+            if (!hasMoreElements()) {
+                throw new NoSuchElementException();
+            }
+            int part = next++;
+            if (part == 3 * files.length) {
+                return new ByteArrayInputStream(trailer);
+            }
+            int i = part / 3;
+            switch (part % 3) {
+            case 0:
+                return new ByteArrayInputStream(headers[i]);
+            case 1:
+                if (closed) {
+                    return new ByteArrayInputStream(new byte[0]);
+                }
+                try {
+                    return new FileInputStream(files[i]);
+                } catch (IOException e) {
+                    // SequenceInputStream only accepts unchecked exceptions here
+                    throw new UncheckedIOException(e);
+                }
+            default:
+                return new ByteArrayInputStream(separator);
+            }
+        }
+    }
+
+    private void fireProgress(long sent) {
+        if (listener != null) {
+            listener.progress(sent, contentLength);
+        }
+    }
+}
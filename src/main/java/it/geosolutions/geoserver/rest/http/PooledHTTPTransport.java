@@ -0,0 +1,874 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import it.geosolutions.geoserver.rest.HTTPUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.json.JSON;
+
+import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodRetryHandler;
+import org.apache.commons.httpclient.HttpState;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.NoHttpResponseException;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.methods.DeleteMethod;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.FileRequestEntity;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP transport backed by a single, shared {@link HttpClient} with a bounded,
+ * multi-threaded connection pool.
+ * <P>
+ * Connections are kept alive and reused across calls, so that a sequence of
+ * REST requests to the same GeoServer pays the TCP (and TLS) handshake only
+ * once per pooled connection. Connections left idle longer than the configured
+ * idle timeout are evicted by a background daemon thread.
+ * <P>
+ * Credentials are bound to each single request, so one instance can safely be
+ * shared by several readers, publishers and managers, even if they use
+ * different credentials. The instance is thread-safe.
+ *
+ * @see HTTPUtils
+ */
+public class PooledHTTPTransport implements HTTPTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledHTTPTransport.class);
+
+    /** Default max number of connections in the pool. */
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+
+    /** Default max number of connections to the same host. */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+
+    /** Default connection timeout in milliseconds. */
+    public static final int DEFAULT_CONNECTION_TIMEOUT = 5000;
+
+    /** Default time in milliseconds a connection may stay idle in the pool. */
+    public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+    /**
+     * Retries idempotent requests even once they have been sent, so that a
+     * pooled connection reset by the server while it was idle does not fail
+     * the call.
+     */
+    private static final DefaultHttpMethodRetryHandler IDEMPOTENT_RETRY_HANDLER = new DefaultHttpMethodRetryHandler(
+            3, true);
+
+    /**
+     * Retries once the requests sent on a pooled connection the server closed
+     * meanwhile, and nothing else: used along a {@link ResiliencePolicy}, so
+     * that the policy paces and accounts every other failed attempt.
+     */
+    private static final HttpMethodRetryHandler STALE_CONNECTION_RETRY_HANDLER = new HttpMethodRetryHandler() {
+        public boolean retryMethod(HttpMethod method, IOException exception, int executionCount) {
+            return executionCount <= 1 && exception instanceof NoHttpResponseException;
+        }
+    };
+
+    private static PooledHTTPTransport defaultTransport;
+
+    private final MultiThreadedHttpConnectionManager connectionManager;
+
+    private final HttpClient client;
+
+    private final IdleConnectionTimeoutThread idleEvictor;
+
+    private volatile ResiliencePolicy resiliencePolicy = ResiliencePolicy.NONE;
+
+    private volatile RequestListener requestListener = RequestListener.NONE;
+
+    private volatile ExistenceProbe existenceProbe = ExistenceProbe.HEAD;
+
+    /** The requests executed and not released yet. */
+    private final Map<HttpMethod, Pending> pending = new ConcurrentHashMap<HttpMethod, Pending>();
+
+    /** Authorities (host:port) of the servers not supporting HEAD requests. */
+    private final Set<String> headUnsupported = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Creates a transport using the default pool settings.
+     */
+    public PooledHTTPTransport() {
+        this(DEFAULT_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_HOST,
+                DEFAULT_CONNECTION_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Creates a transport with the given pool settings.
+     *
+     * @param maxTotalConnections max number of pooled connections.
+     * @param maxConnectionsPerHost max number of pooled connections to a single host.
+     * @param connectionTimeout timeout in milliseconds used when opening a connection, and
+     *        when waiting for a free connection in the pool.
+     * @param idleTimeout time in milliseconds after which an idle connection is closed.
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public PooledHTTPTransport(int maxTotalConnections, int maxConnectionsPerHost,
+            int connectionTimeout, long idleTimeout) throws IllegalArgumentException {
+        if (maxTotalConnections <= 0 || maxConnectionsPerHost <= 0 || connectionTimeout <= 0
+                || idleTimeout <= 0) {
+            throw new IllegalArgumentException("Pool settings must be positive");
+        }
+
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setMaxTotalConnections(maxTotalConnections);
+        params.setDefaultMaxConnectionsPerHost(maxConnectionsPerHost);
+        params.setConnectionTimeout(connectionTimeout);
+        params.setStaleCheckingEnabled(true);
+
+        client = new HttpClient(connectionManager);
+        client.getParams().setConnectionManagerTimeout(connectionTimeout);
+        client.getParams().setParameter(HttpMethodParams.RETRY_HANDLER,
+                new DefaultHttpMethodRetryHandler(3, false));
+
+        idleEvictor = new IdleConnectionTimeoutThread();
+        idleEvictor.setName("geoserver-manager-idle-connection-evictor");
+        idleEvictor.setConnectionTimeout(idleTimeout);
+        idleEvictor.setTimeoutInterval(Math.max(1000, idleTimeout / 2));
+        idleEvictor.addConnectionManager(connectionManager);
+        idleEvictor.start();
+    }
+
+    /**
+     * @return the transport shared by default among all the readers, publishers
+     *         and managers which are not given an explicit one.
+     */
+    public static synchronized PooledHTTPTransport getDefault() {
+        if (defaultTransport == null) {
+            defaultTransport = new PooledHTTPTransport();
+        }
+        return defaultTransport;
+    }
+
+    /**
+     * Closes all the pooled connections and stops the idle connection evictor.
+     * <BR>
+     * The transport must not be used after it has been shut down.
+     */
+    @Override
+    public void shutdown() {
+        idleEvictor.shutdown();
+        connectionManager.shutdown();
+        synchronized (PooledHTTPTransport.class) {
+            if (defaultTransport == this) {
+                defaultTransport = null;
+            }
+        }
+    }
+
+    /**
+     * Sets the retry and circuit breaking rules applied to every request sent
+     * through this transport.
+     *
+     * @param resiliencePolicy the policy, or null for {@link ResiliencePolicy#NONE}.
+     */
+    public void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+        this.resiliencePolicy = resiliencePolicy != null ? resiliencePolicy : ResiliencePolicy.NONE;
+    }
+
+    /**
+     * @return the retry and circuit breaking rules of this transport.
+     */
+    public ResiliencePolicy getResiliencePolicy() {
+        return resiliencePolicy;
+    }
+
+    /**
+     * Sets the listener notified of every request sent through this transport.
+     *
+     * @param requestListener the listener, or null for {@link RequestListener#NONE}.
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener != null ? requestListener : RequestListener.NONE;
+    }
+
+    /**
+     * @return the listener notified of every request sent through this transport.
+     */
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Sets how {@link #exists(String, String, String)} probes resources.
+     *
+     * @param existenceProbe the probe, or null for {@link ExistenceProbe#HEAD}.
+     */
+    public void setExistenceProbe(ExistenceProbe existenceProbe) {
+        this.existenceProbe = existenceProbe != null ? existenceProbe : ExistenceProbe.HEAD;
+    }
+
+    /**
+     * @return how {@link #exists(String, String, String)} probes resources.
+     */
+    public ExistenceProbe getExistenceProbe() {
+        return existenceProbe;
+    }
+
+    /**
+     * @return the number of connections currently opened by the pool, either
+     *         leased or idle.
+     */
+    public int getConnectionsInPool() {
+        return connectionManager.getConnectionsInPool();
+    }
+
+    /**
+     * @see HTTPUtils#get(String, String, String)
+     */
+    @Override
+    public String get(String url, String username, String pw) {
+
+        GetMethod httpMethod = null;
+        try {
+            httpMethod = new GetMethod(url);
+            int status = execute(httpMethod, url, username, pw);
+            if (status == HttpStatus.SC_OK) {
+                InputStream is = body(httpMethod);
+                String response = IOUtils.toString(is);
+                IOUtils.closeQuietly(is);
+                if (response.trim().length() == 0) { // sometime gs rest fails
+                    LOGGER.warn("ResponseBody is empty");
+                    return null;
+                } else {
+                    return response;
+                }
+            } else {
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info("(" + status + ") " + HttpStatus.getStatusText(status) + " -- " + url);
+            }
+        } catch (ConnectException e) {
+            LOGGER.info("Couldn't connect to [" + url + "]");
+        } catch (IOException e) {
+            LOGGER.info("Error talking to [" + url + "]", e);
+        } finally {
+            if (httpMethod != null)
+                release(httpMethod);
+        }
+
+        return null;
+    }
+
+    /**
+     * @see HTTPUtils#get(String, String, String, ResponseDecoder)
+     */
+    @Override
+    public <T> T get(String url, String username, String pw, ResponseDecoder<T> decoder) {
+
+        GetMethod httpMethod = null;
+        InputStream is = null;
+        try {
+            httpMethod = new GetMethod(url);
+            int status = execute(httpMethod, url, username, pw);
+            if (status == HttpStatus.SC_OK) {
+                is = body(httpMethod);
+                if (is == null) {
+                    LOGGER.warn("ResponseBody is empty");
+                    return null;
+                }
+                return decoder.decode(is);
+            } else {
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info("(" + status + ") " + HttpStatus.getStatusText(status) + " -- " + url);
+            }
+        } catch (ConnectException e) {
+            LOGGER.info("Couldn't connect to [" + url + "]");
+        } catch (IOException e) {
+            LOGGER.info("Error talking to [" + url + "]", e);
+        } finally {
+            IOUtils.closeQuietly(is);
+            if (httpMethod != null)
+                release(httpMethod);
+        }
+
+        return null;
+    }
+
+    @Override
+    public CacheableResponse getIfModified(String url, String username, String pw, String etag,
+            String lastModified) {
+
+        GetMethod httpMethod = null;
+        try {
+            httpMethod = new GetMethod(url);
+            if (etag != null) {
+                httpMethod.setRequestHeader("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                httpMethod.setRequestHeader("If-Modified-Since", lastModified);
+            }
+            int status = execute(httpMethod, url, username, pw);
+            String body = null;
+            if (status == HttpStatus.SC_OK) {
+                InputStream is = body(httpMethod);
+                body = IOUtils.toString(is);
+                IOUtils.closeQuietly(is);
+            } else if (status != HttpStatus.SC_NOT_MODIFIED) {
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info("(" + status + ") " + HttpStatus.getStatusText(status) + " -- " + url);
+            }
+            return new CacheableResponse(status, body, header(httpMethod, "ETag"),
+                    header(httpMethod, "Last-Modified"));
+        } catch (ConnectException e) {
+            LOGGER.info("Couldn't connect to [" + url + "]");
+        } catch (IOException e) {
+            LOGGER.info("Error talking to [" + url + "]", e);
+        } finally {
+            if (httpMethod != null)
+                release(httpMethod);
+        }
+
+        return null;
+    }
+
+    /**
+     * @see HTTPTransport#putChunk(String, File, long, long, String, String)
+     */
+    @Override
+    public long putChunk(String url, File file, long offset, long length, String username,
+            String pw) {
+        PutMethod httpMethod = null;
+        try {
+            FileRange range = new FileRange(file, offset, length);
+            httpMethod = new PutMethod(url);
+            httpMethod.setRequestHeader("Content-Range", range.getContentRange());
+            if (length > 0) {
+                httpMethod.setRequestHeader("Content-MD5", range.getContentMD5());
+            }
+            httpMethod.setRequestEntity(range);
+            int status = execute(httpMethod, url, username, pw);
+            switch (status) {
+            case HttpURLConnection.HTTP_OK:
+            case HttpURLConnection.HTTP_CREATED:
+                return range.getTotal();
+            case FileRange.RESUME_INCOMPLETE:
+                return FileRange.nextOffset(header(httpMethod, "Range"));
+            default:
+                LOGGER.warn("Bad response: code[" + status + "] url[" + url + "] range["
+                        + range.getContentRange() + "]");
+                return -1;
+            }
+        } catch (ConnectException e) {
+            LOGGER.info("Couldn't connect to [" + url + "]");
+        } catch (IOException e) {
+            LOGGER.error("Error talking to " + url + " : " + e.getLocalizedMessage());
+        } finally {
+            if (httpMethod != null)
+                release(httpMethod);
+        }
+        return -1;
+    }
+
+    private static String header(HttpMethod httpMethod, String name) {
+        Header header = httpMethod.getResponseHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * @see HTTPUtils#getAsJSON(String, String, String)
+     */
+    @Override
+    public JSON getAsJSON(String url, String username, String pw) throws Exception {
+        String response = get(url, username, pw);
+        return HTTPUtils.json(response);
+    }
+
+    /**
+     * @see HTTPUtils#put(String, File, String, String, String)
+     */
+    @Override
+    public String put(String url, File file, String contentType, String username, String pw) {
+        return put(url, new FileRequestEntity(file, contentType), username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#put(String, String, String, String, String)
+     */
+    @Override
+    public String put(String url, String content, String contentType, String username, String pw) {
+        try {
+            return put(url, new StringRequestEntity(content, contentType, null), username, pw);
+        } catch (UnsupportedEncodingException ex) {
+            LOGGER.error("Cannot PUT " + url, ex);
+            return null;
+        }
+    }
+
+    /**
+     * @see HTTPUtils#putXml(String, String, String, String)
+     */
+    @Override
+    public String putXml(String url, String content, String username, String pw) {
+        return put(url, content, "text/xml", username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#putJson(String, String, String, String)
+     */
+    @Override
+    public String putJson(String url, String content, String username, String pw) {
+        return put(url, content, "application/json", username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#put(String, RequestEntity, String, String)
+     */
+    @Override
+    public String put(String url, RequestEntity requestEntity, String username, String pw) {
+        return send(new PutMethod(url), url, requestEntity, username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#post(String, File, String, String, String)
+     */
+    @Override
+    public String post(String url, File file, String contentType, String username, String pw) {
+        return post(url, new FileRequestEntity(file, contentType), username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#post(String, String, String, String, String)
+     */
+    @Override
+    public String post(String url, String content, String contentType, String username, String pw) {
+        try {
+            return post(url, new StringRequestEntity(content, contentType, null), username, pw);
+        } catch (UnsupportedEncodingException ex) {
+            LOGGER.error("Cannot POST " + url, ex);
+            return null;
+        }
+    }
+
+    /**
+     * @see HTTPUtils#postMultipartForm(String, File, String, String)
+     */
+    @Override
+    public String postMultipartForm(String url, File dir, String username, String pw) {
+        return postMultipartForm(url, dir, username, pw, null);
+    }
+
+    /**
+     * @see HTTPUtils#postMultipartForm(String, File, String, String, ProgressListener)
+     */
+    @Override
+    public String postMultipartForm(String url, File dir, String username, String pw,
+            ProgressListener listener) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            LOGGER.error("Cannot POST " + url + ": " + dir + " is not a readable directory");
+            return null;
+        }
+        return post(url, new MultipartFileEntity(files, listener), username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#postXml(String, String, String, String)
+     */
+    @Override
+    public String postXml(String url, String content, String username, String pw) {
+        return post(url, content, "text/xml", username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#postJson(String, String, String, String)
+     */
+    @Override
+    public String postJson(String url, String content, String username, String pw) {
+        return post(url, content, "application/json", username, pw);
+    }
+
+    /**
+     * @see HTTPUtils#post(String, RequestEntity, String, String)
+     */
+    @Override
+    public String post(String url, RequestEntity requestEntity, String username, String pw) {
+        return send(new PostMethod(url), url, requestEntity, username, pw);
+    }
+
+    /**
+     * Send an HTTP request (PUT or POST) to a server. <BR>
+     * Basic auth is used if both username and pw are not null.
+     * <P>
+     * Only
+     * <UL>
+     * <LI>200: OK</LI>
+     * <LI>201: ACCEPTED</LI>
+     * <LI>202: CREATED</LI>
+     * </UL>
+     * are accepted as successful codes; in these cases the response string will
+     * be returned.
+     *
+     * @return the HTTP response or <TT>null</TT> on errors.
+     */
+    private String send(final EntityEnclosingMethod httpMethod, String url,
+            RequestEntity requestEntity, String username, String pw) {
+        try {
+            if (requestEntity != null)
+                httpMethod.setRequestEntity(requestEntity);
+            int status = execute(httpMethod, url, username, pw);
+
+            InputStream responseBody;
+            switch (status) {
+            case HttpURLConnection.HTTP_OK:
+            case HttpURLConnection.HTTP_CREATED:
+            case HttpURLConnection.HTTP_ACCEPTED:
+                String response = IOUtils.toString(body(httpMethod));
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info("HTTP " + httpMethod.getStatusText() + ": " + response);
+                return response;
+            default:
+                responseBody = body(httpMethod);
+                LOGGER.warn("Bad response: code[" + status + "]" + " msg[" + httpMethod.getStatusText() + "]"
+                            + " url[" + url + "]" + " method[" + httpMethod.getClass().getSimpleName()
+                            + "]: " + (responseBody != null ? IOUtils.toString(responseBody) : ""));
+                return null;
+            }
+        } catch (ConnectException e) {
+            LOGGER.info("Couldn't connect to [" + url + "]");
+            return null;
+        } catch (IOException e) {
+            LOGGER.error("Error talking to " + url + " : " + e.getLocalizedMessage());
+            return null;
+        } finally {
+            release(httpMethod);
+        }
+    }
+
+    /**
+     * @see HTTPUtils#delete(String, String, String)
+     */
+    @Override
+    public boolean delete(String url, final String user, final String pw) {
+
+        DeleteMethod httpMethod = null;
+        try {
+            httpMethod = new DeleteMethod(url);
+            int status = execute(httpMethod, url, user, pw);
+            String response = "";
+            if (status == HttpStatus.SC_OK) {
+                InputStream is = body(httpMethod);
+                response = is != null ? IOUtils.toString(is) : "";
+                IOUtils.closeQuietly(is);
+                if (response.trim().equals("")) {
+                    if (LOGGER.isTraceEnabled())
+                        LOGGER.trace("ResponseBody is empty (this may be not an error since we just performed a DELETE call)");
+                    return true;
+                }
+                if (LOGGER.isDebugEnabled())
+                    LOGGER.debug("(" + status + ") " + httpMethod.getStatusText() + " -- " + url);
+                return true;
+            } else {
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("(" + status + ") " + httpMethod.getStatusText() + " -- " + url);
+                    LOGGER.info("Response: '" + response + "'");
+                }
+            }
+        } catch (ConnectException e) {
+            LOGGER.info("Couldn't connect to [" + url + "]");
+        } catch (IOException e) {
+            LOGGER.info("Error talking to [" + url + "]", e);
+        } finally {
+            if (httpMethod != null)
+                release(httpMethod);
+        }
+
+        return false;
+    }
+
+    /**
+     * @see HTTPUtils#httpPing(String, String, String)
+     */
+    @Override
+    public boolean httpPing(String url, String username, String pw) {
+
+        GetMethod httpMethod = null;
+        try {
+            httpMethod = new GetMethod(url);
+            int status = execute(httpMethod, url, username, pw);
+            if (status != HttpStatus.SC_OK) {
+                LOGGER.warn("PING failed at '" + url + "': (" + status + ") " + httpMethod.getStatusText());
+                return false;
+            } else {
+                return true;
+            }
+        } catch (ConnectException e) {
+            return false;
+        } catch (IOException e) {
+            LOGGER.error(e.getLocalizedMessage(),e);
+            return false;
+        } finally {
+            if (httpMethod != null)
+                release(httpMethod);
+        }
+    }
+
+    /**
+     * @see HTTPUtils#exists(String, String, String)
+     */
+    @Override
+    public boolean exists(String url, String username, String pw) {
+        return exists(url, username, pw, existenceProbe);
+    }
+
+    /**
+     * @see HTTPUtils#exists(String, String, String)
+     */
+    @Override
+    public boolean exists(String url, String username, String pw, ExistenceProbe probe) {
+        if (probe == null) {
+            probe = existenceProbe;
+        }
+        if (probe == ExistenceProbe.HEAD && headUnsupported.contains(authority(url))) {
+            probe = ExistenceProbe.PARTIAL_GET;
+        }
+        HttpMethod httpMethod = null;
+        boolean drain = true;
+        try {
+            if (probe == ExistenceProbe.HEAD) {
+                httpMethod = new HeadMethod(url);
+            } else {
+                httpMethod = new GetMethod(url);
+                if (probe == ExistenceProbe.PARTIAL_GET) {
+                    httpMethod.setRequestHeader("Range", "bytes=0-0");
+                }
+            }
+            int status = execute(httpMethod, url, username, pw);
+            if (probe == ExistenceProbe.HEAD && ExistenceProbe.isHeadUnsupported(status)) {
+                if (headUnsupported.add(authority(url)) && LOGGER.isInfoEnabled()) {
+                    LOGGER.info("HEAD not supported at " + authority(url) + ", probing with partial GETs");
+                }
+                release(httpMethod);
+                httpMethod = null;
+                return exists(url, username, pw, ExistenceProbe.PARTIAL_GET);
+            }
+            if (probe == ExistenceProbe.PARTIAL_GET) {
+                long length = contentLength(httpMethod);
+                drain = status == HttpStatus.SC_PARTIAL_CONTENT
+                        || length >= 0 && length <= ExistenceProbe.MAX_DRAINED_BODY;
+            }
+            switch (status) {
+            case HttpStatus.SC_OK:
+            case HttpStatus.SC_PARTIAL_CONTENT:
+                return true;
+            case HttpStatus.SC_NOT_FOUND:
+                return false;
+            default:
+                throw new RuntimeException("Unhandled response status at '" + url + "': (" + status + ") "
+                                           + httpMethod.getStatusText());
+            }
+        } catch (ConnectException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (httpMethod != null) {
+                if (!drain) {
+                    // closes the connection instead of reading the whole body
+                    httpMethod.abort();
+                }
+                release(httpMethod);
+            }
+        }
+    }
+
+    private static String authority(String url) {
+        try {
+            return new URL(url).getAuthority();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    /**
+     * Executes the method on the shared client, retrying it according to the
+     * {@link ResiliencePolicy} of this transport. Its {@link RequestListener}
+     * is notified when the method is released, see {@link #release(HttpMethod)}.
+     * <BR>
+     * Credentials are kept in a per-request {@link HttpState}, so that they
+     * never leak among callers sharing this transport.
+     *
+     * @return the HTTP status code
+     */
+    private int execute(final HttpMethod httpMethod, String url, String username, String pw)
+            throws IOException {
+        final HttpState state = new HttpState();
+        setAuth(httpMethod, state, url, username, pw);
+        ResiliencePolicy policy = resiliencePolicy;
+        if (policy != ResiliencePolicy.NONE) {
+            httpMethod.getParams().setParameter(HttpMethodParams.RETRY_HANDLER,
+                    STALE_CONNECTION_RETRY_HANDLER);
+        } else if (httpMethod instanceof GetMethod || httpMethod instanceof HeadMethod
+                || httpMethod instanceof DeleteMethod) {
+            httpMethod.getParams().setParameter(HttpMethodParams.RETRY_HANDLER,
+                    IDEMPOTENT_RETRY_HANDLER);
+        }
+        long bytesSent = -1;
+        boolean repeatable = true;
+        if (httpMethod instanceof EntityEnclosingMethod) {
+            RequestEntity entity = ((EntityEnclosingMethod) httpMethod).getRequestEntity();
+            if (entity != null) {
+                bytesSent = entity.getContentLength();
+                repeatable = entity.isRepeatable();
+            }
+        }
+        Pending exchange = new Pending(requestListener, url, bytesSent);
+        pending.put(httpMethod, exchange);
+        exchange.listener.requestStarted(httpMethod.getName(), url);
+        int status;
+        if (policy == ResiliencePolicy.NONE) {
+            status = client.executeMethod(null, httpMethod, state);
+        } else {
+            status = policy.execute(httpMethod.getName(), url, repeatable,
+                    new ResiliencePolicy.Exchange() {
+                        public int send() throws IOException {
+                            return client.executeMethod(null, httpMethod, state);
+                        }
+
+                        public String getRetryAfter() {
+                            return header(httpMethod, "Retry-After");
+                        }
+
+                        public void release() {
+                            httpMethod.releaseConnection();
+                        }
+                    });
+        }
+        exchange.status = status;
+        return status;
+    }
+
+    /**
+     * @return the response body of an executed method, counting the bytes read
+     *         for its {@link RequestListener}.
+     */
+    private InputStream body(HttpMethod httpMethod) throws IOException {
+        InputStream is = httpMethod.getResponseBodyAsStream();
+        Pending exchange = pending.get(httpMethod);
+        if (is == null || exchange == null) {
+            return is;
+        }
+        exchange.body = new CountingInputStream(is);
+        return exchange.body;
+    }
+
+    /**
+     * Releases the connection of an executed method and notifies its
+     * {@link RequestListener}, so that the recorded latency includes the
+     * reading of the response body.
+     */
+    private void release(HttpMethod httpMethod) {
+        try {
+            httpMethod.releaseConnection();
+        } finally {
+            Pending exchange = pending.remove(httpMethod);
+            if (exchange != null) {
+                exchange.listener.requestCompleted(httpMethod.getName(), exchange.url,
+                        exchange.status, exchange.bytesSent, exchange.status < 0 ? -1
+                                : exchange.body != null ? exchange.body.getByteCount() : 0,
+                        System.nanoTime() - exchange.start);
+            }
+        }
+    }
+
+    /**
+     * A request executed and not released yet.
+     */
+    private static final class Pending {
+
+        final RequestListener listener;
+
+        final String url;
+
+        final long bytesSent;
+
+        final long start = System.nanoTime();
+
+        volatile int status = -1;
+
+        volatile CountingInputStream body;
+
+        Pending(RequestListener listener, String url, long bytesSent) {
+            this.listener = listener;
+            this.url = url;
+            this.bytesSent = bytesSent;
+        }
+    }
+
+    private static long contentLength(HttpMethod httpMethod) {
+        String length = header(httpMethod, "Content-Length");
+        try {
+            return length == null ? -1 : Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void setAuth(HttpMethod httpMethod, HttpState state, String url, String username,
+            String pw) throws MalformedURLException {
+        URL u = new URL(url);
+        if (username != null && pw != null) {
+            state.setCredentials(new AuthScope(u.getHost(), u.getPort()),
+                    new UsernamePasswordCredentials(username, pw));
+            httpMethod.getHostAuthState().setPreemptive(); // GS2 by default always requires authentication
+        } else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Not setting credentials to access to " + url);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+/**
+ * Notified of each request sent by a transport, for metrics and tracing.
+ * <P>
+ * Listeners are called on the threads sending the requests, so they must be
+ * thread-safe, fast, and must not throw.
+ *
+ * @see RequestMetrics
+ * @see PooledHTTPTransport#setRequestListener(RequestListener)
+ * @see JDKAsyncHTTPTransport#setRequestListener(RequestListener)
+ */
+public interface RequestListener {
+
+    /** A listener ignoring all the notifications. */
+    RequestListener NONE = new RequestListener() {
+
+        public void requestStarted(String method, String url) {
+        }
+
+        public void requestCompleted(String method, String url, int status, long bytesSent,
+                long bytesReceived, long nanos) {
+        }
+    };
+
+    /**
+     * A listener forwarding each notification to the given listeners, in order.
+     */
+    static RequestListener chain(final RequestListener... listeners) {
+        final RequestListener[] copy = listeners.clone();
+        return new RequestListener() {
+
+            public void requestStarted(String method, String url) {
+                for (RequestListener listener : copy) {
+                    listener.requestStarted(method, url);
+                }
+            }
+
+            public void requestCompleted(String method, String url, int status, long bytesSent,
+                    long bytesReceived, long nanos) {
+                for (RequestListener listener : copy) {
+                    listener.requestCompleted(method, url, status, bytesSent, bytesReceived, nanos);
+                }
+            }
+        };
+    }
+
+    /**
+     * Called before a request is sent.
+     */
+    void requestStarted(String method, String url);
+
+    /**
+     * Called once the response body has been read, or the request has failed.
+     * Retries of the request are not notified separately.
+     *
+     * @param status the HTTP status code, or -1 if no response was received
+     * @param bytesSent the length of the request body, or -1 if unknown
+     * @param bytesReceived the number of bytes of the response body received,
+     *        or -1 if no response was received
+     * @param nanos the time elapsed since the request was started, including
+     *        the reading of the response body
+     */
+    void requestCompleted(String method, String url, int status, long bytesSent,
+            long bytesReceived, long nanos);
+}
@@ -0,0 +1,270 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RequestListener} recording, for each REST endpoint, the latency
+ * histogram, the bytes sent and received, and the number of responses by
+ * status code; plus the number of requests in flight.
+ * <P>
+ * Endpoints are named after the method and the REST path, with the resource
+ * names replaced by <TT>*</TT>, e.g.
+ * <TT>GET workspaces/&#42;/datastores/&#42;/featuretypes</TT>.
+ * <PRE>
+ * RequestMetrics metrics = new RequestMetrics();
+ * PooledHTTPTransport.getDefault().setRequestListener(metrics);
+ * ...
+ * for (RequestMetrics.Endpoint endpoint : metrics.getSlowest(10, 99))
+ *     System.out.println(endpoint);
+ * </PRE>
+ */
+public class RequestMetrics implements RequestListener {
+
+    /**
+     * The metrics of a single endpoint.
+     */
+    public static class Endpoint {
+
+        private final String name;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final AtomicLong bytesSent = new AtomicLong();
+
+        private final AtomicLong bytesReceived = new AtomicLong();
+
+        private final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<Integer, AtomicLong>();
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the method and the REST path template of the endpoint.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the latencies of the requests, in microseconds.
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the total length of the request bodies of known length.
+         */
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        /**
+         * @return the total number of bytes of the response bodies received.
+         */
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        /**
+         * @return the number of responses by status code; -1 counts the requests
+         *         which received no response.
+         */
+        public SortedMap<Integer, Long> getStatuses() {
+            SortedMap<Integer, Long> copy = new TreeMap<Integer, Long>();
+            for (Map.Entry<Integer, AtomicLong> entry : statuses.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue().get());
+            }
+            return copy;
+        }
+
+        /**
+         * @return the number of requests which received no response, or an error status.
+         */
+        public long getErrors() {
+            long errors = 0;
+            for (Map.Entry<Integer, AtomicLong> entry : statuses.entrySet()) {
+                if (entry.getKey() < 0 || entry.getKey() >= 400) {
+                    errors += entry.getValue().get();
+                }
+            }
+            return errors;
+        }
+
+        void record(int status, long sent, long received, long nanos) {
+            latency.record(nanos);
+            if (sent > 0) {
+                bytesSent.addAndGet(sent);
+            }
+            if (received > 0) {
+                bytesReceived.addAndGet(received);
+            }
+            AtomicLong counter = statuses.get(status);
+            if (counter == null) {
+                counter = statuses.computeIfAbsent(status, s -> new AtomicLong());
+            }
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d mean=%.1fms p50=%.1fms p99=%.1fms max=%.1fms sent=%d received=%d statuses=%s",
+                    name, latency.getCount(), latency.getMean() / 1000,
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0, latency.getMax() / 1000.0,
+                    getBytesSent(), getBytesReceived(), getStatuses());
+        }
+    }
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public void requestStarted(String method, String url) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    }
+
+    public void requestCompleted(String method, String url, int status, long bytesSent,
+            long bytesReceived, long nanos) {
+        inFlight.decrementAndGet();
+        String name = endpoint(method, url);
+        Endpoint endpoint = endpoints.get(name);
+        if (endpoint == null) {
+            endpoint = endpoints.computeIfAbsent(name, Endpoint::new);
+        }
+        endpoint.record(status, bytesSent, bytesReceived, nanos);
+    }
+
+    /**
+     * @return the number of requests currently in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the highest number of requests in flight at the same time.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * @return the metrics of the endpoint, or null if it was never called.
+     */
+    public Endpoint getEndpoint(String method, String url) {
+        return endpoints.get(endpoint(method, url));
+    }
+
+    /**
+     * @return the metrics of all the endpoints called so far, sorted by name.
+     */
+    public SortedMap<String, Endpoint> getEndpoints() {
+        return new TreeMap<String, Endpoint>(endpoints);
+    }
+
+    /**
+     * @param count max number of endpoints to return
+     * @param percentile the latency percentile to compare, e.g. 99
+     * @return the endpoints with the highest latency at the given percentile, slowest first.
+     */
+    public List<Endpoint> getSlowest(int count, final double percentile) {
+        List<Endpoint> slowest = new ArrayList<Endpoint>(endpoints.values());
+        Collections.sort(slowest, Comparator.comparingLong(
+                (Endpoint e) -> e.getLatency().getValueAtPercentile(percentile)).reversed());
+        return slowest.subList(0, Math.min(count, slowest.size()));
+    }
+
+    /**
+     * Discards all the recorded metrics, except the requests in flight.
+     */
+    public void reset() {
+        endpoints.clear();
+        maxInFlight.set(inFlight.get());
+    }
+
+    /**
+     * @return one line per endpoint, sorted by name.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("in flight=").append(getInFlight()).append(" max=").append(getMaxInFlight());
+        for (Endpoint endpoint : getEndpoints().values()) {
+            sb.append('\n').append(endpoint);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Names the endpoint of a request: the method followed by the path after
+     * <TT>/rest/</TT>, without extension, where each resource name following a
+     * collection name is replaced by <TT>*</TT>.
+     */
+    static String endpoint(String method, String url) {
+        String path;
+        try {
+            path = URI.create(url).getRawPath();
+        } catch (IllegalArgumentException e) {
+            path = url;
+        }
+        if (path == null) {
+            path = "";
+        }
+        int rest = path.indexOf("/rest/");
+        if (rest >= 0) {
+            path = path.substring(rest + 6);
+        }
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot > slash) {
+            path = path.substring(0, dot);
+        }
+        StringBuilder sb = new StringBuilder(method).append(' ');
+        String[] segments = path.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            sb.append(i % 2 == 0 ? segments[i] : "*");
+        }
+        return sb.toString();
+    }
+}
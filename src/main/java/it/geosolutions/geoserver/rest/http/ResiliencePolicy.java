@@ -0,0 +1,526 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retry and circuit breaking rules applied by the transports to each request.
+ * <P>
+ * A failed attempt is retried, after a jittered exponential backoff, when
+ * <UL>
+ * <LI>the connection could not be opened, whatever the method;</LI>
+ * <LI>the method is idempotent (GET, HEAD, PUT, DELETE, OPTIONS) and either an
+ * I/O error occurred or the server answered 429, 502, 503 or 504. A
+ * <TT>Retry-After</TT> header, if any, overrides the backoff.</LI>
+ * </UL>
+ * Requests with a body which cannot be sent twice are never retried.
+ * <P>
+ * Retries are limited by a budget shared by all the requests: each request
+ * earns a fraction of a retry, and each retry spends a whole one, so that a
+ * struggling server is not flooded by retries when most requests fail.
+ * <BR>
+ * Each host also has a circuit breaker: after a number of consecutive failures
+ * the requests to that host fail immediately, with a {@link CircuitOpenException},
+ * until a cool down period elapses; then a single trial request is let through,
+ * closing the circuit on success.
+ * <P>
+ * Policies are thread-safe, and are meant to be shared among the transports
+ * talking to the same GeoServer instances:
+ * <PRE>
+ * ResiliencePolicy policy = new ResiliencePolicy();
+ * policy.setMaxRetries(5);
+ * PooledHTTPTransport.getDefault().setResiliencePolicy(policy);
+ * </PRE>
+ *
+ * @see PooledHTTPTransport#setResiliencePolicy(ResiliencePolicy)
+ * @see JDKAsyncHTTPTransport#setResiliencePolicy(ResiliencePolicy)
+ */
+public class ResiliencePolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResiliencePolicy.class);
+
+    /** Default max number of retries of a request. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /** Default backoff before the first retry, in milliseconds. */
+    public static final long DEFAULT_BASE_DELAY = 100;
+
+    /** Default max backoff, in milliseconds. */
+    public static final long DEFAULT_MAX_DELAY = 5000;
+
+    /** Default number of consecutive failures opening a circuit. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /** Default time a circuit stays open, in milliseconds. */
+    public static final long DEFAULT_OPEN_TIME = 10000;
+
+    /** Default fraction of a retry earned by each request. */
+    public static final double DEFAULT_BUDGET_RATIO = 0.2;
+
+    /** Default max number of retries which can be saved. */
+    public static final int DEFAULT_BUDGET_CAPACITY = 10;
+
+    /**
+     * A policy which neither retries nor breaks circuits: requests are sent
+     * once, and their outcome is returned as is.
+     */
+    public static final ResiliencePolicy NONE = new ResiliencePolicy(0, DEFAULT_BASE_DELAY,
+            DEFAULT_MAX_DELAY, 0, DEFAULT_OPEN_TIME);
+
+    /** Budget accounting unit: a retry costs this many tokens. */
+    private static final long TOKEN = 1000;
+
+    /**
+     * A single request, as seen by the policy.
+     */
+    public interface Exchange {
+
+        /**
+         * Sends the request.
+         *
+         * @return the HTTP status code
+         */
+        int send() throws IOException;
+
+        /**
+         * @return the <TT>Retry-After</TT> header of the last response, or null.
+         */
+        String getRetryAfter();
+
+        /**
+         * Releases the last response before a retry.
+         */
+        void release();
+    }
+
+    /**
+     * Thrown, without contacting the server, while the circuit of a host is open.
+     */
+    public static class CircuitOpenException extends ConnectException {
+
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String host) {
+            super("Circuit open for " + host);
+        }
+    }
+
+    private volatile int maxRetries;
+
+    private volatile long baseDelay;
+
+    private volatile long maxDelay;
+
+    private volatile int failureThreshold;
+
+    private volatile long openTime;
+
+    private volatile long budgetEarning = (long) (DEFAULT_BUDGET_RATIO * TOKEN);
+
+    private volatile long budgetCapacity = DEFAULT_BUDGET_CAPACITY * TOKEN;
+
+    private final AtomicLong budget = new AtomicLong(DEFAULT_BUDGET_CAPACITY * TOKEN);
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * Creates a policy with the default settings.
+     */
+    public ResiliencePolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, DEFAULT_FAILURE_THRESHOLD,
+                DEFAULT_OPEN_TIME);
+    }
+
+    private ResiliencePolicy(int maxRetries, long baseDelay, long maxDelay, int failureThreshold,
+            long openTime) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+    }
+
+    /**
+     * @param maxRetries max number of retries of a request; 0 disables retries.
+     * @throws IllegalArgumentException if negative
+     */
+    public void setMaxRetries(int maxRetries) throws IllegalArgumentException {
+        checkMutable();
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("The number of retries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the backoff: the n-th retry waits a random time between 0 and
+     * <TT>min(maxDelay, baseDelay * 2^n)</TT> milliseconds.
+     *
+     * @throws IllegalArgumentException if a delay is not positive, or maxDelay is less than baseDelay
+     */
+    public void setBackoff(long baseDelay, long maxDelay) throws IllegalArgumentException {
+        checkMutable();
+        if (baseDelay <= 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("Invalid backoff: " + baseDelay + ", " + maxDelay);
+        }
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @param failureThreshold number of consecutive failures opening the circuit of a host; 0
+     *        disables circuit breaking.
+     * @param openTime milliseconds after which an open circuit lets a trial request through.
+     * @throws IllegalArgumentException if an argument is negative
+     */
+    public void setCircuitBreaker(int failureThreshold, long openTime) throws IllegalArgumentException {
+        checkMutable();
+        if (failureThreshold < 0 || openTime < 0) {
+            throw new IllegalArgumentException("Circuit breaker settings must not be negative");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+        circuits.clear();
+    }
+
+    /**
+     * @param ratio the fraction of a retry earned by each request, e.g. 0.2 allows
+     *        a retry every 5 requests in the long run.
+     * @param capacity the max number of retries which can be saved, allowing bursts.
+     * @throws IllegalArgumentException if an argument is negative
+     */
+    public void setRetryBudget(double ratio, int capacity) throws IllegalArgumentException {
+        checkMutable();
+        if (ratio < 0 || capacity < 0) {
+            throw new IllegalArgumentException("Retry budget settings must not be negative");
+        }
+        this.budgetEarning = (long) (ratio * TOKEN);
+        this.budgetCapacity = capacity * TOKEN;
+        budget.set(budgetCapacity);
+    }
+
+    private void checkMutable() {
+        if (this == NONE) {
+            throw new IllegalStateException("The NONE policy cannot be changed");
+        }
+    }
+
+    /**
+     * @return the number of retries performed so far.
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return the number of requests rejected so far by an open circuit.
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    /**
+     * @return true if the requests to the host of the given URL are currently rejected.
+     */
+    public boolean isOpen(String url) {
+        Circuit circuit = circuits.get(host(url));
+        return circuit != null && circuit.openUntil > System.currentTimeMillis();
+    }
+
+    // ==========================================================================
+    // === EXECUTION
+    // ==========================================================================
+
+    /**
+     * Sends a request, retrying it according to this policy.
+     *
+     * @param method the HTTP method
+     * @param repeatable false if the request body cannot be sent twice
+     * @return the status code of the last attempt
+     * @throws IOException the error of the last attempt, or a {@link CircuitOpenException}
+     */
+    public int execute(String method, String url, boolean repeatable, Exchange exchange)
+            throws IOException {
+        String host = host(url);
+        earn();
+        for (int attempt = 0;; attempt++) {
+            admit(host, url);
+            int status;
+            try {
+                status = exchange.send();
+            } catch (IOException e) {
+                record(host, false);
+                long delay = delay(method, repeatable, attempt, e, -1, null);
+                if (delay < 0) {
+                    throw e;
+                }
+                LOGGER.info("Retrying " + method + " " + url + " in " + delay + "ms: " + e);
+                exchange.release();
+                sleep(delay);
+                continue;
+            } catch (RuntimeException e) {
+                // ends a half open trial too, which would otherwise reject all the later requests
+                record(host, false);
+                throw e;
+            }
+            record(host, !isOverloaded(status));
+            long delay = delay(method, repeatable, attempt, null, status, exchange.getRetryAfter());
+            if (delay < 0) {
+                return status;
+            }
+            LOGGER.info("Retrying " + method + " " + url + " in " + delay + "ms: (" + status + ")");
+            exchange.release();
+            sleep(delay);
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #execute(String, String, boolean, Exchange)}:
+     * retries are scheduled, so that no thread waits for the backoff.
+     *
+     * @param attempt sends the request; may be invoked several times
+     * @param status extracts the status code of a response
+     * @param retryAfter extracts the <TT>Retry-After</TT> header of a response
+     * @param release releases a response before a retry
+     * @return the response of the last attempt, or its failure
+     */
+    public <R> CompletableFuture<R> executeAsync(String method, String url, boolean repeatable,
+            Supplier<CompletableFuture<R>> attempt, ToIntFunction<R> status,
+            Function<R, String> retryAfter, Consumer<R> release) {
+        earn();
+        CompletableFuture<R> result = new CompletableFuture<R>();
+        attemptAsync(method, url, host(url), repeatable, 0, attempt, status, retryAfter, release,
+                result);
+        return result;
+    }
+
+    private <R> void attemptAsync(final String method, final String url, final String host,
+            final boolean repeatable, final int n, final Supplier<CompletableFuture<R>> attempt,
+            final ToIntFunction<R> status, final Function<R, String> retryAfter,
+            final Consumer<R> release, final CompletableFuture<R> result) {
+        try {
+            admit(host, url);
+        } catch (CircuitOpenException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        CompletableFuture<R> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            record(host, false);
+            result.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((response, error) -> {
+            long delay;
+            if (error != null) {
+                Throwable cause = error;
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                record(host, false);
+                delay = cause instanceof IOException ? delay(method, repeatable, n, (IOException) cause,
+                        -1, null) : -1;
+                if (delay < 0) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                LOGGER.info("Retrying " + method + " " + url + " in " + delay + "ms: " + cause);
+            } else {
+                int code = status.applyAsInt(response);
+                record(host, !isOverloaded(code));
+                delay = delay(method, repeatable, n, null, code, retryAfter.apply(response));
+                if (delay < 0) {
+                    result.complete(response);
+                    return;
+                }
+                LOGGER.info("Retrying " + method + " " + url + " in " + delay + "ms: (" + code + ")");
+                release.accept(response);
+            }
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() ->
+                    attemptAsync(method, url, host, repeatable, n + 1, attempt, status, retryAfter,
+                            release, result));
+        });
+    }
+
+    // ==========================================================================
+    // === RULES
+    // ==========================================================================
+
+    /**
+     * @return the milliseconds to wait before retrying, or -1 if the request must not be retried.
+     */
+    private long delay(String method, boolean repeatable, int attempt, IOException error, int status,
+            String retryAfter) {
+        if (attempt >= maxRetries || !repeatable) {
+            return -1;
+        }
+        boolean retriable;
+        if (error != null) {
+            // a request which could not even connect was never received
+            retriable = (error instanceof ConnectException && !(error instanceof CircuitOpenException))
+                    || isIdempotent(method);
+        } else {
+            retriable = isOverloaded(status) && isIdempotent(method);
+        }
+        if (!retriable || !spend()) {
+            return -1;
+        }
+        retries.incrementAndGet();
+        long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt, 30));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        long hinted = parseRetryAfter(retryAfter);
+        return hinted >= 0 ? Math.min(hinted, maxDelay) : delay;
+    }
+
+    static boolean isIdempotent(String method) {
+        return method.equals("GET") || method.equals("HEAD") || method.equals("PUT")
+                || method.equals("DELETE") || method.equals("OPTIONS");
+    }
+
+    /**
+     * @return true for the status codes telling the server is temporarily unable to answer.
+     */
+    static boolean isOverloaded(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * @return the delay in milliseconds of a <TT>Retry-After</TT> header in seconds, or -1.
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // HTTP dates are not worth the parsing
+            return -1;
+        }
+    }
+
+    private void earn() {
+        long earning = budgetEarning;
+        long capacity = budgetCapacity;
+        budget.updateAndGet(b -> Math.min(capacity, b + earning));
+    }
+
+    private boolean spend() {
+        return budget.getAndUpdate(b -> b >= TOKEN ? b - TOKEN : b) >= TOKEN;
+    }
+
+    // ==========================================================================
+    // === CIRCUITS
+    // ==========================================================================
+
+    private static class Circuit {
+
+        int failures;
+
+        long openUntil;
+
+        boolean trial;
+    }
+
+    private void admit(String host, String url) throws CircuitOpenException {
+        if (failureThreshold == 0) {
+            return;
+        }
+        Circuit circuit = circuits.computeIfAbsent(host, h -> new Circuit());
+        synchronized (circuit) {
+            if (circuit.failures < failureThreshold) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now >= circuit.openUntil && !circuit.trial) {
+                // half open: let a single request check the server
+                circuit.trial = true;
+                return;
+            }
+        }
+        rejections.incrementAndGet();
+        LOGGER.info("Rejecting " + url + ": circuit open");
+        throw new CircuitOpenException(host);
+    }
+
+    private void record(String host, boolean success) {
+        if (failureThreshold == 0) {
+            return;
+        }
+        Circuit circuit = circuits.computeIfAbsent(host, h -> new Circuit());
+        synchronized (circuit) {
+            circuit.trial = false;
+            if (success) {
+                circuit.failures = 0;
+            } else if (++circuit.failures >= failureThreshold) {
+                if (circuit.failures == failureThreshold) {
+                    LOGGER.warn("Opening the circuit of " + host + " for " + openTime + "ms");
+                }
+                circuit.openUntil = System.currentTimeMillis() + openTime;
+            }
+        }
+    }
+
+    private static String host(String url) {
+        try {
+            URI uri = URI.create(url);
+            return uri.getHost() + ":" + uri.getPort();
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+}
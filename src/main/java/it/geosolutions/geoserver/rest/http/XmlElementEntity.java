@@ -0,0 +1,80 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import it.geosolutions.geoserver.rest.encoder.utils.XmlElement;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+/**
+ * Serializes an encoder straight into the request body.
+ * <P>
+ * Unlike <TT>putXml(url, encoder.toString(), ...)</TT>, the document is never
+ * held as a String, which matters when configuring thousands of resources.
+ * The length is not known upfront, so the body is sent chunked.
+ *
+ * @see XmlElement#writeTo(OutputStream)
+ */
+public class XmlElementEntity implements RequestEntity {
+
+    private final XmlElement element;
+
+    public XmlElementEntity(XmlElement element) {
+        if (element == null) {
+            throw new IllegalArgumentException("The element may not be null");
+        }
+        this.element = element;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/xml; charset=UTF-8";
+    }
+
+    @Override
+    public void writeRequest(OutputStream out) throws IOException {
+        try {
+            element.writeTo(out);
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to write the <" + element.getRoot().getName()
+                    + "> document", e);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Zips a set of files straight into the request body, while they are read.
+ * <P>
+ * No temporary zip file is written, and the heap used does not depend on the
+ * size of the files. Since the compressed size is not known upfront, the body
+ * is sent chunked.
+ * <P>
+ * With a parallelism greater than 1, each file is split in blocks which are
+ * deflated concurrently (each one primed with the last 32KB of the previous
+ * block, as <TT>pigz</TT> does) and written in order; at most
+ * <TT>2 * parallelism</TT> blocks are held in memory. Since such entries carry
+ * their sizes in a trailing data descriptor, the parallel mode is limited to
+ * archives smaller than 4GB; larger ones fall back to the sequential mode.
+ */
+public class ZipStreamEntity implements RequestEntity {
+
+    /** Size of the blocks deflated concurrently. */
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+
+    private final File[] files;
+
+    private final int parallelism;
+
+    private final int level;
+
+    /**
+     * @param files the files to zip; each one becomes an entry named after the file
+     * @param parallelism number of threads deflating the data; 1 to deflate in the calling thread
+     */
+    public ZipStreamEntity(File[] files, int parallelism) {
+        this(files, parallelism, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param files the files to zip; each one becomes an entry named after the file
+     * @param parallelism number of threads deflating the data; 1 to deflate in the calling thread
+     * @param level the compression level, see {@link Deflater}
+     */
+    public ZipStreamEntity(File[] files, int parallelism, int level) {
+        if (files == null || files.length == 0) {
+            throw new IllegalArgumentException("No files to zip");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.files = files.clone();
+        this.parallelism = parallelism;
+        this.level = level;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/zip";
+    }
+
+    @Override
+    public void writeRequest(OutputStream out) throws IOException {
+        long size = 0;
+        for (File f : files) {
+            size += f.length();
+        }
+        // deflate never grows data by more than a few bytes per 16KB block
+        if (parallelism == 1 || size + size / 1000 + 64 * 1024 * files.length >= ZIP32_LIMIT) {
+            writeSequential(out);
+        } else {
+            writeParallel(out);
+        }
+    }
+
+    private void writeSequential(OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new NonClosingOutputStream(out));
+        zip.setLevel(level);
+        for (File f : files) {
+            ZipEntry entry = new ZipEntry(f.getName());
+            entry.setTime(f.lastModified());
+            zip.putNextEntry(entry);
+            InputStream in = new FileInputStream(f);
+            try {
+                IOUtils.copy(in, zip);
+            } finally {
+                in.close();
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+        out.flush();
+    }
+
+    private void writeParallel(OutputStream out) throws IOException {
+        ExecutorService deflaters = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "geoserver-manager-deflater");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            CountingOutputStream zip = new CountingOutputStream(out);
+            List<CentralEntry> entries = new ArrayList<CentralEntry>(files.length);
+            for (File f : files) {
+                entries.add(writeEntry(zip, f, deflaters));
+            }
+            long directoryOffset = zip.count;
+            for (CentralEntry entry : entries) {
+                entry.writeCentral(zip);
+            }
+            long directorySize = zip.count - directoryOffset;
+            writeInt(zip, 0x06054b50L);
+            writeShort(zip, 0);
+            writeShort(zip, 0);
+            writeShort(zip, entries.size());
+            writeShort(zip, entries.size());
+            writeInt(zip, directorySize);
+            writeInt(zip, directoryOffset);
+            writeShort(zip, 0);
+            zip.flush();
+        } finally {
+            deflaters.shutdownNow();
+        }
+    }
+
+    private CentralEntry writeEntry(CountingOutputStream zip, File f, ExecutorService deflaters)
+            throws IOException {
+        CentralEntry entry = new CentralEntry(f.getName(), dosTime(f.lastModified()), zip.count);
+        entry.writeLocal(zip);
+
+        final CRC32 crc = new CRC32();
+        final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+        final long compressedStart = zip.count;
+        InputStream in = new FileInputStream(f);
+        try {
+            byte[] block = new byte[BLOCK_SIZE];
+            int n = readFully(in, block);
+            byte[] dictionary = null;
+            while (true) {
+                // read ahead, to know whether this is the last block
+                byte[] next = null;
+                int m = 0;
+                if (n == BLOCK_SIZE) {
+                    next = new byte[BLOCK_SIZE];
+                    m = readFully(in, next);
+                }
+                boolean last = m == 0;
+                crc.update(block, 0, n);
+                entry.size += n;
+                pending.add(deflaters.submit(deflate(block, n, dictionary, last)));
+                // keep at most 2 * parallelism blocks in memory
+                while (pending.size() >= 2 * parallelism) {
+                    zip.write(await(pending.poll()));
+                }
+                if (last) {
+                    break;
+                }
+                dictionary = new byte[DICTIONARY_SIZE];
+                System.arraycopy(block, BLOCK_SIZE - DICTIONARY_SIZE, dictionary, 0, DICTIONARY_SIZE);
+                block = next;
+                n = m;
+            }
+            while (!pending.isEmpty()) {
+                zip.write(await(pending.poll()));
+            }
+        } finally {
+            in.close();
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
+        entry.crc = crc.getValue();
+        entry.compressedSize = zip.count - compressedStart;
+        entry.writeDescriptor(zip);
+        return entry;
+    }
+
+    private Callable<byte[]> deflate(final byte[] block, final int length,
+            final byte[] dictionary, final boolean last) {
+        return () -> {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                if (dictionary != null) {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(block, 0, length);
+                ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+                byte[] buffer = new byte[16 * 1024];
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        out.write(buffer, 0, deflater.deflate(buffer));
+                    }
+                } else {
+                    // a sync flush ends the block on a byte boundary, so that the
+                    // blocks can be concatenated
+                    int n;
+                    do {
+                        n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        out.write(buffer, 0, n);
+                    } while (n == buffer.length);
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        };
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while deflating", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to deflate", e.getCause());
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    private static long dosTime(long time) {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(time);
+        int year = c.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 | (c.get(Calendar.MONTH) + 1) << 21
+                | c.get(Calendar.DAY_OF_MONTH) << 16 | c.get(Calendar.HOUR_OF_DAY) << 11
+                | c.get(Calendar.MINUTE) << 5 | c.get(Calendar.SECOND) >> 1;
+    }
+
+    private static void writeShort(OutputStream out, int v) throws IOException {
+        out.write(v & 0xff);
+        out.write((v >>> 8) & 0xff);
+    }
+
+    private static void writeInt(OutputStream out, long v) throws IOException {
+        writeShort(out, (int) (v & 0xffff));
+        writeShort(out, (int) ((v >>> 16) & 0xffff));
+    }
+
+    /**
+     * A deflated entry written with a trailing data descriptor.
+     */
+    private static class CentralEntry {
+
+        /** UTF-8 names, sizes and CRC in the data descriptor. */
+        private static final int FLAGS = 0x0808;
+
+        private final byte[] name;
+
+        private final long time;
+
+        private final long offset;
+
+        private long crc;
+
+        private long size;
+
+        private long compressedSize;
+
+        CentralEntry(String name, long time, long offset) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.time = time;
+            this.offset = offset;
+        }
+
+        void writeLocal(OutputStream out) throws IOException {
+            writeInt(out, 0x04034b50L);
+            writeShort(out, 20);
+            writeShort(out, FLAGS);
+            writeShort(out, ZipEntry.DEFLATED);
+            writeInt(out, time);
+            writeInt(out, 0);
+            writeInt(out, 0);
+            writeInt(out, 0);
+            writeShort(out, name.length);
+            writeShort(out, 0);
+            out.write(name);
+        }
+
+        void writeDescriptor(OutputStream out) throws IOException {
+            writeInt(out, 0x08074b50L);
+            writeInt(out, crc);
+            writeInt(out, compressedSize);
+            writeInt(out, size);
+        }
+
+        void writeCentral(OutputStream out) throws IOException {
+            writeInt(out, 0x02014b50L);
+            writeShort(out, 20);
+            writeShort(out, 20);
+            writeShort(out, FLAGS);
+            writeShort(out, ZipEntry.DEFLATED);
+            writeInt(out, time);
+            writeInt(out, crc);
+            writeInt(out, compressedSize);
+            writeInt(out, size);
+            writeShort(out, name.length);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeInt(out, 0);
+            writeInt(out, offset);
+            out.write(name);
+        }
+    }
+
+    /**
+     * Keeps track of the archive offsets.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * The request stream is closed by the transport, not by the zip stream.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.index;
+
+import it.geosolutions.geoserver.rest.decoder.RESTCompactLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactResource;
+
+/**
+ * Immutable lat/lon bounds of a published layer, as stored in a {@link LayerSpatialIndex}.
+ */
+public final class LayerBounds {
+
+    private final String name;
+
+    private final String workspace;
+
+    private final String storeName;
+
+    private final String resourceName;
+
+    private final String crs;
+
+    private final double minX;
+
+    private final double minY;
+
+    private final double maxX;
+
+    private final double maxY;
+
+    /**
+     * @param workspace the workspace of the layer
+     * @param name the name of the layer, without workspace
+     * @throws IllegalArgumentException if the bounds are NaN or inverted
+     */
+    public LayerBounds(String workspace, String name, String storeName, String resourceName,
+            String crs, double minX, double minY, double maxX, double maxY)
+            throws IllegalArgumentException {
+        if (!(minX <= maxX && minY <= maxY)) {
+            throw new IllegalArgumentException("Invalid bounds for " + name + ": " + minX + ","
+                    + minY + "," + maxX + "," + maxY);
+        }
+        this.workspace = workspace;
+        this.name = name;
+        this.storeName = storeName;
+        this.resourceName = resourceName;
+        this.crs = crs;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * @return the bounds of the layer, or null if its resource has no lat/lon bounding box.
+     */
+    public static LayerBounds of(RESTCompactLayer layer, RESTCompactResource resource) {
+        if (!resource.hasBounds() || !(resource.getMinX() <= resource.getMaxX())
+                || !(resource.getMinY() <= resource.getMaxY())) {
+            return null;
+        }
+        return new LayerBounds(resource.getNameSpace(), layer.getName(), resource.getStoreName(),
+                resource.getName(), resource.getCRS(), resource.getMinX(), resource.getMinY(),
+                resource.getMaxX(), resource.getMaxY());
+    }
+
+    /**
+     * @return the qualified name of the layer, i.e. <TT>workspace:name</TT>.
+     */
+    public String getKey() {
+        return key(workspace, name);
+    }
+
+    static String key(String workspace, String name) {
+        return workspace == null ? name : workspace + ":" + name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * @return the name of the store, possibly prefixed by its workspace as returned by GeoServer.
+     */
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    public String getCRS() {
+        return crs;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+    }
+
+    public boolean contains(double x, double y) {
+        return minX <= x && x <= maxX && minY <= y && y <= maxY;
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + "[" + minX + "," + minY + "," + maxX + "," + maxY + "]";
+    }
+}
@@ -0,0 +1,576 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.index;
+
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactResource;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerList;
+import it.geosolutions.geoserver.rest.http.RequestListener;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory spatial index of the lat/lon bounding boxes of the published
+ * layers, answering "which layers intersect this envelope" with no request to
+ * GeoServer.
+ * <P>
+ * The bounds are kept in an {@link STRtree}; the layers added or removed since
+ * it was packed are kept aside, and the tree is packed again once they are
+ * many enough.
+ * <P>
+ * The index can follow the changes made through the client: registered as the
+ * {@link RequestListener} of the transport, it records the layers, resources,
+ * stores and workspaces successfully modified or removed. The changes are
+ * applied by {@link #update()}, which reads the modified layers again, either
+ * called explicitly or run periodically in background:
+ * <PRE>
+ * LayerSpatialIndex index = new LayerSpatialIndex(manager.getReader());
+ * transport.setRequestListener(index);
+ * index.build();
+ * index.startUpdates(1, TimeUnit.SECONDS);
+ * List&lt;LayerBounds&gt; layers = index.query(10, 40, 12, 42);
+ * </PRE>
+ * Use {@link RequestListener#chain(RequestListener...)} to keep another listener
+ * on the same transport.
+ * <BR>
+ * Only the lat/lon bounds are indexed: the native bounds of different layers
+ * are in different CRSs, and cannot be compared.
+ * <BR>
+ * The index is thread-safe. Queries only read the current state: they never
+ * block, nor send requests to GeoServer.
+ */
+public class LayerSpatialIndex implements RequestListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LayerSpatialIndex.class);
+
+    /** Min number of changes triggering a new packing. */
+    private static final int MIN_REPACK = 64;
+
+    /**
+     * An immutable state of the index.
+     */
+    private static final class Snapshot {
+
+        final STRtree tree;
+
+        /** All the layers, by key. */
+        final Map<String, LayerBounds> layers;
+
+        /** Layers not in the tree. */
+        final List<LayerBounds> added;
+
+        /** Keys of the layers of the tree which were removed or replaced. */
+        final Set<String> removed;
+
+        Snapshot(STRtree tree, Map<String, LayerBounds> layers, List<LayerBounds> added,
+                Set<String> removed) {
+            this.tree = tree;
+            this.layers = layers;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    /**
+     * What a change does to the matching layers.
+     */
+    private enum Kind {
+        /** The layers are removed. */
+        REMOVE,
+        /** The layer is read again. */
+        REFRESH
+    }
+
+    /**
+     * A change seen by the listener, to be applied at the next update.
+     */
+    private static final class Change {
+
+        final Kind kind;
+
+        final String workspace;
+
+        final String store;
+
+        final String name;
+
+        Change(Kind kind, String workspace, String store, String name) {
+            this.kind = kind;
+            this.workspace = workspace;
+            this.store = store;
+            this.name = name;
+        }
+    }
+
+    private final GeoServerRESTReader reader;
+
+    private volatile Snapshot snapshot = new Snapshot(new STRtree(Collections.<LayerBounds> emptyList()),
+            Collections.<String, LayerBounds> emptyMap(), Collections.<LayerBounds> emptyList(),
+            Collections.<String> emptySet());
+
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<Change>();
+
+    /** New layers may exist: one listing covers any number of such changes. */
+    private volatile boolean discoverPending;
+
+    /** Serializes the updates, which send requests, apart from the snapshot changes. */
+    private final Object updateLock = new Object();
+
+    private ScheduledExecutorService updater;
+
+    /**
+     * @param reader the reader used to load the layers; may be null if the
+     *        index is only fed through {@link #put(LayerBounds)}.
+     */
+    public LayerSpatialIndex(GeoServerRESTReader reader) {
+        this.reader = reader;
+    }
+
+    // ==========================================================================
+    // === QUERIES
+    // ==========================================================================
+
+    /**
+     * @return the layers whose bounds intersect the given lat/lon envelope.
+     */
+    public List<LayerBounds> query(double minX, double minY, double maxX, double maxY) {
+        Snapshot s = snapshot;
+        List<LayerBounds> result = new ArrayList<LayerBounds>();
+        s.tree.query(minX, minY, maxX, maxY, result);
+        if (!s.removed.isEmpty()) {
+            for (Iterator<LayerBounds> it = result.iterator(); it.hasNext();) {
+                LayerBounds b = it.next();
+                if (s.removed.contains(b.getKey()) && s.layers.get(b.getKey()) != b) {
+                    it.remove();
+                }
+            }
+        }
+        for (LayerBounds b : s.added) {
+            if (b.intersects(minX, minY, maxX, maxY)) {
+                result.add(b);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the layers whose bounds contain the given lat/lon point.
+     */
+    public List<LayerBounds> query(double x, double y) {
+        return query(x, y, x, y);
+    }
+
+    /**
+     * @param key the qualified name of the layer, i.e. <TT>workspace:name</TT>
+     * @return the bounds of the layer, or null if it is not indexed.
+     */
+    public LayerBounds get(String key) {
+        return snapshot.layers.get(key);
+    }
+
+    /**
+     * @return the number of indexed layers.
+     */
+    public int size() {
+        return snapshot.layers.size();
+    }
+
+    // ==========================================================================
+    // === UPDATES
+    // ==========================================================================
+
+    /**
+     * Loads the bounds of all the layers, replacing the current content.
+     *
+     * @return false if the layers could not be listed.
+     */
+    public boolean build() {
+        checkReader();
+        RESTLayerList list = reader.getLayers();
+        if (list == null) {
+            return false;
+        }
+        changes.clear();
+        List<LayerBounds> all = new ArrayList<LayerBounds>(list.size());
+        for (String name : list.getQualifiedNames()) {
+            LayerBounds bounds = load(name);
+            if (bounds != null) {
+                all.add(bounds);
+            }
+        }
+        synchronized (this) {
+            Map<String, LayerBounds> layers = new HashMap<String, LayerBounds>();
+            for (LayerBounds b : all) {
+                layers.put(b.getKey(), b);
+            }
+            snapshot = pack(layers);
+        }
+        return true;
+    }
+
+    /**
+     * Adds or replaces the bounds of a layer.
+     */
+    public synchronized void put(LayerBounds bounds) {
+        Snapshot s = snapshot;
+        Map<String, LayerBounds> layers = new HashMap<String, LayerBounds>(s.layers);
+        LayerBounds old = layers.put(bounds.getKey(), bounds);
+        List<LayerBounds> added = new ArrayList<LayerBounds>(s.added.size() + 1);
+        for (LayerBounds b : s.added) {
+            if (b != old) {
+                added.add(b);
+            }
+        }
+        added.add(bounds);
+        Set<String> removed = s.removed;
+        if (old != null && !s.added.contains(old)) {
+            removed = new HashSet<String>(s.removed);
+            removed.add(old.getKey());
+        }
+        publish(layers, added, removed);
+    }
+
+    /**
+     * Removes a layer from the index.
+     *
+     * @param key the qualified name of the layer, i.e. <TT>workspace:name</TT>
+     * @return false if the layer was not indexed.
+     */
+    public boolean remove(String key) {
+        return removeMatching(null, null, key) > 0;
+    }
+
+    /**
+     * Reads the bounds of a layer again, adding, replacing or removing it.
+     *
+     * @param workspace the workspace of the layer
+     * @param name the name of the layer
+     */
+    public void refresh(String workspace, String name) {
+        checkReader();
+        LayerBounds bounds = load(LayerBounds.key(workspace, name));
+        if (bounds != null) {
+            put(bounds);
+        } else {
+            remove(LayerBounds.key(workspace, name));
+        }
+    }
+
+    /**
+     * @return true if the listener recorded changes not applied yet.
+     */
+    public boolean hasPendingChanges() {
+        return !changes.isEmpty() || discoverPending;
+    }
+
+    /**
+     * Applies the changes recorded by the listener, reading the modified layers
+     * again; the queries keep reading the previous state meanwhile.
+     */
+    public void update() {
+        if (!hasPendingChanges()) {
+            return;
+        }
+        synchronized (updateLock) {
+            Change change;
+            while ((change = changes.poll()) != null) {
+                try {
+                    apply(change);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Unable to update the spatial index: " + e);
+                }
+            }
+            if (discoverPending) {
+                // cleared first, so that changes seen while listing are not lost
+                discoverPending = false;
+                try {
+                    discover();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Unable to update the spatial index: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #update()} periodically in a background daemon thread,
+     * replacing any previous schedule.
+     *
+     * @param period the time between the end of an update and the next one
+     * @param unit the unit of the period
+     */
+    public synchronized void startUpdates(long period, TimeUnit unit) {
+        stopUpdates();
+        updater = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread thread = new Thread(r, "geoserver-manager-spatial-index-updater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        updater.scheduleWithFixedDelay(() -> {
+            try {
+                update();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to update the spatial index: " + e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the background updates, if any.
+     */
+    public synchronized void stopUpdates() {
+        if (updater != null) {
+            updater.shutdownNow();
+            updater = null;
+        }
+    }
+
+    private void apply(Change change) {
+        if (change.kind == Kind.REMOVE) {
+            removeMatching(change.workspace, change.store, change.name);
+        } else {
+            refresh(change.workspace, change.name);
+        }
+    }
+
+    /**
+     * Lists the layers, loading the ones not indexed yet and removing the ones
+     * which do not exist anymore.
+     */
+    private void discover() {
+        RESTLayerList list = reader.getLayers();
+        if (list == null) {
+            return;
+        }
+        Snapshot s = snapshot;
+        Set<String> listed = new HashSet<String>();
+        Set<String> names = new HashSet<String>();
+        for (String name : list.getQualifiedNames()) {
+            listed.add(name);
+            names.add(name.substring(name.indexOf(':') + 1));
+        }
+        for (String name : listed) {
+            if (!s.layers.containsKey(name) && !(name.indexOf(':') < 0 && containsName(s, name))) {
+                LayerBounds bounds = load(name);
+                if (bounds != null) {
+                    put(bounds);
+                }
+            }
+        }
+        for (LayerBounds b : snapshot.layers.values()) {
+            if (!listed.contains(b.getKey()) && !names.contains(b.getName())) {
+                remove(b.getKey());
+            }
+        }
+    }
+
+    private static boolean containsName(Snapshot s, String name) {
+        for (LayerBounds b : s.layers.values()) {
+            if (b.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the layers matching all the non null arguments.
+     *
+     * @param name the name of the layer, or of its resource, possibly qualified
+     * @return the number of removed layers
+     */
+    private synchronized int removeMatching(String workspace, String store, String name) {
+        if (name != null && name.indexOf(':') > 0) {
+            workspace = name.substring(0, name.indexOf(':'));
+            name = name.substring(name.indexOf(':') + 1);
+        }
+        Snapshot s = snapshot;
+        Map<String, LayerBounds> layers = new HashMap<String, LayerBounds>(s.layers);
+        Set<String> removed = new HashSet<String>(s.removed);
+        List<LayerBounds> added = new ArrayList<LayerBounds>(s.added);
+        int count = 0;
+        for (Iterator<LayerBounds> it = layers.values().iterator(); it.hasNext();) {
+            LayerBounds b = it.next();
+            if ((workspace == null || workspace.equals(b.getWorkspace()))
+                    && (store == null || store.equals(b.getStoreName())
+                            || b.getStoreName() != null && b.getStoreName().endsWith(":" + store))
+                    && (name == null || name.equals(b.getName()) || name.equals(b.getResourceName()))) {
+                it.remove();
+                if (!added.remove(b)) {
+                    removed.add(b.getKey());
+                }
+                count++;
+            }
+        }
+        if (count > 0) {
+            publish(layers, added, removed);
+        }
+        return count;
+    }
+
+    private void publish(Map<String, LayerBounds> layers, List<LayerBounds> added, Set<String> removed) {
+        if (added.size() + removed.size() > Math.max(MIN_REPACK, layers.size() / 16)) {
+            snapshot = pack(layers);
+        } else {
+            snapshot = new Snapshot(snapshot.tree, layers, added, removed);
+        }
+    }
+
+    private static Snapshot pack(Map<String, LayerBounds> layers) {
+        return new Snapshot(new STRtree(layers.values()), layers, Collections.<LayerBounds> emptyList(),
+                Collections.<String> emptySet());
+    }
+
+    /**
+     * @param name the name of the layer, qualified or not
+     * @return the bounds of the layer, or null if it does not exist or has no bounds.
+     */
+    private LayerBounds load(String name) {
+        RESTCompactLayer layer;
+        int colon = name.indexOf(':');
+        if (colon > 0) {
+            layer = reader.getCompactLayer(name.substring(0, colon), name.substring(colon + 1));
+        } else {
+            @SuppressWarnings("deprecation")
+            RESTCompactLayer unqualified = RESTCompactLayer.of(reader.getLayer(name));
+            layer = unqualified;
+        }
+        if (layer == null) {
+            return null;
+        }
+        RESTCompactResource resource = reader.getCompactResource(layer);
+        if (resource == null) {
+            return null;
+        }
+        return LayerBounds.of(layer, resource);
+    }
+
+    private void checkReader() {
+        if (reader == null) {
+            throw new IllegalStateException("No reader to load the layers from");
+        }
+    }
+
+    // ==========================================================================
+    // === LISTENER
+    // ==========================================================================
+
+    public void requestStarted(String method, String url) {
+    }
+
+    /**
+     * Records the changes made by successful requests, to be applied at the next update.
+     */
+    public void requestCompleted(String method, String url, int status, long bytesSent,
+            long bytesReceived, long nanos) {
+        if (status < 200 || status >= 300 || method.equals("GET") || method.equals("HEAD")
+                || reader == null) {
+            return;
+        }
+        String[] path = restPath(url);
+        if (path == null) {
+            return;
+        }
+        boolean delete = method.equals("DELETE");
+        if (path[0].equals("layers") && path.length == 2) {
+            String[] qualified = path[1].split(":", 2);
+            String workspace = qualified.length == 2 ? qualified[0] : null;
+            String name = qualified[qualified.length - 1];
+            if (delete) {
+                changes.add(new Change(Kind.REMOVE, workspace, null, name));
+            } else if (workspace != null) {
+                changes.add(new Change(Kind.REFRESH, workspace, null, name));
+            } else {
+                discoverPending = true;
+            }
+        } else if (path[0].equals("workspaces") && path.length >= 2) {
+            String workspace = path[1];
+            boolean store = path.length >= 4 && path[2].endsWith("stores");
+            boolean resource = store && path.length >= 6 && (path[4].equals("featuretypes")
+                    || path[4].equals("coverages") || path[4].equals("wmslayers"));
+            if (delete) {
+                if (path.length == 2) {
+                    changes.add(new Change(Kind.REMOVE, workspace, null, null));
+                } else if (store && path.length == 4) {
+                    changes.add(new Change(Kind.REMOVE, workspace, path[3], null));
+                } else if (resource && path.length == 6) {
+                    changes.add(new Change(Kind.REMOVE, workspace, path[3], path[5]));
+                }
+            } else if (resource && path.length == 6 && method.equals("PUT")) {
+                changes.add(new Change(Kind.REFRESH, workspace, null, path[5]));
+            } else if (store) {
+                // new resources and uploads: the names are in the bodies
+                discoverPending = true;
+            }
+        }
+    }
+
+    /**
+     * @return the segments of the path following <TT>/rest/</TT>, without
+     *         extension, or null if the URL is not a REST one.
+     */
+    static String[] restPath(String url) {
+        String path;
+        try {
+            path = URI.create(url).getRawPath();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int rest = path == null ? -1 : path.indexOf("/rest/");
+        if (rest < 0) {
+            return null;
+        }
+        path = path.substring(rest + 6);
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot > slash) {
+            path = path.substring(0, dot);
+        }
+        String[] segments = path.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = URLDecoder.decode(segments[i], StandardCharsets.UTF_8);
+        }
+        return segments;
+    }
+}
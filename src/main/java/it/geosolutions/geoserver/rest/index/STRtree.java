@@ -0,0 +1,142 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A static R-tree packed with the Sort-Tile-Recursive algorithm.
+ * <P>
+ * The leaves are sorted in tiles: vertical slices by center X, each slice by
+ * center Y, and packed {@value #NODE_CAPACITY} per node. Each upper level
+ * groups {@value #NODE_CAPACITY} consecutive nodes of the level below, so that
+ * the tree is stored in flat arrays, with no node objects.
+ */
+final class STRtree {
+
+    static final int NODE_CAPACITY = 16;
+
+    private final LayerBounds[] items;
+
+    /** Boxes of each level, bottom up: level 0 are the items, the last level is the root. */
+    private final double[][] minX;
+
+    private final double[][] minY;
+
+    private final double[][] maxX;
+
+    private final double[][] maxY;
+
+    STRtree(Collection<LayerBounds> bounds) {
+        items = bounds.toArray(new LayerBounds[bounds.size()]);
+        sort(items);
+
+        int levels = 1;
+        for (int n = items.length; n > 1; n = (n + NODE_CAPACITY - 1) / NODE_CAPACITY) {
+            levels++;
+        }
+        minX = new double[levels][];
+        minY = new double[levels][];
+        maxX = new double[levels][];
+        maxY = new double[levels][];
+
+        int n = items.length;
+        minX[0] = new double[n];
+        minY[0] = new double[n];
+        maxX[0] = new double[n];
+        maxY[0] = new double[n];
+        for (int i = 0; i < n; i++) {
+            minX[0][i] = items[i].getMinX();
+            minY[0][i] = items[i].getMinY();
+            maxX[0][i] = items[i].getMaxX();
+            maxY[0][i] = items[i].getMaxY();
+        }
+        for (int level = 1; level < levels; level++) {
+            int children = n;
+            n = (children + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            minX[level] = new double[n];
+            minY[level] = new double[n];
+            maxX[level] = new double[n];
+            maxY[level] = new double[n];
+            for (int node = 0; node < n; node++) {
+                double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+                for (int c = node * NODE_CAPACITY, end = Math.min(c + NODE_CAPACITY, children); c < end; c++) {
+                    x0 = Math.min(x0, minX[level - 1][c]);
+                    y0 = Math.min(y0, minY[level - 1][c]);
+                    x1 = Math.max(x1, maxX[level - 1][c]);
+                    y1 = Math.max(y1, maxY[level - 1][c]);
+                }
+                minX[level][node] = x0;
+                minY[level][node] = y0;
+                maxX[level][node] = x1;
+                maxY[level][node] = y1;
+            }
+        }
+    }
+
+    private static void sort(LayerBounds[] items) {
+        int leaves = (items.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(leaves));
+        int sliceSize = slices * NODE_CAPACITY;
+        Arrays.sort(items, Comparator.comparingDouble((LayerBounds b) -> b.getMinX() + b.getMaxX()));
+        for (int from = 0; from < items.length; from += sliceSize) {
+            Arrays.sort(items, from, Math.min(from + sliceSize, items.length),
+                    Comparator.comparingDouble((LayerBounds b) -> b.getMinY() + b.getMaxY()));
+        }
+    }
+
+    int size() {
+        return items.length;
+    }
+
+    /**
+     * Adds to the result the items intersecting the given envelope.
+     */
+    void query(double x0, double y0, double x1, double y1, List<LayerBounds> result) {
+        if (items.length > 0) {
+            search(minX.length - 1, 0, x0, y0, x1, y1, result);
+        }
+    }
+
+    private void search(int level, int node, double x0, double y0, double x1, double y1,
+            List<LayerBounds> result) {
+        if (minX[level][node] > x1 || maxX[level][node] < x0 || minY[level][node] > y1
+                || maxY[level][node] < y0) {
+            return;
+        }
+        if (level == 0) {
+            result.add(items[node]);
+            return;
+        }
+        int children = minX[level - 1].length;
+        for (int c = node * NODE_CAPACITY, end = Math.min(c + NODE_CAPACITY, children); c < end; c++) {
+            search(level - 1, c, x0, y0, x1, y1, result);
+        }
+    }
+}
@@ -25,6 +25,8 @@
 package it.geosolutions.geoserver.rest.manager;
 
 import it.geosolutions.geoserver.rest.HTTPUtils;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -41,6 +43,7 @@ public abstract class GeoServerRESTAbstractManager {
     protected final URL gsBaseUrl;
     protected final String gsuser;
     protected final String gspass;
+    protected final HTTPTransport transport;
 
     /**
      * Default constructor.
@@ -53,8 +56,22 @@ public abstract class GeoServerRESTAbstractManager {
      */
     public GeoServerRESTAbstractManager(URL restURL, String username, String password)
         throws IllegalArgumentException {
+        this(restURL, username, password, PooledHTTPTransport.getDefault());
+    }
+
+    /**
+     * Indicates connection parameters to remote GeoServer instance, and the
+     * transport to be used to talk to it.
+     * 
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     * @param transport the HTTP transport, possibly shared with other managers
+     */
+    public GeoServerRESTAbstractManager(URL restURL, String username, String password,
+            HTTPTransport transport) throws IllegalArgumentException {
         try {
-            if (restURL == null || username == null || password == null)
+            if (restURL == null || username == null || password == null || transport == null)
                 throw new IllegalArgumentException("Unable to create the manager using a null argument");
 
             this.gsBaseUrl = new URL(restURL.getProtocol(), restURL.getHost(), restURL.getPort(),
@@ -62,6 +79,7 @@ public abstract class GeoServerRESTAbstractManager {
 
             this.gsuser = username;
             this.gspass = password;
+            this.transport = transport;
 
         } catch (MalformedURLException ex) {
             throw new IllegalArgumentException("URL can't be parsed properly", ex);
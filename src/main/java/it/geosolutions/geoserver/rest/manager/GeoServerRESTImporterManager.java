@@ -25,6 +25,8 @@
 package it.geosolutions.geoserver.rest.manager;
 
 import it.geosolutions.geoserver.rest.HTTPUtils;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
+import it.geosolutions.geoserver.rest.http.ProgressListener;
 
 import java.io.File;
 import java.io.IOException;
@@ -33,6 +35,7 @@ import java.net.URL;
 import net.sf.json.JSON;
 import net.sf.json.JSONObject;
 
+import org.apache.commons.io.FileUtils;
 import org.restlet.data.MediaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +47,14 @@ import org.slf4j.LoggerFactory;
 public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(GeoServerRESTImporterManager.class);
-    
+
+    /** System property overriding the default folder of the temporary files. */
+    public static final String TMP_DIR_PROPERTY = "geoserver.manager.tmpdir";
+
+    private volatile File tempDirectory;
+
+    private volatile ZipExtractor extractor = new ZipExtractor();
+
     /**
      * Default constructor.
      *
@@ -57,13 +67,52 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
         super(restURL, username, password);
     }
 
+    /**
+     * Constructor sharing the given HTTP transport.
+     *
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     * @param transport the HTTP transport used to talk to GeoServer
+     */
+    public GeoServerRESTImporterManager(URL restURL, String username, String password,
+            HTTPTransport transport) throws IllegalArgumentException {
+        super(restURL, username, password, transport);
+    }
+
+    /**
+     * Sets the folder where zip files are expanded before being uploaded.
+     * 
+     * @param dir the folder; null to use {@link #tmpDir()}
+     */
+    public void setTempDirectory(File dir) {
+        this.tempDirectory = dir;
+    }
+
+    /**
+     * @return the folder where zip files are expanded, or null if it is the default one.
+     */
+    public File getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * Sets the number of entries inflated at the same time when expanding zip files.
+     * Defaults to the number of available processors.
+     * 
+     * @param parallelism the number of threads
+     */
+    public void setUnpackParallelism(int parallelism) {
+        this.extractor = new ZipExtractor(parallelism);
+    }
+
     /**
      * Retrieves the Import JSON Object given its identifier
      * 
      * @param imp int: Import context number ID
      */
     public JSONObject getImport(int imp) throws Exception {
-        JSON json = HTTPUtils.getAsJSON(String.format(buildUrl()+"/%d", imp), gsuser , gspass);
+        JSON json = transport.getAsJSON(String.format(buildUrl()+"/%d", imp), gsuser , gspass);
         return ((JSONObject)json).getJSONObject("import");
     }
 
@@ -74,7 +123,7 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
      * @param task int: Task number
      */
     public JSONObject getTask(int imp, int task) throws Exception {
-        JSON json = HTTPUtils.getAsJSON(String.format(buildUrl()+"/%d/tasks/%d?expand=all", imp, task), gsuser , gspass);
+        JSON json = transport.getAsJSON(String.format(buildUrl()+"/%d/tasks/%d?expand=all", imp, task), gsuser , gspass);
         return ((JSONObject)json).getJSONObject("task");
     }
 
@@ -139,8 +188,8 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
      * @throws Exception
      */
     public void putTask(int imp, int task, final String json) throws Exception {
-        //HTTPUtils.putJson(String.format(buildUrl()+"/%d/tasks/%d", imp, task), json, gsuser, gspass);
-        HTTPUtils.put(String.format(buildUrl()+"/%d/tasks/%d", imp, task), json, "text/plain", gsuser, gspass);
+        //transport.putJson(String.format(buildUrl()+"/%d/tasks/%d", imp, task), json, gsuser, gspass);
+        transport.put(String.format(buildUrl()+"/%d/tasks/%d", imp, task), json, "text/plain", gsuser, gspass);
     }
 
     /**
@@ -157,7 +206,7 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
      * @throws Exception
      */
     public void putTaskLayer(int imp, int task, final String json) throws Exception {
-        HTTPUtils.putJson(String.format(buildUrl()+"/%d/tasks/%d/layer", imp, task), json, gsuser, gspass);
+        transport.putJson(String.format(buildUrl()+"/%d/tasks/%d/layer", imp, task), json, gsuser, gspass);
     }
     
     /**
@@ -174,7 +223,7 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
      * @throws Exception
      */
     public void postTaskTransform(int imp, int task, final String json) throws Exception {
-        HTTPUtils.postJson(String.format(buildUrl()+"/%d/tasks/%d/transforms", imp, task), json, gsuser, gspass);
+        transport.postJson(String.format(buildUrl()+"/%d/tasks/%d/transforms", imp, task), json, gsuser, gspass);
     }
 
     /**
@@ -208,8 +257,8 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
      * @throws Exception
      */
     public int postNewImport(String body) throws Exception {
-        String resp = body == null ? HTTPUtils.post(buildUrl(), "", "text/plain", gsuser, gspass)
-            : HTTPUtils.postJson(buildUrl(), body, gsuser, gspass);
+        String resp = body == null ? transport.post(buildUrl(), "", "text/plain", gsuser, gspass)
+            : transport.postJson(buildUrl(), body, gsuser, gspass);
         
         JSONObject json = (JSONObject) HTTPUtils.json(resp);
         JSONObject imprt = json.getJSONObject("import");
@@ -223,7 +272,7 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
      * @throws Exception
      */
     public void postImport(int imp) throws Exception {
-        HTTPUtils.post(buildUrl()+"/" + imp + "?exec=true", "", "text/plain", gsuser, gspass);
+        transport.post(buildUrl()+"/" + imp + "?exec=true", "", "text/plain", gsuser, gspass);
     }
 
     /**
@@ -234,8 +283,35 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
      * @throws Exception
      */
     public int postNewTaskAsMultiPartForm(int imp, String data) throws Exception {
-        String resp = HTTPUtils.postMultipartForm(buildUrl()+"/" + imp + "/tasks", unpack(data), gsuser, gspass);
-        
+        return postNewTaskAsMultiPartForm(imp, data, null);
+    }
+
+    /**
+     * Uploads the content of a zip file as a new task; the files are streamed
+     * from disk, whatever their size.
+     * <P>
+     * The archive is expanded into a temporary folder (see {@link #setTempDirectory(File)}),
+     * which is deleted once the upload is over.
+     * 
+     * @param imp int: Import context number ID
+     * @param data path of the zip file
+     * @param listener notified while the files are uploaded; may be null
+     * @return the new task ID
+     * @throws Exception
+     */
+    public int postNewTaskAsMultiPartForm(int imp, String data, ProgressListener listener) throws Exception {
+        File dir = tmpDir(tempDirectory);
+        String resp;
+        try {
+            extractor.extract(new File(data), dir);
+            resp = transport.postMultipartForm(buildUrl()+"/" + imp + "/tasks", dir, gsuser, gspass, listener);
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+        if (resp == null) {
+            throw new IOException("Unable to create a task from " + data);
+        }
+
         JSONObject json = (JSONObject) HTTPUtils.json(resp);
 
         JSONObject task = json.getJSONObject("task");
@@ -253,7 +329,7 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
     public int putNewTask(int imp, String path) throws Exception {
         File zip = new File(path);
 
-        String resp = HTTPUtils.put(buildUrl()+"/" + imp + "/tasks/" + zip.getName(), zip, MediaType.APPLICATION_ZIP.toString(), gsuser, gspass);
+        String resp = transport.put(buildUrl()+"/" + imp + "/tasks/" + zip.getName(), zip, MediaType.APPLICATION_ZIP.toString(), gsuser, gspass);
 
         JSONObject json = (JSONObject) HTTPUtils.json(resp);
 
@@ -275,47 +351,54 @@ public class GeoServerRESTImporterManager extends GeoServerRESTAbstractManager {
     }
 
     /**
-     * Creates a temporary file
+     * Creates a temporary folder, in the folder given by the
+     * <TT>geoserver.manager.tmpdir</TT> system property if set, otherwise
+     * in <TT>java.io.tmpdir</TT>.
      * 
-     * @return Path to the temporary file
+     * @return Path to the temporary folder
      * @throws Exception
      */
     public static File tmpDir() throws Exception {
-        File dir = File.createTempFile("importer", "data", new File("target"));
+        return tmpDir(null);
+    }
+
+    private static File tmpDir(File parent) throws IOException {
+        if (parent == null) {
+            String property = System.getProperty(TMP_DIR_PROPERTY);
+            parent = new File(property != null ? property : System.getProperty("java.io.tmpdir"));
+        }
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create the temporary folder " + parent);
+        }
+        File dir = File.createTempFile("importer", "data", parent);
         dir.delete();
         dir.mkdirs();
         return dir;
     }
     
     /**
-     * Expands a zip archive into the temporary folder.
+     * Expands a zip archive into a temporary folder.
      * 
      * @param path The absolute path to the source zip file
      * @return Path to the temporary folder containing the expanded files
      * @throws Exception
+     * @see #tmpDir()
      */
     public static File unpack(String path) throws Exception {
         return unpack(path, tmpDir());
     }
     
     /**
-     * Expands a zip archive into the target folder.
+     * Expands a zip archive into the target folder, inflating the entries in parallel.
      * 
      * @param path The absolute path to the source zip file
      * @param dir Full path of the target folder where to expand the archive
      * @return Path to the temporary folder containing the expanded files
      * @throws Exception
+     * @see ZipExtractor
      */
     public static File unpack(String path, File dir) throws Exception {
-        
-        File file = new File(path);
-        
-        //new VFSWorker().extractTo(file, dir);
-        if (!file.delete()) {
-            // fail early as tests will expect it's deleted
-            throw new IOException("deletion failed during extraction");
-        }
-        
+        new ZipExtractor().extract(new File(path), dir);
         return dir;
     }
 }
@@ -26,6 +26,7 @@ package it.geosolutions.geoserver.rest.manager;
 
 import it.geosolutions.geoserver.rest.GeoServerRESTPublisher.UploadMethod;
 import it.geosolutions.geoserver.rest.HTTPUtils;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
 import it.geosolutions.geoserver.rest.decoder.RESTStructuredCoverageGranulesList;
 import it.geosolutions.geoserver.rest.decoder.RESTStructuredCoverageIndexSchema;
 
@@ -81,6 +82,19 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
             String password) throws IllegalArgumentException {
         super(restURL, username, password);
     }
+
+    /**
+     * Constructor sharing the given HTTP transport.
+     *
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     * @param transport the HTTP transport used to talk to GeoServer
+     */
+    public GeoServerRESTStructuredGridCoverageReaderManager(URL restURL, String username, String password,
+            HTTPTransport transport) throws IllegalArgumentException {
+        super(restURL, username, password, transport);
+    }
     
     /**
      * Create a new ImageMosaic with the provided configuration provided as a zip file.
@@ -156,7 +170,7 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
         String sUrl = ss.toString();
 
         // POST request
-        String result = HTTPUtils.put(sUrl, zipFile, "application/zip", gsuser, gspass);
+        String result = transport.put(sUrl, zipFile, "application/zip", gsuser, gspass);
         return result != null;
     }
     
@@ -184,7 +198,7 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
                 coverageStore, "/", UploadMethod.EXTERNAL.toString(), ".", format).toString();
 
         // POST request
-        String result = HTTPUtils.post(sUrl, "file://" + path, "text/plain", gsuser, gspass);
+        String result = transport.post(sUrl, "file://" + path, "text/plain", gsuser, gspass);
         return result != null;
     }
 
@@ -254,7 +268,7 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
         String sUrl = HTTPUtils.append(gsBaseUrl, "/rest/workspaces/", workspace, "/coveragestores",
                 "/", coverageStore, "/coverages/", coverage, "/index/granules?filter=",
                 URLEncoder.encode(filter, "UTF-8")).toString();
-        if (!HTTPUtils.delete(sUrl, gsuser, gspass)) {
+        if (!transport.delete(sUrl, gsuser, gspass)) {
             return false;
         }
 
@@ -325,7 +339,7 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
         String sUrl = HTTPUtils.append(gsBaseUrl, "/rest/workspaces/", workspace, "/coveragestores",
                 "/", coverageStore, "/coverages/", coverage, "/index/granules/", granuleId)
                 .toString();
-        if (!HTTPUtils.delete(sUrl, gsuser, gspass)) {
+        if (!transport.delete(sUrl, gsuser, gspass)) {
             return false;
         }
 
@@ -374,7 +388,7 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
         // create URL and then call it
         String sUrl = HTTPUtils.append(gsBaseUrl, "/rest/workspaces/", workspace, "/coveragestores/",
                 coverageStore, "/coverages/", coverage, "/index.xml").toString();
-        String result = HTTPUtils.get(sUrl, gsuser, gspass);
+        String result = transport.get(sUrl, gsuser, gspass);
         if (result != null) {
             return RESTStructuredCoverageIndexSchema.build(result);
         }
@@ -450,11 +464,32 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
                     .toString();
             append = true;
         }
-        String result = HTTPUtils.get(sUrl, gsuser, gspass);
-        if (result != null) {
-            return RESTStructuredCoverageGranulesList.build(result);
-        }
-        return null;
+        return transport.get(sUrl, gsuser, gspass, RESTStructuredCoverageGranulesList::build);
+    }
+
+    /**
+     * Get a cursor over all the granules of a coverage, with optional filter.
+     * <BR>
+     * Granules are loaded one page at a time, and the next page is loaded
+     * while the current one is consumed.
+     * 
+     * @param workspace the GeoServer workspace
+     * @param coverageStore the GeoServer coverageStore
+     * @param coverage the name of the target coverage
+     * @param filter the CQL filter on the granules, can be <code>null</code> to include all the granules
+     * @param pageSize the number of granules loaded by each request
+     * 
+     * @return the {@link GranuleCursor}; it must be closed if not consumed up to the end.
+     * @throws IllegalArgumentException on bad parameters
+     */
+    public GranuleCursor getGranuleCursor(final String workspace, String coverageStore,
+            String coverage, String filter, int pageSize) throws IllegalArgumentException {
+        // checks
+        checkString(workspace);
+        checkString(coverage);
+        checkString(coverageStore);
+
+        return new GranuleCursor(this, workspace, coverageStore, coverage, filter, pageSize);
     }
 
     /**
@@ -490,10 +525,6 @@ public class GeoServerRESTStructuredGridCoverageReaderManager extends GeoServerR
         // method
         String sUrl = HTTPUtils.append(gsBaseUrl, "/rest/workspaces/", workspace, "/coveragestores/",
                 coverageStore, "/coverages/", coverage, "/index/granules/", id, ".xml").toString();
-        String result = HTTPUtils.get(sUrl, gsuser, gspass);
-        if (result != null) {
-            return RESTStructuredCoverageGranulesList.build(result);
-        }
-        return null;
+        return transport.get(sUrl, gsuser, gspass, RESTStructuredCoverageGranulesList::build);
     }
 }
@@ -24,11 +24,13 @@
  */
 package it.geosolutions.geoserver.rest.manager;
 
+import it.geosolutions.geoserver.rest.GeoServerRESTCapabilities;
 import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
-import it.geosolutions.geoserver.rest.HTTPUtils;
 import it.geosolutions.geoserver.rest.Util;
 import it.geosolutions.geoserver.rest.decoder.RESTStyle;
 import it.geosolutions.geoserver.rest.decoder.RESTStyleList;
+import it.geosolutions.geoserver.rest.http.ExistenceProbe;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -56,6 +58,8 @@ import org.xml.sax.SAXException;
 public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(GeoServerRESTStyleManager.class);
+
+    private final GeoServerRESTCapabilities capabilities;
     
     /**
      * Default constructor.
@@ -67,6 +71,38 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
     public GeoServerRESTStyleManager(URL restURL, String username, String password)
             throws IllegalArgumentException {
         super(restURL, username, password);
+        this.capabilities = null;
+    }
+
+    /**
+     * Constructor sharing the given HTTP transport.
+     *
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     * @param transport the HTTP transport used to talk to GeoServer
+     */
+    public GeoServerRESTStyleManager(URL restURL, String username, String password,
+            HTTPTransport transport) throws IllegalArgumentException {
+        this(restURL, username, password, transport, null);
+    }
+
+    /**
+     * Constructor sharing the given HTTP transport, and probing the existence
+     * of styles in the cheapest way supported by the target GeoServer.
+     *
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     * @param transport the HTTP transport used to talk to GeoServer
+     * @param capabilities the capabilities of the target GeoServer, or null
+     *        to probe with the default of the transport
+     */
+    public GeoServerRESTStyleManager(URL restURL, String username, String password,
+            HTTPTransport transport, GeoServerRESTCapabilities capabilities)
+            throws IllegalArgumentException {
+        super(restURL, username, password, transport);
+        this.capabilities = capabilities;
     }
 
     /**
@@ -89,9 +125,22 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
    public boolean existsStyle(String name, boolean quietOnNotFound) {
        String url = buildXmlUrl(null, name);
        String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-       return HTTPUtils.exists(composed , gsuser, gspass);
+       return exists(composed);
    }
 
+    private boolean exists(String url) {
+        ExistenceProbe probe = capabilities != null ? capabilities.getExistenceProbe() : null;
+        try {
+            return transport.exists(url, gsuser, gspass, probe);
+        } catch (RuntimeException e) {
+            if (capabilities != null) {
+                // the probe depends on the version, which may have changed
+                capabilities.invalidate();
+            }
+            throw e;
+        }
+    }
+
     /**
      * Get summary info about all Styles.
      *
@@ -103,8 +152,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             LOGGER.debug("### Retrieving Styles list from " + url);
         }
 
-        String response = HTTPUtils.get(gsBaseUrl + url, gsuser, gspass);
-        return RESTStyleList.build(response);
+        return transport.get(gsBaseUrl + url, gsuser, gspass, RESTStyleList::build);
     }
 
     public RESTStyle getStyle(String name) {
@@ -113,7 +161,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             LOGGER.debug("### Retrieving Style " + name + " from " + url);
         }
 
-        String response = HTTPUtils.get(url, gsuser, gspass);
+        String response = transport.get(url, gsuser, gspass);
         return RESTStyle.build(response);
     }
 
@@ -125,7 +173,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving SLD body from " + url);
         }
-        return HTTPUtils.get( url, gsuser, gspass);
+        return transport.get( url, gsuser, gspass);
     }
 
 
@@ -148,7 +196,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
    public boolean existsStyle(String workspace, String name, boolean quietOnNotFound) {
        String url = buildXmlUrl(workspace, name);
        String composed = Util.appendQuietOnNotFound(quietOnNotFound, url);
-       return HTTPUtils.exists(composed , gsuser, gspass);
+       return exists(composed);
    }
 
     /**
@@ -163,8 +211,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             LOGGER.debug("### Retrieving Styles list from " + url);
         }
 
-        String response = HTTPUtils.get(gsBaseUrl + url, gsuser, gspass);
-        return RESTStyleList.build(response);
+        return transport.get(gsBaseUrl + url, gsuser, gspass, RESTStyleList::build);
     }
 
     /**
@@ -177,7 +224,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             LOGGER.debug("### Retrieving Style " + name + " from " + url);
         }
 
-        String response = HTTPUtils.get(url, gsuser, gspass);
+        String response = transport.get(url, gsuser, gspass);
         return RESTStyle.build(response);
     }
 
@@ -190,7 +237,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Retrieving SLD body from " + url);
         }
-        return HTTPUtils.get(url, gsuser, gspass);
+        return transport.get(url, gsuser, gspass);
     }
 
     //=========================================================================
@@ -244,7 +291,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
 
         String sUrl = buildPostUrl(null, name);
 
-        final String result = HTTPUtils.post(sUrl, sldBody, "application/vnd.ogc.sld+xml", gsuser, gspass);
+        final String result = transport.post(sUrl, sldBody, "application/vnd.ogc.sld+xml", gsuser, gspass);
         return result != null;
     }
 
@@ -270,7 +317,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
     public boolean publishStyle(File sldFile, String name) {
         String sUrl = buildPostUrl(null, name);
         LOGGER.debug("POSTing new style " + name + " to " + sUrl);
-        String result = HTTPUtils.post(sUrl, sldFile, GeoServerRESTPublisher.Format.SLD.getContentType(), gsuser, gspass);
+        String result = transport.post(sUrl, sldFile, GeoServerRESTPublisher.Format.SLD.getContentType(), gsuser, gspass);
         return result != null;
     }
     
@@ -302,7 +349,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             contentType = GeoServerRESTPublisher.Format.SLD_1_1_0.getContentType();
         }
         LOGGER.debug("POSTing new style " + name + " to " + sUrl + " using version: " + contentType);
-        String result = HTTPUtils.post(sUrl.toString(), sldBody, contentType, gsuser, gspass);
+        String result = transport.post(sUrl.toString(), sldBody, contentType, gsuser, gspass);
         return result != null;
     }
     
@@ -330,7 +377,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             contentType = GeoServerRESTPublisher.Format.SLD_1_1_0.getContentType();
         }
         LOGGER.debug("POSTing new style " + name + " to " + sUrl + " using version: " + contentType);
-        String result = HTTPUtils.post(sUrl.toString(), sldFile, contentType, gsuser, gspass);
+        String result = transport.post(sUrl.toString(), sldFile, contentType, gsuser, gspass);
         return result != null;
     }
     
@@ -365,7 +412,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             contentType = GeoServerRESTPublisher.Format.SLD_1_1_0.getContentType();
         }
         LOGGER.debug("PUTting style " + name + " to " + sUrl + " using version: " + contentType);
-        String result = HTTPUtils.put(sUrl.toString(), sldFile, contentType, gsuser, gspass);
+        String result = transport.put(sUrl.toString(), sldFile, contentType, gsuser, gspass);
         return result != null;
     }
     
@@ -400,7 +447,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             contentType = GeoServerRESTPublisher.Format.SLD_1_1_0.getContentType();
         }
         LOGGER.debug("PUTting style " + name + " to " + sUrl + " using version: " + contentType);
-        String result = HTTPUtils.put(sUrl.toString(), sldBody, contentType, gsuser, gspass);
+        String result = transport.put(sUrl.toString(), sldBody, contentType, gsuser, gspass);
         return result != null;
     }
 
@@ -429,7 +476,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
 
         final String sUrl = buildUrl(null, name, null);
 
-        final String result = HTTPUtils.put(sUrl, sldBody, "application/vnd.ogc.sld+xml", gsuser, gspass);
+        final String result = transport.put(sUrl, sldBody, "application/vnd.ogc.sld+xml", gsuser, gspass);
         return result != null;
     }
 
@@ -453,7 +500,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
 
         final String sUrl = buildUrl(null, name, null);
 
-        final String result = HTTPUtils.put(sUrl, sldFile,
+        final String result = transport.put(sUrl, sldFile,
                 "application/vnd.ogc.sld+xml", gsuser, gspass);
         return result != null;
 
@@ -491,7 +538,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             sUrl += "?purge=true";
         }
 
-        return HTTPUtils.delete(sUrl, gsuser, gspass);
+        return transport.delete(sUrl, gsuser, gspass);
     }
 
     /**
@@ -554,7 +601,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             throw new IllegalArgumentException("The style body may not be null or empty");
         }
         String sUrl = buildPostUrl(workspace, name);
-        final String result = HTTPUtils.post(sUrl, sldBody, "application/vnd.ogc.sld+xml", gsuser, gspass);
+        final String result = transport.post(sUrl, sldBody, "application/vnd.ogc.sld+xml", gsuser, gspass);
         return result != null;
     }
 
@@ -582,7 +629,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
     public boolean publishStyleInWorkspace(final String workspace, File sldFile, String name) {
         String sUrl = buildPostUrl(workspace, name);
         LOGGER.debug("POSTing new style " + name + " to " + sUrl);
-        String result = HTTPUtils.post(sUrl, sldFile, GeoServerRESTPublisher.Format.SLD.getContentType(), gsuser, gspass);
+        String result = transport.post(sUrl, sldFile, GeoServerRESTPublisher.Format.SLD.getContentType(), gsuser, gspass);
         return result != null;
     }
 
@@ -606,7 +653,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
 
         final String sUrl = buildUrl(workspace, name, null);
 
-        final String result = HTTPUtils.put(sUrl, sldBody,
+        final String result = transport.put(sUrl, sldBody,
                 "application/vnd.ogc.sld+xml", gsuser, gspass);
         return result != null;
     }
@@ -632,7 +679,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
 
         final String sUrl = buildUrl(workspace, name, null);
 
-        final String result = HTTPUtils.put(sUrl, sldFile,
+        final String result = transport.put(sUrl, sldFile,
                 "application/vnd.ogc.sld+xml", gsuser, gspass);
         return result != null;
     }
@@ -668,7 +715,7 @@ public class GeoServerRESTStyleManager extends GeoServerRESTAbstractManager {
             sUrl += "?purge=true";
         }
 
-        return HTTPUtils.delete(sUrl, gsuser, gspass);
+        return transport.delete(sUrl, gsuser, gspass);
     }
 
     /**
@@ -0,0 +1,284 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.manager;
+
+import it.geosolutions.geoserver.rest.HTTPUtils;
+import it.geosolutions.geoserver.rest.http.HTTPTransport;
+import it.geosolutions.geoserver.rest.http.ProgressListener;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.apache.commons.io.IOUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads large files to the GeoServer data directory in chunks, through the
+ * <TT>/rest/resumableupload</TT> endpoint.
+ * <P>
+ * Each chunk is sent with a <TT>Content-Range</TT> header and a
+ * <TT>Content-MD5</TT> checksum. When a chunk fails, the server is asked how
+ * many bytes it holds (HTTP 308 with a <TT>Range</TT> header) and the upload
+ * restarts from there, so a dropped connection only costs the current chunk.
+ * An interrupted upload can also be resumed later through its id, see
+ * {@link #resume(String, File, ProgressListener)}.
+ * <P>
+ * Usage:<PRE>
+ * GeoServerRESTUploadManager uploads = new GeoServerRESTUploadManager(url, "admin", "geoserver");
+ * if (uploads.upload(new File("dem.tif"), "data/ws/dem/dem.tif", null)) {
+ *     // publish as external "file:data/ws/dem/dem.tif"
+ * }
+ * </PRE>
+ * The publisher does this transparently for files larger than
+ * {@link #setThreshold(long) the threshold}, as long as GeoServer can read
+ * them in place: zip archives are always sent in a single request, since
+ * GeoServer does not unpack external files.
+ */
+public class GeoServerRESTUploadManager extends GeoServerRESTAbstractManager {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(GeoServerRESTUploadManager.class);
+
+    /** Default chunk size: 8MB. */
+    public static final long DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /** Default number of consecutive failures tolerated. */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+
+    /** Default delay in milliseconds after the first failure. */
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+
+    private volatile long chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+
+    private volatile long retryDelay = DEFAULT_RETRY_DELAY;
+
+    private volatile long threshold = -1;
+
+    /**
+     * Default constructor.
+     *
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     */
+    public GeoServerRESTUploadManager(URL restURL, String username, String password)
+            throws IllegalArgumentException {
+        super(restURL, username, password);
+    }
+
+    /**
+     * Constructor sharing the given HTTP transport.
+     *
+     * @param restURL GeoServer REST API endpoint
+     * @param username GeoServer REST API authorized username
+     * @param password GeoServer REST API password for the former username
+     * @param transport the HTTP transport used to talk to GeoServer
+     */
+    public GeoServerRESTUploadManager(URL restURL, String username, String password,
+            HTTPTransport transport) throws IllegalArgumentException {
+        super(restURL, username, password, transport);
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize the number of bytes sent in each request
+     */
+    public void setChunkSize(long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param maxRetries the number of consecutive failed requests after which an upload is given up
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Retries may not be negative: " + maxRetries);
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @param retryDelay delay in milliseconds after the first failure; it grows
+     *        linearly with the consecutive failures
+     */
+    public void setRetryDelay(long retryDelay) {
+        if (retryDelay < 0) {
+            throw new IllegalArgumentException("Delay may not be negative: " + retryDelay);
+        }
+        this.retryDelay = retryDelay;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param threshold size in bytes above which the publishers upload files in
+     *        chunks; a negative value (the default) disables chunked uploads
+     */
+    public void setThreshold(long threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return <TT>true</TT> if the given file is larger than the threshold,
+     *         and is not a zip archive.
+     */
+    public boolean isChunked(File file) {
+        long t = threshold;
+        return t >= 0 && file.length() > t && !isZip(file);
+    }
+
+    /**
+     * @return <TT>true</TT> if the file starts with the zip local header signature.
+     */
+    private static boolean isZip(File file) {
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            return in.read() == 'P' && in.read() == 'K' && in.read() == 3 && in.read() == 4;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Starts a new upload.
+     *
+     * @param path the destination path, relative to the GeoServer data directory
+     * @return the upload id, or <TT>null</TT> on errors.
+     */
+    public String startUpload(String path) {
+        checkString(path);
+        String id = transport.post(buildUrl(null), path, "text/plain", gsuser, gspass);
+        if (id == null || id.trim().isEmpty()) {
+            LOGGER.error("Unable to start the upload of " + path);
+            return null;
+        }
+        return id.trim();
+    }
+
+    /**
+     * @param uploadId the upload id
+     * @param file the file being uploaded
+     * @return the number of bytes held by the server, or -1 on errors.
+     */
+    public long getUploadedBytes(String uploadId, File file) {
+        checkString(uploadId);
+        return transport.putChunk(buildUrl(uploadId), file, 0, 0, gsuser, gspass);
+    }
+
+    /**
+     * Uploads a file to the GeoServer data directory.
+     *
+     * @param file the file to upload
+     * @param path the destination path, relative to the GeoServer data directory
+     * @param listener notified after each chunk; may be null
+     * @return <TT>true</TT> if the whole file was uploaded.
+     */
+    public boolean upload(File file, String path, ProgressListener listener) {
+        String id = startUpload(path);
+        return id != null && resume(id, file, listener);
+    }
+
+    /**
+     * Sends the parts of the file the server does not hold yet.
+     *
+     * @param uploadId the upload id, see {@link #startUpload(String)}
+     * @param file the file being uploaded
+     * @param listener notified after each chunk; may be null
+     * @return <TT>true</TT> if the whole file was uploaded.
+     */
+    public boolean resume(String uploadId, File file, ProgressListener listener) {
+        checkString(uploadId);
+        final String url = buildUrl(uploadId);
+        final long total = file.length();
+        long offset = transport.putChunk(url, file, 0, 0, gsuser, gspass);
+        int failures = 0;
+        while (offset != total) {
+            long next = -1;
+            if (offset >= 0 && offset < total) {
+                long length = Math.min(chunkSize, total - offset);
+                next = transport.putChunk(url, file, offset, length, gsuser, gspass);
+            }
+            if (next > offset) {
+                failures = 0;
+                offset = next;
+                if (listener != null) {
+                    listener.progress(offset, total);
+                }
+                continue;
+            }
+            if (++failures > maxRetries) {
+                LOGGER.error("Giving up upload " + uploadId + " of " + file + " at byte " + offset
+                        + " after " + maxRetries + " retries");
+                return false;
+            }
+            LOGGER.warn("Upload " + uploadId + " of " + file + " failed at byte " + offset
+                    + ", retrying (" + failures + "/" + maxRetries + ")");
+            try {
+                Thread.sleep(retryDelay * failures);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            // ask the server where to restart from
+            offset = transport.putChunk(url, file, 0, 0, gsuser, gspass);
+        }
+        return true;
+    }
+
+    private String buildUrl(String uploadId) {
+        StringBuilder sb = HTTPUtils.append(gsBaseUrl, "/rest/resumableupload");
+        if (uploadId != null) {
+            sb.append('/').append(uploadId);
+        }
+        return sb.toString();
+    }
+
+    private static void checkString(String string) {
+        if (string == null || string.isEmpty()) {
+            throw new IllegalArgumentException("Empty string: " + string);
+        }
+    }
+}
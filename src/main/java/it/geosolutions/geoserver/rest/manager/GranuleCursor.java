@@ -0,0 +1,180 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.manager;
+
+import it.geosolutions.geoserver.rest.decoder.RESTStructuredCoverageGranulesList;
+import it.geosolutions.geoserver.rest.decoder.RESTStructuredCoverageGranulesList.RESTStructuredCoverageGranule;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Iterates over all the granules of a structured coverage, one page at a time.
+ * <P>
+ * While the caller consumes a page, the next one is loaded in background, so
+ * that at most two pages are held in memory, whatever the size of the index.
+ * <BR>
+ * The cursor must be {@link #close() closed} when it is not consumed up to
+ * the end.
+ * <P>
+ * Usage:<PRE>
+ * GranuleCursor cursor = manager.getGranuleCursor("ws", "store", "coverage", null, 1000);
+ * try {
+ *     while (cursor.hasNext()) {
+ *         RESTStructuredCoverageGranule granule = cursor.next();
+ *         ...
+ *     }
+ * } finally {
+ *     cursor.close();
+ * }
+ * </PRE>
+ *
+ * @see GeoServerRESTStructuredGridCoverageReaderManager#getGranuleCursor(String, String, String, String, int)
+ */
+public class GranuleCursor implements Iterator<RESTStructuredCoverageGranule>, Closeable {
+
+    private final GeoServerRESTStructuredGridCoverageReaderManager manager;
+
+    private final String workspace;
+
+    private final String coverageStore;
+
+    private final String coverage;
+
+    private final String filter;
+
+    private final int pageSize;
+
+    private final ExecutorService prefetcher;
+
+    private Iterator<RESTStructuredCoverageGranule> page = Collections.<RESTStructuredCoverageGranule> emptyList().iterator();
+
+    private Future<RESTStructuredCoverageGranulesList> nextPage;
+
+    private int nextOffset;
+
+    GranuleCursor(GeoServerRESTStructuredGridCoverageReaderManager manager, String workspace,
+            String coverageStore, String coverage, String filter, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.manager = manager;
+        this.workspace = workspace;
+        this.coverageStore = coverageStore;
+        this.coverage = coverage;
+        this.filter = filter;
+        this.pageSize = pageSize;
+        this.prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "geoserver-manager-granules");
+            t.setDaemon(true);
+            return t;
+        });
+        prefetch();
+    }
+
+    private void prefetch() {
+        final int offset = nextOffset;
+        nextOffset += pageSize;
+        nextPage = prefetcher.submit(new Callable<RESTStructuredCoverageGranulesList>() {
+            @Override
+            public RESTStructuredCoverageGranulesList call() throws Exception {
+                return manager.getGranules(workspace, coverageStore, coverage, filter, offset, pageSize);
+            }
+        });
+    }
+
+    /**
+     * @throws IllegalStateException if a page could not be loaded
+     */
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            RESTStructuredCoverageGranulesList granules = awaitNextPage();
+            if (granules.size() < pageSize) {
+                // last page
+                close();
+            } else {
+                prefetch();
+            }
+            page = granules.iterator();
+        }
+        return true;
+    }
+
+    private RESTStructuredCoverageGranulesList awaitNextPage() {
+        RESTStructuredCoverageGranulesList granules;
+        try {
+            granules = nextPage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while loading granules", e);
+        } catch (ExecutionException e) {
+            close();
+            throw new IllegalStateException("Unable to load granules of " + coverage, e.getCause());
+        }
+        if (granules == null) {
+            close();
+            throw new IllegalStateException("Unable to load granules of " + coverage
+                    + " at offset " + (nextOffset - pageSize));
+        }
+        return granules;
+    }
+
+    @Override
+    public RESTStructuredCoverageGranule next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Stops the background loading. The granules of the current page can still be read.
+     */
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        prefetcher.shutdownNow();
+    }
+}
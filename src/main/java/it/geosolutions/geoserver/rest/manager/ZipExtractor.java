@@ -0,0 +1,193 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Expands zip archives, inflating the entries concurrently.
+ * <P>
+ * Each entry is inflated by one of <TT>parallelism</TT> threads and written
+ * through a {@link FileChannel}; archives holding many files (e.g. shapefiles
+ * with their sidecar files, or image mosaic granules) are expanded at the
+ * speed of the disk rather than of a single inflater.
+ * <P>
+ * Entries escaping the target directory (<TT>../</TT> or absolute paths) are
+ * rejected. If an entry cannot be extracted, the other ones are cancelled and
+ * an {@link IOException} is thrown; files already written are left in place.
+ *
+ * @see GeoServerRESTImporterManager#unpack(String, File)
+ */
+public class ZipExtractor {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final int parallelism;
+
+    /**
+     * Creates an extractor using a thread per available processor.
+     */
+    public ZipExtractor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism number of entries inflated at the same time
+     */
+    public ZipExtractor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Expands a zip archive.
+     * 
+     * @param zip the archive to expand
+     * @param dir the target directory, created if needed
+     * @return the number of files extracted
+     * @throws IOException if the archive cannot be read, or any entry cannot be written
+     */
+    public int extract(File zip, File dir) throws IOException {
+        final Path root = dir.getCanonicalFile().toPath();
+        Files.createDirectories(root);
+
+        ZipFile zipFile = new ZipFile(zip);
+        ExecutorService inflaters = null;
+        try {
+            // the directories are created upfront, the files in parallel
+            List<ZipEntry> files = new ArrayList<ZipEntry>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                Path target = resolve(root, entry);
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    files.add(entry);
+                }
+            }
+            if (parallelism == 1 || files.size() < 2) {
+                for (ZipEntry entry : files) {
+                    extract(zipFile, entry, resolve(root, entry));
+                }
+                return files.size();
+            }
+
+            inflaters = Executors.newFixedThreadPool(Math.min(parallelism, files.size()), r -> {
+                Thread t = new Thread(r, "geoserver-manager-inflater");
+                t.setDaemon(true);
+                return t;
+            });
+            List<Future<Void>> pending = new ArrayList<Future<Void>>(files.size());
+            for (final ZipEntry entry : files) {
+                final Path target = resolve(root, entry);
+                final ZipFile source = zipFile;
+                pending.add(inflaters.submit(() -> {
+                    extract(source, entry, target);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : pending) {
+                await(future, zip);
+            }
+            return files.size();
+        } finally {
+            if (inflaters != null) {
+                inflaters.shutdownNow();
+            }
+            zipFile.close();
+        }
+    }
+
+    private static void await(Future<Void> future, File zip) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting " + zip, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to extract " + zip, e.getCause());
+        }
+    }
+
+    private static Path resolve(Path root, ZipEntry entry) throws IOException {
+        Path target = root.resolve(entry.getName()).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Entry outside of the target directory: " + entry.getName());
+        }
+        return target;
+    }
+
+    private static void extract(ZipFile zip, ZipEntry entry, Path target) throws IOException {
+        InputStream in = zip.getInputStream(entry);
+        try {
+            ReadableByteChannel source = Channels.newChannel(in);
+            FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (source.read(buffer) >= 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        if (entry.getTime() != -1) {
+            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getTime()));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.publisher;
+
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+import it.geosolutions.geoserver.rest.publisher.PublishOutcome.Status;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many {@link PublishJob}s against a GeoServer instance, a bounded number
+ * at a time.
+ * <P>
+ * Up to <TT>parallelism</TT> jobs run concurrently, so that uploads and the
+ * configuration work on the GeoServer side overlap; the remaining ones wait in
+ * queue. Since a <TT>BulkPublisher</TT> wraps a single publisher, the
+ * parallelism is the concurrency towards that host: use one
+ * <TT>BulkPublisher</TT> per GeoServer instance. The parallelism should not
+ * exceed the connections per host allowed by the publisher transport.
+ * <P>
+ * A job returning <TT>false</TT>, or throwing an unexpected exception, is
+ * retried up to <TT>maxAttempts</TT> times, doubling the delay between
+ * attempts. Jobs throwing {@link FileNotFoundException} or
+ * {@link IllegalArgumentException} are not retried.
+ * <BR>
+ * Usage:<PRE>
+ * BulkPublisher bulk = new BulkPublisher(publisher, 4, 3, 1000);
+ * List&lt;PublishJob&gt; jobs = new ArrayList&lt;PublishJob&gt;();
+ * for (File zip : zips) {
+ *     jobs.add(PublishJob.shapefile("ws", store(zip), layer(zip), zip, "EPSG:4326"));
+ * }
+ * List&lt;PublishOutcome&gt; outcomes = bulk.publishAll(jobs);
+ * BulkPublisher.writeReport(outcomes, writer);
+ * bulk.shutdown();
+ * </PRE>
+ */
+public class BulkPublisher {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(BulkPublisher.class);
+
+    /** Default number of concurrent jobs. */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /** Default number of attempts per job. */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /** Default delay in milliseconds before the first retry. */
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+
+    private final GeoServerRESTPublisher publisher;
+
+    private final int maxAttempts;
+
+    private final long retryDelay;
+
+    private final ExecutorService executor;
+
+    private final AtomicInteger published = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final AtomicInteger retries = new AtomicInteger();
+
+    /**
+     * @param publisher the publisher used to run the jobs
+     */
+    public BulkPublisher(GeoServerRESTPublisher publisher) {
+        this(publisher, DEFAULT_PARALLELISM, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_DELAY);
+    }
+
+    /**
+     * @param publisher the publisher used to run the jobs
+     * @param parallelism max number of concurrent jobs
+     * @param maxAttempts max number of times a job is run
+     * @param retryDelay delay in milliseconds before the first retry
+     * @throws IllegalArgumentException on null publisher or invalid settings
+     */
+    public BulkPublisher(GeoServerRESTPublisher publisher, int parallelism, int maxAttempts,
+            long retryDelay) throws IllegalArgumentException {
+        if (publisher == null) {
+            throw new IllegalArgumentException("The publisher may not be null");
+        }
+        if (parallelism <= 0 || maxAttempts <= 0 || retryDelay < 0) {
+            throw new IllegalArgumentException("Invalid settings: parallelism " + parallelism
+                    + ", attempts " + maxAttempts + ", retry delay " + retryDelay);
+        }
+        this.publisher = publisher;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "geoserver-manager-bulk-publisher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param job the job to run
+     * @return the future outcome of the job
+     */
+    public Future<PublishOutcome> submit(final PublishJob job) {
+        if (job == null) {
+            throw new IllegalArgumentException("The job may not be null");
+        }
+        return executor.submit(() -> run(job));
+    }
+
+    /**
+     * Runs all the given jobs and waits for them to complete.
+     *
+     * @param jobs the jobs to run
+     * @return the outcomes, in the same order as the jobs
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<PublishOutcome> publishAll(Collection<? extends PublishJob> jobs)
+            throws InterruptedException {
+        List<Future<PublishOutcome>> futures = new ArrayList<Future<PublishOutcome>>(jobs.size());
+        for (PublishJob job : jobs) {
+            futures.add(submit(job));
+        }
+        List<PublishOutcome> outcomes = new ArrayList<PublishOutcome>(jobs.size());
+        for (Future<PublishOutcome> future : futures) {
+            try {
+                outcomes.add(future.get());
+            } catch (ExecutionException e) {
+                // run() does not throw
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return outcomes;
+    }
+
+    private PublishOutcome run(PublishJob job) {
+        final String name = job.getName();
+        final long start = System.currentTimeMillis();
+        String message = null;
+        long delay = retryDelay;
+        int attempt = 0;
+        while (attempt < maxAttempts) {
+            attempt++;
+            try {
+                if (job.publish(publisher)) {
+                    published.incrementAndGet();
+                    return new PublishOutcome(name, Status.PUBLISHED, attempt,
+                            System.currentTimeMillis() - start, null);
+                }
+                message = "Publication failed";
+            } catch (FileNotFoundException e) {
+                return reject(name, attempt, start, e);
+            } catch (IllegalArgumentException e) {
+                return reject(name, attempt, start, e);
+            } catch (RuntimeException e) {
+                message = e.toString();
+            }
+            LOGGER.warn("Attempt " + attempt + " of " + maxAttempts + " failed for " + name + ": "
+                    + message);
+            if (attempt < maxAttempts) {
+                retries.incrementAndGet();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    message = "Interrupted";
+                    break;
+                }
+                delay *= 2;
+            }
+        }
+        failed.incrementAndGet();
+        LOGGER.error("Unable to publish " + name + ": " + message);
+        return new PublishOutcome(name, Status.FAILED, attempt, System.currentTimeMillis() - start,
+                message);
+    }
+
+    private PublishOutcome reject(String name, int attempt, long start, Exception e) {
+        failed.incrementAndGet();
+        LOGGER.error("Unable to publish " + name + ": " + e.getMessage());
+        return new PublishOutcome(name, Status.REJECTED, attempt, System.currentTimeMillis() - start,
+                e.toString());
+    }
+
+    /**
+     * @return the number of jobs published so far.
+     */
+    public int getPublished() {
+        return published.get();
+    }
+
+    /**
+     * @return the number of jobs failed or rejected so far.
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of retries so far.
+     */
+    public int getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Stops accepting jobs; queued jobs are still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Writes a report line per outcome, see {@link PublishOutcome#toString()}.
+     *
+     * @param outcomes the outcomes to report
+     * @param writer where to write the report
+     * @throws IOException on write errors
+     */
+    public static void writeReport(List<PublishOutcome> outcomes, Writer writer) throws IOException {
+        writer.write("name\tstatus\tattempts\telapsed\tmessage\n");
+        for (PublishOutcome outcome : outcomes) {
+            writer.write(outcome.toString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
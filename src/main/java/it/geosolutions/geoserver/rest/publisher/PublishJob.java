@@ -0,0 +1,97 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.publisher;
+
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * A single publication run by a {@link BulkPublisher}.
+ * <P>
+ * Implementations should return <TT>false</TT> on failures which may be solved
+ * by trying again, and throw {@link FileNotFoundException} or
+ * {@link IllegalArgumentException} when the job can never succeed.
+ *
+ * @see #shapefile(String, String, String, File, String)
+ * @see #geoTIFF(String, String, String, File)
+ */
+public interface PublishJob {
+
+    /**
+     * @return a name identifying this job in the outcome report.
+     */
+    String getName();
+
+    /**
+     * Runs the publication.
+     *
+     * @param publisher the publisher to use
+     * @return <TT>true</TT> if the publication succeeded.
+     * @throws FileNotFoundException if the file to upload does not exist
+     * @throws IllegalArgumentException if the job is misconfigured
+     */
+    boolean publish(GeoServerRESTPublisher publisher) throws FileNotFoundException,
+            IllegalArgumentException;
+
+    /**
+     * @return a job uploading a zipped shapefile,
+     *         see {@link GeoServerRESTPublisher#publishShp(String, String, String, File, String)}.
+     */
+    static PublishJob shapefile(final String workspace, final String storeName,
+            final String layerName, final File zipFile, final String srs) {
+        return new PublishJob() {
+            @Override
+            public String getName() {
+                return workspace + ":" + layerName;
+            }
+
+            @Override
+            public boolean publish(GeoServerRESTPublisher publisher) throws FileNotFoundException {
+                return publisher.publishShp(workspace, storeName, layerName, zipFile, srs);
+            }
+        };
+    }
+
+    /**
+     * @return a job uploading a GeoTIFF,
+     *         see {@link GeoServerRESTPublisher#publishGeoTIFF(String, String, String, File)}.
+     */
+    static PublishJob geoTIFF(final String workspace, final String storeName,
+            final String coverageName, final File geotiff) {
+        return new PublishJob() {
+            @Override
+            public String getName() {
+                return workspace + ":" + (coverageName != null ? coverageName : storeName);
+            }
+
+            @Override
+            public boolean publish(GeoServerRESTPublisher publisher) throws FileNotFoundException {
+                return publisher.publishGeoTIFF(workspace, storeName, coverageName, geotiff);
+            }
+        };
+    }
+}
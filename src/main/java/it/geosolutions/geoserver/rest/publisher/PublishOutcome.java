@@ -0,0 +1,147 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.publisher;
+
+/**
+ * Outcome of a {@link PublishJob} run by a {@link BulkPublisher}.
+ */
+public class PublishOutcome {
+
+    /**
+     * Final state of a job.
+     */
+    public enum Status {
+        /** The job succeeded, possibly after some retries. */
+        PUBLISHED,
+        /** The job failed at every attempt. */
+        FAILED,
+        /** The job can never succeed (missing file, bad arguments) and was not retried. */
+        REJECTED
+    }
+
+    private final String name;
+
+    private final Status status;
+
+    private final int attempts;
+
+    private final long elapsedTime;
+
+    private final String message;
+
+    PublishOutcome(String name, Status status, int attempts, long elapsedTime, String message) {
+        this.name = name;
+        this.status = status;
+        this.attempts = attempts;
+        this.elapsedTime = elapsedTime;
+        this.message = message;
+    }
+
+    /**
+     * @return the job name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how the job ended.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if the job succeeded.
+     */
+    public boolean isPublished() {
+        return status == Status.PUBLISHED;
+    }
+
+    /**
+     * @return the number of times the job was run.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the time in milliseconds spent on the job, retry delays included.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * @return the reason of the failure, or null.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return a tab separated line: name, status, attempts, elapsed time and
+     *         message. Backslashes, tabs and line breaks in the name and the
+     *         message are escaped as <TT>\\</TT>, <TT>\t</TT>, <TT>\r</TT> and
+     *         <TT>\n</TT>, so that each outcome stays on one line of the report.
+     */
+    @Override
+    public String toString() {
+        return escape(name) + '\t' + status + '\t' + attempts + '\t' + elapsedTime + '\t'
+                + (message != null ? escape(message) : "");
+    }
+
+    private static String escape(String field) {
+        StringBuilder sb = null;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            String escaped;
+            switch (c) {
+            case '\\':
+                escaped = "\\\\";
+                break;
+            case '\t':
+                escaped = "\\t";
+                break;
+            case '\r':
+                escaped = "\\r";
+                break;
+            case '\n':
+                escaped = "\\n";
+                break;
+            default:
+                if (sb != null) {
+                    sb.append(c);
+                }
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(field.length() + 16).append(field, 0, i);
+            }
+            sb.append(escaped);
+        }
+        return sb != null ? sb.toString() : field;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.decoder;
+
+import it.geosolutions.geoserver.rest.decoder.RESTCompactCoverage;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactLayerGroup;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactResource;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverage;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer21;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Checks the compact decoders give the same values as the DOM backed ones.
+ */
+public class CompactDecoderTest {
+
+    private static String read(String path) throws IOException {
+        File file = new ClassPathResource(path).getFile();
+        return FileUtils.readFileToString(file);
+    }
+
+    @Test
+    public void testCoverage() throws IOException {
+        String xml = read("testdata/coverageExample.xml");
+        RESTCoverage coverage = RESTCoverage.build(xml);
+        RESTCompactResource resource = RESTCompactResource.build(
+                new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+        Assert.assertTrue(resource instanceof RESTCompactCoverage);
+        Assert.assertEquals(coverage.getName(), resource.getName());
+        Assert.assertEquals(coverage.getNativeName(), resource.getNativeName());
+        Assert.assertEquals(coverage.getAbstract(), resource.getAbstract());
+        Assert.assertEquals(coverage.getKeywords(), resource.getKeywords());
+        Assert.assertEquals(coverage.getNameSpace(), resource.getNameSpace());
+        Assert.assertEquals(coverage.getStoreName(), resource.getStoreName());
+        Assert.assertEquals(coverage.getStoreType(), resource.getStoreType());
+        Assert.assertEquals(coverage.getStoreUrl(), resource.getStoreUrl());
+        Assert.assertEquals(coverage.getNativeCRS(), resource.getNativeCRS());
+        Assert.assertEquals(coverage.getCRS(), resource.getCRS());
+        Assert.assertTrue(resource.hasBounds());
+        Assert.assertEquals(coverage.getMinX(), resource.getMinX(), 0);
+        Assert.assertEquals(coverage.getMaxX(), resource.getMaxX(), 0);
+        Assert.assertEquals(coverage.getMinY(), resource.getMinY(), 0);
+        Assert.assertEquals(coverage.getMaxY(), resource.getMaxY(), 0);
+        Assert.assertEquals(coverage.getSRS(), ((RESTCompactCoverage) resource).getSRS());
+
+        // shared names are interned
+        Assert.assertSame("topp", resource.getNameSpace());
+        Assert.assertSame("EPSG:4326", resource.getCRS());
+
+        RESTCompactCoverage copy = RESTCompactCoverage.of(coverage);
+        Assert.assertEquals(resource.getName(), copy.getName());
+        Assert.assertNull(RESTCompactResource.build("not xml"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableKeywords() throws IOException {
+        RESTCompactResource.build(read("testdata/coverageExample.xml")).getKeywords().add("k");
+    }
+
+    @Test
+    public void testMissingBounds() {
+        RESTCompactResource resource = RESTCompactResource.build(
+                "<featureType><name>ft</name></featureType>");
+        Assert.assertEquals("ft", resource.getName());
+        Assert.assertNull(resource.getStoreName());
+        Assert.assertFalse(resource.hasBounds());
+        Assert.assertTrue(Double.isNaN(resource.getMinX()));
+    }
+
+    @Test
+    public void testLayer() throws IOException {
+        RESTLayer layer = RESTLayer.build(read("testdata/layerExample.xml"));
+        RESTCompactLayer compact = RESTCompactLayer.of(layer);
+        Assert.assertEquals("tasmania_cities", compact.getName());
+        Assert.assertEquals(RESTLayer.Type.VECTOR, compact.getType());
+        Assert.assertEquals("capitals", compact.getDefaultStyle());
+        Assert.assertEquals(Arrays.asList("green", "blue"), compact.getStyles());
+        Assert.assertEquals(layer.getResourceUrl(), compact.getResourceUrl());
+        Assert.assertTrue(compact.getEnabled());
+        Assert.assertTrue(compact.getQueryable());
+        Assert.assertTrue(compact.getAdvertised());
+
+        RESTCompactLayer compact21 = RESTCompactLayer.of(
+                RESTLayer21.build(read("testdata/layerExample21.xml")));
+        Assert.assertTrue(compact21.getAdvertised());
+        Assert.assertNull(RESTCompactLayer.of(null));
+    }
+
+    @Test
+    public void testLayerGroup() throws IOException {
+        RESTCompactLayerGroup group = RESTCompactLayerGroup.build("<layerGroup><name>lg</name>"
+                + "<workspace><name>ws</name></workspace><mode>SINGLE</mode>"
+                + "<publishables><published type=\"layer\"><name>ws:a</name></published>"
+                + "<published type=\"layer\"><name>ws:b</name></published></publishables>"
+                + "<bounds><minx>1</minx><maxx>2</maxx><miny>3</miny><maxy>4</maxy>"
+                + "<crs>EPSG:4326</crs></bounds></layerGroup>");
+        Assert.assertEquals("lg", group.getName());
+        Assert.assertEquals("ws", group.getWorkspace());
+        Assert.assertEquals("SINGLE", group.getMode());
+        Assert.assertEquals(Arrays.asList("ws:a", "ws:b"), group.getPublishables());
+        Assert.assertEquals(1, group.getMinX(), 0);
+        Assert.assertEquals(4, group.getMaxY(), 0);
+
+        RESTCompactLayerGroup legacy = RESTCompactLayerGroup.build("<layerGroup><name>lg</name>"
+                + "<layers><layer><name>a</name></layer></layers></layerGroup>");
+        Assert.assertEquals(Arrays.asList("a"), legacy.getPublishables());
+        Assert.assertNull(legacy.getWorkspace());
+        Assert.assertFalse(legacy.hasBounds());
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer21;
+import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder.VERSION;
+import it.geosolutions.geoserver.rest.http.JDKAsyncHTTPTransport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the {@link GeoServerRESTAsyncReader} against a local HTTP server.
+ */
+public class GeoServerRESTAsyncReaderTest {
+
+    private HttpServer server;
+
+    private JDKAsyncHTTPTransport transport;
+
+    private GeoServerRESTAsyncReader reader;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final AtomicInteger versionRequests = new AtomicInteger();
+
+    private volatile String version;
+
+    private volatile String layerXml;
+
+    /** Method of the last request, followed by its range, if any. */
+    private volatile String lastRequest;
+
+    @Before
+    public void setUp() throws IOException {
+        layerXml = IOUtils.toString(new ClassPathResource("testdata/layerExample21.xml").getInputStream());
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/about/version.xml", (HttpExchange exchange) -> {
+            // not accounted in the concurrency limits
+            versionRequests.incrementAndGet();
+            if (version == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] body = ("<about><resource name=\"GeoServer\"><Version>" + version
+                        + "</Version></resource></about>").getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+            exchange.close();
+        });
+        server.createContext("/geoserver/rest/", (HttpExchange exchange) -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try {
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                lastRequest = exchange.getRequestMethod() + (range != null ? " " + range : "");
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("/layers/topp:tasmania_cities.xml")) {
+                    Thread.sleep(50);
+                    byte[] body = layerXml.getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream os = exchange.getResponseBody();
+                    os.write(body);
+                    os.close();
+                } else {
+                    exchange.sendResponseHeaders(404, -1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(32));
+        server.start();
+
+        transport = new JDKAsyncHTTPTransport(8, 2000);
+        URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/geoserver");
+        reader = new GeoServerRESTAsyncReader(url, "admin", "geoserver", transport, 3, 5);
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testGetLayer() {
+        RESTLayer layer = reader.getLayer("topp", "tasmania_cities").join();
+        assertEquals("tasmania_cities", layer.getName());
+        assertEquals("capitals", layer.getDefaultStyle());
+
+        assertNull(reader.getWorkspaces().join());
+        assertFalse(reader.existsLayer("topp", "missing").join());
+        assertTrue(reader.existsLayer("topp", "tasmania_cities").join());
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() {
+        List<CompletableFuture<RESTLayer>> futures = new ArrayList<CompletableFuture<RESTLayer>>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(reader.getLayer("topp", "tasmania_cities"));
+            assertTrue(reader.getQueuedRequests() <= 5);
+            assertTrue(reader.getInFlightRequests() <= 3);
+        }
+        for (CompletableFuture<RESTLayer> f : futures) {
+            assertEquals("tasmania_cities", f.join().getName());
+        }
+        assertTrue(maxRunning.get() <= 3);
+        assertEquals(1, versionRequests.get());
+        assertEquals(0, reader.getInFlightRequests());
+        assertEquals(0, reader.getQueuedRequests());
+    }
+
+    @Test
+    public void testVersionProbedAgainOnDecodeFailure() {
+        assertEquals(VERSION.UNRECOGNIZED, reader.getGeoserverVersion().join().getVersion());
+        assertTrue(reader.getLayer("topp", "tasmania_cities").join() instanceof RESTLayer21);
+        assertEquals(1, versionRequests.get());
+
+        // the server is upgraded and answers something the decoder does not read
+        version = "2.8.1";
+        layerXml = "<layer><name>";
+        assertNull(reader.getLayer("topp", "tasmania_cities").join());
+        assertEquals(VERSION.v28, reader.getGeoserverVersion().join().getVersion());
+        assertEquals(2, versionRequests.get());
+    }
+
+    @Test
+    public void testCapabilitiesAreShared() throws IOException {
+        GeoServerRESTCapabilities capabilities = reader.getCapabilities();
+        GeoServerRESTAsyncReader other = new GeoServerRESTAsyncReader(new URL("http://localhost:"
+                + server.getAddress().getPort() + "/geoserver"), "admin", "geoserver", transport,
+                capabilities, 3, 5);
+        assertEquals(VERSION.UNRECOGNIZED, other.getGeoserverVersion().join().getVersion());
+        assertEquals(VERSION.UNRECOGNIZED, reader.getGeoserverVersion().join().getVersion());
+        assertEquals(1, versionRequests.get());
+
+        version = "2.6";
+        capabilities.invalidate();
+        assertEquals(VERSION.v26, reader.getGeoserverVersion().join().getVersion());
+        assertEquals(VERSION.v26, other.getGeoserverVersion().join().getVersion());
+        assertEquals(2, versionRequests.get());
+    }
+
+    @Test
+    public void testSynchronousCompletionsDoNotRecurse() throws IOException {
+        GeoServerRESTAsyncReader serial = new GeoServerRESTAsyncReader(new URL("http://localhost:"
+                + server.getAddress().getPort() + "/geoserver"), "admin", "geoserver", transport, 1,
+                100000);
+        serial.getGeoserverVersion().join();
+        CompletableFuture<RESTLayer> first = serial.getLayer("topp", "tasmania_cities");
+        // invalid URLs fail as soon as they are dispatched
+        List<CompletableFuture<RESTLayer>> failing = new ArrayList<CompletableFuture<RESTLayer>>();
+        for (int i = 0; i < 50000; i++) {
+            failing.add(serial.getLayer("topp", "bad name"));
+        }
+        assertEquals("tasmania_cities", first.join().getName());
+        for (CompletableFuture<RESTLayer> f : failing) {
+            assertTrue(f.isDone());
+            assertNull(f.join());
+        }
+        assertEquals(0, serial.getQueuedRequests());
+        assertEquals(0, serial.getInFlightRequests());
+    }
+
+    @Test
+    public void testCompletionStagesAreNotBlocked() throws IOException {
+        final GeoServerRESTAsyncReader small = new GeoServerRESTAsyncReader(new URL("http://localhost:"
+                + server.getAddress().getPort() + "/geoserver"), "admin", "geoserver", transport, 1, 1);
+        small.getGeoserverVersion().join();
+        CompletableFuture<RESTLayer> first = small.getLayer("topp", "tasmania_cities");
+        CompletableFuture<RESTLayer> queued = small.getLayer("topp", "tasmania_cities");
+        CompletableFuture<List<CompletableFuture<RESTLayer>>> chained = first.thenApply(layer -> {
+            // the queued call is now running: the first one fills the queue
+            List<CompletableFuture<RESTLayer>> next = new ArrayList<CompletableFuture<RESTLayer>>();
+            next.add(small.getLayer("topp", "tasmania_cities"));
+            next.add(small.getLayer("topp", "tasmania_cities"));
+            return next;
+        });
+        List<CompletableFuture<RESTLayer>> next = chained.join();
+        assertEquals("tasmania_cities", queued.join().getName());
+        assertEquals("tasmania_cities", next.get(0).join().getName());
+        try {
+            next.get(1).join();
+            fail("Completion stage blocked on a full queue");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testExistenceProbeFollowsVersion() {
+        // HEAD requests are not trusted on unrecognized versions
+        assertFalse(reader.existsLayer("topp", "missing").join());
+        assertEquals("GET bytes=0-0", lastRequest);
+
+        version = "2.20.1";
+        reader.getCapabilities().invalidate();
+        assertFalse(reader.existsLayer("topp", "missing").join());
+        assertEquals("HEAD", lastRequest);
+        assertEquals(2, versionRequests.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadSettings() throws IOException {
+        new GeoServerRESTAsyncReader(new URL("http://localhost/geoserver"), null, null, transport, 0, 1);
+    }
+}
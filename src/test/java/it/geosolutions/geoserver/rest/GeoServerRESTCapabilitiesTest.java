@@ -0,0 +1,199 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.geoserver.rest.GeoServerRESTCapabilities.Feature;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer21;
+import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder.VERSION;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder21;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the version probing of {@link GeoServerRESTCapabilities} against a local HTTP server.
+ */
+public class GeoServerRESTCapabilitiesTest {
+
+    private HttpServer server;
+
+    private GeoServerRESTReader reader;
+
+    private final AtomicInteger versionRequests = new AtomicInteger();
+
+    private volatile String version = "2.8.1";
+
+    private volatile String layer;
+
+    private volatile int layerStatus = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        layer = IOUtils.toString(new ClassPathResource("testdata/layerExample.xml").getInputStream());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/about/version.xml", (HttpExchange exchange) -> {
+            versionRequests.incrementAndGet();
+            if (version == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                send(exchange, "<about><resource name=\"GeoServer\"><Version>" + version
+                        + "</Version></resource></about>");
+            }
+        });
+        server.createContext("/geoserver/rest/layers/", (HttpExchange exchange) -> {
+            if (layerStatus == 200) {
+                send(exchange, layer);
+            } else {
+                exchange.sendResponseHeaders(layerStatus, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        reader = new GeoServerRESTReader(new URL("http://localhost:" + server.getAddress().getPort()
+                + "/geoserver"), "admin", "geoserver");
+    }
+
+    private static void send(HttpExchange exchange, String response) throws IOException {
+        byte[] body = response.getBytes("UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+        exchange.close();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testProbedOnce() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals("tasmania_cities", reader.getLayer("topp", "tasmania_cities").getName());
+        }
+        assertEquals(VERSION.v28, reader.getGeoserverVersion().getVersion());
+        assertEquals(1, versionRequests.get());
+
+        GeoServerRESTCapabilities capabilities = reader.getCapabilities();
+        assertFalse(capabilities.supports(Feature.LAYER_21));
+        assertTrue(capabilities.supports(Feature.STRUCTURED_COVERAGES));
+        assertFalse(capabilities.createLayerEncoder() instanceof GSLayerEncoder21);
+
+        version = "2.3.0";
+        assertEquals(VERSION.v28, capabilities.getVersion());
+        assertEquals(VERSION.v23, capabilities.refresh().getVersion());
+        assertFalse(capabilities.supports(Feature.COVERAGE_DIMENSIONS));
+        assertEquals(2, versionRequests.get());
+    }
+
+    @Test
+    public void testInvalidatedOnUnexpectedResponses() {
+        assertEquals("tasmania_cities", reader.getLayer("topp", "tasmania_cities").getName());
+        assertEquals(1, versionRequests.get());
+
+        // the server is upgraded and answers something the decoder does not read
+        version = "2.9.0";
+        layer = "<layer><name>";
+        assertNull(reader.getLayer("topp", "tasmania_cities"));
+        assertEquals(VERSION.ABOVE, reader.getGeoserverVersion().getVersion());
+        assertEquals(2, versionRequests.get());
+
+        // an existence probe gets an unexpected status
+        version = "2.8.1";
+        layerStatus = 500;
+        try {
+            reader.existsLayer("topp", "tasmania_cities", true);
+            fail("An unexpected status is reported");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(VERSION.v28, reader.getGeoserverVersion().getVersion());
+        assertEquals(3, versionRequests.get());
+    }
+
+    @Test
+    public void testFailedProbeIsNotKept() throws IOException {
+        final AtomicInteger failures = new AtomicInteger(1);
+        PooledHTTPTransport transport = new PooledHTTPTransport() {
+            @Override
+            public String get(String url, String username, String pw) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new RuntimeException("Connection refused");
+                }
+                return super.get(url, username, pw);
+            }
+        };
+        try {
+            GeoServerRESTCapabilities capabilities = new GeoServerRESTCapabilities("http://localhost:"
+                    + server.getAddress().getPort() + "/geoserver", "admin", "geoserver", transport);
+            try {
+                capabilities.getVersion();
+                fail("The probe failure is reported");
+            } catch (RuntimeException e) {
+                assertEquals("Connection refused", e.getMessage());
+            }
+            assertEquals(VERSION.v28, capabilities.getVersion());
+            assertEquals(1, versionRequests.get());
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnrecognized() {
+        version = null;
+        GeoServerRESTCapabilities capabilities = reader.getCapabilities();
+        assertTrue(capabilities.supports(Feature.LAYER_21));
+        assertTrue(reader.getLayer("topp", "tasmania_cities") instanceof RESTLayer21);
+        assertTrue(capabilities.createLayerEncoder() instanceof GSLayerEncoder21);
+        // a missing version is kept as any other
+        assertEquals(1, versionRequests.get());
+
+        version = "2.6";
+        assertEquals(VERSION.UNRECOGNIZED, capabilities.getVersion());
+        assertEquals(VERSION.v26, capabilities.refresh().getVersion());
+        assertEquals(VERSION.v26, capabilities.getVersion());
+        assertEquals(2, versionRequests.get());
+    }
+}
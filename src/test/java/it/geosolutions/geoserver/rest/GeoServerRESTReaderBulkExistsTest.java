@@ -0,0 +1,135 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.standin.StandInGeoServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the bulk existence checks of the {@link GeoServerRESTReader} against
+ * the {@link StandInGeoServer}, counting the requests they issue.
+ */
+public class GeoServerRESTReaderBulkExistsTest {
+
+    private static final String SLD = "<StyledLayerDescriptor version=\"1.0.0\""
+            + " xmlns=\"http://www.opengis.net/sld\"><NamedLayer><Name>%s</Name>"
+            + "</NamedLayer></StyledLayerDescriptor>";
+
+    private StandInGeoServer server;
+
+    private PooledHTTPTransport transport;
+
+    private GeoServerRESTManager manager;
+
+    private GeoServerRESTReader reader;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInGeoServer();
+        server.start();
+        server.populate(3, 2, 2);
+        transport = new PooledHTTPTransport();
+        manager = new GeoServerRESTManager(server.getURL(), "admin", "geoserver", transport);
+        reader = manager.getReader();
+        // the version picking the existence probe is fetched once, before counting
+        reader.getCapabilities().getVersion();
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop();
+    }
+
+    private static void assertExists(Map<String, Boolean> exists, Boolean... expected) {
+        assertEquals(Arrays.asList(expected), new ArrayList<Boolean>(exists.values()));
+    }
+
+    @Test
+    public void testDatastores() {
+        long requests = server.getRequestCount();
+        Map<String, Boolean> exists = reader.existsDatastores(Arrays.asList("ws0:store0",
+                "ws0:store1", "ws0:store2", "ws1:store0", "ws2:store9", "none:store0"));
+        assertExists(exists, true, true, false, true, false, false);
+        // one listing per workspace; the missing workspace is probed once
+        assertEquals(requests + 5, server.getRequestCount());
+    }
+
+    @Test
+    public void testFeatureTypesAndLayers() {
+        long requests = server.getRequestCount();
+        Map<String, Boolean> exists = reader.existsFeatureTypes(Arrays.asList(
+                "ws0:store0:layer0_0", "ws0:store0:layer1_0", "ws0:store0:layer0_1",
+                "ws1:store1:layer1_1"));
+        assertExists(exists, true, false, true, true);
+        assertEquals(requests + 2, server.getRequestCount());
+
+        requests = server.getRequestCount();
+        exists = reader.existsLayers(Arrays.asList("ws0:layer0_0", "ws2:layer1_1", "ws0:layer9_9",
+                "none:layer0_0"));
+        assertExists(exists, true, true, false, false);
+        assertEquals(requests + 1, server.getRequestCount());
+    }
+
+    @Test
+    public void testStyles() {
+        assertTrue(manager.getPublisher().publishStyle(String.format(SLD, "line"), "line"));
+        assertTrue(manager.getPublisher().publishStyleInWorkspace("ws0", String.format(SLD, "roads"),
+                "roads"));
+
+        long requests = server.getRequestCount();
+        Map<String, Boolean> exists = reader.existsStyles(Arrays.asList("line", "ws0:roads",
+                "ws0:line", "point"));
+        assertExists(exists, true, true, false, false);
+        assertEquals(requests + 2, server.getRequestCount());
+    }
+
+    @Test
+    public void testProbesWhenListingFails() {
+        long requests = server.getRequestCount();
+        server.failNext(1, 500);
+        Map<String, Boolean> exists = reader.existsDatastores(Arrays.asList("ws0:store0",
+                "ws0:store2"));
+        assertExists(exists, true, false);
+        // failed listing, workspace probe, one probe per datastore
+        assertEquals(requests + 4, server.getRequestCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnqualifiedName() {
+        reader.existsFeatureTypes(Arrays.asList("ws0:layer0_0"));
+    }
+}
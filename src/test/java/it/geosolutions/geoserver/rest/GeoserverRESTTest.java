@@ -34,13 +34,16 @@ import it.geosolutions.geoserver.rest.decoder.RESTLayerGroup;
 import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder;
 import it.geosolutions.geoserver.rest.decoder.about.GSVersionDecoder.VERSION;
 import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
+import it.geosolutions.geoserver.rest.standin.StandInGeoServer;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
 
 import static org.junit.Assert.*;
 
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -53,6 +56,11 @@ import org.slf4j.LoggerFactory;
  * Initializes REST params.
  * <P>
  * <B>These tests are destructive, so you have to explicitly enable them</B> by setting the env var <TT>resttest</TT> to <TT>true</TT>.
+ * <BR>
+ * Setting it to <TT>standin</TT> runs them against an embedded {@link StandInGeoServer}
+ * instead, with no need for a running GeoServer; the importer and the granule
+ * index tests are skipped there (see {@link #assumeGeoServer()}), since the
+ * stand-in does not read the published data.
  * <P>
  * The target geoserver instance can be customized by defining the following env vars:
  * <ul>
@@ -93,14 +101,21 @@ public abstract class GeoserverRESTTest {
 
     private static Boolean existgs = null;
 
+    private static StandInGeoServer standin;
+
     static {
-        RESTURL = getenv("gsmgr_resturl", "http://localhost:8080/geoserver");
         RESTUSER = getenv("gsmgr_restuser", "admin");
         RESTPW = getenv("gsmgr_restpw", "geoserver");
         GS_VERSION = getenv("gsmgr_version", "2.8");
 
         // These tests will destroy data, so let's make sure we do want to run them
-        enabled = getenv("gsmgr_resttest", "false").equalsIgnoreCase("true");
+        String resttest = getenv("gsmgr_resttest", "false");
+        if (resttest.equalsIgnoreCase("standin")) {
+            standin = startStandIn();
+        }
+        RESTURL = standin != null ? standin.getURL().toString()
+                : getenv("gsmgr_resturl", "http://localhost:8080/geoserver");
+        enabled = resttest.equalsIgnoreCase("true") || standin != null;
         if (!enabled)
             LOGGER.warn("Tests are disabled. Please read the documentation to enable them.");
 
@@ -114,6 +129,19 @@ public abstract class GeoserverRESTTest {
         }
     }
 
+    private static StandInGeoServer startStandIn() {
+        try {
+            StandInGeoServer server = new StandInGeoServer();
+            server.setCredentials(RESTUSER, RESTPW);
+            server.setVersion(GS_VERSION);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            LOGGER.error("Unable to start the GeoServer stand-in", e);
+            return null;
+        }
+    }
+
     private static String getenv(String envName, String envDefault) {
         String env = System.getenv(envName);
         String prop = System.getProperty(envName, env);
@@ -163,6 +191,14 @@ public abstract class GeoserverRESTTest {
         return enabled;
     }
 
+    /**
+     * Skips the calling test when running against the {@link StandInGeoServer},
+     * for the tests needing GeoServer to actually read the published data.
+     */
+    protected void assumeGeoServer() {
+        Assume.assumeTrue(standin == null);
+    }
+
     protected void deleteAll() {
         LOGGER.info("Starting DELETEALL procedure");
         deleteAllLayerGroups();
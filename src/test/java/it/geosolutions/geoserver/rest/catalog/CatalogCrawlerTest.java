@@ -0,0 +1,179 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Crawls a small catalog served by a local HTTP server.
+ */
+public class CatalogCrawlerTest {
+
+    private HttpServer server;
+
+    private PooledHTTPTransport transport;
+
+    private GeoServerRESTReader reader;
+
+    private final Map<String, String> catalog = new HashMap<String, String>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        String base = "http://localhost:" + server.getAddress().getPort() + "/geoserver";
+
+        String rest = "/geoserver/rest";
+        catalog.put(rest + "/workspaces.xml", "<workspaces><workspace><name>topp</name></workspace></workspaces>");
+        catalog.put(rest + "/namespaces.xml", "<namespaces><namespace><name>topp</name></namespace></namespaces>");
+        catalog.put(rest + "/namespaces/topp.xml", "<namespace><prefix>topp</prefix><uri>http://www.openplans.org/topp</uri></namespace>");
+        catalog.put(rest + "/layers.xml", "<layers><layer><name>topp:tasmania_cities</name></layer></layers>");
+        catalog.put(rest + "/layers/topp:tasmania_cities.xml",
+                IOUtils.toString(new ClassPathResource("testdata/layerExample21.xml").getInputStream())
+                        .replace("http://localhost:8080/geoserver", base));
+        catalog.put(rest + "/styles.xml", "<styles><style><name>capitals</name></style></styles>");
+        catalog.put(rest + "/styles/capitals.xml", "<style><name>capitals</name><filename>capitals.sld</filename></style>");
+        catalog.put(rest + "/layergroups.xml", "<layerGroups/>");
+        catalog.put(rest + "/workspaces/topp/datastores.xml", "<dataStores><dataStore><name>taz_shapes</name></dataStore></dataStores>");
+        catalog.put(rest + "/workspaces/topp/datastores/taz_shapes.xml",
+                "<dataStore><name>taz_shapes</name><enabled>true</enabled><workspace><name>topp</name></workspace></dataStore>");
+        catalog.put(rest + "/workspaces/topp/datastores/taz_shapes/featuretypes.xml",
+                "<featureTypes><featureType><name>tasmania_cities</name></featureType>"
+                        + "<featureType><name>tasmania_roads</name></featureType></featureTypes>");
+        catalog.put(rest + "/workspaces/topp/datastores/taz_shapes/featuretypes/tasmania_cities.xml",
+                "<featureType><name>tasmania_cities</name><namespace><name>topp</name></namespace></featureType>");
+        // not published by any layer
+        catalog.put(rest + "/workspaces/topp/datastores/taz_shapes/featuretypes/tasmania_roads.xml",
+                "<featureType><name>tasmania_roads</name><namespace><name>topp</name></namespace></featureType>");
+        catalog.put(rest + "/workspaces/topp/wmsstores.xml", "<wmsStores><wmsStore><name>remote</name></wmsStore></wmsStores>");
+        catalog.put(rest + "/workspaces/topp/wmsstores/remote.xml",
+                "<wmsStore><name>remote</name><type>WMS</type><workspace><name>topp</name></workspace></wmsStore>");
+        catalog.put(rest + "/workspaces/topp/wmsstores/remote/wmslayers.xml", "<wmsLayers><wmsLayer><name>states</name></wmsLayer></wmsLayers>");
+        catalog.put(rest + "/workspaces/topp/wmsstores/remote/wmslayers/states.xml",
+                "<wmsLayer><name>states</name><title>USA Population</title></wmsLayer>");
+        catalog.put(rest + "/workspaces/topp/coveragestores.xml", "<coverageStores><coverageStore><name>dem</name></coverageStore></coverageStores>");
+        catalog.put(rest + "/workspaces/topp/coveragestores/dem.xml",
+                "<coverageStore><name>dem</name><type>GeoTIFF</type><workspace><name>topp</name></workspace></coverageStore>");
+        catalog.put(rest + "/workspaces/topp/coveragestores/dem/coverages.xml", "<coverages><coverage><name>dem</name></coverage></coverages>");
+        catalog.put(rest + "/workspaces/topp/coveragestores/dem/coverages/dem.xml", "<coverage><name>dem</name><title>DEM</title></coverage>");
+
+        server.createContext("/geoserver/rest/", (HttpExchange exchange) -> {
+            String body = catalog.get(exchange.getRequestURI().getPath());
+            // no connection outlives a response, so none can be found reset when reused
+            exchange.getResponseHeaders().set("Connection", "close");
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] bytes = body.getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(bytes);
+                os.close();
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+
+        transport = new PooledHTTPTransport();
+        reader = new GeoServerRESTReader(new URL(base), "admin", "geoserver", transport);
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testCrawl() throws InterruptedException {
+        CatalogCrawler crawler = new CatalogCrawler(reader, 4);
+        assertEquals(CatalogCrawler.Phase.IDLE, crawler.getPhase());
+
+        CatalogSnapshot snapshot = crawler.crawl();
+
+        assertEquals(CatalogCrawler.Phase.DONE, crawler.getPhase());
+        assertEquals(crawler.getSubmittedRequests(), crawler.getCompletedRequests());
+        // workspace styles and workspace layergroups are not found
+        assertEquals(2, crawler.getFailedRequests());
+
+        assertEquals(1, snapshot.getWorkspaceNames().size());
+        assertEquals("topp", snapshot.getNamespace("topp").getPrefix());
+        assertTrue(snapshot.getDataStore("topp", "taz_shapes").isEnabled());
+        assertEquals("GeoTIFF", snapshot.getCoverageStore("topp", "dem").getType());
+        assertEquals("DEM", snapshot.getCoverage("topp", "dem").getTitle());
+        assertEquals("capitals", snapshot.getLayer("topp", "tasmania_cities").getDefaultStyle());
+        assertNotNull(snapshot.getFeatureType("topp", "tasmania_cities"));
+        assertNotNull(snapshot.getFeatureType("topp", "tasmania_roads"));
+        assertEquals("WMS", snapshot.getWmsStore("topp", "remote").getType());
+        assertEquals("USA Population", snapshot.getWmsLayer("topp", "states").getTitle());
+        assertEquals("capitals.sld", snapshot.getStyle(null, "capitals").getFileName());
+        assertTrue(snapshot.getWmsLayers("missing").isEmpty());
+        assertTrue(snapshot.getLayerGroups(null).isEmpty());
+        assertNull(snapshot.getDataStore("missing", "taz_shapes"));
+    }
+
+    @Test
+    public void testCrawlUnqualifiedLayerNames() throws InterruptedException {
+        // older GeoServer versions list the layers without their workspace
+        catalog.put("/geoserver/rest/layers.xml", "<layers><layer><name>tasmania_cities</name></layer></layers>");
+
+        CatalogSnapshot snapshot = new CatalogCrawler(reader, 4).crawl();
+
+        assertEquals("capitals", snapshot.getLayer("topp", "tasmania_cities").getDefaultStyle());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsImmutable() throws InterruptedException {
+        CatalogSnapshot snapshot = new CatalogCrawler(reader).crawl();
+        snapshot.getDataStores("topp").clear();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadParallelism() {
+        new CatalogCrawler(reader, 0);
+    }
+}
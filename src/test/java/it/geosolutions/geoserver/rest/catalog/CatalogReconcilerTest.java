@@ -0,0 +1,245 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.geoserver.rest.GeoServerRESTManager;
+import it.geosolutions.geoserver.rest.catalog.ReconcilePlan.Action;
+import it.geosolutions.geoserver.rest.catalog.ReconcilePlan.Kind;
+import it.geosolutions.geoserver.rest.catalog.ReconcilePlan.Operation;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureType;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTLayerGroup;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSLayerGroupEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSWorkspaceEncoder;
+import it.geosolutions.geoserver.rest.encoder.datastore.GSPostGISDatastoreEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.http.CacheableResponse;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.standin.StandInGeoServer;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reconciles models against the {@link StandInGeoServer}.
+ */
+public class CatalogReconcilerTest {
+
+    private static final String SLD = "<StyledLayerDescriptor version=\"1.0.0\""
+            + " xmlns=\"http://www.opengis.net/sld\"><NamedLayer><Name>roads</Name>"
+            + "<UserStyle><FeatureTypeStyle><Rule><LineSymbolizer><Stroke>"
+            + "<CssParameter name=\"stroke\">%s</CssParameter>"
+            + "</Stroke></LineSymbolizer></Rule></FeatureTypeStyle></UserStyle></NamedLayer>"
+            + "</StyledLayerDescriptor>";
+
+    private StandInGeoServer server;
+
+    private PooledHTTPTransport transport;
+
+    private GeoServerRESTManager manager;
+
+    private CatalogReconciler reconciler;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInGeoServer();
+        server.start();
+        transport = new PooledHTTPTransport();
+        manager = new GeoServerRESTManager(server.getURL(), "admin", "geoserver", transport);
+        reconciler = new CatalogReconciler(server.getURL(), "admin", "geoserver", transport, 4);
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop();
+    }
+
+    private static CatalogModel model(String title, String stroke) {
+        CatalogModel model = new CatalogModel();
+        model.addWorkspace(new GSWorkspaceEncoder("topp"));
+
+        GSPostGISDatastoreEncoder store = new GSPostGISDatastoreEncoder("postgis");
+        store.setHost("db");
+        store.setDatabase("gis");
+        store.setUser("gis");
+        store.setPassword("secret");
+        model.addStore("topp", store);
+
+        model.addStyle("topp", "roads", String.format(SLD, stroke));
+
+        GSFeatureTypeEncoder roads = new GSFeatureTypeEncoder();
+        roads.setName("roads");
+        roads.setTitle(title);
+        roads.setSRS("EPSG:4326");
+        GSLayerEncoder layer = new GSLayerEncoder();
+        layer.setDefaultStyle("topp", "roads");
+        model.addFeatureType("topp", "postgis", roads, layer);
+
+        GSLayerGroupEncoder group = new GSLayerGroupEncoder();
+        group.addLayer("topp:roads");
+        group.setBounds("EPSG:4326", -180, 180, -90, 90);
+        model.addLayerGroup("topp", "basemap", group);
+        return model;
+    }
+
+    @Test
+    public void testCreateThenNothingToDo() throws InterruptedException {
+        ReconcilePlan plan = reconciler.plan(model("Roads", "#000000"));
+        assertEquals(plan.toString(), 6, plan.size());
+        assertEquals(5, plan.getActions(Operation.CREATE).size());
+        // the layer is created along with its featuretype, then configured
+        assertEquals(1, plan.getActions(Operation.UPDATE).size());
+        Kind[] order = { Kind.WORKSPACE, Kind.STYLE, Kind.STORE, Kind.FEATURETYPE, Kind.LAYER,
+                Kind.LAYERGROUP };
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(order[i], plan.getActions().get(i).getKind());
+        }
+
+        assertTrue(reconciler.apply(plan));
+        for (Action action : plan.getActions()) {
+            assertTrue(action.toString(), action.isApplied());
+        }
+        RESTLayer layer = manager.getReader().getLayer("topp", "roads");
+        assertEquals("topp:roads", layer.getDefaultStyle());
+        RESTFeatureType featureType = manager.getReader().getFeatureType(layer);
+        assertEquals("Roads", featureType.getTitle());
+        RESTLayerGroup group = manager.getReader().getLayerGroup("topp", "basemap");
+        assertEquals("roads", group.getPublishedList().getNames().get(0));
+
+        // the second run only reads the elements of the model
+        long requests = server.getRequestCount();
+        plan = reconciler.plan(model("Roads", "#000000"));
+        assertTrue(plan.toString(), plan.isEmpty());
+        assertEquals(6, plan.getRequests());
+        assertEquals(requests + 6, server.getRequestCount());
+    }
+
+    @Test
+    public void testUpdateChangedOnly() throws InterruptedException {
+        assertTrue(reconciler.apply(reconciler.plan(model("Roads", "#000000"))));
+
+        ReconcilePlan plan = reconciler.plan(model("Main roads", "#ff0000"));
+        assertEquals(plan.toString(), 2, plan.size());
+        Action style = plan.getActions().get(0);
+        assertEquals(Kind.STYLE, style.getKind());
+        assertEquals(Operation.UPDATE, style.getOperation());
+        Action featureType = plan.getActions().get(1);
+        assertEquals(Kind.FEATURETYPE, featureType.getKind());
+        assertEquals("featureType/title", featureType.getReason());
+
+        long requests = server.getRequestCount();
+        assertTrue(reconciler.apply(plan));
+        assertEquals(requests + 2, server.getRequestCount());
+        assertEquals("Main roads", manager.getReader().getFeatureType(
+                manager.getReader().getLayer("topp", "roads")).getTitle());
+        assertTrue(manager.getReader().getSLD("topp", "roads").contains("#ff0000"));
+        assertTrue(reconciler.plan(model("Main roads", "#ff0000")).isEmpty());
+    }
+
+    @Test
+    public void testPrune() throws InterruptedException {
+        assertTrue(reconciler.apply(reconciler.plan(model("Roads", "#000000"))));
+        assertTrue(manager.getPublisher().createWorkspace("other"));
+        assertTrue(manager.getPublisher().createLayerGroup("topp", "stale", new GSLayerGroupEncoder()));
+        GSFeatureTypeEncoder rivers = new GSFeatureTypeEncoder();
+        rivers.setName("rivers");
+        assertTrue(manager.getPublisher().publishDBLayer("topp", "postgis", rivers, new GSLayerEncoder()));
+
+        CatalogModel model = model("Roads", "#000000");
+        assertTrue(reconciler.plan(model).isEmpty());
+        model.setPrune(true);
+        ReconcilePlan plan = reconciler.plan(model);
+        assertEquals(plan.toString(), 2, plan.getActions(Operation.DELETE).size());
+        assertEquals(Kind.LAYERGROUP, plan.getActions().get(0).getKind());
+        assertEquals(Kind.FEATURETYPE, plan.getActions().get(1).getKind());
+
+        assertTrue(reconciler.apply(plan));
+        assertNull(manager.getReader().getLayerGroup("topp", "stale"));
+        assertNull(manager.getReader().getLayer("topp", "rivers"));
+        assertNotNull(manager.getReader().getLayer("topp", "roads"));
+        assertTrue(manager.getReader().existsWorkspace("other"));
+        assertTrue(reconciler.plan(model).isEmpty());
+    }
+
+    @Test
+    public void testFailureSkipsDependents() throws InterruptedException {
+        ReconcilePlan plan = reconciler.plan(model("Roads", "#000000"));
+        long requests = server.getRequestCount();
+        server.failNext(1, 500);
+        assertFalse(reconciler.apply(plan));
+        assertEquals(plan.size(), plan.getFailedActions().size());
+        assertEquals(requests + 1, server.getRequestCount());
+        assertFalse(manager.getReader().existsWorkspace("topp"));
+    }
+
+    @Test
+    public void testUnreadableStateAbortsPlan() throws InterruptedException {
+        reconciler.reconcile(model("Roads", "#000000"));
+        server.failNext(1, 500);
+        try {
+            reconciler.plan(model("Roads", "#000000"));
+            fail("A failed read must not be planned as a missing element");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("(500)"));
+        }
+        assertTrue(reconciler.plan(model("Roads", "#000000")).isEmpty());
+    }
+
+    @Test
+    public void testUnparseableStateAbortsPlan() throws InterruptedException {
+        reconciler.reconcile(model("Roads", "#000000"));
+        PooledHTTPTransport truncating = new PooledHTTPTransport() {
+            @Override
+            public CacheableResponse getIfModified(String url, String username, String pw,
+                    String etag, String lastModified) {
+                CacheableResponse response = super.getIfModified(url, username, pw, etag, lastModified);
+                if (url.endsWith("/datastores/postgis.xml")) {
+                    return new CacheableResponse(response.getStatus(), "<dataStore><name>", null, null);
+                }
+                return response;
+            }
+        };
+        try {
+            new CatalogReconciler(server.getURL(), "admin", "geoserver", truncating, 4)
+                    .plan(model("Roads", "#000000"));
+            fail("An unreadable element must not be planned as a missing one");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("postgis.xml (unreadable)"));
+        } finally {
+            truncating.shutdown();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.geoserver.rest.decoder.utils.JDOMBuilder;
+import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jdom.Element;
+import org.junit.Test;
+
+/**
+ * Checks the decoding of {@link RESTAbstractList}.
+ */
+public class RESTAbstractListTest {
+
+    private static final String MIXED = "<layers>"
+            + "<layer><name>a</name></layer>"
+            + "<layer><name>b</name></layer>"
+            + "<style><name>c</name></style>"
+            + "</layers>";
+
+    @Test
+    public void testNames() {
+        RESTLayerList list = RESTLayerList.build("<layers><layer><name>a</name></layer><layer><name>b</name></layer></layers>");
+        assertEquals(2, list.size());
+        assertFalse(list.isEmpty());
+        assertEquals("b", list.get(1).getName());
+        assertEquals(Arrays.asList("a", "b"), list.getNames());
+    }
+
+    @Test
+    public void testEarlyTermination() {
+        RESTLayerList list = RESTLayerList.build("<layers><layer><name>a</name></layer>"
+                + "<layer><name>b</name></layer><layer><name>c</name></layer></layers>");
+        assertEquals(3, list.size());
+        Iterator<NameLinkElem> it = list.iterator();
+        assertEquals("a", it.next().getName());
+        assertEquals("b", it.next().getName());
+    }
+
+    @Test
+    public void testDecodedOnDemand() {
+        final AtomicInteger decoded = new AtomicInteger();
+        RESTAbstractList<NameLinkElem> list = new RESTAbstractList<NameLinkElem>() {
+            @Override
+            protected NameLinkElem createElement(Element el) {
+                decoded.incrementAndGet();
+                return super.createElement(el);
+            }
+        };
+        String xml = "<layers><layer><name>a</name></layer>"
+                + "<layer><name>b</name></layer><layer><name>c</name></layer></layers>";
+        assertTrue(list.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(3, list.size());
+        assertEquals(0, decoded.get());
+
+        Iterator<NameLinkElem> it = list.iterator();
+        NameLinkElem first = it.next();
+        assertEquals("a", first.getName());
+        assertEquals(1, decoded.get());
+
+        // each item is decoded once
+        assertSame(first, list.get(0));
+        assertEquals(Arrays.asList("a", "b", "c"), list.getNames());
+        assertEquals(3, decoded.get());
+    }
+
+    @Test
+    public void testMismatchingElements() {
+        // detected when the mismatching item is reached
+        RESTLayerList list = RESTLayerList.build(MIXED);
+        Iterator<NameLinkElem> it = list.iterator();
+        assertEquals("a", it.next().getName());
+        assertEquals("b", it.next().getName());
+        try {
+            it.hasNext();
+            fail("Mismatching element not detected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("mismatching"));
+        }
+    }
+
+    @Test
+    public void testDecodedItemsAreReleased() {
+        Element root = JDOMBuilder.buildElement("<layers><layer><name>a</name></layer>"
+                + "<layer><name>b</name></layer></layers>");
+        RESTLayerList list = new RESTLayerList(root);
+        assertEquals("a", list.get(0).getName());
+        Element first = (Element) root.getChildren().get(0);
+        assertTrue(first.getContent().isEmpty());
+        assertEquals("b", ((Element) root.getChildren().get(1)).getChildText("name"));
+
+        assertEquals(Arrays.asList("a", "b"), list.getNames());
+        assertTrue(list.elementList.isEmpty());
+        assertEquals(2, list.size());
+    }
+}
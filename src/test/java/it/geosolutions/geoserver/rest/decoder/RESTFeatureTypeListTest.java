@@ -47,4 +47,15 @@ public class RESTFeatureTypeListTest {
 		assertArrayEquals(new String[]{"states", "tasmania_cities", "tasmania_roads", "tasmania_state_boundaries", "tasmania_water_bodies"}
 				, list.toArray());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testBuildFromStream() throws IOException {
+		InputStream is = RESTFeatureTypeListTest.class.getResourceAsStream("/testdata/featureTypeListExample.xml");
+		RESTFeatureTypeList result = RESTFeatureTypeList.build(is);
+		is.close();
+		List<String> list = result.getNames();
+
+		assertArrayEquals(new String[]{"states", "tasmania_cities", "tasmania_roads", "tasmania_state_boundaries", "tasmania_water_bodies"}
+				, list.toArray());
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.decoder.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureTypeList;
+import it.geosolutions.geoserver.rest.decoder.RESTStructuredCoverageGranulesList;
+import it.geosolutions.geoserver.rest.decoder.RESTStructuredCoverageGranulesList.RESTStructuredCoverageGranule;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.jdom.Element;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Checks that {@link StAXBuilder} builds the same elements as {@link JDOMBuilder},
+ * whole or one list item at a time.
+ */
+public class StAXBuilderTest {
+
+    private static final String GRANULES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<wfs:FeatureCollection xmlns:gf=\"http://www.geoserver.org/rest/granules\""
+            + " xmlns:ogc=\"http://www.opengis.net/ogc\" xmlns:wfs=\"http://www.opengis.net/wfs\""
+            + " xmlns:gml=\"http://www.opengis.net/gml\">\n"
+            + "  <gml:boundedBy>\n"
+            + "    <gml:Box srsName=\"http://www.opengis.net/gml/srs/epsg.xml#4326\">\n"
+            + "      <gml:coordinates>5.0,45.0 14.875,50.9375</gml:coordinates>\n"
+            + "    </gml:Box>\n"
+            + "  </gml:boundedBy>\n"
+            + "  <gml:featureMember>\n"
+            + "    <gf:V fid=\"V.1\">\n"
+            + "      <gf:location>polyphemus_20130301.nc</gf:location>\n"
+            + "      <gf:imageindex>672</gf:imageindex>\n"
+            + "      <gf:time>2013-02-28T23:00:00Z</gf:time>\n"
+            + "    </gf:V>\n"
+            + "  </gml:featureMember>\n"
+            + "  <gml:featureMember>\n"
+            + "    <gf:V fid=\"V.2\">\n"
+            + "      <gf:location><![CDATA[polyphemus_20130302.nc]]></gf:location>\n"
+            + "      <gf:imageindex>673</gf:imageindex>\n"
+            + "      <gf:time>2013-03-01T23:00:00Z</gf:time>\n"
+            + "    </gf:V>\n"
+            + "  </gml:featureMember>\n"
+            + "</wfs:FeatureCollection>";
+
+    @Test
+    public void testSameAsJDOMBuilder() throws IOException {
+        for (String file : new String[] { "layerExample.xml", "coverageExample.xml",
+                "featureTypeListExample.xml", "wmsstoreExample.xml" }) {
+            String xml = IOUtils.toString(new ClassPathResource("testdata/" + file).getInputStream(), "UTF-8");
+            InputStream is = new ClassPathResource("testdata/" + file).getInputStream();
+            try {
+                assertEquals(file, toString(JDOMBuilder.buildElement(xml)),
+                        toString(StAXBuilder.buildElement(is)));
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    @Test
+    public void testGranules() throws IOException {
+        RESTStructuredCoverageGranulesList granules = RESTStructuredCoverageGranulesList
+                .build(new ByteArrayInputStream(GRANULES.getBytes("UTF-8")));
+        assertEquals(2, granules.size());
+        RESTStructuredCoverageGranule granule = granules.get(1);
+        assertEquals("V.2", granule.getFid());
+        assertEquals("polyphemus_20130302.nc", granule.getAttributeByName("location"));
+        assertEquals("673", granule.getAttributeByIndex(1));
+        assertEquals("5.0,45.0 14.875,50.9375", granules.getBbox().getChildText("coordinates",
+                granules.getBbox().getNamespace()));
+
+        // decoded one member at a time: no granule refers to the feature collection
+        Element attribute = granule.getAttributesIterator().next();
+        Element featureMember = attribute.getParentElement().getParentElement();
+        assertEquals("featureMember", featureMember.getName());
+        assertNull(featureMember.getParent());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGranulesBadRoot() throws IOException {
+        RESTStructuredCoverageGranulesList.build(new ByteArrayInputStream(GRANULES.replace(
+                "wfs:FeatureCollection", "wfs:Collection").getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testVisitChildren() throws IOException {
+        String xml = IOUtils.toString(new ClassPathResource("testdata/featureTypeListExample.xml")
+                .getInputStream(), "UTF-8");
+        final List<Element> expected = JDOMBuilder.buildElement(xml).getChildren();
+        final List<Element> visited = new ArrayList<Element>();
+        InputStream is = new ClassPathResource("testdata/featureTypeListExample.xml").getInputStream();
+        try {
+            assertTrue(StAXBuilder.visitChildren(is, (Element child) -> {
+                // detached, so that the tree is not built
+                assertNull(child.getParent());
+                visited.add(child);
+            }));
+        } finally {
+            is.close();
+        }
+        assertEquals(expected.size(), visited.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(toString(expected.get(i)), toString(visited.get(i)));
+        }
+
+        RESTFeatureTypeList list = RESTFeatureTypeList.build(new ClassPathResource(
+                "testdata/featureTypeListExample.xml").getInputStream());
+        assertEquals(RESTFeatureTypeList.build(xml).getNames(), list.getNames());
+        assertFalse(StAXBuilder.visitChildren(new ByteArrayInputStream("<a><b></a>".getBytes("UTF-8")),
+                (Element child) -> { }));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testVisitorExceptionsPropagate() throws IOException {
+        StAXBuilder.visitChildren(new ByteArrayInputStream(
+                "<featureTypes><featureType/><style/></featureTypes>".getBytes("UTF-8")),
+                new Consumer<Element>() {
+                    public void accept(Element child) {
+                        if (child.getName().equals("style")) {
+                            throw new RuntimeException("Unexpected " + child.getName());
+                        }
+                    }
+                });
+    }
+
+    @Test
+    public void testBadInput() throws IOException {
+        assertNull(StAXBuilder.buildElement(null));
+        assertNull(StAXBuilder.buildElement(new ByteArrayInputStream("<a><b></a>".getBytes("UTF-8"))));
+        assertNull(StAXBuilder.buildElement(new ByteArrayInputStream(new byte[0])));
+    }
+
+    private static String toString(Element elem) {
+        return new XMLOutputter(Format.getCompactFormat()).outputString(elem);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.encoder.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.encoder.feature.FeatureTypeAttribute;
+import it.geosolutions.geoserver.rest.encoder.feature.GSAttributeEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+
+import org.jdom.Element;
+import org.junit.Test;
+
+/**
+ * Checks the indexed key lookup of {@link PropertyXMLEncoder} and
+ * {@link NestedElementEncoder}.
+ */
+public class PropertyXMLEncoderTest {
+
+    private static class Encoder extends PropertyXMLEncoder {
+        Encoder() {
+            super("root");
+        }
+    }
+
+    @Test
+    public void testNestedKeys() {
+        Encoder encoder = new Encoder();
+        encoder.set("a/b/c", "1");
+        encoder.set("a/b/d", "2");
+        encoder.add("a/e", "3");
+        assertEquals("<root><a><b><c>1</c><d>2</d></b><e>3</e></a></root>", encoder.toString());
+
+        encoder.set("a/b/c", "4");
+        assertEquals("4", encoder.get("a/b/c").getText());
+        assertEquals("<root><a><b><d>2</d><c>4</c></b><e>3</e></a></root>", encoder.toString());
+
+        assertTrue(encoder.remove("a/b"));
+        assertNull(encoder.get("a/b/c"));
+        assertFalse(encoder.remove("a/b/d"));
+        encoder.set("a/b/c", "5");
+        assertEquals("<root><a><e>3</e><b><c>5</c></b></a></root>", encoder.toString());
+    }
+
+    @Test
+    public void testChangesOutsideTheEncoder() {
+        Encoder encoder = new Encoder();
+        encoder.set("a/b", "1");
+        assertEquals("1", encoder.get("a/b").getText());
+        // replaced without going through the encoder
+        encoder.getRoot().removeContent();
+        encoder.getRoot().addContent(new Element("a").addContent(new Element("b").setText("2")));
+        assertEquals("2", encoder.get("a/b").getText());
+        encoder.set("a/b", "3");
+        assertEquals("<root><a><b>3</b></a></root>", encoder.toString());
+    }
+
+    @Test
+    public void testDuplicates() {
+        Encoder encoder = new Encoder();
+        encoder.add("k", "1");
+        encoder.add("k", "2");
+        assertEquals("1", encoder.get("k").getText());
+        assertTrue(encoder.remove("k"));
+        assertEquals("2", encoder.get("k").getText());
+    }
+
+    @Test
+    public void testNameDoesNotClashWithAttributes() {
+        GSFeatureTypeEncoder fte = new GSFeatureTypeEncoder();
+        GSAttributeEncoder attribute = new GSAttributeEncoder();
+        attribute.setAttribute(FeatureTypeAttribute.name, "the_geom");
+        fte.setAttribute(attribute);
+        fte.setName("roads");
+        fte.setName("streets");
+        assertEquals("streets", fte.getName());
+        assertTrue(fte.toString().contains("<name>the_geom</name>"));
+    }
+
+    @Test
+    public void testNestedEntries() {
+        NestedElementEncoder entries = new NestedElementEncoder("metadata");
+        for (int i = 0; i < 20000; i++) {
+            entries.set("k" + (i % 10000), "v" + i);
+        }
+        assertEquals(10000, entries.getRoot().getContentSize());
+        assertEquals("v10000", ((Element) entries.getRoot().getContent(0)).getText());
+
+        entries.add("k0", "dup");
+        assertTrue(entries.remove("k0"));
+        assertTrue(entries.remove("k0"));
+        assertFalse(entries.remove("k0"));
+
+        // entries added by other means are found too
+        entries.getRoot().addContent(new Element(NestedElementEncoder.ENTRY)
+                .setAttribute(NestedElementEncoder.KEY, "other").setText("x"));
+        assertTrue(entries.remove("other"));
+        assertEquals(9999, entries.getRoot().getContentSize());
+
+        entries.set("time", new Element("dimensionInfo"));
+        entries.set("time", new Element("dimensionInfo").setText("new"));
+        assertEquals("new", ((Element) entries.getRoot().getContent(9999)).getChildText("dimensionInfo"));
+        assertEquals(10000, entries.getRoot().getContentSize());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.encoder.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSLayerGroupEncoder23;
+import it.geosolutions.geoserver.rest.encoder.GSResourceEncoder.ProjectionPolicy;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.http.XmlElementEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.Document;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+import org.junit.Test;
+
+/**
+ * Checks that the streamed encoders match their String serialization.
+ */
+public class XmlElementTest {
+
+    private static String stream(XmlElement element) throws XMLStreamException, IOException,
+            JDOMException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        element.writeTo(out);
+        String xml = new String(out.toByteArray(), "UTF-8");
+        assertTrue(xml, xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+        Document document = new SAXBuilder().build(new ByteArrayInputStream(out.toByteArray()));
+        return new XMLOutputter(Format.getCompactFormat()).outputString(document.getRootElement());
+    }
+
+    @Test
+    public void testFeatureType() throws Exception {
+        GSFeatureTypeEncoder fte = new GSFeatureTypeEncoder();
+        fte.setName("citt\u00e0 & <roads>");
+        fte.setTitle("  spaced   title ");
+        fte.setSRS("EPSG:4326");
+        fte.setProjectionPolicy(ProjectionPolicy.FORCE_DECLARED);
+        fte.addKeyword("roads", "en", "vocabulary");
+        fte.setMetadataString("cachingEnabled", "true");
+        fte.setLatLonBoundingBox(-180, -90, 180, 90, "EPSG:4326");
+        assertEquals(fte.toString(), stream(fte));
+    }
+
+    @Test
+    public void testLayer() throws Exception {
+        GSLayerEncoder layer = new GSLayerEncoder();
+        layer.setDefaultStyle("ws", "line");
+        layer.addStyle("point");
+        layer.setEnabled(true);
+        assertEquals(layer.toString(), stream(layer));
+    }
+
+    @Test
+    public void testLayerGroup() throws Exception {
+        GSLayerGroupEncoder23 group = new GSLayerGroupEncoder23();
+        group.setName("group");
+        group.setMode(GSLayerGroupEncoder23.MODE_NAMED);
+        group.addLayer("topp:states", "population");
+        group.addLayerGroup("other");
+        group.setBounds("EPSG:4326", -180, 180, -90, 90);
+        String streamed = stream(group);
+        // serializing twice is harmless
+        assertEquals(group.toString(), streamed);
+        assertEquals(streamed, stream(group));
+    }
+
+    @Test
+    public void testEntity() throws Exception {
+        GSLayerEncoder layer = new GSLayerEncoder();
+        layer.setDefaultStyle("line");
+        XmlElementEntity entity = new XmlElementEntity(layer);
+        assertEquals(-1, entity.getContentLength());
+        assertTrue(entity.isRepeatable());
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        entity.writeRequest(first);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        entity.writeRequest(second);
+        assertEquals(first.toString("UTF-8"), second.toString("UTF-8"));
+    }
+}
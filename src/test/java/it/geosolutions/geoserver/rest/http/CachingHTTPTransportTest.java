@@ -0,0 +1,193 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the {@link CachingHTTPTransport} against a local HTTP server
+ * supporting ETags.
+ */
+public class CachingHTTPTransportTest {
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    private PooledHTTPTransport pooled;
+
+    private CachingHTTPTransport transport;
+
+    private final Map<String, String> resources = new ConcurrentHashMap<String, String>();
+
+    private final AtomicInteger gets = new AtomicInteger();
+
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/", (HttpExchange exchange) -> {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(resources.containsKey(path) ? 200 : 404, -1);
+            } else if (method.equals("GET")) {
+                gets.incrementAndGet();
+                String body = resources.get(path);
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    String etag = "\"" + body.hashCode() + "\"";
+                    exchange.getResponseHeaders().add("ETag", etag);
+                    if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                        notModified.incrementAndGet();
+                        exchange.sendResponseHeaders(304, -1);
+                    } else {
+                        byte[] bytes = body.getBytes("UTF-8");
+                        exchange.sendResponseHeaders(200, bytes.length);
+                        OutputStream os = exchange.getResponseBody();
+                        os.write(bytes);
+                        os.close();
+                    }
+                }
+            } else {
+                String content = IOUtils.toString(exchange.getRequestBody());
+                if (method.equals("DELETE")) {
+                    resources.remove(path);
+                } else {
+                    resources.put(path, content);
+                }
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/geoserver/rest";
+        resources.put("/geoserver/rest/layers/topp:states.xml", "<layer><name>states</name></layer>");
+        resources.put("/geoserver/rest/styles/line.xml", "<style><name>line</name></style>");
+
+        pooled = new PooledHTTPTransport();
+        transport = new CachingHTTPTransport(pooled, 2, 60000);
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testHitsAndLRU() {
+        String layer = baseUrl + "/layers/topp:states.xml";
+        assertEquals("<layer><name>states</name></layer>", transport.get(layer, "admin", "geoserver"));
+        assertEquals("<layer><name>states</name></layer>", transport.get(layer, "admin", "geoserver"));
+        assertTrue(transport.exists(layer, "admin", "geoserver"));
+        assertEquals(1, gets.get());
+        assertEquals(2, transport.getHits());
+
+        // other credentials are cached separately
+        transport.get(layer, "other", "pw");
+        assertEquals(2, gets.get());
+
+        // the LRU only keeps 2 entries
+        transport.get(baseUrl + "/styles/line.xml", "admin", "geoserver");
+        assertEquals(2, transport.size());
+        transport.get(layer, "admin", "geoserver");
+        assertEquals(4, gets.get());
+    }
+
+    @Test
+    public void testRevalidation() {
+        transport.setTimeToLive("layers", 1);
+        String layer = baseUrl + "/layers/topp:states.xml";
+        transport.get(layer, "admin", "geoserver");
+        sleep(5);
+        assertEquals("<layer><name>states</name></layer>", transport.get(layer, "admin", "geoserver"));
+        assertEquals(1, notModified.get());
+        assertEquals(1, transport.getRevalidations());
+
+        resources.put("/geoserver/rest/layers/topp:states.xml", "<layer><name>states2</name></layer>");
+        sleep(5);
+        assertEquals("<layer><name>states2</name></layer>", transport.get(layer, "admin", "geoserver"));
+    }
+
+    @Test
+    public void testWritesInvalidate() {
+        String layer = baseUrl + "/layers/topp:roads.xml";
+        assertFalse(transport.exists(layer, "admin", "geoserver"));
+        assertNull(transport.get(layer, "admin", "geoserver"));
+        String style = baseUrl + "/styles/line.xml";
+        transport.get(style, "admin", "geoserver");
+
+        // publishing inside a workspace affects the layers, not the styles
+        transport.putXml(baseUrl + "/workspaces/topp/datastores/roads/featuretypes/roads.xml", "<ft/>", "admin", "geoserver");
+        resources.put("/geoserver/rest/layers/topp:roads.xml", "<layer><name>roads</name></layer>");
+        assertTrue(transport.exists(layer, "admin", "geoserver"));
+        int before = gets.get();
+        transport.get(style, "admin", "geoserver");
+        assertEquals(before, gets.get());
+
+        assertTrue(transport.delete(style, "admin", "geoserver"));
+        assertNull(transport.get(style, "admin", "geoserver"));
+    }
+
+    @Test
+    public void testResourceType() {
+        assertEquals("layers", CachingHTTPTransport.resourceType(baseUrl + "/layers.xml"));
+        assertEquals("layers", CachingHTTPTransport.resourceType(baseUrl + "/layers/topp:states.xml"));
+        assertEquals("styles", CachingHTTPTransport.resourceType(baseUrl + "/workspaces/topp/styles/line.xml"));
+        assertEquals("featuretypes", CachingHTTPTransport.resourceType(
+                baseUrl + "/workspaces/topp/datastores/ds/featuretypes/roads.xml"));
+        assertEquals("featuretypes", CachingHTTPTransport.resourceType(
+                baseUrl + "/workspaces/topp/datastores/ds/featuretypes.xml?list=all"));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
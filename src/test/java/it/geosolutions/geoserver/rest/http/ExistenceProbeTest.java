@@ -0,0 +1,207 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.standin.StandInGeoServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Checks how the transports probe the existence of resources, and how the
+ * probe is picked from the version of the target GeoServer.
+ */
+public class ExistenceProbeTest {
+
+    private StubHTTPServer server;
+
+    private String baseUrl;
+
+    private final List<Integer> clientPorts = Collections.synchronizedList(new ArrayList<Integer>());
+
+    private final List<String> methods = Collections.synchronizedList(new ArrayList<String>());
+
+    private final RequestListener recorder = new RequestListener() {
+
+        public void requestStarted(String method, String url) {
+            methods.add(method);
+        }
+
+        public void requestCompleted(String method, String url, int status, long bytesSent,
+                long bytesReceived, long nanos) {
+        }
+    };
+
+    /**
+     * A server refusing <TT>HEAD</TT> requests; <TT>/rest/large.xml</TT>
+     * ignores the range and sends a large body.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new StubHTTPServer("/rest/", (HttpExchange exchange) -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            String path = exchange.getRequestURI().getPath();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                StubHTTPServer.send(exchange, 405, null);
+            } else if (path.endsWith("missing.xml")) {
+                StubHTTPServer.send(exchange, 404, null);
+            } else if (path.endsWith("large.xml")) {
+                byte[] body = new byte[1024 * 1024];
+                Arrays.fill(body, (byte) ' ');
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                try {
+                    os.write(body);
+                    os.close();
+                } catch (IOException e) {
+                    // the client gave up reading
+                }
+            } else if ("bytes=0-0".equals(range)) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes 0-0/4");
+                StubHTTPServer.send(exchange, 206, "<");
+            } else {
+                StubHTTPServer.send(exchange, 400, null);
+            }
+        });
+        baseUrl = server.getURL("");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testPooledFallsBackToPartialGet() {
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+        transport.setRequestListener(recorder);
+        try {
+            assertTrue(transport.exists(baseUrl + "/rest/workspaces/ws.xml", "admin", "geoserver"));
+            assertEquals(Arrays.asList("HEAD", "GET"), methods);
+            // the host is not asked for HEAD again
+            assertFalse(transport.exists(baseUrl + "/rest/workspaces/missing.xml", "admin", "geoserver"));
+            assertEquals(Arrays.asList("HEAD", "GET", "GET"), methods);
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testJDKFallsBackToPartialGet() {
+        JDKAsyncHTTPTransport transport = new JDKAsyncHTTPTransport();
+        transport.setRequestListener(recorder);
+        try {
+            assertTrue(transport.exists(baseUrl + "/rest/workspaces/ws.xml", "admin", "geoserver"));
+            assertEquals(Arrays.asList("HEAD", "GET"), methods);
+            assertFalse(transport.existsAsync(baseUrl + "/rest/workspaces/missing.xml", "admin", "geoserver").join());
+            assertEquals(Arrays.asList("HEAD", "GET", "GET"), methods);
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeBodyIsNotRead() {
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+        try {
+            assertTrue(transport.exists(baseUrl + "/rest/large.xml", "admin", "geoserver",
+                    ExistenceProbe.PARTIAL_GET));
+            assertTrue(transport.exists(baseUrl + "/rest/workspaces/ws.xml", "admin", "geoserver",
+                    ExistenceProbe.PARTIAL_GET));
+            // the connection was dropped instead of draining the body
+            assertFalse(clientPorts.get(0).equals(clientPorts.get(1)));
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testProbeFollowsVersion() throws IOException {
+        StandInGeoServer geoserver = new StandInGeoServer();
+        geoserver.start();
+        geoserver.populate(1, 1, 1);
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+        transport.setRequestListener(recorder);
+        try {
+            GeoServerRESTReader reader = new GeoServerRESTReader(geoserver.getURL(), "admin", "geoserver",
+                    transport);
+            assertEquals(ExistenceProbe.PARTIAL_GET, reader.getCapabilities().getExistenceProbe());
+            methods.clear();
+            assertTrue(reader.existsDatastore("ws0", "store0"));
+            assertEquals(Arrays.asList("GET"), methods);
+
+            geoserver.setVersion("2.12.0");
+            reader = new GeoServerRESTReader(geoserver.getURL(), "admin", "geoserver", transport);
+            assertEquals(ExistenceProbe.HEAD, reader.getCapabilities().getExistenceProbe());
+            methods.clear();
+            assertTrue(reader.existsDatastore("ws0", "store0"));
+            assertFalse(reader.existsDatastore("ws0", "store9"));
+            assertFalse(reader.existsStyle("ws0", "missing"));
+            assertEquals(Arrays.asList("HEAD", "HEAD", "HEAD"), methods);
+        } finally {
+            transport.shutdown();
+            geoserver.stop();
+        }
+    }
+
+    @Test
+    public void testUnrecognizedVersionProbedOnce() throws IOException {
+        StandInGeoServer geoserver = new StandInGeoServer();
+        geoserver.start();
+        geoserver.populate(1, 1, 1);
+        geoserver.setVersion(null);
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+        try {
+            GeoServerRESTReader reader = new GeoServerRESTReader(geoserver.getURL(), "admin", "geoserver",
+                    transport);
+            long requests = geoserver.getRequestCount();
+            for (int i = 0; i < 5; i++) {
+                assertTrue(reader.existsLayer("ws0", "layer0_0", true));
+            }
+            // one version probe, then one request per check
+            assertEquals(requests + 6, geoserver.getRequestCount());
+            assertEquals(ExistenceProbe.PARTIAL_GET, reader.getCapabilities().getExistenceProbe());
+        } finally {
+            transport.shutdown();
+            geoserver.stop();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the {@link JDKAsyncHTTPTransport} against a local HTTP server.
+ */
+public class JDKAsyncHTTPTransportTest {
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    private JDKAsyncHTTPTransport transport;
+
+    private volatile String lastAuthorization;
+
+    private volatile String lastBody;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/rest/", (HttpExchange exchange) -> {
+            lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+            lastBody = IOUtils.toString(exchange.getRequestBody());
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("missing.xml")) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (path.endsWith("broken.xml")) {
+                exchange.sendResponseHeaders(500, -1);
+            } else {
+                if (path.endsWith("slow.xml")) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                byte[] body = ("<ok>" + exchange.getRequestMethod() + "</ok>").getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(64));
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        transport = new JDKAsyncHTTPTransport(2, 2000);
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testVerbs() {
+        assertEquals("<ok>GET</ok>", transport.get(baseUrl + "/rest/layers.xml", "admin", "geoserver"));
+        assertTrue(lastAuthorization.startsWith("Basic "));
+        assertEquals("<ok>POST</ok>", transport.postXml(baseUrl + "/rest/workspaces", "<workspace/>", "admin", "geoserver"));
+        assertEquals("<workspace/>", lastBody);
+        assertEquals("<ok>PUT</ok>", transport.putXml(baseUrl + "/rest/workspaces/ws", "<workspace/>", "admin", "geoserver"));
+        assertTrue(transport.delete(baseUrl + "/rest/workspaces/ws", "admin", "geoserver"));
+        assertTrue(transport.exists(baseUrl + "/rest/workspaces/ws.xml", "admin", "geoserver"));
+        assertFalse(transport.exists(baseUrl + "/rest/workspaces/missing.xml", "admin", "geoserver"));
+        assertNull(transport.get(baseUrl + "/rest/workspaces/missing.xml", null, null));
+        assertNull(lastAuthorization);
+        assertNull(transport.postXml(baseUrl + "/rest/broken.xml", "<workspace/>", "admin", "geoserver"));
+        assertTrue(transport.httpPing(baseUrl + "/rest/", "admin", "geoserver"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testExistsOnUnexpectedStatus() {
+        transport.exists(baseUrl + "/rest/broken.xml", "admin", "geoserver");
+    }
+
+    @Test
+    public void testMultipart() throws IOException {
+        File dir = new ClassPathResource("testdata/shapefile").getFile();
+        assertEquals("<ok>POST</ok>", transport.postMultipartForm(baseUrl + "/rest/imports/0/tasks", dir, "admin", "geoserver"));
+        for (File f : dir.listFiles()) {
+            assertTrue(lastBody.contains("filename=\"" + f.getName() + "\""));
+        }
+    }
+
+    @Test
+    public void testEmptyEntity() {
+        assertEquals("<ok>PUT</ok>", transport.put(baseUrl + "/rest/workspaces/ws/reload",
+                new ByteArrayRequestEntity(new byte[0], "text/plain"), "admin", "geoserver"));
+        assertEquals("", lastBody);
+    }
+
+    @Test
+    public void testManyRequestsInFlight() {
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(transport.getAsync(baseUrl + "/rest/slow.xml", "admin", "geoserver"));
+        }
+        for (CompletableFuture<String> f : futures) {
+            assertEquals("<ok>GET</ok>", f.join());
+        }
+        // 40 requests of 200ms each, served by 2 client threads: must overlap
+        assertTrue(System.currentTimeMillis() - start < 40 * 200 / 2);
+    }
+
+    @Test
+    public void testConnectionRefused() throws IOException {
+        server.stop(0);
+        assertNull(transport.get(baseUrl + "/rest/layers.xml", "admin", "geoserver"));
+        assertFalse(transport.httpPing(baseUrl + "/rest/", "admin", "geoserver"));
+        assertFalse(transport.delete(baseUrl + "/rest/layers/a", "admin", "geoserver"));
+    }
+
+    @Test
+    public void testBadUrlsFailTheFuture() {
+        CompletableFuture<String> get = transport.getAsync(baseUrl + "/rest/bad name.xml", "admin",
+                "geoserver");
+        assertNull(get.join());
+        CompletableFuture<Boolean> exists = transport.existsAsync(baseUrl + "/rest/bad name.xml",
+                "admin", "geoserver");
+        assertTrue(exists.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testRequestTimeout() {
+        server.createContext("/hang/", (HttpExchange exchange) -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        JDKAsyncHTTPTransport impatient = new JDKAsyncHTTPTransport(2, 2000, 200);
+        try {
+            long start = System.currentTimeMillis();
+            assertNull(impatient.getAsync(baseUrl + "/hang/layers.xml", "admin", "geoserver").join());
+            assertTrue(System.currentTimeMillis() - start < 3000);
+        } finally {
+            impatient.shutdown();
+        }
+    }
+}
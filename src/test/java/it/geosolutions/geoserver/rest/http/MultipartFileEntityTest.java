@@ -0,0 +1,101 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the bodies sent by {@link MultipartFileEntity}.
+ */
+public class MultipartFileEntityTest {
+
+    private File dir;
+
+    private File[] files;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("multipart", "");
+        dir.delete();
+        dir.mkdir();
+        FileUtils.writeByteArrayToFile(new File(dir, "a.tif"), new byte[MultipartFileEntity.CHUNK_SIZE + 12]);
+        FileUtils.writeStringToFile(new File(dir, "b.prj"), "GEOGCS[\"WGS 84\"]");
+        files = new File[] { new File(dir, "a.tif"), new File(dir, "b.prj") };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testStreamMatchesBody() throws IOException {
+        MultipartFileEntity entity = new MultipartFileEntity(files, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeRequest(out);
+        assertEquals(entity.getContentLength(), out.size());
+        InputStream in = entity.openStream();
+        try {
+            assertArrayEquals(out.toByteArray(), IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testFilesOpenedWhenReached() throws IOException {
+        MultipartFileEntity entity = new MultipartFileEntity(files, null);
+        InputStream in = entity.openStream();
+        try {
+            assertTrue(files[1].delete());
+            // the first file is still read in full
+            byte[] first = new byte[MultipartFileEntity.CHUNK_SIZE];
+            assertEquals(first.length, in.readNBytes(first, 0, first.length));
+            try {
+                IOUtils.toByteArray(in);
+                fail("the missing file should fail the read reaching it");
+            } catch (FileNotFoundException e) {
+                // expected
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
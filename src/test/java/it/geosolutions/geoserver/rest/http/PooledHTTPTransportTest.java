@@ -0,0 +1,233 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the {@link PooledHTTPTransport} against a local HTTP server.
+ */
+public class PooledHTTPTransportTest {
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    private PooledHTTPTransport transport;
+
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    private volatile String lastAuthorization;
+
+    private volatile String lastContentLength;
+
+    private volatile String lastBody;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/rest/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+                lastContentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+                lastBody = IOUtils.toString(exchange.getRequestBody(), "ISO-8859-1");
+
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("missing.xml")) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if (exchange.getRequestMethod().equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    byte[] body = ("<ok>" + exchange.getRequestMethod() + "</ok>").getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream os = exchange.getResponseBody();
+                    os.write(body);
+                    os.close();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        transport = new PooledHTTPTransport(4, 2, 2000, 10000);
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionsAreReused() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals("<ok>GET</ok>", transport.get(baseUrl + "/rest/layers.xml", "admin", "geoserver"));
+        }
+        assertEquals(1, clientPorts.size());
+        assertEquals(1, transport.getConnectionsInPool());
+    }
+
+    @Test
+    public void testVerbs() {
+        assertEquals("<ok>POST</ok>", transport.postXml(baseUrl + "/rest/workspaces", "<workspace/>", "admin", "geoserver"));
+        assertEquals("<ok>PUT</ok>", transport.putXml(baseUrl + "/rest/workspaces/ws", "<workspace/>", "admin", "geoserver"));
+        assertTrue(transport.delete(baseUrl + "/rest/workspaces/ws", "admin", "geoserver"));
+        assertTrue(transport.exists(baseUrl + "/rest/workspaces/ws.xml", "admin", "geoserver"));
+        assertFalse(transport.exists(baseUrl + "/rest/workspaces/missing.xml", "admin", "geoserver"));
+        assertNull(transport.get(baseUrl + "/rest/workspaces/missing.xml", "admin", "geoserver"));
+        assertTrue(transport.httpPing(baseUrl + "/rest/", "admin", "geoserver"));
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void testStreamingGet() {
+        ResponseDecoder<String> decoder = (in) -> IOUtils.toString(in, "UTF-8");
+        assertEquals("<ok>GET</ok>", transport.get(baseUrl + "/rest/layers.xml", "admin", "geoserver", decoder));
+        assertNull(transport.get(baseUrl + "/rest/missing.xml", "admin", "geoserver", decoder));
+        // the connection is released once decoded
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void testStreamingMultipart() throws IOException {
+        File dir = new ClassPathResource("testdata/shapefile").getFile();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong total = new AtomicLong();
+        String response = transport.postMultipartForm(baseUrl + "/rest/imports/0/tasks", dir,
+                "admin", "geoserver", (s, t) -> {
+                    assertTrue(s >= sent.get());
+                    sent.set(s);
+                    total.set(t);
+                });
+        assertEquals("<ok>POST</ok>", response);
+
+        // sent with a known length, not chunked
+        assertEquals(Long.toString(total.get()), lastContentLength);
+        assertEquals(total.get(), sent.get());
+        assertEquals(total.get(), lastBody.length());
+        for (File f : dir.listFiles()) {
+            assertTrue(lastBody.contains("filename=\"" + f.getName() + "\""));
+        }
+    }
+
+    @Test
+    public void testCredentialsArePerRequest() {
+        transport.get(baseUrl + "/rest/layers.xml", "admin", "geoserver");
+        assertTrue(lastAuthorization != null && lastAuthorization.startsWith("Basic "));
+
+        transport.get(baseUrl + "/rest/layers.xml", null, null);
+        assertNull(lastAuthorization);
+    }
+
+    @Test
+    public void testIdempotentRequestsAreRetriedOnReset() throws IOException {
+        final AtomicInteger connections = new AtomicInteger();
+        try (final ServerSocket resetting = new ServerSocket(0)) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        try (Socket socket = resetting.accept()) {
+                            readRequest(socket.getInputStream());
+                            if (connections.incrementAndGet() % 2 == 1) {
+                                // reset the connection once the request has been sent
+                                socket.setSoLinger(true, 0);
+                            } else {
+                                socket.getOutputStream().write(("HTTP/1.1 200 OK\r\nContent-Length: 8\r\n"
+                                        + "Connection: close\r\n\r\n<ok/>\r\n").getBytes(StandardCharsets.US_ASCII));
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    // socket closed
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            String url = "http://localhost:" + resetting.getLocalPort() + "/rest/layers.xml";
+            assertEquals("<ok/>", transport.get(url, "admin", "geoserver").trim());
+            assertEquals(2, connections.get());
+
+            // a PUT might have been applied, so it is not sent again
+            assertNull(transport.putXml(url, "<layer/>", "admin", "geoserver"));
+            assertEquals(3, connections.get());
+        }
+    }
+
+    /**
+     * Reads a request head and its body, if any.
+     */
+    static void readRequest(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            head.write(b);
+            if (head.toString("US-ASCII").endsWith("\r\n\r\n")) {
+                break;
+            }
+        }
+        for (String line : head.toString("US-ASCII").split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                long length = Long.parseLong(line.substring(15).trim());
+                for (long i = 0; i < length && in.read() != -1; i++) {
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadSettings() {
+        new PooledHTTPTransport(0, 1, 1000, 1000);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Checks the {@link RequestMetrics} recorded by the transports against a local
+ * HTTP server.
+ */
+public class RequestMetricsTest {
+
+    private StubHTTPServer server;
+
+    private String baseUrl;
+
+    private final RequestMetrics metrics = new RequestMetrics();
+
+    private static final long BODY_DELAY = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubHTTPServer("/geoserver/rest/", (HttpExchange exchange) -> {
+            if (exchange.getRequestURI().getPath().contains("missing")) {
+                StubHTTPServer.send(exchange, 404, null);
+            } else if (exchange.getRequestURI().getPath().contains("chunked")) {
+                // no declared length, and a body taking a while to come
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream os = exchange.getResponseBody();
+                os.write("<workspaces>".getBytes(StandardCharsets.UTF_8));
+                os.flush();
+                try {
+                    Thread.sleep(BODY_DELAY);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                os.write("</workspaces>".getBytes(StandardCharsets.UTF_8));
+                os.close();
+            } else {
+                StubHTTPServer.send(exchange, exchange.getRequestMethod().equals("POST") ? 201 : 200,
+                        "<workspaces/>");
+            }
+        });
+        baseUrl = server.getURL("/geoserver/rest/");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testEndpointNames() {
+        assertEquals("GET workspaces", RequestMetrics.endpoint("GET", baseUrl + "workspaces.xml"));
+        assertEquals("GET workspaces/*/datastores/*/featuretypes", RequestMetrics.endpoint("GET",
+                baseUrl + "workspaces/ws/datastores/ds/featuretypes.xml?list=all"));
+        assertEquals("PUT workspaces/*/coveragestores/*/file", RequestMetrics.endpoint("PUT",
+                baseUrl + "workspaces/ws/coveragestores/cs/file.geotiff"));
+        assertEquals("DELETE layers/*", RequestMetrics.endpoint("DELETE", baseUrl + "layers/ws:l"));
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getMean(), 1);
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.04);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.04);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+        for (long v = 0; v < 1L << 20; v = v * 3 / 2 + 1) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(LatencyHistogram.lowestValue(index) <= v);
+            assertTrue(LatencyHistogram.lowestValue(index + 1) > v);
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void testPooledTransport() {
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+        try {
+            transport.setRequestListener(metrics);
+            transport.get(baseUrl + "workspaces.xml", "admin", "geoserver");
+            transport.get(baseUrl + "workspaces.xml", "admin", "geoserver");
+            assertNull(transport.get(baseUrl + "workspaces/missing.xml", "admin", "geoserver"));
+            transport.post(baseUrl + "workspaces", "<workspace><name>ws</name></workspace>",
+                    "text/xml", "admin", "geoserver");
+            check();
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncTransport() {
+        JDKAsyncHTTPTransport transport = new JDKAsyncHTTPTransport();
+        try {
+            transport.setRequestListener(metrics);
+            transport.get(baseUrl + "workspaces.xml", "admin", "geoserver");
+            transport.get(baseUrl + "workspaces.xml", "admin", "geoserver");
+            assertNull(transport.get(baseUrl + "workspaces/missing.xml", "admin", "geoserver"));
+            transport.post(baseUrl + "workspaces", "<workspace><name>ws</name></workspace>",
+                    "text/xml", "admin", "geoserver");
+            check();
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testPooledTransportReadsBody() {
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+        try {
+            transport.setRequestListener(metrics);
+            assertEquals("<workspaces></workspaces>", transport.get(baseUrl + "chunked.xml", "admin",
+                    "geoserver"));
+            checkBody();
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncTransportReadsBody() {
+        JDKAsyncHTTPTransport transport = new JDKAsyncHTTPTransport();
+        try {
+            transport.setRequestListener(metrics);
+            assertEquals("<workspaces></workspaces>", transport.get(baseUrl + "chunked.xml", "admin",
+                    "geoserver"));
+            assertEquals(Integer.valueOf(25), transport.get(baseUrl + "chunked.xml", "admin",
+                    "geoserver", (InputStream is) -> IOUtils.toByteArray(is).length));
+            checkBody();
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    /**
+     * Checks that the bytes of chunked bodies are counted, and that the latency
+     * includes their reading.
+     */
+    private void checkBody() {
+        RequestMetrics.Endpoint chunked = metrics.getEndpoint("GET", baseUrl + "chunked.xml");
+        long count = chunked.getLatency().getCount();
+        assertEquals(25 * count, chunked.getBytesReceived());
+        assertTrue(chunked.getLatency().getMean() >= BODY_DELAY * 1000 * 0.9);
+        assertEquals(0, metrics.getInFlight());
+    }
+
+    private void check() {
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(3, metrics.getEndpoints().size());
+
+        RequestMetrics.Endpoint list = metrics.getEndpoint("GET", baseUrl + "workspaces.xml");
+        assertEquals(2, list.getLatency().getCount());
+        assertEquals(26, list.getBytesReceived());
+        assertEquals(Long.valueOf(2), list.getStatuses().get(200));
+
+        RequestMetrics.Endpoint missing = metrics.getEndpoint("GET", baseUrl + "workspaces/x.xml");
+        assertEquals(1, missing.getErrors());
+
+        RequestMetrics.Endpoint post = metrics.getEndpoint("POST", baseUrl + "workspaces");
+        assertEquals(38, post.getBytesSent());
+        assertEquals(Long.valueOf(1), post.getStatuses().get(201));
+
+        List<RequestMetrics.Endpoint> slowest = metrics.getSlowest(2, 99);
+        assertEquals(2, slowest.size());
+        assertTrue(slowest.get(0).getLatency().getValueAtPercentile(99)
+                >= slowest.get(1).getLatency().getValueAtPercentile(99));
+        assertTrue(metrics.toString().contains("POST workspaces"));
+
+        metrics.reset();
+        assertTrue(metrics.getEndpoints().isEmpty());
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Checks the {@link ResiliencePolicy} of the transports against a local HTTP
+ * server answering with a scripted sequence of status codes.
+ */
+public class ResiliencePolicyTest {
+
+    private StubHTTPServer server;
+
+    private String url;
+
+    private PooledHTTPTransport pooled;
+
+    private ResiliencePolicy policy;
+
+    /** Status codes of the next responses; 200 once exhausted. */
+    private final Queue<Integer> script = new ConcurrentLinkedQueue<Integer>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubHTTPServer("/geoserver/rest/", (HttpExchange exchange) -> {
+            Integer status = script.poll();
+            if (status != null && status != 200) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                StubHTTPServer.send(exchange, status, null);
+            } else {
+                StubHTTPServer.send(exchange, 200, "ok");
+            }
+        });
+        url = server.getURL("/geoserver/rest/workspaces.xml");
+
+        policy = new ResiliencePolicy();
+        policy.setBackoff(1, 10);
+        pooled = new PooledHTTPTransport();
+        pooled.setResiliencePolicy(policy);
+    }
+
+    @After
+    public void tearDown() {
+        pooled.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testRetriesIdempotentRequests() {
+        script.add(503);
+        script.add(502);
+        assertEquals("ok", pooled.get(url, "admin", "geoserver"));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, policy.getRetries());
+
+        script.add(504);
+        assertTrue(pooled.delete(url, "admin", "geoserver"));
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetries() {
+        policy.setMaxRetries(2);
+        for (int i = 0; i < 5; i++) {
+            script.add(503);
+        }
+        assertNull(pooled.get(url, "admin", "geoserver"));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testDoesNotRetryPostOrClientErrors() {
+        script.add(503);
+        assertNull(pooled.post(url, "<workspace/>", "text/xml", "admin", "geoserver"));
+        assertEquals(1, server.getRequestCount());
+
+        script.add(500);
+        assertNull(pooled.get(url, "admin", "geoserver"));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, policy.getRetries());
+    }
+
+    @Test
+    public void testEveryAttemptGoesThroughThePolicy() throws IOException {
+        policy.setMaxRetries(2);
+        final AtomicInteger connections = new AtomicInteger();
+        try (final ServerSocket resetting = new ServerSocket(0)) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        try (Socket socket = resetting.accept()) {
+                            PooledHTTPTransportTest.readRequest(socket.getInputStream());
+                            connections.incrementAndGet();
+                            socket.setSoLinger(true, 0);
+                        }
+                    }
+                } catch (IOException e) {
+                    // socket closed
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            // the client does not retry on its own, without backoff
+            assertNull(pooled.get("http://localhost:" + resetting.getLocalPort() + "/rest/layers.xml",
+                    "admin", "geoserver"));
+            assertEquals(3, connections.get());
+            assertEquals(2, policy.getRetries());
+        }
+    }
+
+    @Test
+    public void testNonePolicy() {
+        pooled.setResiliencePolicy(null);
+        assertTrue(pooled.getResiliencePolicy() == ResiliencePolicy.NONE);
+        script.add(503);
+        assertNull(pooled.get(url, "admin", "geoserver"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetryBudget() {
+        policy.setRetryBudget(0, 2);
+        for (int i = 0; i < 10; i++) {
+            script.add(503);
+        }
+        assertNull(pooled.get(url, "admin", "geoserver"));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, policy.getRetries());
+
+        // the budget is spent: failures are not retried anymore
+        assertNull(pooled.get(url, "admin", "geoserver"));
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testCircuitBreaker() throws InterruptedException {
+        policy.setMaxRetries(0);
+        policy.setCircuitBreaker(3, 200);
+        for (int i = 0; i < 3; i++) {
+            script.add(503);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertNull(pooled.get(url, "admin", "geoserver"));
+        }
+        assertTrue(policy.isOpen(url));
+
+        // rejected without reaching the server
+        assertNull(pooled.get(url, "admin", "geoserver"));
+        assertFalse(pooled.httpPing(url, "admin", "geoserver"));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, policy.getRejections());
+
+        // after the cool down a trial request closes the circuit
+        Thread.sleep(250);
+        assertEquals("ok", pooled.get(url, "admin", "geoserver"));
+        assertFalse(policy.isOpen(url));
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testTrialFailingUnexpectedly() throws IOException, InterruptedException {
+        policy.setMaxRetries(0);
+        policy.setCircuitBreaker(1, 100);
+        script.add(503);
+        assertNull(pooled.get(url, "admin", "geoserver"));
+        assertTrue(policy.isOpen(url));
+
+        Thread.sleep(150);
+        try {
+            policy.execute("GET", url, true, new ResiliencePolicy.Exchange() {
+                public int send() {
+                    throw new IllegalStateException("broken");
+                }
+
+                public String getRetryAfter() {
+                    return null;
+                }
+
+                public void release() {
+                }
+            });
+            fail("the trial error should be rethrown");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertTrue(policy.isOpen(url));
+
+        // the failed trial must not keep the circuit half open forever
+        Thread.sleep(150);
+        assertEquals("ok", pooled.get(url, "admin", "geoserver"));
+        assertFalse(policy.isOpen(url));
+    }
+
+    @Test
+    public void testAsyncTransport() {
+        JDKAsyncHTTPTransport async = new JDKAsyncHTTPTransport();
+        try {
+            async.setResiliencePolicy(policy);
+            script.add(503);
+            script.add(429);
+            assertEquals("ok", async.getAsync(url, "admin", "geoserver").join());
+            assertEquals(3, server.getRequestCount());
+
+            script.add(503);
+            assertEquals("decoded", async.get(url, "admin", "geoserver", is -> "decoded"));
+            assertEquals(5, server.getRequestCount());
+
+            script.add(503);
+            assertNull(async.post(url, "<workspace/>", "text/xml", "admin", "geoserver"));
+            assertEquals(6, server.getRequestCount());
+        } finally {
+            async.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoneIsImmutable() {
+        ResiliencePolicy.NONE.setMaxRetries(1);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server for the transport tests, answering the requests under a
+ * context path with a handler.
+ * <P>
+ * The server listens on a free port of <TT>localhost</TT>, and closes each
+ * exchange once the handler returns:
+ * <PRE>
+ * StubHTTPServer server = new StubHTTPServer("/geoserver/rest/", exchange -&gt; {
+ *     StubHTTPServer.send(exchange, 200, "&lt;workspaces/&gt;");
+ * });
+ * String url = server.getURL("/geoserver/rest/workspaces.xml");
+ * ...
+ * server.stop();
+ * </PRE>
+ */
+class StubHTTPServer {
+
+    private final HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Creates and starts the server.
+     *
+     * @param context the path prefix of the handled requests
+     * @param handler answers the requests
+     */
+    StubHTTPServer(String context, final HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(context, (HttpExchange exchange) -> {
+            requests.incrementAndGet();
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * @return the URL of the given path on this server
+     */
+    String getURL(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * @return the number of requests received so far
+     */
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Discards the request body, then sends the response.
+     *
+     * @param body the response body, or null to send none
+     */
+    static void send(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().close();
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
+        os.close();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the archives written by {@link ZipStreamEntity}, and the shapefile
+ * publishing built on it.
+ */
+public class ZipStreamEntityTest {
+
+    private File dir;
+
+    private File[] files;
+
+    private HttpServer server;
+
+    private final List<String> requests = new CopyOnWriteArrayList<String>();
+
+    private volatile Map<String, byte[]> uploaded;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("zipstream", "");
+        dir.delete();
+        dir.mkdir();
+        File shapefile = new ClassPathResource("testdata/shapefile").getFile();
+        for (File f : shapefile.listFiles()) {
+            FileUtils.copyFileToDirectory(f, dir);
+        }
+        // compressible, spanning several blocks, and not a multiple of the block size
+        byte[] data = new byte[3 * ZipStreamEntity.BLOCK_SIZE + 1234];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        FileUtils.writeByteArrayToFile(new File(dir, "cities.qix"), data);
+        // exactly two blocks
+        FileUtils.writeByteArrayToFile(new File(dir, "cities.cpg"),
+                new byte[2 * ZipStreamEntity.BLOCK_SIZE]);
+        new FileOutputStream(new File(dir, "empty.txt")).close();
+        files = dir.listFiles();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/", (HttpExchange exchange) -> {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+            if (exchange.getRequestURI().getPath().endsWith("/file.shp")) {
+                uploaded = unzip(exchange.getRequestBody());
+            }
+            // the unzipping stops before the central directory: an unread body
+            // makes the server drop the connection the client may reuse
+            IOUtils.toByteArray(exchange.getRequestBody());
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop(0);
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testSequential() throws IOException {
+        assertContent(unzip(write(new ZipStreamEntity(files, 1))));
+    }
+
+    @Test
+    public void testParallel() throws IOException {
+        assertContent(unzip(write(new ZipStreamEntity(files, 4))));
+        assertContent(unzip(write(new ZipStreamEntity(files, 2, 1))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoFiles() {
+        new ZipStreamEntity(new File[0], 1);
+    }
+
+    @Test
+    public void testPublishPooled() throws IOException {
+        publish(new PooledHTTPTransport());
+    }
+
+    @Test
+    public void testPublishJDK() throws IOException {
+        JDKAsyncHTTPTransport transport = new JDKAsyncHTTPTransport(2, 2000);
+        try {
+            publish(transport);
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    private void publish(HTTPTransport transport) throws IOException {
+        GeoServerRESTPublisher publisher = new GeoServerRESTPublisher("http://localhost:"
+                + server.getAddress().getPort() + "/geoserver", "admin", "geoserver", transport);
+        publisher.setZipParallelism(3);
+        assertTrue(publisher.publishShpDirectory("topp", "cities", "cities", dir, "EPSG:4326"));
+        assertContent(uploaded);
+        assertEquals("PUT /geoserver/rest/workspaces/topp/datastores/cities/file.shp?configure=none",
+                requests.get(0));
+        assertEquals(3, requests.size());
+    }
+
+    private static byte[] write(ZipStreamEntity entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeRequest(out);
+        return out.toByteArray();
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zip) throws IOException {
+        return unzip(new ByteArrayInputStream(zip));
+    }
+
+    private static Map<String, byte[]> unzip(InputStream in) throws IOException {
+        Map<String, byte[]> entries = new HashMap<String, byte[]>();
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            entries.put(entry.getName(), IOUtils.toByteArray(zip));
+        }
+        return entries;
+    }
+
+    private void assertContent(Map<String, byte[]> entries) throws IOException {
+        assertEquals(files.length, entries.size());
+        for (File f : files) {
+            assertArrayEquals(f.getName(), FileUtils.readFileToByteArray(f), entries.get(f.getName()));
+        }
+        assertNull(entries.get("missing"));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.GeoServerRESTManager;
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+import it.geosolutions.geoserver.rest.http.PooledHTTPTransport;
+import it.geosolutions.geoserver.rest.http.RequestListener;
+import it.geosolutions.geoserver.rest.http.RequestMetrics;
+import it.geosolutions.geoserver.rest.standin.StandInGeoServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the {@link LayerSpatialIndex} against brute force scans, and its
+ * updates against the {@link StandInGeoServer}.
+ */
+public class LayerSpatialIndexTest {
+
+    private StandInGeoServer server;
+
+    private PooledHTTPTransport transport;
+
+    private GeoServerRESTManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInGeoServer();
+        server.start();
+        transport = new PooledHTTPTransport();
+        manager = new GeoServerRESTManager(server.getURL(), "admin", "geoserver", transport);
+    }
+
+    @After
+    public void tearDown() {
+        transport.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testTreeMatchesScan() {
+        Random random = new Random(42);
+        List<LayerBounds> all = new ArrayList<LayerBounds>();
+        for (int i = 0; i < 5000; i++) {
+            double x = random.nextDouble() * 350 - 180;
+            double y = random.nextDouble() * 170 - 90;
+            all.add(new LayerBounds("ws", "l" + i, "s", "l" + i, "EPSG:4326", x, y,
+                    x + random.nextDouble() * 10, y + random.nextDouble() * 10));
+        }
+        STRtree tree = new STRtree(all);
+        assertEquals(5000, tree.size());
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            double w = q % 2 == 0 ? 0 : random.nextDouble() * 30;
+            List<LayerBounds> found = new ArrayList<LayerBounds>();
+            tree.query(x, y, x + w, y + w, found);
+            Set<LayerBounds> expected = new HashSet<LayerBounds>();
+            for (LayerBounds b : all) {
+                if (b.intersects(x, y, x + w, y + w)) {
+                    expected.add(b);
+                }
+            }
+            assertEquals(expected, new HashSet<LayerBounds>(found));
+        }
+
+        List<LayerBounds> none = new ArrayList<LayerBounds>();
+        new STRtree(new ArrayList<LayerBounds>()).query(-180, -90, 180, 90, none);
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        LayerSpatialIndex index = new LayerSpatialIndex(null);
+        for (int i = 0; i < 100; i++) {
+            index.put(new LayerBounds("ws", "l" + i, "s", "l" + i, "EPSG:4326", i, 0, i + 1, 1));
+        }
+        assertEquals(100, index.size());
+        assertEquals(2, index.query(10.5, 0.5, 11.5, 0.5).size());
+        assertEquals(1, index.query(50.5, 0.5).size());
+
+        // moved layers are found at their new place only
+        index.put(new LayerBounds("ws", "l50", "s", "l50", "EPSG:4326", 0, 50, 1, 51));
+        assertTrue(index.query(50.5, 0.5).isEmpty());
+        assertEquals("ws:l50", index.query(0.5, 50.5).get(0).getKey());
+        assertTrue(index.remove("ws:l50"));
+        assertFalse(index.remove("ws:l50"));
+        assertTrue(index.query(0.5, 50.5).isEmpty());
+        assertEquals(99, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        new LayerBounds("ws", "l", "s", "l", "EPSG:4326", 1, 0, 0, 1);
+    }
+
+    @Test
+    public void testFollowsClientChanges() {
+        server.populate(2, 2, 5);
+        LayerSpatialIndex index = new LayerSpatialIndex(manager.getReader());
+        RequestMetrics metrics = new RequestMetrics();
+        transport.setRequestListener(RequestListener.chain(index, metrics));
+        assertTrue(index.build());
+        assertEquals(20, index.size());
+
+        // ws0 store0 covers the first five cells from (-180, -90)
+        List<LayerBounds> found = index.query(-175, -85);
+        assertEquals(1, found.size());
+        assertEquals("ws0:layer0_0", found.get(0).getKey());
+        assertEquals(5, index.query(-179, -89, -131, -89).size());
+
+        GeoServerRESTPublisher publisher = manager.getPublisher();
+        GSFeatureTypeEncoder fte = new GSFeatureTypeEncoder();
+        fte.setName("roads");
+        fte.setSRS("EPSG:4326");
+        fte.setLatLonBoundingBox(10, 40, 12, 42, "EPSG:4326");
+        assertTrue(publisher.publishDBLayer("ws1", "store0", fte, new GSLayerEncoder()));
+        // the queries do not apply the changes
+        assertTrue(index.hasPendingChanges());
+        assertTrue(index.query(11, 41).isEmpty());
+        index.update();
+        assertFalse(index.hasPendingChanges());
+        found = index.query(11, 41);
+        assertEquals(1, found.size());
+        assertEquals("ws1:roads", found.get(0).getKey());
+        assertEquals(21, index.size());
+
+        assertTrue(publisher.unpublishFeatureType("ws1", "store0", "roads"));
+        index.update();
+        assertTrue(index.query(11, 41).isEmpty());
+        assertNull(index.get("ws1:roads"));
+
+        assertTrue(publisher.removeDatastore("ws0", "store1", true));
+        index.update();
+        assertEquals(15, index.size());
+        assertNotNull(index.get("ws0:layer0_0"));
+        assertTrue(publisher.removeWorkspace("ws0", true));
+        index.update();
+        assertEquals(10, index.size());
+        assertNotNull(metrics.getEndpoint("DELETE", server.getURL() + "/rest/workspaces/ws0"));
+    }
+
+    @Test
+    public void testDiscoveriesAreCoalesced() {
+        server.populate(1, 1, 1);
+        LayerSpatialIndex index = new LayerSpatialIndex(manager.getReader());
+        RequestMetrics metrics = new RequestMetrics();
+        transport.setRequestListener(RequestListener.chain(index, metrics));
+        assertTrue(index.build());
+        metrics.reset();
+
+        GeoServerRESTPublisher publisher = manager.getPublisher();
+        for (int i = 0; i < 5; i++) {
+            GSFeatureTypeEncoder fte = new GSFeatureTypeEncoder();
+            fte.setName("roads" + i);
+            fte.setSRS("EPSG:4326");
+            fte.setLatLonBoundingBox(10 + i, 40, 10.5 + i, 40.5, "EPSG:4326");
+            assertTrue(publisher.publishDBLayer("ws0", "store0", fte, new GSLayerEncoder()));
+        }
+        index.update();
+        assertEquals(6, index.size());
+        // a single listing finds all the new layers
+        assertEquals(1, metrics.getEndpoint("GET", server.getURL() + "/rest/layers.xml")
+                .getLatency().getCount());
+    }
+
+    @Test
+    public void testBackgroundUpdates() throws InterruptedException {
+        server.populate(1, 1, 1);
+        LayerSpatialIndex index = new LayerSpatialIndex(manager.getReader());
+        transport.setRequestListener(index);
+        assertTrue(index.build());
+        index.startUpdates(10, TimeUnit.MILLISECONDS);
+        try {
+            GSFeatureTypeEncoder fte = new GSFeatureTypeEncoder();
+            fte.setName("roads");
+            fte.setSRS("EPSG:4326");
+            fte.setLatLonBoundingBox(10, 40, 12, 42, "EPSG:4326");
+            assertTrue(manager.getPublisher().publishDBLayer("ws0", "store0", fte,
+                    new GSLayerEncoder()));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (index.get("ws0:roads") == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotNull(index.get("ws0:roads"));
+            assertEquals(2, index.size());
+        } finally {
+            index.stopUpdates();
+        }
+    }
+}
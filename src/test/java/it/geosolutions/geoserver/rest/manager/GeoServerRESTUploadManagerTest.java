@@ -0,0 +1,228 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.manager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+import it.geosolutions.geoserver.rest.http.JDKAsyncHTTPTransport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs chunked uploads against a local stand-in of the GeoServer resumable
+ * upload endpoint, which reassembles the chunks in memory.
+ */
+public class GeoServerRESTUploadManagerTest {
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    private File geotiff;
+
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+    private final AtomicInteger chunks = new AtomicInteger();
+
+    /** Number of chunks to drop half way. */
+    private final AtomicInteger drops = new AtomicInteger();
+
+    private volatile String uploadPath;
+
+    private volatile String externalBody;
+
+    private volatile String externalType;
+
+    @Before
+    public void setUp() throws IOException {
+        geotiff = new ClassPathResource("testdata/resttestdem.tif").getFile();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/resumableupload", (HttpExchange exchange) -> {
+            byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+            if (exchange.getRequestMethod().equals("POST")) {
+                uploadPath = new String(body, "UTF-8");
+                received.reset();
+                respond(exchange, 201, "upload-1");
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Content-Range");
+            long total = Long.parseLong(range.substring(range.indexOf('/') + 1));
+            if (!range.startsWith("bytes */")) {
+                chunks.incrementAndGet();
+                long start = Long.parseLong(range.substring(6, range.indexOf('-')));
+                if (start != received.size() || !md5(body).equals(
+                        exchange.getRequestHeaders().getFirst("Content-MD5"))) {
+                    respond(exchange, 400, "bad chunk");
+                    return;
+                }
+                if (drops.getAndDecrement() > 0) {
+                    // the connection drops half way
+                    received.write(body, 0, body.length / 2);
+                    respond(exchange, 500, "dropped");
+                    return;
+                }
+                received.write(body);
+            }
+            if (received.size() == total) {
+                respond(exchange, 200, uploadPath);
+            } else {
+                if (received.size() > 0) {
+                    exchange.getResponseHeaders().add("Range", "0-" + (received.size() - 1));
+                }
+                exchange.sendResponseHeaders(308, -1);
+                exchange.close();
+            }
+        });
+        server.createContext("/geoserver/rest/workspaces/", (HttpExchange exchange) -> {
+            externalBody = IOUtils.toString(exchange.getRequestBody());
+            externalType = exchange.getRequestHeaders().getFirst("Content-Type");
+            respond(exchange, 201, "");
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/geoserver";
+    }
+
+    private static String md5(byte[] bytes) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String response) throws IOException {
+        byte[] bytes = response.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testResumeAfterDrops() throws IOException {
+        GeoServerRESTUploadManager manager = new GeoServerRESTUploadManager(new URL(baseUrl), "admin", "geoserver");
+        manager.setChunkSize(geotiff.length() / 5 + 1);
+        manager.setRetryDelay(1);
+        drops.set(2);
+        final AtomicLong notified = new AtomicLong();
+        assertTrue(manager.upload(geotiff, "data/ws/dem/dem.tif", (sent, total) -> notified.set(sent)));
+
+        assertEquals("data/ws/dem/dem.tif", uploadPath);
+        assertArrayEquals(FileUtils.readFileToByteArray(geotiff), received.toByteArray());
+        // 5 chunks, plus one since the two dropped chunks were only half received
+        assertEquals(6, chunks.get());
+        assertEquals(geotiff.length(), manager.getUploadedBytes("upload-1", geotiff));
+        assertEquals(geotiff.length(), notified.get());
+    }
+
+    @Test
+    public void testResumeOnJDKTransport() throws IOException {
+        JDKAsyncHTTPTransport transport = new JDKAsyncHTTPTransport();
+        try {
+            GeoServerRESTUploadManager manager = new GeoServerRESTUploadManager(new URL(baseUrl),
+                    "admin", "geoserver", transport);
+            manager.setChunkSize(geotiff.length() / 4 + 1);
+            manager.setRetryDelay(1);
+            drops.set(1);
+            assertTrue(manager.upload(geotiff, "data/ws/dem/dem.tif", null));
+            assertArrayEquals(FileUtils.readFileToByteArray(geotiff), received.toByteArray());
+
+            // the status query sends an empty body
+            assertEquals(geotiff.length(), manager.getUploadedBytes("upload-1", geotiff));
+            received.reset();
+            received.write(FileUtils.readFileToByteArray(geotiff), 0, 100);
+            assertTrue(manager.resume("upload-1", geotiff, null));
+            assertArrayEquals(FileUtils.readFileToByteArray(geotiff), received.toByteArray());
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testZipsAreNotChunked() throws IOException {
+        // GeoServer does not unpack external files
+        File zip = new ClassPathResource("testdata/resttestshp.zip").getFile();
+        GeoServerRESTUploadManager manager = new GeoServerRESTUploadManager(new URL(baseUrl), "admin", "geoserver");
+        manager.setThreshold(0);
+        assertFalse(manager.isChunked(zip));
+        assertTrue(manager.isChunked(geotiff));
+    }
+
+    @Test
+    public void testGiveUp() throws IOException {
+        GeoServerRESTUploadManager manager = new GeoServerRESTUploadManager(new URL(baseUrl), "admin", "geoserver");
+        manager.setChunkSize(geotiff.length() / 2 + 1);
+        manager.setRetryDelay(1);
+        manager.setMaxRetries(2);
+        drops.set(100);
+        assertFalse(manager.upload(geotiff, "data/ws/dem/dem.tif", null));
+    }
+
+    @Test
+    public void testTransparentPublish() throws IOException {
+        GeoServerRESTPublisher publisher = new GeoServerRESTPublisher(baseUrl, "admin", "geoserver");
+        publisher.getUploadManager().setChunkSize(geotiff.length() / 3 + 1);
+        publisher.setChunkedUploadThreshold(geotiff.length() - 1);
+
+        assertTrue(publisher.publishGeoTIFF("ws", "dem", "dem", geotiff));
+        assertArrayEquals(FileUtils.readFileToByteArray(geotiff), received.toByteArray());
+        assertEquals(3, chunks.get());
+        assertEquals("file:data/ws/dem/" + geotiff.getName(), externalBody);
+        assertTrue(externalType.startsWith("text/plain"));
+
+        // smaller files are still sent in a single request
+        chunks.set(0);
+        publisher.setChunkedUploadThreshold(geotiff.length());
+        assertTrue(publisher.publishGeoTIFF("ws", "dem", "dem", geotiff));
+        assertEquals(0, chunks.get());
+    }
+}
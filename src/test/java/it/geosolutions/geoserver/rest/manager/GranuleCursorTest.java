@@ -0,0 +1,151 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Pages through a granule index served by a local HTTP server.
+ */
+public class GranuleCursorTest {
+
+    private static final int GRANULES = 25;
+
+    private HttpServer server;
+
+    private GeoServerRESTStructuredGridCoverageReaderManager manager;
+
+    private final List<String> queries = new CopyOnWriteArrayList<String>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/workspaces/ws/coveragestores/store/coverages/cov/index/granules.xml",
+                (HttpExchange exchange) -> {
+                    String query = exchange.getRequestURI().getQuery();
+                    queries.add(query);
+                    int offset = Integer.parseInt(param(query, "offset"));
+                    int limit = Integer.parseInt(param(query, "limit"));
+
+                    StringBuilder xml = new StringBuilder("<wfs:FeatureCollection"
+                            + " xmlns:gf=\"http://www.geoserver.org/rest/granules\""
+                            + " xmlns:wfs=\"http://www.opengis.net/wfs\""
+                            + " xmlns:gml=\"http://www.opengis.net/gml\">"
+                            + "<gml:boundedBy><gml:null>unknown</gml:null></gml:boundedBy>");
+                    for (int i = offset; i < Math.min(offset + limit, GRANULES); i++) {
+                        xml.append("<gml:featureMember><gf:cov fid=\"cov.").append(i).append("\">")
+                                .append("<gf:location>granule_").append(i).append(".tif</gf:location>")
+                                .append("</gf:cov></gml:featureMember>");
+                    }
+                    xml.append("</wfs:FeatureCollection>");
+
+                    byte[] body = xml.toString().getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream os = exchange.getResponseBody();
+                    os.write(body);
+                    os.close();
+                    exchange.close();
+                });
+        server.start();
+        manager = new GeoServerRESTStructuredGridCoverageReaderManager(
+                new URL("http://localhost:" + server.getAddress().getPort() + "/geoserver"),
+                "admin", "geoserver");
+    }
+
+    private static String param(String query, String name) {
+        for (String kvp : query.split("&")) {
+            if (kvp.startsWith(name + "=")) {
+                return kvp.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testAllPages() {
+        GranuleCursor cursor = manager.getGranuleCursor("ws", "store", "cov", null, 10);
+        int count = 0;
+        while (cursor.hasNext()) {
+            assertEquals("cov." + count, cursor.next().getFid());
+            count++;
+        }
+        assertEquals(GRANULES, count);
+        assertEquals(3, queries.size());
+        assertTrue(queries.contains("offset=20&limit=10"));
+    }
+
+    @Test
+    public void testExactMultipleOfPageSize() {
+        GranuleCursor cursor = manager.getGranuleCursor("ws", "store", "cov", null, 5);
+        int count = 0;
+        while (cursor.hasNext()) {
+            cursor.next();
+            count++;
+        }
+        assertEquals(GRANULES, count);
+        // the last, empty, page tells the index is over
+        assertEquals(6, queries.size());
+    }
+
+    @Test
+    public void testEarlyClose() throws InterruptedException {
+        GranuleCursor cursor = manager.getGranuleCursor("ws", "store", "cov", null, 10);
+        assertEquals("granule_0.tif", cursor.next().getAttributeByName("location"));
+        cursor.close();
+        // the current page can still be read
+        assertTrue(cursor.hasNext());
+        for (int i = 1; i < 10; i++) {
+            cursor.next();
+        }
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingIndex() {
+        GranuleCursor cursor = manager.getGranuleCursor("ws", "store", "missing", null, 10);
+        cursor.hasNext();
+    }
+}
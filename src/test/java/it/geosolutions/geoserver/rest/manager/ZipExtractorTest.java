@@ -0,0 +1,143 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.manager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Expands archives with the {@link ZipExtractor}.
+ */
+public class ZipExtractorTest {
+
+    private File dir;
+
+    private final Map<String, byte[]> content = new LinkedHashMap<String, byte[]>();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("extractor", "");
+        dir.delete();
+        dir.mkdir();
+        Random random = new Random(7);
+        for (int i = 0; i < 12; i++) {
+            byte[] data = new byte[random.nextInt(600 * 1024)];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) random.nextInt(8);
+            }
+            content.put((i % 3 == 0 ? "nested/dir/" : "") + "granule_" + i + ".tif", data);
+        }
+        content.put("empty.txt", new byte[0]);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File zip(Map<String, byte[]> entries) throws IOException {
+        File zip = new File(dir, "archive.zip");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            out.putNextEntry(new ZipEntry("nested/"));
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+            }
+        } finally {
+            out.close();
+        }
+        return zip;
+    }
+
+    private void assertExtracted(File target) throws IOException {
+        for (Map.Entry<String, byte[]> entry : content.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(),
+                    FileUtils.readFileToByteArray(new File(target, entry.getKey())));
+        }
+    }
+
+    @Test
+    public void testParallel() throws IOException {
+        File target = new File(dir, "parallel");
+        assertEquals(content.size(), new ZipExtractor(4).extract(zip(content), target));
+        assertExtracted(target);
+    }
+
+    @Test
+    public void testSequential() throws IOException {
+        File target = new File(dir, "sequential");
+        assertEquals(content.size(), new ZipExtractor(1).extract(zip(content), target));
+        assertExtracted(target);
+    }
+
+    @Test
+    public void testZipSlip() throws IOException {
+        content.put("../evil.txt", new byte[] { 1 });
+        try {
+            new ZipExtractor(2).extract(zip(content), new File(dir, "target"));
+            assertTrue("Expected an IOException", false);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("../evil.txt"));
+        }
+        assertFalse(new File(dir, "evil.txt").exists());
+    }
+
+    @Test
+    public void testUnpack() throws Exception {
+        File zip = zip(content);
+        String tmp = System.getProperty(GeoServerRESTImporterManager.TMP_DIR_PROPERTY);
+        System.setProperty(GeoServerRESTImporterManager.TMP_DIR_PROPERTY,
+                new File(dir, "tmp").getAbsolutePath());
+        try {
+            File target = GeoServerRESTImporterManager.unpack(zip.getAbsolutePath());
+            assertEquals(new File(dir, "tmp"), target.getParentFile());
+            assertExtracted(target);
+            assertTrue(zip.exists());
+        } finally {
+            if (tmp == null) {
+                System.clearProperty(GeoServerRESTImporterManager.TMP_DIR_PROPERTY);
+            } else {
+                System.setProperty(GeoServerRESTImporterManager.TMP_DIR_PROPERTY, tmp);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.publisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+import it.geosolutions.geoserver.rest.publisher.PublishOutcome.Status;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs bulk publications against a local HTTP server.
+ */
+public class BulkPublisherTest {
+
+    private HttpServer server;
+
+    private GeoServerRESTPublisher publisher;
+
+    private final AtomicInteger uploads = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger(1);
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/", (HttpExchange exchange) -> {
+            IOUtils.toByteArray(exchange.getRequestBody());
+            uploads.incrementAndGet();
+            // the first upload fails
+            exchange.sendResponseHeaders(failures.getAndDecrement() > 0 ? 500 : 201, -1);
+            exchange.close();
+        });
+        server.start();
+        publisher = new GeoServerRESTPublisher("http://localhost:" + server.getAddress().getPort()
+                + "/geoserver", "admin", "geoserver");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        File geotiff = new ClassPathResource("testdata/resttestdem.tif").getFile();
+        BulkPublisher bulk = new BulkPublisher(publisher, 2, 3, 1);
+        List<PublishOutcome> outcomes = bulk.publishAll(Arrays.asList(
+                PublishJob.geoTIFF("ws", "dem", "dem", geotiff),
+                PublishJob.geoTIFF("ws", "missing", "missing", new File("missing.tif"))));
+        bulk.shutdown();
+
+        assertEquals(Status.PUBLISHED, outcomes.get(0).getStatus());
+        assertEquals(2, outcomes.get(0).getAttempts());
+        assertEquals(Status.REJECTED, outcomes.get(1).getStatus());
+        assertEquals(1, outcomes.get(1).getAttempts());
+        assertEquals(2, uploads.get());
+        assertEquals(1, bulk.getRetries());
+
+        StringWriter report = new StringWriter();
+        BulkPublisher.writeReport(outcomes, report);
+        assertTrue(report.toString().contains("ws:dem\tPUBLISHED\t2\t"));
+        assertTrue(report.toString().contains("ws:missing\tREJECTED\t1\t"));
+    }
+
+    @Test
+    public void testReportEscapesFields() throws IOException {
+        PublishOutcome outcome = new PublishOutcome("ws:a\tb", Status.FAILED, 3, 10,
+                "line one\r\nline\ttwo \\ end");
+        assertEquals("ws:a\\tb\tFAILED\t3\t10\tline one\\r\\nline\\ttwo \\\\ end",
+                outcome.toString());
+
+        StringWriter report = new StringWriter();
+        BulkPublisher.writeReport(Arrays.asList(outcome), report);
+        assertEquals(2, report.toString().split("\n").length);
+    }
+
+    @Test
+    public void testBoundedParallelism() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<PublishJob> jobs = new ArrayList<PublishJob>();
+        for (int i = 0; i < 20; i++) {
+            final String name = "job" + i;
+            final boolean fails = i == 7;
+            jobs.add(new PublishJob() {
+                @Override
+                public String getName() {
+                    return name;
+                }
+
+                @Override
+                public boolean publish(GeoServerRESTPublisher publisher) throws FileNotFoundException {
+                    int now = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(now, Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return !fails;
+                }
+            });
+        }
+        BulkPublisher bulk = new BulkPublisher(publisher, 3, 2, 1);
+        List<PublishOutcome> outcomes = bulk.publishAll(jobs);
+        bulk.shutdown();
+
+        assertEquals(20, outcomes.size());
+        assertEquals("job7", outcomes.get(7).getName());
+        assertEquals(Status.FAILED, outcomes.get(7).getStatus());
+        assertEquals(2, outcomes.get(7).getAttempts());
+        assertEquals(19, bulk.getPublished());
+        assertEquals(1, bulk.getFailed());
+        assertTrue(maxRunning.get() <= 3);
+    }
+}
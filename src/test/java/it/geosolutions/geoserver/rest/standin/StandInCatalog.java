@@ -0,0 +1,816 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.standin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.Namespace;
+import org.jdom.filter.ElementFilter;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
+
+/**
+ * In memory catalog backing the {@link StandInGeoServer}.
+ * <P>
+ * Resources are kept as JDOM elements keyed by their REST path, relative to
+ * <TT>/rest</TT> and without extension (e.g. <TT>workspaces/topp/datastores/states</TT>),
+ * in a sorted map so that the content of a collection and the subtree of a
+ * resource are contiguous key ranges.
+ * <BR>
+ * Stored elements are never modified: writes replace them with an updated
+ * copy, so that reads need no locking.
+ */
+class StandInCatalog {
+
+    private static final Namespace ATOM = Namespace.getNamespace("atom", "http://www.w3.org/2005/Atom");
+
+    /** Collection name to list root and list item element names. */
+    private static final Map<String, String[]> COLLECTIONS = new HashMap<String, String[]>();
+
+    /** Upload extension to store type. */
+    private static final Map<String, String> STORE_TYPES = new HashMap<String, String>();
+
+    static {
+        collection("workspaces", "workspaces", "workspace");
+        collection("namespaces", "namespaces", "namespace");
+        collection("datastores", "dataStores", "dataStore");
+        collection("featuretypes", "featureTypes", "featureType");
+        collection("coveragestores", "coverageStores", "coverageStore");
+        collection("coverages", "coverages", "coverage");
+        collection("wmsstores", "wmsStores", "wmsStore");
+        collection("wmslayers", "wmsLayers", "wmsLayer");
+        collection("layers", "layers", "layer");
+        collection("layergroups", "layerGroups", "layerGroup");
+        collection("styles", "styles", "style");
+
+        STORE_TYPES.put("shp", "Shapefile");
+        STORE_TYPES.put("properties", "Properties");
+        STORE_TYPES.put("h2", "H2");
+        STORE_TYPES.put("spatialite", "SpatiaLite");
+        STORE_TYPES.put("geotiff", "GeoTIFF");
+        STORE_TYPES.put("worldimage", "WorldImage");
+        STORE_TYPES.put("imagemosaic", "ImageMosaic");
+        STORE_TYPES.put("arcgrid", "ArcGrid");
+    }
+
+    private static void collection(String name, String listRoot, String item) {
+        COLLECTIONS.put(name, new String[] { listRoot, item });
+    }
+
+    /**
+     * Outcome of a catalog operation, to be turned into an HTTP response.
+     */
+    static class Response {
+
+        final int status;
+
+        final String body;
+
+        final String contentType;
+
+        final String location;
+
+        Response(int status, String body, String contentType, String location) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+            this.location = location;
+        }
+
+        static Response status(int status, String message) {
+            return new Response(status, message, "text/plain", null);
+        }
+    }
+
+    private final NavigableMap<String, Element> resources = new ConcurrentSkipListMap<String, Element>();
+
+    private final Map<String, String> slds = new ConcurrentHashMap<String, String>();
+
+    private final String restUrl;
+
+    private volatile String version = "2.8.0";
+
+    /**
+     * @param restUrl the URL of the REST root, used to build the atom links
+     */
+    StandInCatalog(String restUrl) {
+        this.restUrl = restUrl;
+    }
+
+    void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the number of resources in the catalog, layers included.
+     */
+    int size() {
+        return resources.size();
+    }
+
+    synchronized void clear() {
+        resources.clear();
+        slds.clear();
+    }
+
+    /**
+     * Fills the catalog with workspaces holding shapefile datastores, each one
+     * publishing the given number of layers.
+     */
+    synchronized void populate(int workspaces, int storesPerWorkspace, int layersPerStore) {
+        for (int w = 0; w < workspaces; w++) {
+            String ws = "ws" + w;
+            if (!resources.containsKey("workspaces/" + ws)) {
+                create("workspaces", named("workspace", ws));
+            }
+            for (int s = 0; s < storesPerWorkspace; s++) {
+                String store = "store" + s;
+                String storePath = "workspaces/" + ws + "/datastores/" + store;
+                if (!resources.containsKey(storePath)) {
+                    create("workspaces/" + ws + "/datastores", store(ws, "dataStore", store, "Shapefile"));
+                }
+                for (int l = 0; l < layersPerStore; l++) {
+                    String name = "layer" + s + "_" + l;
+                    if (!resources.containsKey(storePath + "/featuretypes/" + name)) {
+                        Element resource = resource("featureType", name);
+                        resource.addContent(cell((w * storesPerWorkspace + s) * layersPerStore + l));
+                        create(storePath + "/featuretypes", resource);
+                    }
+                }
+            }
+        }
+    }
+
+    //=========================================================================
+    // Requests
+    //=========================================================================
+
+    Response get(String path, String extension) {
+        if (path.isEmpty()) {
+            return new Response(200, "<html><body>GeoServer REST stand-in</body></html>", "text/html", null);
+        }
+        if (path.equals("about/version")) {
+            if (version == null) {
+                return Response.status(404, "No such resource: " + path);
+            }
+            return xml(200, aboutVersion());
+        }
+        if ("json".equals(extension)) {
+            return Response.status(406, "Only XML representations are available");
+        }
+        String[] segments = path.split("/");
+        if (isCollection(segments)) {
+            if (!isOwnerPresent(segments)) {
+                return Response.status(404, "No such resource: " + owner(path));
+            }
+            return xml(200, list(path, segments));
+        }
+        String key = resolve(path);
+        if (key == null) {
+            return Response.status(404, "No such resource: " + path);
+        }
+        if ("sld".equals(extension)) {
+            String sld = slds.get(key);
+            return sld == null ? Response.status(404, "No SLD for " + path)
+                    : new Response(200, sld, "application/vnd.ogc.sld+xml", null);
+        }
+        return xml(200, resources.get(key));
+    }
+
+    synchronized Response post(String path, Map<String, String> params, String contentType, byte[] body) {
+        if (path.equals("reload") || path.equals("reset")) {
+            return Response.status(200, "");
+        }
+        String[] segments = path.split("/");
+        if (!isCollection(segments)) {
+            return Response.status(405, "Cannot POST to " + path);
+        }
+        if (!isOwnerPresent(segments)) {
+            return Response.status(404, "No such resource: " + owner(path));
+        }
+        String collection = segments[segments.length - 1];
+
+        if (collection.equals("styles") && isSld(contentType)) {
+            Element sld = parse(body);
+            String name = params.get("name");
+            if (name == null && sld != null) {
+                name = styleName(sld);
+            }
+            if (sld == null || name == null) {
+                return Response.status(400, "Unable to parse the SLD body");
+            }
+            String key = path + "/" + name;
+            if (resources.containsKey(key)) {
+                return Response.status(500, "Style '" + name + "' already exists");
+            }
+            create(path, style(name));
+            slds.put(key, sld(sld, name, params, body));
+            return created(key, name);
+        }
+
+        Element element = parse(body);
+        if (element == null) {
+            return Response.status(400, "Unable to parse the request body");
+        }
+        String name = name(element);
+        if (name == null) {
+            return Response.status(400, "The " + element.getName() + " has no name");
+        }
+        String key = path + "/" + name;
+        if (resources.containsKey(key)) {
+            return Response.status(500, element.getName() + " '" + name + "' already exists");
+        }
+        String uri = element.getChildText("uri");
+        if (collection.equals("namespaces") && uri != null) {
+            for (Element ns : resources.subMap("namespaces/", "namespaces/\uffff").values()) {
+                if (uri.equals(ns.getChildText("uri"))) {
+                    return Response.status(500, "Namespace with URI '" + uri + "' already exists");
+                }
+            }
+        }
+        create(path, element);
+        return created(key, name);
+    }
+
+    synchronized Response put(String path, Map<String, String> params, String contentType, byte[] body) {
+        String[] segments = path.split("/");
+        if (isUpload(segments)) {
+            return upload(segments, params, contentType, body);
+        }
+        if (isCollection(segments)) {
+            return Response.status(405, "Cannot PUT to " + path);
+        }
+        String key = resolve(path);
+        if (key == null) {
+            return Response.status(404, "No such resource: " + path);
+        }
+        if (slds.containsKey(key) && isSld(contentType)) {
+            Element sld = parse(body);
+            if (sld == null) {
+                return Response.status(400, "Unable to parse the SLD body");
+            }
+            slds.put(key, sld(sld, name(resources.get(key)), params, body));
+            return Response.status(200, "");
+        }
+        Element update = parse(body);
+        if (update == null) {
+            return Response.status(400, "Unable to parse the request body");
+        }
+        Element merged = (Element) resources.get(key).clone();
+        for (Object child : normalize(key, update).getChildren()) {
+            Element field = (Element) child;
+            merged.removeChildren(field.getName(), field.getNamespace());
+            merged.addContent((Element) field.clone());
+        }
+        resources.put(key, normalize(key, merged));
+        return Response.status(200, "");
+    }
+
+    synchronized Response delete(String path, Map<String, String> params) {
+        String key = resolve(path);
+        if (key == null) {
+            return Response.status(404, "No such resource: " + path);
+        }
+        boolean recurse = Boolean.parseBoolean(params.get("recurse"));
+        NavigableMap<String, Element> subtree = resources.subMap(key + "/", true, key + "/\uffff", true);
+        if (!recurse && (!subtree.isEmpty() || layerOf(key) != null && resources.containsKey(layerOf(key)))) {
+            return Response.status(403, "Resource " + path + " is not empty, use recurse=true");
+        }
+        List<String> removed = new ArrayList<String>(subtree.keySet());
+        removed.add(key);
+        for (String r : removed) {
+            resources.remove(r);
+            slds.remove(r);
+            String layer = layerOf(r);
+            if (layer != null) {
+                resources.remove(layer);
+            }
+        }
+        String[] segments = key.split("/");
+        if (segments.length == 2 && segments[0].equals("workspaces")) {
+            resources.remove("namespaces/" + segments[1]);
+        }
+        return Response.status(200, "");
+    }
+
+    //=========================================================================
+    // Catalog updates
+    //=========================================================================
+
+    /**
+     * Adds a resource to a collection, along with the resources GeoServer
+     * creates as a side effect: the namespace of a workspace (and vice versa)
+     * and the layer of a feature type or coverage.
+     */
+    private void create(String collectionPath, Element element) {
+        String[] segments = collectionPath.split("/");
+        String collection = segments[segments.length - 1];
+        String name = name(element);
+        String key = collectionPath + "/" + name;
+
+        if (collection.equals("workspaces")) {
+            if (!resources.containsKey("namespaces/" + name)) {
+                Element ns = new Element("namespace");
+                ns.addContent(new Element("prefix").setText(name));
+                ns.addContent(new Element("uri").setText("http://" + name));
+                resources.put("namespaces/" + name, ns);
+            }
+        } else if (collection.equals("namespaces")) {
+            if (!resources.containsKey("workspaces/" + name)) {
+                resources.put("workspaces/" + name, named("workspace", name));
+            }
+        } else if (collection.equals("wmsstores") || collection.equals("datastores") || collection.equals("coveragestores")) {
+            addIfMissing(element, "enabled", "true");
+            if (element.getChild("workspace") == null) {
+                element.addContent(named("workspace", segments[1]));
+            }
+            String resources = collection.equals("datastores") ? "featureTypes"
+                    : collection.equals("coveragestores") ? "coverages" : "wmsLayers";
+            if (element.getChild(resources) == null) {
+                element.addContent(new Element(resources).addContent(
+                        link(key + "/" + resources.toLowerCase())));
+            }
+        } else if (segments.length == 5 && (collection.equals("featuretypes")
+                || collection.equals("coverages") || collection.equals("wmslayers"))) {
+            String ws = segments[1];
+            addIfMissing(element, "nativeName", name);
+            addIfMissing(element, "title", name);
+            addIfMissing(element, "srs", "EPSG:4326");
+            addIfMissing(element, "enabled", "true");
+            if (element.getChild("namespace") == null) {
+                element.addContent(named("namespace", ws));
+            }
+            if (element.getChild("store") == null) {
+                Element store = named("store", ws + ":" + segments[3]);
+                store.setAttribute("class", COLLECTIONS.get(segments[2])[1]);
+                store.addContent(link(owner(collectionPath)));
+                element.addContent(store);
+            }
+            resources.put(layerOf(key), layer(ws, name, key, collection));
+        } else if (collection.equals("layergroups") || collection.equals("styles")) {
+            if (segments.length == 3 && element.getChild("workspace") == null) {
+                element.addContent(named("workspace", segments[1]));
+            }
+        }
+        resources.put(key, normalize(key, element));
+    }
+
+    /**
+     * Handles the <TT>file</TT>, <TT>url</TT> and <TT>external</TT> uploads,
+     * creating the store and, unless <TT>configure=none</TT>, its resource.
+     */
+    private Response upload(String[] segments, Map<String, String> params, String contentType, byte[] body) {
+        String ws = segments[1];
+        if (!resources.containsKey("workspaces/" + ws)) {
+            return Response.status(404, "No such workspace: " + ws);
+        }
+        String storeType = segments[2];
+        String store = segments[3];
+        String method = segments[4].substring(0, segments[4].indexOf('.'));
+        String extension = segments[4].substring(segments[4].indexOf('.') + 1);
+        String storePath = "workspaces/" + ws + "/" + storeType + "/" + store;
+        boolean vector = storeType.equals("datastores");
+
+        if (!resources.containsKey(storePath)) {
+            String type = STORE_TYPES.containsKey(extension) ? STORE_TYPES.get(extension) : extension;
+            create("workspaces/" + ws + "/" + storeType,
+                    store(ws, vector ? "dataStore" : "coverageStore", store, type));
+        }
+        String configure = params.containsKey("configure") ? params.get("configure") : "first";
+        if (!configure.equals("none")) {
+            List<String> names = new ArrayList<String>();
+            if (params.containsKey("coverageName")) {
+                names.add(params.get("coverageName"));
+            } else if (vector) {
+                names.addAll(uploadedNames(method, extension, body));
+            } else {
+                names.add(store);
+            }
+            if (names.isEmpty()) {
+                return Response.status(400, "Unable to find a ." + extension + " file in the upload");
+            }
+            if (configure.equals("first")) {
+                names = names.subList(0, 1);
+            }
+            String collection = vector ? "featuretypes" : "coverages";
+            for (String name : names) {
+                if (!resources.containsKey(storePath + "/" + collection + "/" + name)) {
+                    create(storePath + "/" + collection, resource(vector ? "featureType" : "coverage", name));
+                }
+            }
+        }
+        return new Response(201, new XMLOutputter().outputString(resources.get(storePath)),
+                "application/xml", restUrl + "/" + storePath);
+    }
+
+    /**
+     * @return the base names of the uploaded files with the given extension,
+     *         looking into zip archives and, for external uploads, into directories.
+     */
+    private static List<String> uploadedNames(String method, String extension, byte[] body) {
+        List<String> names = new ArrayList<String>();
+        String suffix = "." + extension;
+        if (method.equals("file")) {
+            try {
+                ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(body));
+                for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+                    if (entry.getName().toLowerCase().endsWith(suffix)) {
+                        names.add(baseName(entry.getName()));
+                    }
+                }
+            } catch (IOException e) {
+                // not a zip archive: nothing to publish
+            }
+            return names;
+        }
+        String location = string(body).trim();
+        File dir = new File(location.startsWith("file:") ? URI.create(location).getPath() : location);
+        if (method.equals("external") && dir.isDirectory()) {
+            String[] files = dir.list();
+            Arrays.sort(files);
+            for (String file : files) {
+                if (file.toLowerCase().endsWith(suffix)) {
+                    names.add(baseName(file));
+                }
+            }
+        } else {
+            names.add(baseName(location));
+        }
+        return names;
+    }
+
+    private static String baseName(String path) {
+        String name = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    //=========================================================================
+    // Paths
+    //=========================================================================
+
+    private static boolean isCollection(String[] segments) {
+        return segments.length % 2 == 1 && COLLECTIONS.containsKey(segments[segments.length - 1]);
+    }
+
+    private static boolean isUpload(String[] segments) {
+        return segments.length == 5 && segments[0].equals("workspaces")
+                && (segments[2].equals("datastores") || segments[2].equals("coveragestores"))
+                && segments[4].matches("(file|url|external)\\.\\w+");
+    }
+
+    private static String owner(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+    private boolean isOwnerPresent(String[] segments) {
+        return segments.length == 1 || resources.containsKey(owner(join(segments)));
+    }
+
+    private static String join(String[] segments) {
+        StringBuilder sb = new StringBuilder(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            sb.append('/').append(segments[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the key of the resource at the given path, or null. Layers can
+     *         be addressed with or without their workspace prefix and, as
+     *         GeoServer does, global styles are looked up in the workspaces
+     *         when missing.
+     */
+    private String resolve(String path) {
+        if (resources.containsKey(path)) {
+            return path;
+        }
+        if (path.startsWith("styles/")) {
+            String suffix = "/" + path;
+            for (String key : resources.subMap("workspaces/", "workspaces/\uffff").keySet()) {
+                if (key.endsWith(suffix) && key.split("/").length == 4) {
+                    return key;
+                }
+            }
+        }
+        if (path.startsWith("layers/") && path.indexOf(':') < 0) {
+            String suffix = ":" + path.substring("layers/".length());
+            for (String key : resources.subMap("layers/", "layers/\uffff").keySet()) {
+                if (key.endsWith(suffix)) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the key of the layer publishing the given feature type, coverage
+     *         or wms layer; null for other resources.
+     */
+    private static String layerOf(String key) {
+        String[] segments = key.split("/");
+        if (segments.length == 6 && (segments[4].equals("featuretypes")
+                || segments[4].equals("coverages") || segments[4].equals("wmslayers"))) {
+            return "layers/" + segments[1] + ":" + segments[5];
+        }
+        return null;
+    }
+
+    //=========================================================================
+    // Representations
+    //=========================================================================
+
+    private Element list(String path, String[] segments) {
+        String collection = segments[segments.length - 1];
+        String[] names = COLLECTIONS.get(collection);
+        Element list = new Element(names[0]);
+        String prefix = path + "/";
+        // workspaces/ws/featuretypes lists the resources of all the stores
+        boolean aggregate = segments.length == 3 && !collection.equals("styles")
+                && !collection.equals("layergroups") && !collection.endsWith("stores");
+        if (aggregate) {
+            prefix = "workspaces/" + segments[1] + "/";
+        }
+        for (String key : resources.subMap(prefix, prefix + "\uffff").keySet()) {
+            String[] k = key.split("/");
+            boolean member = aggregate ? k.length == 6 && k[4].equals(collection)
+                    : k.length == segments.length + 1;
+            if (member) {
+                String name = name(resources.get(key));
+                Element item = named(names[1], name != null ? name : k[k.length - 1]);
+                item.addContent(link(key));
+                list.addContent(item);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Turns the references sent by the client into the form GeoServer returns:
+     * <UL>
+     * <LI>layers: <TT>&lt;defaultStyle&gt;name&lt;/defaultStyle&gt;</TT> becomes
+     * <TT>&lt;defaultStyle&gt;&lt;name&gt;name&lt;/name&gt;&lt;/defaultStyle&gt;</TT>,
+     * prefixed with the style workspace if any; the same for the styles list;</LI>
+     * <LI>layer groups: the <TT>layers</TT> list becomes a <TT>publishables</TT>
+     * one, with unqualified names.</LI>
+     * </UL>
+     */
+    private static Element normalize(String key, Element element) {
+        if (key.startsWith("layers/")) {
+            Element style = element.getChild("defaultStyle");
+            if (style != null) {
+                reference(style);
+                String ws = style.getChildText("workspace");
+                Element name = style.getChild("name");
+                if (ws != null && name.getText().indexOf(':') < 0) {
+                    name.setText(ws + ":" + name.getText());
+                }
+            }
+            Element styles = element.getChild("styles");
+            if (styles != null) {
+                for (Object child : styles.getChildren()) {
+                    reference((Element) child);
+                }
+            }
+        } else if (key.contains("layergroups/")) {
+            Element layers = element.getChild("layers");
+            if (layers != null) {
+                Element publishables = new Element("publishables");
+                for (Object child : layers.getChildren()) {
+                    Element layer = (Element) child;
+                    reference(layer);
+                    Element published = named("published", layer.getChildText("name"));
+                    publishables.addContent(published.setAttribute("type", "layer"));
+                }
+                element.removeContent(layers);
+                element.addContent(publishables);
+            }
+            Element publishables = element.getChild("publishables");
+            if (publishables != null) {
+                for (Object child : publishables.getChildren()) {
+                    Element published = (Element) child;
+                    reference(published);
+                    unqualify(published.getChild("name"));
+                }
+            }
+            Element rootLayer = element.getChild("rootLayer");
+            if (rootLayer != null) {
+                reference(rootLayer);
+                unqualify(rootLayer.getChild("name"));
+            }
+        }
+        return element;
+    }
+
+    private static void unqualify(Element name) {
+        if (name != null) {
+            name.setText(name.getText().substring(name.getText().indexOf(':') + 1));
+        }
+    }
+
+    /**
+     * Wraps the text of a reference by name into a <TT>name</TT> element.
+     */
+    private static void reference(Element element) {
+        if (element.getChildren().isEmpty() && element.getTextTrim().length() > 0) {
+            String name = element.getTextTrim();
+            element.setText(null);
+            element.addContent(new Element("name").setText(name));
+        }
+    }
+
+    private Element aboutVersion() {
+        Element resource = new Element("resource").setAttribute("name", "GeoServer");
+        resource.addContent(new Element("Build-Timestamp").setText("01-Jan-2016 00:00"));
+        resource.addContent(new Element("Version").setText(version));
+        resource.addContent(new Element("Git-Revision").setText("stand-in"));
+        return new Element("about").addContent(resource);
+    }
+
+    private Element layer(String ws, String name, String resourceKey, String collection) {
+        boolean vector = collection.equals("featuretypes");
+        Element layer = named("layer", name);
+        layer.addContent(new Element("type").setText(vector ? "VECTOR" : collection.equals("coverages")
+                ? "RASTER" : "WMS"));
+        layer.addContent(named("defaultStyle", vector ? "polygon" : "raster"));
+        Element resource = named("resource", ws + ":" + name);
+        resource.setAttribute("class", COLLECTIONS.get(collection)[1]);
+        resource.addContent(link(resourceKey));
+        layer.addContent(resource);
+        layer.addContent(new Element("enabled").setText("true"));
+        return layer;
+    }
+
+    private static Element store(String ws, String root, String name, String type) {
+        Element store = named(root, name);
+        store.addContent(new Element("type").setText(type));
+        store.addContent(new Element("enabled").setText("true"));
+        store.addContent(named("workspace", ws));
+        return store;
+    }
+
+    private static Element resource(String root, String name) {
+        Element resource = named(root, name);
+        resource.addContent(new Element("nativeName").setText(name));
+        resource.addContent(new Element("title").setText(name));
+        resource.addContent(new Element("srs").setText("EPSG:4326"));
+        resource.addContent(new Element("enabled").setText("true"));
+        return resource;
+    }
+
+    /**
+     * @return the lat/lon bounds of the n-th populated layer: 10 degrees cells
+     *         filling the world row by row.
+     */
+    static Element cell(int n) {
+        int x = -180 + (n % 36) * 10;
+        int y = -90 + (n / 36 % 18) * 10;
+        Element bbox = new Element("latLonBoundingBox");
+        bbox.addContent(new Element("minx").setText(String.valueOf(x)));
+        bbox.addContent(new Element("maxx").setText(String.valueOf(x + 10)));
+        bbox.addContent(new Element("miny").setText(String.valueOf(y)));
+        bbox.addContent(new Element("maxy").setText(String.valueOf(y + 10)));
+        bbox.addContent(new Element("crs").setText("EPSG:4326"));
+        return bbox;
+    }
+
+    private static Element style(String name) {
+        Element style = named("style", name);
+        style.addContent(new Element("format").setText("sld"));
+        style.addContent(new Element("languageVersion").addContent(new Element("version").setText("1.0.0")));
+        style.addContent(new Element("filename").setText(name + ".sld"));
+        return style;
+    }
+
+    private Element link(String key) {
+        return new Element("link", ATOM).setAttribute("rel", "alternate")
+                .setAttribute("href", restUrl + "/" + key + ".xml")
+                .setAttribute("type", "application/xml");
+    }
+
+    private static Element named(String root, String name) {
+        return new Element(root).addContent(new Element("name").setText(name));
+    }
+
+    private static void addIfMissing(Element element, String child, String value) {
+        if (element.getChild(child) == null) {
+            element.addContent(new Element(child).setText(value));
+        }
+    }
+
+    private static String name(Element element) {
+        String name = element.getChildText("name");
+        return name != null ? name : element.getChildText("prefix");
+    }
+
+    /**
+     * @return the name of the first user style (or named layer) of an SLD.
+     */
+    private static String styleName(Element sld) {
+        for (String parent : new String[] { "UserStyle", "NamedLayer" }) {
+            Iterator<?> it = sld.getDescendants(new ElementFilter(parent));
+            while (it.hasNext()) {
+                for (Object child : ((Element) it.next()).getChildren()) {
+                    Element name = (Element) child;
+                    if (name.getName().equals("Name") && name.getTextTrim().length() > 0) {
+                        return name.getTextTrim();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the SLD to be returned for a style: unless <TT>raw=true</TT>,
+     *         GeoServer names the first layer after the style.
+     */
+    private static String sld(Element sld, String name, Map<String, String> params, byte[] body) {
+        if (Boolean.parseBoolean(params.get("raw"))) {
+            return string(body);
+        }
+        Iterator<?> layers = sld.getDescendants(new ElementFilter("NamedLayer"));
+        if (layers.hasNext()) {
+            Element layer = (Element) layers.next();
+            for (Object child : layer.getChildren()) {
+                if (((Element) child).getName().equals("Name")) {
+                    ((Element) child).setText(name);
+                }
+            }
+        }
+        return new XMLOutputter().outputString(new Document(sld));
+    }
+
+    private static boolean isSld(String contentType) {
+        return contentType != null && (contentType.contains("sld") || contentType.contains("se+xml"));
+    }
+
+    private static Response xml(int status, Element element) {
+        return new Response(status, new XMLOutputter().outputString(element), "application/xml", null);
+    }
+
+    private Response created(String key, String name) {
+        return new Response(201, name, "text/plain", restUrl + "/" + key);
+    }
+
+    private static Element parse(byte[] body) {
+        try {
+            Document doc = new SAXBuilder().build(new ByteArrayInputStream(body));
+            return (Element) doc.getRootElement().detach();
+        } catch (JDOMException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String string(byte[] body) {
+        try {
+            return new String(body, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
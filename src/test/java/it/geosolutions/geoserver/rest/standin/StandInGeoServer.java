@@ -0,0 +1,331 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.standin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded, in memory, stand-in for the GeoServer REST API.
+ * <P>
+ * Implements the subset of the <TT>/rest</TT> endpoints used by the client
+ * (workspaces, namespaces, data and coverage stores, feature types, coverages,
+ * layers, layer groups, styles, file uploads and <TT>about/version</TT>), so that
+ * the integration tests and the benchmarks can run without a real GeoServer.
+ * The uploaded data is not read: publishing creates the catalog entries
+ * GeoServer would create, with default attributes.
+ * <P>
+ * The server can be tuned to reproduce a loaded or flaky instance:
+ * <UL>
+ * <LI>{@link #setLatency(long, long)} delays each response;</LI>
+ * <LI>{@link #setErrorRate(double, int)} and {@link #failNext(int, int)} inject errors;</LI>
+ * <LI>{@link #populate(int, int, int)} preloads a catalog of the wanted size.</LI>
+ * </UL>
+ * Usage:
+ * <PRE>
+ * StandInGeoServer server = new StandInGeoServer();
+ * server.populate(10, 5, 20);
+ * server.start();
+ * GeoServerRESTManager manager = new GeoServerRESTManager(server.getURL(), "admin", "geoserver");
+ * ...
+ * server.stop();
+ * </PRE>
+ */
+public class StandInGeoServer {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(StandInGeoServer.class);
+
+    private static final String CONTEXT = "/geoserver";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final URL url;
+
+    private final StandInCatalog catalog;
+
+    private volatile String authorization;
+
+    private volatile long latency;
+
+    private volatile long jitter;
+
+    private volatile double errorRate;
+
+    private volatile int errorStatus = 500;
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile int failureStatus = 500;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Binds the server to an ephemeral port of the loopback interface.
+     */
+    public StandInGeoServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * Binds the server to the given port of the loopback interface, <TT>0</TT>
+     * for an ephemeral one.
+     */
+    public StandInGeoServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        url = new URL("http", "localhost", server.getAddress().getPort(), CONTEXT);
+        catalog = new StandInCatalog(url + "/rest");
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "geoserver-standin");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext(CONTEXT + "/rest", this::handle);
+        setCredentials("admin", "geoserver");
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("GeoServer stand-in listening at " + url);
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the GeoServer URL, to be given to the client.
+     */
+    public URL getURL() {
+        return url;
+    }
+
+    /**
+     * Sets the credentials the requests must carry, as basic authentication.
+     * Use <TT>null</TT> to accept any request.
+     */
+    public void setCredentials(String username, String password) {
+        if (username == null) {
+            authorization = null;
+        } else {
+            try {
+                authorization = "Basic " + Base64.getEncoder()
+                        .encodeToString((username + ":" + password).getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Sets the version returned by <TT>about/version</TT>; defaults to <TT>2.8.0</TT>.
+     * A null version answers 404, as GeoServer 2.1 does.
+     */
+    public void setVersion(String version) {
+        catalog.setVersion(version);
+    }
+
+    /**
+     * Delays each response by <TT>millis</TT> plus a random amount up to <TT>jitter</TT>.
+     */
+    public void setLatency(long millis, long jitter) {
+        if (millis < 0 || jitter < 0) {
+            throw new IllegalArgumentException("The latency must not be negative");
+        }
+        this.latency = millis;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Answers the given fraction of the requests with <TT>status</TT>.
+     */
+    public void setErrorRate(double rate, int status) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("The error rate must be between 0 and 1: " + rate);
+        }
+        this.errorRate = rate;
+        this.errorStatus = status;
+    }
+
+    /**
+     * Answers the next <TT>count</TT> requests with <TT>status</TT>.
+     */
+    public void failNext(int count, int status) {
+        failureStatus = status;
+        failures.set(count);
+    }
+
+    /**
+     * Adds <TT>workspaces</TT> workspaces (<TT>ws0</TT>, <TT>ws1</TT>, ...) each one
+     * holding <TT>stores</TT> datastores (<TT>store0</TT>, ...) publishing
+     * <TT>layers</TT> layers (<TT>layer0_0</TT>, ...).
+     * <BR>
+     * The n-th layer covers the n-th 10 degrees cell of the world, filled from
+     * (-180, -90) eastwards, row by row.
+     */
+    public void populate(int workspaces, int stores, int layers) {
+        catalog.populate(workspaces, stores, layers);
+    }
+
+    /**
+     * Empties the catalog.
+     */
+    public void clear() {
+        catalog.clear();
+    }
+
+    /**
+     * @return the number of catalog entries, layers included.
+     */
+    public int getCatalogSize() {
+        return catalog.size();
+    }
+
+    /**
+     * @return the number of requests received so far.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            delay();
+            StandInCatalog.Response response;
+            if (authorization != null
+                    && !authorization.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"GeoServer Realm\"");
+                response = StandInCatalog.Response.status(401, "Unauthorized");
+            } else if (failures.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                response = StandInCatalog.Response.status(failureStatus, "Injected failure");
+            } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                response = StandInCatalog.Response.status(errorStatus, "Injected failure");
+            } else {
+                response = dispatch(exchange);
+            }
+            send(exchange, response);
+        } catch (RuntimeException e) {
+            LOGGER.error("Stand-in failure on " + exchange.getRequestURI(), e);
+            send(exchange, StandInCatalog.Response.status(500, String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private StandInCatalog.Response dispatch(HttpExchange exchange) throws IOException {
+        // the client encodes the names as form parameters, turning blanks into '+'
+        String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), "UTF-8")
+                .substring((CONTEXT + "/rest").length());
+        path = path.replaceAll("^/+|/+$", "");
+        String extension = null;
+        int dot = path.lastIndexOf('.');
+        if (dot > path.lastIndexOf('/')) {
+            String ext = path.substring(dot + 1);
+            if (ext.equals("xml") || ext.equals("json") || ext.equals("sld") || ext.equals("html")) {
+                extension = ext;
+                path = path.substring(0, dot);
+            }
+        }
+        Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+
+        String method = exchange.getRequestMethod();
+        if (method.equals("GET") || method.equals("HEAD")) {
+            return catalog.get(path, extension);
+        } else if (method.equals("POST")) {
+            return catalog.post(path, params, contentType, body);
+        } else if (method.equals("PUT")) {
+            return catalog.put(path, params, contentType, body);
+        } else if (method.equals("DELETE")) {
+            return catalog.delete(path, params);
+        }
+        return StandInCatalog.Response.status(405, "Unsupported method " + method);
+    }
+
+    private static Map<String, String> params(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query != null) {
+            for (String kvp : query.split("&")) {
+                int eq = kvp.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(kvp.substring(0, eq), "UTF-8"),
+                            URLDecoder.decode(kvp.substring(eq + 1), "UTF-8"));
+                }
+            }
+        }
+        return params;
+    }
+
+    private void delay() {
+        long millis = latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, StandInCatalog.Response response) throws IOException {
+        if (response.location != null) {
+            exchange.getResponseHeaders().add("Location", response.location);
+        }
+        byte[] body = response.body == null ? new byte[0] : response.body.getBytes("UTF-8");
+        if (exchange.getRequestMethod().equals("HEAD") || body.length == 0) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", response.contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+    }
+}
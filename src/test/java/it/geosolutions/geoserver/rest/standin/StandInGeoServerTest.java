@@ -0,0 +1,171 @@
+/*
+ *  GeoServer-Manager - Simple Manager Library for GeoServer
+ *
+ *  Copyright (C) 2007 - 2016 GeoSolutions S.A.S.
+ *  http://www.geo-solutions.it
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package it.geosolutions.geoserver.rest.standin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.geoserver.rest.GeoServerRESTManager;
+import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTCompactResource;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureType;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
+import it.geosolutions.geoserver.rest.encoder.GSPostGISDatastoreEncoder;
+import it.geosolutions.geoserver.rest.encoder.feature.GSFeatureTypeEncoder;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the client against the {@link StandInGeoServer}.
+ */
+public class StandInGeoServerTest {
+
+    private StandInGeoServer server;
+
+    private GeoServerRESTReader reader;
+
+    private GeoServerRESTPublisher publisher;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInGeoServer();
+        server.start();
+        GeoServerRESTManager manager = new GeoServerRESTManager(server.getURL(), "admin", "geoserver");
+        reader = manager.getReader();
+        publisher = manager.getPublisher();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testPublishAndRemove() {
+        assertTrue(reader.existGeoserver());
+        assertTrue(publisher.createWorkspace("topp"));
+        assertTrue(reader.existsNamespace("topp"));
+        assertFalse(publisher.createWorkspace("topp"));
+
+        assertTrue(publisher.publishStyle("<StyledLayerDescriptor><NamedLayer><Name>roads</Name>"
+                + "<UserStyle><Name>line</Name></UserStyle></NamedLayer></StyledLayerDescriptor>", "line"));
+        assertTrue(reader.existsStyle("line"));
+        assertTrue(reader.getSLD("line").contains("<Name>line</Name>"));
+
+        assertFalse(publisher.publishDBLayer("topp", "pg", featureType("roads"), layer("line")));
+        assertNull(reader.getLayer("topp", "roads"));
+        assertTrue(publisher.createPostGISDatastore("topp", datastore("pg")));
+        assertTrue(publisher.publishDBLayer("topp", "pg", featureType("roads"), layer("line")));
+
+        RESTLayer layer = reader.getLayer("topp", "roads");
+        assertEquals("line", layer.getDefaultStyle());
+        RESTFeatureType featureType = reader.getFeatureType(layer);
+        assertEquals("roads", featureType.getName());
+        assertEquals("topp:pg", featureType.getStoreName());
+        assertEquals(1, reader.getFeatureTypes("topp").size());
+
+        RESTCompactLayer compact = reader.getCompactLayer("topp", "roads");
+        assertEquals("line", compact.getDefaultStyle());
+        RESTCompactResource resource = reader.getCompactResource(compact);
+        assertEquals("roads", resource.getName());
+        assertEquals("topp:pg", resource.getStoreName());
+
+        assertFalse(publisher.removeWorkspace("topp", false));
+        assertTrue(publisher.removeWorkspace("topp", true));
+        assertFalse(reader.existsWorkspace("topp"));
+        assertFalse(reader.existsNamespace("topp"));
+        assertTrue(reader.getLayers().isEmpty());
+    }
+
+    @Test
+    public void testPopulate() {
+        server.populate(3, 2, 5);
+        // workspaces and namespaces, stores, feature types and layers
+        assertEquals(3 * 2 + 3 * 2 + 3 * 2 * 5 * 2, server.getCatalogSize());
+        assertEquals(3, reader.getWorkspaces().size());
+        assertEquals(2, reader.getDatastores("ws1").size());
+        assertEquals(10, reader.getFeatureTypes("ws1").size());
+        assertEquals(30, reader.getLayers().size());
+        assertNotNull(reader.getLayer("ws2", "layer1_4"));
+    }
+
+    @Test
+    public void testCredentials() {
+        server.populate(1, 1, 1);
+        GeoServerRESTReader intruder = new GeoServerRESTManager(server.getURL(), "admin", "wrong").getReader();
+        assertNull(intruder.getWorkspaces());
+        server.setCredentials(null, null);
+        assertEquals(1, intruder.getWorkspaces().size());
+    }
+
+    @Test
+    public void testFailuresAndLatency() {
+        server.populate(1, 1, 1);
+        server.failNext(2, 503);
+        assertNull(reader.getWorkspaces());
+        assertNull(reader.getWorkspaces());
+        assertEquals(1, reader.getWorkspaces().size());
+
+        server.setErrorRate(1, 500);
+        assertNull(reader.getLayers());
+        server.setErrorRate(0, 500);
+
+        server.setLatency(50, 0);
+        long start = System.nanoTime();
+        assertEquals(1, reader.getLayers().size());
+        assertTrue(System.nanoTime() - start >= 50000000L);
+        assertEquals(5, server.getRequestCount());
+    }
+
+    private static GSPostGISDatastoreEncoder datastore(String name) {
+        GSPostGISDatastoreEncoder encoder = new GSPostGISDatastoreEncoder();
+        encoder.setName(name);
+        encoder.setHost("localhost");
+        encoder.setDatabase("gis");
+        return encoder;
+    }
+
+    private static GSFeatureTypeEncoder featureType(String name) {
+        GSFeatureTypeEncoder encoder = new GSFeatureTypeEncoder();
+        encoder.setName(name);
+        encoder.setSRS("EPSG:4326");
+        return encoder;
+    }
+
+    private static GSLayerEncoder layer(String style) {
+        GSLayerEncoder encoder = new GSLayerEncoder();
+        encoder.setDefaultStyle(style);
+        return encoder;
+    }
+}